@@ -0,0 +1,169 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.benchmarks;
+
+import com.io7m.jdownload.core.JVerifierConfiguration;
+import com.io7m.jdownload.core.JVerifierType;
+import com.io7m.jdownload.core.JVerifiers;
+import com.io7m.jdownload.core.JVerifyRequest;
+import com.io7m.jdownload.core.JVerifyResultType;
+import com.io7m.jdownload.core.JVerifySucceeded;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for hashing a file, as is done when verifying a download. The
+ * file is hashed by a verifier, so the benchmark measures the library's own
+ * digest code on a single thread. A buffer size of zero selects the mapped
+ * path used for large files; any other size selects the buffered path used
+ * for small files and after downloads, reading through a buffer of that
+ * size.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JDownloadDigestBenchmark
+{
+  private static final int FILE_SIZE = 64 * 1024 * 1024;
+
+  /**
+   * The digest algorithm.
+   */
+
+  @Param({"SHA-1", "SHA-256", "SHA-512"})
+  public String algorithm;
+
+  /**
+   * The buffer size, or {@code 0} to map the file.
+   */
+
+  @Param({"0", "8192", "65536", "1048576"})
+  public int bufferSize;
+
+  private Path file;
+  private ForkJoinPool pool;
+  private JVerifierType verifier;
+  private List<JVerifyRequest> requests;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public JDownloadDigestBenchmark()
+  {
+
+  }
+
+  /**
+   * Create the file to be hashed.
+   *
+   * @throws IOException              On errors
+   * @throws NoSuchAlgorithmException On errors
+   */
+
+  @Setup(Level.Trial)
+  public void setup()
+    throws IOException, NoSuchAlgorithmException
+  {
+    final var data = new byte[FILE_SIZE];
+    new Random(0L).nextBytes(data);
+
+    this.file = Files.createTempFile("jdownload-digest-", ".bin");
+    Files.write(this.file, data);
+
+    this.pool = new ForkJoinPool(1);
+    this.verifier = JVerifiers.create(this.pool, this.configuration());
+    this.requests = List.of(
+      new JVerifyRequest(
+        this.file,
+        this.algorithm,
+        MessageDigest.getInstance(this.algorithm).digest(data)
+      )
+    );
+  }
+
+  private JVerifierConfiguration configuration()
+  {
+    if (this.bufferSize == 0) {
+      return JVerifierConfiguration.defaults();
+    }
+    return new JVerifierConfiguration(this.bufferSize, false);
+  }
+
+  /**
+   * Delete the file.
+   *
+   * @throws IOException On errors
+   */
+
+  @TearDown(Level.Trial)
+  public void tearDown()
+    throws IOException
+  {
+    this.pool.shutdown();
+    Files.deleteIfExists(this.file);
+  }
+
+  /**
+   * Hash the file.
+   *
+   * @param octets The octet counter
+   *
+   * @return The result
+   *
+   * @throws InterruptedException On interruption
+   */
+
+  @Benchmark
+  public JVerifyResultType hashFile(
+    final JDownloadOctets octets)
+    throws InterruptedException
+  {
+    final var result = this.verifier.verify(this.requests).get(0);
+    if (!(result instanceof JVerifySucceeded)) {
+      throw new IllegalStateException("Verification failed: " + result);
+    }
+    octets.octets += FILE_SIZE;
+    return result;
+  }
+}
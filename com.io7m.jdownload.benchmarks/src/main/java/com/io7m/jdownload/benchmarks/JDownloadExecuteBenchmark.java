@@ -0,0 +1,234 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.benchmarks;
+
+import com.io7m.jdownload.core.JDownloadRequests;
+import com.io7m.jdownload.core.JDownloadResultType;
+import com.io7m.jdownload.core.JDownloadSucceeded;
+import com.io7m.quixote.core.QWebServerType;
+import com.io7m.quixote.core.QWebServers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for complete downloads from a local server.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class JDownloadExecuteBenchmark
+{
+  /**
+   * The size of the downloaded file.
+   */
+
+  @Param({"65536", "1048576", "16777216", "67108864"})
+  public int size;
+
+  /**
+   * The checksum algorithm, or {@code NONE}.
+   */
+
+  @Param({"NONE", "SHA-256"})
+  public String checksum;
+
+  private QWebServerType server;
+  private HttpClient client;
+  private URI target;
+  private Path directory;
+  private String payload;
+  private byte[] payloadHash;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public JDownloadExecuteBenchmark()
+  {
+
+  }
+
+  private static int freePort()
+    throws IOException
+  {
+    try (var socket =
+           new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      return socket.getLocalPort();
+    }
+  }
+
+  /**
+   * Start the server.
+   *
+   * @throws IOException              On errors
+   * @throws NoSuchAlgorithmException On errors
+   */
+
+  @Setup(Level.Trial)
+  public void setup()
+    throws IOException, NoSuchAlgorithmException
+  {
+    final var port = freePort();
+    this.server = QWebServers.createServer(port);
+    this.client = HttpClient.newHttpClient();
+    this.target = URI.create("http://localhost:%d/file".formatted(port));
+    this.directory = Files.createTempDirectory("jdownload-execute-");
+
+    final var random = new Random(0L);
+    final var text = new StringBuilder(this.size);
+    for (int index = 0; index < this.size; ++index) {
+      text.append((char) ('a' + random.nextInt(26)));
+    }
+    this.payload = text.toString();
+
+    if (!"NONE".equals(this.checksum)) {
+      this.payloadHash =
+        MessageDigest.getInstance(this.checksum)
+          .digest(this.payload.getBytes(StandardCharsets.US_ASCII));
+    }
+  }
+
+  /**
+   * Queue a response for the next download.
+   */
+
+  @Setup(Level.Invocation)
+  public void setupInvocation()
+  {
+    this.server.addResponse()
+      .withStatus(200)
+      .withFixedText(this.payload)
+      .forPath("/file");
+  }
+
+  /**
+   * Stop the server.
+   *
+   * @throws IOException On errors
+   */
+
+  @TearDown(Level.Trial)
+  public void tearDown()
+    throws IOException
+  {
+    this.server.close();
+    this.client.close();
+
+    try (var files = Files.list(this.directory)) {
+      for (final var file : files.toList()) {
+        Files.deleteIfExists(file);
+      }
+    }
+    Files.deleteIfExists(this.directory);
+  }
+
+  /**
+   * Download the file, verifying it if a checksum algorithm is given.
+   *
+   * @param octets The octet counter
+   *
+   * @return The result
+   *
+   * @throws InterruptedException On interruption
+   */
+
+  @Benchmark
+  public JDownloadResultType execute(
+    final JDownloadOctets octets)
+    throws InterruptedException
+  {
+    final var builder =
+      JDownloadRequests.builder(
+        this.client,
+        this.target,
+        this.directory.resolve("out.bin")
+      );
+
+    if (this.payloadHash != null) {
+      builder.setChecksumStatically(this.checksum, this.payloadHash);
+    }
+
+    final var result = builder.build().execute();
+    if (!(result instanceof JDownloadSucceeded)) {
+      throw new IllegalStateException("Download failed: " + result);
+    }
+    octets.octets += this.size;
+    return result;
+  }
+
+  /**
+   * Download the file using only the JDK HTTP client, for comparison with
+   * {@link #execute(JDownloadOctets)} without a checksum.
+   *
+   * @param octets The octet counter
+   *
+   * @return The response
+   *
+   * @throws IOException          On errors
+   * @throws InterruptedException On interruption
+   */
+
+  @Benchmark
+  public HttpResponse<Path> baselineOfFile(
+    final JDownloadOctets octets)
+    throws IOException, InterruptedException
+  {
+    final var response =
+      this.client.send(
+        HttpRequest.newBuilder(this.target).build(),
+        HttpResponse.BodyHandlers.ofFile(this.directory.resolve("base.bin"))
+      );
+
+    if (response.statusCode() != 200) {
+      throw new IllegalStateException(
+        "Download failed: " + response.statusCode());
+    }
+    octets.octets += this.size;
+    return response;
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+
+/**
+ * A checksum strategy that looks up the checksum of a file in a manifest
+ * that covers many files, such as a {@code SHA256SUMS} file. Both the GNU
+ * coreutils format ({@code <hex>  <name>}) and the BSD format
+ * ({@code SHA256 (<name>) = <hex>}) are supported.
+ *
+ * @param algorithm   The checksum algorithm (such as "SHA-256")
+ * @param manifestURI The manifest URI
+ * @param entry       The name of the file in the manifest
+ * @param index       The index in which the parsed manifest is kept
+ */
+
+public record JChecksumFromManifest(
+  String algorithm,
+  URI manifestURI,
+  String entry,
+  JChecksumManifestIndexType index)
+  implements JChecksumStrategyType
+{
+  /**
+   * A checksum strategy that looks up the checksum of a file in a manifest
+   * that covers many files.
+   *
+   * @param algorithm   The checksum algorithm (such as "SHA-256")
+   * @param manifestURI The manifest URI
+   * @param entry       The name of the file in the manifest
+   * @param index       The index in which the parsed manifest is kept
+   */
+
+  public JChecksumFromManifest
+  {
+    Objects.requireNonNull(algorithm, "algorithm");
+    Objects.requireNonNull(manifestURI, "manifestURI");
+    Objects.requireNonNull(entry, "entry");
+    Objects.requireNonNull(index, "index");
+
+    try {
+      MessageDigest.getInstance(algorithm);
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
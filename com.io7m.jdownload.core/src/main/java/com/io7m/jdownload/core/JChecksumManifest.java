@@ -0,0 +1,210 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * A parsed checksum manifest.
+ *
+ * @param status  The HTTP status of the response that delivered the
+ *                manifest
+ * @param entries The checksums in the manifest, by file name
+ */
+
+record JChecksumManifest(
+  int status,
+  Map<String, List<Entry>> entries)
+{
+  private static final Pattern BSD_LINE =
+    Pattern.compile("([A-Za-z0-9/-]+) ?\\((.*)\\) ?= ?([0-9A-Fa-f]+)");
+  private static final Pattern GNU_LINE =
+    Pattern.compile("\\\\?([0-9A-Fa-f]+) [ *](.+)");
+
+  JChecksumManifest
+  {
+    Objects.requireNonNull(entries, "entries");
+  }
+
+  /**
+   * A checksum in a manifest.
+   *
+   * @param algorithm The algorithm named by the manifest line, normalized
+   *                  with {@link #normalizeAlgorithm(String)}, if any
+   * @param checksum  The checksum
+   */
+
+  record Entry(
+    Optional<String> algorithm,
+    byte[] checksum)
+  {
+    Entry
+    {
+      Objects.requireNonNull(algorithm, "algorithm");
+      Objects.requireNonNull(checksum, "checksum");
+    }
+  }
+
+  /**
+   * @param status The HTTP status
+   *
+   * @return A manifest for a response that did not deliver one
+   */
+
+  static JChecksumManifest failed(
+    final int status)
+  {
+    return new JChecksumManifest(status, Map.of());
+  }
+
+  /**
+   * Parse a manifest. Lines that are in neither the GNU nor the BSD format,
+   * such as comments or the armour of a signed manifest, are ignored.
+   *
+   * @param status The HTTP status
+   * @param text   The manifest text
+   *
+   * @return The parsed manifest
+   */
+
+  static JChecksumManifest parse(
+    final int status,
+    final String text)
+  {
+    final var hex = HexFormat.of();
+    final var entries = new HashMap<String, List<Entry>>();
+
+    for (final var line : text.split("\n")) {
+      final var trimmed = line.strip();
+      if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+        continue;
+      }
+
+      final var bsd = BSD_LINE.matcher(trimmed);
+      if (bsd.matches() && bsd.group(3).length() % 2 == 0) {
+        entries.computeIfAbsent(
+            normalizeName(bsd.group(2)),
+            k -> new ArrayList<>())
+          .add(new Entry(
+            Optional.of(normalizeAlgorithm(bsd.group(1))),
+            hex.parseHex(bsd.group(3))
+          ));
+        continue;
+      }
+
+      final var gnu = GNU_LINE.matcher(trimmed);
+      if (gnu.matches() && gnu.group(1).length() % 2 == 0) {
+        var name = gnu.group(2);
+        if (trimmed.startsWith("\\")) {
+          name = unescape(name);
+        }
+        entries.computeIfAbsent(normalizeName(name), k -> new ArrayList<>())
+          .add(new Entry(Optional.empty(), hex.parseHex(gnu.group(1))));
+      }
+    }
+    return new JChecksumManifest(status, Map.copyOf(entries));
+  }
+
+  /**
+   * Find the checksum of the given file. A line that names an algorithm
+   * must name the given algorithm; a line that does not must have a
+   * checksum of the right length for the given algorithm.
+   *
+   * @param algorithm The algorithm
+   * @param name      The file name
+   *
+   * @return The checksum, if the manifest contains one
+   */
+
+  Optional<byte[]> find(
+    final String algorithm,
+    final String name)
+  {
+    final var candidates = this.entries.get(normalizeName(name));
+    if (candidates == null) {
+      return Optional.empty();
+    }
+
+    final int length;
+    try {
+      length = MessageDigest.getInstance(algorithm).getDigestLength();
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+
+    final var normalized = normalizeAlgorithm(algorithm);
+    for (final var entry : candidates) {
+      final var matches =
+        entry.algorithm()
+          .map(normalized::equals)
+          .orElse(Boolean.valueOf(entry.checksum().length == length))
+          .booleanValue();
+      if (matches) {
+        return Optional.of(entry.checksum().clone());
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * @param algorithm An algorithm name such as "SHA-256" or "SHA256"
+   *
+   * @return The name in a form in which different spellings compare equal
+   */
+
+  static String normalizeAlgorithm(
+    final String algorithm)
+  {
+    return algorithm.replace("-", "").toUpperCase(Locale.ROOT);
+  }
+
+  private static String normalizeName(
+    final String name)
+  {
+    if (name.startsWith("./")) {
+      return name.substring(2);
+    }
+    return name;
+  }
+
+  private static String unescape(
+    final String name)
+  {
+    final var result = new StringBuilder(name.length());
+    for (int index = 0; index < name.length(); ++index) {
+      final var c = name.charAt(index);
+      if (c == '\\' && index + 1 < name.length()) {
+        final var next = name.charAt(++index);
+        result.append(next == 'n' ? '\n' : next);
+      } else {
+        result.append(c);
+      }
+    }
+    return result.toString();
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * The default checksum manifest index.
+ */
+
+final class JChecksumManifestIndex implements JChecksumManifestIndexType
+{
+  private final ConcurrentHashMap<URI, Cached> manifests;
+
+  JChecksumManifestIndex()
+  {
+    this.manifests = new ConcurrentHashMap<>();
+  }
+
+  @Override
+  public int size()
+  {
+    return this.manifests.size();
+  }
+
+  @Override
+  public void clear()
+  {
+    this.manifests.clear();
+  }
+
+  /**
+   * Get the manifest at the given URI, downloading it if no request has
+   * done so already. The returned future may be cancelled without
+   * affecting any other request that is waiting for the same manifest.
+   *
+   * @param client   The HTTP client used if the manifest must be downloaded
+   * @param uri      The manifest URI
+   * @param modifier The modifier for the HTTP request
+   *
+   * @return The manifest, eventually
+   */
+
+  CompletableFuture<JChecksumManifest> manifest(
+    final HttpClient client,
+    final URI uri,
+    final Consumer<HttpRequest.Builder> modifier)
+  {
+    Objects.requireNonNull(client, "client");
+    Objects.requireNonNull(uri, "uri");
+    Objects.requireNonNull(modifier, "modifier");
+
+    final var key = uri.normalize();
+    final var created = new CompletableFuture<JChecksumManifest>();
+    final var cached = new Cached(created, System.nanoTime());
+    final var existing = this.manifests.putIfAbsent(key, cached);
+    if (existing != null) {
+      return existing.manifest().copy();
+    }
+
+    final var requestBuilder = HttpRequest.newBuilder(uri);
+    modifier.accept(requestBuilder);
+
+    client.sendAsync(
+      requestBuilder.build(),
+      HttpResponse.BodyHandlers.ofString()
+    ).whenComplete((response, exception) -> {
+      if (exception != null) {
+        this.manifests.remove(key, cached);
+        created.completeExceptionally(exception);
+        return;
+      }
+
+      final var status = response.statusCode();
+      if (status >= 400) {
+        this.manifests.remove(key, cached);
+        created.complete(JChecksumManifest.failed(status));
+        return;
+      }
+      created.complete(JChecksumManifest.parse(status, response.body()));
+    });
+    return created.copy();
+  }
+
+  /**
+   * Get the manifest at the given URI, as with
+   * {@link #manifest(HttpClient, URI, Consumer)}, but discard the cached
+   * manifest first if it was requested before {@code time}. This is used
+   * to download a manifest again when it does not contain an entry, in
+   * case the manifest has changed since it was cached. A manifest that was
+   * requested at or after {@code time} is returned as it is, so a manifest
+   * is only ever downloaded again once for each lookup.
+   *
+   * @param client   The HTTP client used if the manifest must be downloaded
+   * @param uri      The manifest URI
+   * @param modifier The modifier for the HTTP request
+   * @param time     The time, according to {@link System#nanoTime()}
+   *
+   * @return The manifest, eventually
+   */
+
+  CompletableFuture<JChecksumManifest> manifestRequestedSince(
+    final HttpClient client,
+    final URI uri,
+    final Consumer<HttpRequest.Builder> modifier,
+    final long time)
+  {
+    Objects.requireNonNull(uri, "uri");
+
+    final var key = uri.normalize();
+    final var existing = this.manifests.get(key);
+    if (existing != null && existing.requested() - time < 0L) {
+      this.manifests.remove(key, existing);
+    }
+    return this.manifest(client, uri, modifier);
+  }
+
+  /**
+   * Get the manifest that a lookup should use. A cached manifest that does
+   * not contain the entry may have been downloaded before the file was
+   * published, so it is downloaded again.
+   *
+   * @param client   The HTTP client used if the manifest must be downloaded
+   * @param lookup   The lookup
+   * @param modifier The modifier for the HTTP request
+   *
+   * @return The manifest, eventually
+   */
+
+  CompletableFuture<JChecksumManifest> manifestFor(
+    final HttpClient client,
+    final JChecksumFromManifest lookup,
+    final Consumer<HttpRequest.Builder> modifier)
+  {
+    Objects.requireNonNull(lookup, "lookup");
+
+    final var uri = lookup.manifestURI();
+    final var requested = System.nanoTime();
+
+    return this.manifest(client, uri, modifier)
+      .thenCompose(manifest -> {
+        final var found =
+          manifest.find(lookup.algorithm(), lookup.entry());
+        if (manifest.status() >= 400 || found.isPresent()) {
+          return CompletableFuture.completedFuture(manifest);
+        }
+        return this.manifestRequestedSince(client, uri, modifier, requested);
+      });
+  }
+
+  private record Cached(
+    CompletableFuture<JChecksumManifest> manifest,
+    long requested)
+  {
+
+  }
+}
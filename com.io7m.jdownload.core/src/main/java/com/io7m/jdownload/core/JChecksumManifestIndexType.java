@@ -0,0 +1,50 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+/**
+ * An index of checksum manifests. Each manifest is downloaded and parsed
+ * once, the first time that a request sharing the index needs it, and
+ * every later request that refers to the same manifest URI uses the
+ * parsed manifest. A manifest that could not be downloaded is not kept,
+ * and will be downloaded again by the next request that needs it. A
+ * manifest that does not contain the entry that a request needs is
+ * downloaded again once by that request, in case the manifest has changed
+ * since it was downloaded.
+ *
+ * @see JChecksumManifestIndexes
+ * @see JChecksumFromManifest
+ */
+
+public sealed interface JChecksumManifestIndexType
+  permits JChecksumManifestIndex
+{
+  /**
+   * @return The number of manifests in the index, including any that are
+   *         still being downloaded
+   */
+
+  int size();
+
+  /**
+   * Discard every manifest in the index, so that manifests are downloaded
+   * again when next needed.
+   */
+
+  void clear();
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+/**
+ * A factory for checksum manifest indexes.
+ */
+
+public final class JChecksumManifestIndexes
+{
+  private static final JChecksumManifestIndexType SHARED =
+    new JChecksumManifestIndex();
+
+  private JChecksumManifestIndexes()
+  {
+
+  }
+
+  /**
+   * Create a new, empty index.
+   *
+   * @return A new index
+   */
+
+  public static JChecksumManifestIndexType create()
+  {
+    return new JChecksumManifestIndex();
+  }
+
+  /**
+   * @return The index shared by every request in the process that does not
+   *         specify an index explicitly
+   */
+
+  public static JChecksumManifestIndexType shared()
+  {
+    return SHARED;
+  }
+}
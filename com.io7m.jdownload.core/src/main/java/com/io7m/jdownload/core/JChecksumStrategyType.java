@@ -22,7 +22,8 @@ package com.io7m.jdownload.core;
  */
 
 public sealed interface JChecksumStrategyType
-  permits JChecksumFromURI,
+  permits JChecksumFromManifest,
+  JChecksumFromURI,
   JChecksumNone,
   JChecksumStatically
 {
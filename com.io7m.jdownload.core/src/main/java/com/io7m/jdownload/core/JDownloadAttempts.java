@@ -0,0 +1,216 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The attempts made to execute a request, according to the request's retry
+ * policy.
+ *
+ * @see JDownloadRetryPolicy
+ */
+
+final class JDownloadAttempts
+{
+  private final JDownloadRequest request;
+  private final JDownloadRetryPolicy policy;
+  private final CompletableFuture<JDownloadResultType> result;
+  private final List<JDownloadErrorType> failures;
+  private volatile JDownloadExecution current;
+
+  JDownloadAttempts(
+    final JDownloadRequest inRequest)
+  {
+    this.request =
+      Objects.requireNonNull(inRequest, "request");
+    this.policy =
+      inRequest.retryPolicy();
+    this.result =
+      new CompletableFuture<>();
+    this.failures =
+      new ArrayList<>();
+  }
+
+  /**
+   * Start the first attempt.
+   *
+   * @return The result of the download
+   */
+
+  CompletableFuture<JDownloadResultType> run()
+  {
+    this.result.whenComplete((r, exception) -> {
+      if (exception instanceof CancellationException) {
+        final var execution = this.current;
+        if (execution != null) {
+          execution.cancel();
+        }
+      }
+    });
+
+    this.attempt(1);
+    return this.result;
+  }
+
+  private void attempt(
+    final int number)
+  {
+    if (this.result.isDone()) {
+      return;
+    }
+
+    final var execution = new JDownloadExecution(this.request, number);
+    this.current = execution;
+
+    final var future = execution.run();
+    if (this.result.isDone()) {
+      execution.cancel();
+      return;
+    }
+
+    future.whenComplete((r, exception) -> {
+      if (exception != null) {
+        this.result.completeExceptionally(exception);
+        return;
+      }
+      this.completed(number, execution, r);
+    });
+  }
+
+  private void completed(
+    final int number,
+    final JDownloadExecution execution,
+    final JDownloadResultType r)
+  {
+    if (r instanceof final JDownloadSucceeded succeeded) {
+      if (this.failures.isEmpty()) {
+        this.result.complete(succeeded);
+      } else {
+        this.result.complete(
+          new JDownloadSucceeded(
+            succeeded.outputFile(),
+            succeeded.checksumFile(),
+            succeeded.origin(),
+            this.failures,
+            succeeded.digests()
+          )
+        );
+      }
+      return;
+    }
+
+    final var error = (JDownloadErrorType) r;
+    this.failures.add(error);
+
+    final var delay =
+      this.delayBeforeRetry(number, error, execution);
+
+    if (delay.isEmpty()) {
+      if (this.failures.size() == 1) {
+        this.result.complete(error);
+      } else {
+        this.result.complete(
+          new JDownloadErrorRetriesExhausted(
+            this.request.target(),
+            this.request.outputFile(),
+            this.failures
+          )
+        );
+      }
+      return;
+    }
+
+    CompletableFuture.runAsync(
+      () -> this.attempt(number + 1),
+      CompletableFuture.delayedExecutor(
+        delay.get().toMillis(),
+        TimeUnit.MILLISECONDS
+      )
+    );
+  }
+
+  /**
+   * @return The delay before the next attempt, or nothing if the download
+   *         should not be retried
+   */
+
+  private Optional<Duration> delayBeforeRetry(
+    final int number,
+    final JDownloadErrorType error,
+    final JDownloadExecution execution)
+  {
+    if (number >= this.policy.maximumAttempts()) {
+      return Optional.empty();
+    }
+    if (!isTransient(error, execution)) {
+      return Optional.empty();
+    }
+
+    final var retryAfter = execution.retryAfter();
+    final var backoff =
+      this.policy.delayFor(number, ThreadLocalRandom.current().nextDouble());
+
+    if (retryAfter.isPresent()) {
+      final var requested = retryAfter.get();
+      if (requested.compareTo(this.policy.maximumDelay()) > 0) {
+        return Optional.empty();
+      }
+      if (requested.compareTo(backoff) > 0) {
+        return retryAfter;
+      }
+    }
+    return Optional.of(backoff);
+  }
+
+  /**
+   * Determine whether an error is transient. I/O errors are transient only
+   * if they were raised by an HTTP exchange and are therefore assumed to be
+   * network problems; errors accessing local files, such as a full disk,
+   * are permanent.
+   *
+   * @param error     The error
+   * @param execution The execution that produced the error
+   *
+   * @return {@code true} if the error is transient
+   */
+
+  static boolean isTransient(
+    final JDownloadErrorType error,
+    final JDownloadExecution execution)
+  {
+    if (error instanceof final JDownloadErrorHTTP http) {
+      return switch (http.status()) {
+        case 408, 429, 502, 503, 504 -> true;
+        default -> false;
+      };
+    }
+    if (error instanceof final JDownloadErrorIO io) {
+      return execution.isExchangeFailure(io.exception());
+    }
+    return false;
+  }
+}
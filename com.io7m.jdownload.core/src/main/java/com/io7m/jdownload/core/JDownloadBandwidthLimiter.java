@@ -0,0 +1,169 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free token bucket.
+ *
+ * The state of the bucket is a single time value: the instant at which the
+ * bucket was (or will be) empty. The number of tokens available at any given
+ * time follows from the time elapsed since that instant, capped at the burst
+ * size. Taking tokens moves the instant forward with a single
+ * compare-and-set, and an instant in the future means that the caller has
+ * taken more than was available and must wait until then.
+ */
+
+final class JDownloadBandwidthLimiter
+  implements JDownloadBandwidthLimiterType
+{
+  private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+  private final AtomicLong empty;
+  private volatile long rate;
+  private volatile long burst;
+
+  JDownloadBandwidthLimiter(
+    final long inRate,
+    final long inBurst)
+  {
+    this.rate = checkPositive(inRate, "rate");
+    this.burst = checkPositive(inBurst, "burst");
+    this.empty = new AtomicLong(
+      System.nanoTime() - nanosFor(inBurst, inRate)
+    );
+  }
+
+  private static long checkPositive(
+    final long value,
+    final String name)
+  {
+    if (value < 1L) {
+      throw new IllegalArgumentException(
+        "Bandwidth limiter %s must be positive (received %d)"
+          .formatted(name, Long.valueOf(value))
+      );
+    }
+    return value;
+  }
+
+  private static long nanosFor(
+    final long octets,
+    final long rate)
+  {
+    if (octets <= Long.MAX_VALUE / NANOS_PER_SECOND) {
+      return (octets * NANOS_PER_SECOND) / rate;
+    }
+    return (long) (((double) octets * NANOS_PER_SECOND) / rate);
+  }
+
+  /**
+   * Take tokens from each of the given limiters.
+   *
+   * @param limiters The limiters
+   * @param octets   The number of octets received
+   *
+   * @return The number of nanoseconds to wait before receiving more data
+   */
+
+  static long reserveAll(
+    final List<JDownloadBandwidthLimiter> limiters,
+    final long octets)
+  {
+    var delay = 0L;
+    for (int index = 0; index < limiters.size(); ++index) {
+      delay = Math.max(delay, limiters.get(index).reserve(octets));
+    }
+    return delay;
+  }
+
+  /**
+   * Take tokens from the bucket.
+   *
+   * @param octets The number of octets received
+   *
+   * @return The number of nanoseconds to wait before receiving more data
+   */
+
+  long reserve(
+    final long octets)
+  {
+    final var currentRate = this.rate;
+    final var cost = nanosFor(octets, currentRate);
+    final var tolerance = nanosFor(this.burst, currentRate);
+
+    while (true) {
+      final var now = System.nanoTime();
+      final var previous = this.empty.get();
+      final var next = Math.max(previous, now - tolerance) + cost;
+      if (this.empty.compareAndSet(previous, next)) {
+        return Math.max(0L, next - now);
+      }
+    }
+  }
+
+  @Override
+  public long rate()
+  {
+    return this.rate;
+  }
+
+  @Override
+  public long burst()
+  {
+    return this.burst;
+  }
+
+  @Override
+  public void setRate(
+    final long octetsPerSecond)
+  {
+    checkPositive(octetsPerSecond, "rate");
+
+    final var previousRate = this.rate;
+    this.rate = octetsPerSecond;
+
+    /*
+     * Any debt (an empty instant in the future) was measured at the
+     * previous rate, and is scaled so that it is repaid at the new rate.
+     */
+
+    final var scale = (double) previousRate / (double) octetsPerSecond;
+    while (true) {
+      final var now = System.nanoTime();
+      final var previous = this.empty.get();
+      final var debt = previous - now;
+      if (debt <= 0L) {
+        return;
+      }
+      final var next = now + (long) (debt * scale);
+      if (this.empty.compareAndSet(previous, next)) {
+        return;
+      }
+    }
+  }
+
+  @Override
+  public void setBurst(
+    final long octets)
+  {
+    this.burst = checkPositive(octets, "burst");
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+/**
+ * A token bucket that limits the rate at which response bodies are
+ * received. A limiter may be shared by any number of requests: a limiter
+ * shared by every request acts as a global cap, and a limiter given to a
+ * single request acts as a cap for that request alone. A request that has
+ * several limiters is held to the most restrictive of them.
+ *
+ * The bucket holds at most {@link #burst()} octets, and is refilled at
+ * {@link #rate()} octets per second. A transfer that receives more data than
+ * the bucket holds does not request any more data from the server until the
+ * bucket has been refilled. Both values may be changed at any time, and the
+ * changes affect transfers that are already in progress.
+ *
+ * @see JDownloadBandwidthLimiters
+ */
+
+public sealed interface JDownloadBandwidthLimiterType
+  permits JDownloadBandwidthLimiter
+{
+  /**
+   * @return The rate in octets per second
+   */
+
+  long rate();
+
+  /**
+   * @return The maximum number of octets that may be received without delay
+   */
+
+  long burst();
+
+  /**
+   * Set the rate. Any data that has been received in excess of the previous
+   * rate is accounted for at the new rate.
+   *
+   * @param octetsPerSecond The rate in octets per second
+   */
+
+  void setRate(
+    long octetsPerSecond
+  );
+
+  /**
+   * Set the maximum number of octets that may be received without delay.
+   *
+   * @param octets The number of octets
+   */
+
+  void setBurst(
+    long octets
+  );
+}
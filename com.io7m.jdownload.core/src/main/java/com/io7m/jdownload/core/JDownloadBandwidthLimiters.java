@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+/**
+ * A factory for bandwidth limiters.
+ */
+
+public final class JDownloadBandwidthLimiters
+{
+  private JDownloadBandwidthLimiters()
+  {
+
+  }
+
+  /**
+   * Create a limiter that allows bursts of up to one second of data.
+   *
+   * @param octetsPerSecond The rate in octets per second
+   *
+   * @return A new limiter
+   */
+
+  public static JDownloadBandwidthLimiterType create(
+    final long octetsPerSecond)
+  {
+    return create(octetsPerSecond, octetsPerSecond);
+  }
+
+  /**
+   * Create a limiter.
+   *
+   * @param octetsPerSecond The rate in octets per second
+   * @param burst           The maximum number of octets that may be
+   *                        received without delay
+   *
+   * @return A new limiter
+   */
+
+  public static JDownloadBandwidthLimiterType create(
+    final long octetsPerSecond,
+    final long burst)
+  {
+    return new JDownloadBandwidthLimiter(octetsPerSecond, burst);
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The configuration for a batch executor.
+ *
+ * @param maximumConcurrency        The maximum number of downloads that may
+ *                                  run concurrently
+ * @param maximumConcurrencyPerHost The maximum number of downloads that may
+ *                                  run concurrently against a single host
+ * @param maximumConcurrencyByHost  The maximum number of downloads that may
+ *                                  run concurrently against specific hosts,
+ *                                  overriding
+ *                                  {@code maximumConcurrencyPerHost}; host
+ *                                  names are case-insensitive
+ */
+
+public record JDownloadBatchConfiguration(
+  int maximumConcurrency,
+  int maximumConcurrencyPerHost,
+  Map<String, Integer> maximumConcurrencyByHost)
+{
+  /**
+   * The configuration for a batch executor.
+   *
+   * @param maximumConcurrency        The maximum number of downloads that may
+   *                                  run concurrently
+   * @param maximumConcurrencyPerHost The maximum number of downloads that may
+   *                                  run concurrently against a single host
+   * @param maximumConcurrencyByHost  The maximum number of downloads that may
+   *                                  run concurrently against specific hosts,
+   *                                  overriding
+   *                                  {@code maximumConcurrencyPerHost}
+   */
+
+  public JDownloadBatchConfiguration
+  {
+    Objects.requireNonNull(
+      maximumConcurrencyByHost, "maximumConcurrencyByHost");
+
+    checkPositive(maximumConcurrency, "maximumConcurrency");
+    checkPositive(maximumConcurrencyPerHost, "maximumConcurrencyPerHost");
+
+    final var byHost = new HashMap<String, Integer>();
+    for (final var entry : maximumConcurrencyByHost.entrySet()) {
+      final var host = entry.getKey().toLowerCase(Locale.ROOT);
+      final var limit = entry.getValue();
+      checkPositive(limit.intValue(), host);
+      if (byHost.put(host, limit) != null) {
+        throw new IllegalArgumentException(
+          "Concurrency limit for host %s is specified more than once"
+            .formatted(host)
+        );
+      }
+    }
+    maximumConcurrencyByHost = Map.copyOf(byHost);
+  }
+
+  /**
+   * The configuration for a batch executor, without any host-specific
+   * limits.
+   *
+   * @param maximumConcurrency        The maximum number of downloads that may
+   *                                  run concurrently
+   * @param maximumConcurrencyPerHost The maximum number of downloads that may
+   *                                  run concurrently against a single host
+   */
+
+  public JDownloadBatchConfiguration(
+    final int maximumConcurrency,
+    final int maximumConcurrencyPerHost)
+  {
+    this(maximumConcurrency, maximumConcurrencyPerHost, Map.of());
+  }
+
+  private static void checkPositive(
+    final int value,
+    final String name)
+  {
+    if (value < 1) {
+      throw new IllegalArgumentException(
+        "Concurrency limit %s must be positive (received %d)"
+          .formatted(name, Integer.valueOf(value))
+      );
+    }
+  }
+
+  /**
+   * @param host The host name, which is compared case-insensitively
+   *
+   * @return The maximum number of downloads that may run concurrently
+   * against the given host
+   */
+
+  public int maximumConcurrencyForHost(
+    final String host)
+  {
+    final var limit =
+      this.maximumConcurrencyByHost.get(host.toLowerCase(Locale.ROOT));
+    if (limit != null) {
+      return limit.intValue();
+    }
+    return this.maximumConcurrencyPerHost;
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * An executor that runs batches of download requests, subject to limits on
+ * the number of downloads that may run concurrently. Limits are shared
+ * between all batches that are run on the same executor.
+ */
+
+public interface JDownloadBatchExecutorType
+{
+  /**
+   * @return The executor configuration
+   */
+
+  JDownloadBatchConfiguration configuration();
+
+  /**
+   * Execute all the given requests, passing each result to the given
+   * receiver as soon as the corresponding download completes. The receiver
+   * is always called on the thread that called this method. The method
+   * returns when all downloads have completed.
+   *
+   * @param requests The requests
+   * @param receiver The result receiver
+   *
+   * @throws InterruptedException On interruption; any downloads that are
+   *                              still running are cancelled
+   */
+
+  void execute(
+    Collection<? extends JDownloadRequestType> requests,
+    Consumer<JDownloadBatchResult> receiver)
+    throws InterruptedException;
+}
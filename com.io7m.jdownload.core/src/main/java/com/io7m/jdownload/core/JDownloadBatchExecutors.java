@@ -0,0 +1,222 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * A factory for batch executors.
+ */
+
+public final class JDownloadBatchExecutors
+{
+  private JDownloadBatchExecutors()
+  {
+
+  }
+
+  /**
+   * Create a new batch executor. Each download is executed on its own
+   * virtual thread.
+   *
+   * @param configuration The configuration
+   *
+   * @return A new executor
+   */
+
+  public static JDownloadBatchExecutorType create(
+    final JDownloadBatchConfiguration configuration)
+  {
+    return new JDownloadBatchExecutor(configuration);
+  }
+
+  private static final class JDownloadBatchExecutor
+    implements JDownloadBatchExecutorType
+  {
+    private final JDownloadBatchConfiguration configuration;
+    private final Semaphore permits;
+    private final ConcurrentHashMap<String, HostPermits> hostPermits;
+
+    JDownloadBatchExecutor(
+      final JDownloadBatchConfiguration inConfiguration)
+    {
+      this.configuration =
+        Objects.requireNonNull(inConfiguration, "configuration");
+      this.permits =
+        new Semaphore(inConfiguration.maximumConcurrency(), true);
+      this.hostPermits =
+        new ConcurrentHashMap<>();
+    }
+
+    private static String hostOf(
+      final JDownloadRequestType request)
+    {
+      final var host = request.target().getHost();
+      if (host == null) {
+        return "";
+      }
+      return host.toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public JDownloadBatchConfiguration configuration()
+    {
+      return this.configuration;
+    }
+
+    @Override
+    public void execute(
+      final Collection<? extends JDownloadRequestType> requests,
+      final Consumer<JDownloadBatchResult> receiver)
+      throws InterruptedException
+    {
+      Objects.requireNonNull(requests, "requests");
+      Objects.requireNonNull(receiver, "receiver");
+
+      try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+        final var completion =
+          new ExecutorCompletionService<JDownloadBatchResult>(executor);
+
+        for (final var request : requests) {
+          Objects.requireNonNull(request, "request");
+          completion.submit(() -> this.executeOne(request));
+        }
+
+        /*
+         * If the receiver fails, the downloads that are still running are
+         * interrupted; closing the executor would otherwise wait for all of
+         * them to finish before the failure could be reported.
+         */
+
+        try {
+          for (int index = 0; index < requests.size(); ++index) {
+            receiver.accept(completion.take().get());
+          }
+        } catch (final InterruptedException e) {
+          executor.shutdownNow();
+          throw e;
+        } catch (final RuntimeException | Error e) {
+          executor.shutdownNow();
+          throw e;
+        } catch (final ExecutionException e) {
+          executor.shutdownNow();
+          final var cause = e.getCause();
+          if (cause instanceof final RuntimeException ex) {
+            throw ex;
+          }
+          if (cause instanceof final Error ex) {
+            throw ex;
+          }
+          throw new IllegalStateException(cause);
+        }
+      }
+    }
+
+    private JDownloadBatchResult executeOne(
+      final JDownloadRequestType request)
+      throws InterruptedException
+    {
+      /*
+       * The per-host permit is acquired before the global permit so that a
+       * download waiting on a busy host does not hold a global permit that
+       * could be used by a download for a different host.
+       */
+
+      final var host =
+        hostOf(request);
+      final var hostLimit =
+        this.hostEnter(host);
+
+      try {
+        hostLimit.permits.acquire();
+        try {
+          this.permits.acquire();
+          try {
+            return new JDownloadBatchResult(request, request.execute());
+          } finally {
+            this.permits.release();
+          }
+        } finally {
+          hostLimit.permits.release();
+        }
+      } finally {
+        this.hostLeave(host);
+      }
+    }
+
+    /**
+     * Register a download against a host, creating the permits for the
+     * host if no other download is using them.
+     */
+
+    private HostPermits hostEnter(
+      final String host)
+    {
+      return this.hostPermits.compute(host, (h, existing) -> {
+        var permits = existing;
+        if (permits == null) {
+          permits =
+            new HostPermits(this.configuration.maximumConcurrencyForHost(h));
+        }
+        ++permits.users;
+        return permits;
+      });
+    }
+
+    /**
+     * Deregister a download, discarding the permits for the host once no
+     * download is using them so that a long-lived executor does not keep
+     * permits for every host it has ever seen.
+     */
+
+    private void hostLeave(
+      final String host)
+    {
+      this.hostPermits.computeIfPresent(host, (h, existing) -> {
+        --existing.users;
+        return existing.users == 0 ? null : existing;
+      });
+    }
+  }
+
+  /**
+   * The permits for a single host, and the number of downloads that are
+   * waiting for or holding them. The count is only accessed inside the
+   * atomic operations of the map that holds the permits.
+   */
+
+  private static final class HostPermits
+  {
+    private final Semaphore permits;
+    private int users;
+
+    HostPermits(
+      final int limit)
+    {
+      this.permits = new Semaphore(limit, true);
+    }
+  }
+}
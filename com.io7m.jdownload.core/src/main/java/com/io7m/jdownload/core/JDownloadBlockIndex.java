@@ -0,0 +1,622 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Objects;
+
+/**
+ * A block index: the weak (rolling) and strong checksums of each
+ * fixed-size block of a file, in the manner of rsync and zsync.
+ *
+ * The serialized form is a short text header of {@code Name: Value} lines,
+ * followed by an empty line, followed by one binary entry per block. Each
+ * entry is the weak checksum as a big-endian 32-bit integer, followed by
+ * the first {@code Strong-Length} octets of the strong checksum. The final
+ * block of a file may be shorter than the block size, and its checksums
+ * cover only the octets that it contains.
+ *
+ * <pre>
+ * jdownload-block-index: 1
+ * Length: 1048576
+ * Block-Size: 4096
+ * Algorithm: SHA-256
+ * Strong-Length: 16
+ * </pre>
+ */
+
+final class JDownloadBlockIndex
+{
+  static final String VERSION = "1";
+  static final int BLOCK_SIZE_MINIMUM = 64;
+  static final int BLOCK_SIZE_MAXIMUM = 1 << 24;
+
+  private static final int READ_SIZE = 1 << 20;
+  private static final int FILTER_BITS = 20;
+
+  private final long length;
+  private final int blockSize;
+  private final String algorithm;
+  private final int strongLength;
+  private final int[] weak;
+  private final byte[] strong;
+
+  private JDownloadBlockIndex(
+    final long inLength,
+    final int inBlockSize,
+    final String inAlgorithm,
+    final int inStrongLength,
+    final int[] inWeak,
+    final byte[] inStrong)
+  {
+    this.length = inLength;
+    this.blockSize = inBlockSize;
+    this.algorithm = Objects.requireNonNull(inAlgorithm, "algorithm");
+    this.strongLength = inStrongLength;
+    this.weak = Objects.requireNonNull(inWeak, "weak");
+    this.strong = Objects.requireNonNull(inStrong, "strong");
+  }
+
+  /**
+   * @return The length of the file
+   */
+
+  long length()
+  {
+    return this.length;
+  }
+
+  /**
+   * @return The number of blocks
+   */
+
+  int blockCount()
+  {
+    return this.weak.length;
+  }
+
+  /**
+   * @param block The block index
+   *
+   * @return The offset of the given block within the file
+   */
+
+  long blockStart(
+    final int block)
+  {
+    return (long) block * this.blockSize;
+  }
+
+  /**
+   * @param block The block index
+   *
+   * @return The length of the given block
+   */
+
+  int blockLength(
+    final int block)
+  {
+    return (int) Math.min(this.blockSize, this.length - this.blockStart(block));
+  }
+
+  private static void checkBlockSize(
+    final long blockSize)
+    throws IOException
+  {
+    if (blockSize < BLOCK_SIZE_MINIMUM || blockSize > BLOCK_SIZE_MAXIMUM) {
+      throw new IOException(
+        "Block size must be in the range [%d, %d] (received %d)"
+          .formatted(
+            Integer.valueOf(BLOCK_SIZE_MINIMUM),
+            Integer.valueOf(BLOCK_SIZE_MAXIMUM),
+            Long.valueOf(blockSize)
+          )
+      );
+    }
+  }
+
+  private static MessageDigest digestFor(
+    final String algorithm)
+    throws IOException
+  {
+    try {
+      return MessageDigest.getInstance(algorithm);
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Compute the weak checksum of the given data.
+   *
+   * @param data   The data
+   * @param offset The offset of the data
+   * @param count  The number of octets
+   *
+   * @return The weak checksum
+   */
+
+  static int weakOf(
+    final byte[] data,
+    final int offset,
+    final int count)
+  {
+    var a = 0;
+    var b = 0;
+    for (int index = 0; index < count; ++index) {
+      final var x = data[offset + index] & 0xff;
+      a += x;
+      b += (count - index) * x;
+    }
+    return (a & 0xffff) | ((b & 0xffff) << 16);
+  }
+
+  /**
+   * Write a block index for the given file.
+   *
+   * @param file         The file
+   * @param blockSize    The block size
+   * @param algorithm    The strong checksum algorithm
+   * @param strongLength The number of octets of each strong checksum to keep
+   * @param output       The output stream
+   *
+   * @throws IOException On errors
+   */
+
+  static void write(
+    final Path file,
+    final int blockSize,
+    final String algorithm,
+    final int strongLength,
+    final OutputStream output)
+    throws IOException
+  {
+    Objects.requireNonNull(file, "file");
+    Objects.requireNonNull(algorithm, "algorithm");
+    Objects.requireNonNull(output, "output");
+
+    checkBlockSize(blockSize);
+    final var digest = digestFor(algorithm);
+    checkStrongLength(strongLength, digest);
+
+    try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      final var size = channel.size();
+      final var header =
+        """
+        jdownload-block-index: %s
+        Length: %d
+        Block-Size: %d
+        Algorithm: %s
+        Strong-Length: %d
+
+        """.formatted(
+          VERSION,
+          Long.valueOf(size),
+          Integer.valueOf(blockSize),
+          algorithm,
+          Integer.valueOf(strongLength)
+        );
+      output.write(header.getBytes(StandardCharsets.US_ASCII));
+
+      final var block = new byte[blockSize];
+      final var entry = ByteBuffer.allocate(4 + strongLength);
+      var position = 0L;
+      while (position < size) {
+        final var count = (int) Math.min(blockSize, size - position);
+        final var buffer = ByteBuffer.wrap(block, 0, count);
+        while (buffer.hasRemaining()) {
+          if (channel.read(buffer, position + buffer.position()) == -1) {
+            throw new IOException("File %s was truncated.".formatted(file));
+          }
+        }
+
+        digest.update(block, 0, count);
+        entry.clear();
+        entry.putInt(weakOf(block, 0, count));
+        entry.put(digest.digest(), 0, strongLength);
+        output.write(entry.array());
+        position += count;
+      }
+    }
+    output.flush();
+  }
+
+  private static void checkStrongLength(
+    final long strongLength,
+    final MessageDigest digest)
+    throws IOException
+  {
+    final var maximum = digest.getDigestLength();
+    if (strongLength < 4 || strongLength > maximum) {
+      throw new IOException(
+        "Strong checksum length must be in the range [4, %d] (received %d)"
+          .formatted(Integer.valueOf(maximum), Long.valueOf(strongLength))
+      );
+    }
+  }
+
+  /**
+   * Parse a serialized block index.
+   *
+   * @param data The serialized index
+   *
+   * @return The index
+   *
+   * @throws IOException If the index is malformed
+   */
+
+  static JDownloadBlockIndex parse(
+    final byte[] data)
+    throws IOException
+  {
+    Objects.requireNonNull(data, "data");
+
+    final var fields = new HashMap<String, String>();
+    var position = 0;
+    while (true) {
+      var end = position;
+      while (end < data.length && data[end] != '\n') {
+        ++end;
+      }
+      if (end == data.length) {
+        throw new IOException("Block index header is not terminated.");
+      }
+
+      final var line =
+        new String(data, position, end - position, StandardCharsets.US_ASCII)
+          .strip();
+      position = end + 1;
+      if (line.isEmpty()) {
+        break;
+      }
+
+      final var colon = line.indexOf(':');
+      if (colon < 1) {
+        throw new IOException("Malformed block index header: " + line);
+      }
+      fields.put(
+        line.substring(0, colon).strip(),
+        line.substring(colon + 1).strip()
+      );
+    }
+
+    if (!VERSION.equals(fields.get("jdownload-block-index"))) {
+      throw new IOException("Unsupported block index version.");
+    }
+
+    final long size;
+    final int blockSize;
+    final int strongLength;
+    try {
+      size = Long.parseLong(field(fields, "Length"));
+      blockSize = Integer.parseInt(field(fields, "Block-Size"));
+      strongLength = Integer.parseInt(field(fields, "Strong-Length"));
+    } catch (final NumberFormatException e) {
+      throw new IOException(e);
+    }
+
+    final var algorithm = field(fields, "Algorithm");
+    checkBlockSize(blockSize);
+    checkStrongLength(strongLength, digestFor(algorithm));
+    if (size < 0L) {
+      throw new IOException("Negative file length.");
+    }
+
+    final var count = (size + blockSize - 1L) / blockSize;
+    final var entrySize = 4 + strongLength;
+    if (count > Integer.MAX_VALUE / entrySize
+      || data.length - position != count * entrySize) {
+      throw new IOException(
+        "Block index size does not match %d blocks.".formatted(count)
+      );
+    }
+
+    final var blocks = (int) count;
+    final var weak = new int[blocks];
+    final var strong = new byte[blocks * strongLength];
+    final var buffer = ByteBuffer.wrap(data, position, data.length - position);
+    for (int index = 0; index < blocks; ++index) {
+      weak[index] = buffer.getInt();
+      buffer.get(strong, index * strongLength, strongLength);
+    }
+
+    return new JDownloadBlockIndex(
+      size,
+      blockSize,
+      algorithm,
+      strongLength,
+      weak,
+      strong
+    );
+  }
+
+  private static String field(
+    final HashMap<String, String> fields,
+    final String name)
+    throws IOException
+  {
+    final var value = fields.get(name);
+    if (value == null) {
+      throw new IOException("Block index is missing " + name);
+    }
+    return value;
+  }
+
+  private boolean strongMatches(
+    final int block,
+    final byte[] hash)
+  {
+    return Arrays.equals(
+      this.strong,
+      block * this.strongLength,
+      (block + 1) * this.strongLength,
+      hash,
+      0,
+      this.strongLength
+    );
+  }
+
+  /**
+   * Check a block of a file against the strong checksum of the block in
+   * the index.
+   *
+   * @param block   The block index
+   * @param channel The file
+   *
+   * @return {@code true} if the block matches
+   *
+   * @throws IOException On errors
+   */
+
+  boolean verify(
+    final int block,
+    final FileChannel channel)
+    throws IOException
+  {
+    return this.strongMatches(
+      block,
+      JDownloadDigests.digestRange(
+        this.algorithm,
+        channel,
+        this.blockStart(block),
+        this.blockLength(block)
+      )
+    );
+  }
+
+  /**
+   * Find blocks of the indexed file in the given basis file. The basis is
+   * read once, with a rolling weak checksum over every window of one block
+   * in size. The strong checksum is only computed for windows whose weak
+   * checksum (after a bit filter and a binary search) matches a block, and
+   * the window skips a whole block after each match.
+   *
+   * @param basis The basis file
+   *
+   * @return The offset within the basis file of each block, or {@code -1}
+   * for blocks that were not found
+   *
+   * @throws IOException On errors
+   */
+
+  long[] match(
+    final Path basis)
+    throws IOException
+  {
+    final var count = this.blockCount();
+    final var offsets = new long[count];
+    Arrays.fill(offsets, -1L);
+
+    final var digest = digestFor(this.algorithm);
+    try (var channel = FileChannel.open(basis, StandardOpenOption.READ)) {
+      this.matchFullBlocks(channel, digest, offsets);
+      this.matchFinalBlock(channel, digest, offsets);
+    }
+    return offsets;
+  }
+
+  /**
+   * A block shorter than the block size can only be the final block, and
+   * is most likely to be found at the end of the basis.
+   */
+
+  private void matchFinalBlock(
+    final FileChannel channel,
+    final MessageDigest digest,
+    final long[] offsets)
+    throws IOException
+  {
+    final var last = this.blockCount() - 1;
+    if (last < 0 || offsets[last] != -1L) {
+      return;
+    }
+
+    final var count = this.blockLength(last);
+    final var size = channel.size();
+    if (count == this.blockSize || size < count) {
+      return;
+    }
+
+    final var data = new byte[count];
+    final var buffer = ByteBuffer.wrap(data);
+    final var start = size - count;
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, start + buffer.position()) == -1) {
+        return;
+      }
+    }
+    if (weakOf(data, 0, count) != this.weak[last]) {
+      return;
+    }
+    digest.update(data);
+    if (this.strongMatches(last, digest.digest())) {
+      offsets[last] = start;
+    }
+  }
+
+  private void matchFullBlocks(
+    final FileChannel channel,
+    final MessageDigest digest,
+    final long[] offsets)
+    throws IOException
+  {
+    final var full =
+      this.blockLength(this.blockCount() - 1) == this.blockSize
+        ? this.blockCount()
+        : this.blockCount() - 1;
+    if (full <= 0) {
+      return;
+    }
+
+    /*
+     * The blocks are sorted by weak checksum so that candidates can be
+     * found with a binary search, and a bit filter rejects most windows
+     * without searching at all.
+     */
+
+    final var sorted = new long[full];
+    final var filter = new long[(1 << FILTER_BITS) / 64];
+    for (int index = 0; index < full; ++index) {
+      final var w = this.weak[index];
+      sorted[index] = ((long) w << 32) | index;
+      final var bit = filterBit(w);
+      filter[bit >>> 6] |= 1L << bit;
+    }
+    Arrays.sort(sorted);
+
+    final var size = this.blockSize;
+    final var buffer = new byte[size + Math.max(READ_SIZE, size)];
+    var base = 0L;
+    var filled = 0;
+    var start = 0;
+    var eof = false;
+    var a = 0;
+    var b = 0;
+    var fresh = true;
+
+    while (true) {
+      if (!eof && start + size >= filled) {
+        final var remaining = filled - start;
+        System.arraycopy(buffer, start, buffer, 0, remaining);
+        base += start;
+        start = 0;
+        filled = fill(channel, buffer, remaining, base + remaining);
+        eof = filled < buffer.length;
+      }
+      if (start + size > filled) {
+        return;
+      }
+
+      if (fresh) {
+        final var w = weakOf(buffer, start, size);
+        a = w & 0xffff;
+        b = w >>> 16;
+        fresh = false;
+      }
+
+      final var w = a | (b << 16);
+      final var bit = filterBit(w);
+      if ((filter[bit >>> 6] & (1L << bit)) != 0L
+        && this.matchWindow(sorted, w, digest, buffer, start, base, offsets)) {
+        start += size;
+        fresh = true;
+        continue;
+      }
+
+      if (start + size >= filled) {
+        return;
+      }
+
+      final var out = buffer[start] & 0xff;
+      final var in = buffer[start + size] & 0xff;
+      a = (a - out + in) & 0xffff;
+      b = (b - size * out + a) & 0xffff;
+      ++start;
+    }
+  }
+
+  private static int filterBit(
+    final int weak)
+  {
+    return (weak ^ (weak >>> FILTER_BITS)) & ((1 << FILTER_BITS) - 1);
+  }
+
+  private static int fill(
+    final FileChannel channel,
+    final byte[] buffer,
+    final int offset,
+    final long position)
+    throws IOException
+  {
+    final var target = ByteBuffer.wrap(buffer, offset, buffer.length - offset);
+    while (target.hasRemaining()) {
+      final var r = channel.read(target, position + target.position() - offset);
+      if (r == -1) {
+        break;
+      }
+    }
+    return target.position();
+  }
+
+  private boolean matchWindow(
+    final long[] sorted,
+    final int weakValue,
+    final MessageDigest digest,
+    final byte[] buffer,
+    final int start,
+    final long base,
+    final long[] offsets)
+  {
+    final var key = (long) weakValue << 32;
+    var index = Arrays.binarySearch(sorted, key);
+    if (index < 0) {
+      index = -(index + 1);
+    }
+
+    byte[] hash = null;
+    var matched = false;
+    for (; index < sorted.length; ++index) {
+      final var entry = sorted[index];
+      if ((int) (entry >>> 32) != weakValue) {
+        break;
+      }
+      final var block = (int) entry;
+      if (hash == null) {
+        digest.update(buffer, start, this.blockSize);
+        hash = digest.digest();
+      }
+      if (this.strongMatches(block, hash)) {
+        if (offsets[block] == -1L) {
+          offsets[block] = base + start;
+        }
+        matched = true;
+      }
+    }
+    return matched;
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+/**
+ * Functions to write block indexes for delta downloads.
+ *
+ * A block index holds a weak rolling checksum and a truncated strong
+ * checksum of each fixed-size block of a file. A server publishes the
+ * block index of a file alongside the file, and clients that already have
+ * an older version of the file download only the blocks that they do not
+ * have.
+ *
+ * @see JDownloadRequestBuilderType#setDeltaFromBlockIndex(java.net.URI)
+ */
+
+public final class JDownloadBlockIndexes
+{
+  /**
+   * The default block size.
+   */
+
+  public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+  private JDownloadBlockIndexes()
+  {
+
+  }
+
+  /**
+   * Write a block index for the given file, using {@code SHA-256} strong
+   * checksums truncated to 16 octets.
+   *
+   * @param file      The file
+   * @param blockSize The block size
+   * @param output    The output stream
+   *
+   * @throws IOException On errors
+   */
+
+  public static void write(
+    final Path file,
+    final int blockSize,
+    final OutputStream output)
+    throws IOException
+  {
+    write(file, blockSize, "SHA-256", 16, output);
+  }
+
+  /**
+   * Write a block index for the given file. Smaller blocks find more of
+   * the file in older versions at the cost of a larger index. Shorter strong
+   * checksums give a smaller index at the cost of a greater chance of a
+   * block being mistaken for another, which only the checksum of the
+   * whole file will detect.
+   *
+   * @param file         The file
+   * @param blockSize    The block size, in the range {@code [64, 16777216]}
+   * @param algorithm    The strong checksum algorithm
+   * @param strongLength The number of octets of each strong checksum to
+   *                     keep, at least {@code 4}
+   * @param output       The output stream
+   *
+   * @throws IOException On errors
+   */
+
+  public static void write(
+    final Path file,
+    final int blockSize,
+    final String algorithm,
+    final int strongLength,
+    final OutputStream output)
+    throws IOException
+  {
+    JDownloadBlockIndex.write(file, blockSize, algorithm, strongLength, output);
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A bounded pool of buffers used when reading existing data. Reusing
+ * buffers keeps the steady-state cost of verifying and resuming downloads
+ * close to zero allocations, even when many downloads run concurrently.
+ */
+
+final class JDownloadBuffers
+{
+  /**
+   * The size of each buffer in the pool.
+   */
+
+  static final int BUFFER_SIZE = 65536;
+
+  private static final int POOL_SIZE = 32;
+
+  private static final ArrayBlockingQueue<ByteBuffer> POOL =
+    new ArrayBlockingQueue<>(POOL_SIZE);
+
+  private JDownloadBuffers()
+  {
+
+  }
+
+  /**
+   * Take a buffer from the pool, allocating a new buffer if the pool is
+   * empty. The returned buffer is cleared.
+   *
+   * @return A buffer
+   */
+
+  static ByteBuffer acquire()
+  {
+    final var buffer = POOL.poll();
+    if (buffer == null) {
+      return ByteBuffer.allocate(BUFFER_SIZE);
+    }
+    return buffer.clear();
+  }
+
+  /**
+   * Take a buffer of the given size. Buffers of the pool's size are taken
+   * from the pool; buffers of any other size are allocated.
+   *
+   * @param size The size of the buffer
+   *
+   * @return A buffer
+   */
+
+  static ByteBuffer acquire(
+    final int size)
+  {
+    if (size == BUFFER_SIZE) {
+      return acquire();
+    }
+    return ByteBuffer.allocate(size);
+  }
+
+  /**
+   * Return a buffer to the pool. If the pool is full, or the buffer is not
+   * of the pool's size, the buffer is discarded.
+   *
+   * @param buffer The buffer
+   */
+
+  static void release(
+    final ByteBuffer buffer)
+  {
+    Objects.requireNonNull(buffer, "buffer");
+    if (buffer.capacity() == BUFFER_SIZE) {
+      POOL.offer(buffer);
+    }
+  }
+}
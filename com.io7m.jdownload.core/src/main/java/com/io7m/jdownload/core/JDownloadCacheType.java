@@ -0,0 +1,153 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * A content-addressed store of verified files, keyed by checksum. A cache
+ * may be shared between any number of requests, threads, and processes.
+ *
+ * Files in the cache are verified when they are inserted, and a download
+ * verifies every file that it retrieves from the cache before using it. A
+ * cache entry that does not match its checksum (because it was modified
+ * through a hard link, for example) is removed, and the file is downloaded
+ * instead.
+ */
+
+public interface JDownloadCacheType
+{
+  /**
+   * @return The root directory of the cache
+   */
+
+  Path root();
+
+  /**
+   * Determine the file that holds (or would hold) the data with the given
+   * checksum. Files are stored at
+   * {@code root/<algorithm>/<first two hex digits>/<remaining hex digits>},
+   * with the algorithm name in lowercase.
+   *
+   * @param algorithm The checksum algorithm
+   * @param checksum  The checksum
+   *
+   * @return The file
+   */
+
+  Path fileFor(
+    String algorithm,
+    byte[] checksum);
+
+  /**
+   * Copy the data with the given checksum out of the cache to the given
+   * file, replacing it if it exists. The file is hard-linked to the cache
+   * entry if the cache permits it and the file system supports it.
+   *
+   * @param algorithm The checksum algorithm
+   * @param checksum  The checksum
+   * @param file      The file
+   *
+   * @return {@code true} if the cache contained the data
+   *
+   * @throws IOException On errors
+   *
+   * @see #copyOut(String, byte[], Path, boolean)
+   */
+
+  default boolean copyOut(
+    final String algorithm,
+    final byte[] checksum,
+    final Path file)
+    throws IOException
+  {
+    return this.copyOut(algorithm, checksum, file, true);
+  }
+
+  /**
+   * Copy the data with the given checksum out of the cache to the given
+   * file, replacing it if it exists. If {@code linkPermitted} is
+   * {@code true}, the file may be hard-linked to the cache entry if the
+   * cache permits it and the file system supports it. If
+   * {@code linkPermitted} is {@code false}, the data must be copied: the
+   * file will be written in place later, and a hard link would corrupt
+   * the cache entry.
+   *
+   * @param algorithm     The checksum algorithm
+   * @param checksum      The checksum
+   * @param file          The file
+   * @param linkPermitted {@code true} if the file may be hard-linked
+   *
+   * @return {@code true} if the cache contained the data
+   *
+   * @throws IOException On errors
+   */
+
+  boolean copyOut(
+    String algorithm,
+    byte[] checksum,
+    Path file,
+    boolean linkPermitted)
+    throws IOException;
+
+  /**
+   * Insert the given file into the cache. The file must already have been
+   * verified against the given checksum. Inserting data that is already
+   * present has no effect. The cache entry is hard-linked to the file if
+   * the cache permits it and the file system supports it.
+   *
+   * @param algorithm The checksum algorithm
+   * @param checksum  The checksum
+   * @param file      The file
+   *
+   * @throws IOException On errors
+   *
+   * @see #copyIn(String, byte[], Path, boolean)
+   */
+
+  default void copyIn(
+    final String algorithm,
+    final byte[] checksum,
+    final Path file)
+    throws IOException
+  {
+    this.copyIn(algorithm, checksum, file, true);
+  }
+
+  /**
+   * Insert the given file into the cache. The file must already have been
+   * verified against the given checksum. Inserting data that is already
+   * present has no effect. If {@code linkPermitted} is {@code false}, the
+   * cache entry must never be hard-linked to the file.
+   *
+   * @param algorithm     The checksum algorithm
+   * @param checksum      The checksum
+   * @param file          The file
+   * @param linkPermitted {@code true} if the file may be hard-linked
+   *
+   * @throws IOException On errors
+   */
+
+  void copyIn(
+    String algorithm,
+    byte[] checksum,
+    Path file,
+    boolean linkPermitted)
+    throws IOException;
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.UUID;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * A factory for content-addressed caches.
+ */
+
+public final class JDownloadCaches
+{
+  private JDownloadCaches()
+  {
+
+  }
+
+  /**
+   * Open a cache in the given directory. Files are copied into and out of
+   * the cache.
+   *
+   * @param root The root directory
+   *
+   * @return A cache
+   *
+   * @throws IOException On errors
+   */
+
+  public static JDownloadCacheType open(
+    final Path root)
+    throws IOException
+  {
+    return open(root, false);
+  }
+
+  /**
+   * Open a cache in the given directory. Hard links avoid copying data,
+   * but a hard-linked output file shares its contents with the cache entry:
+   * modifying the output file in place would corrupt the cache. Hard links
+   * should therefore be disabled if output files might be modified. Hard
+   * links are never used for a request whose temporary output file is the
+   * output file itself, because the next download to that file would
+   * rewrite the cache entry in place.
+   *
+   * @param root      The root directory
+   * @param hardLinks {@code true} if files may be hard-linked
+   *
+   * @return A cache
+   *
+   * @throws IOException On errors
+   */
+
+  public static JDownloadCacheType open(
+    final Path root,
+    final boolean hardLinks)
+    throws IOException
+  {
+    final var rootAbsolute = root.toAbsolutePath();
+    Files.createDirectories(rootAbsolute);
+    return new JDownloadCache(rootAbsolute, hardLinks);
+  }
+
+  private static final class JDownloadCache implements JDownloadCacheType
+  {
+    private static final HexFormat HEX_FORMAT =
+      HexFormat.of();
+
+    private final Path root;
+    private final boolean hardLinks;
+
+    JDownloadCache(
+      final Path inRoot,
+      final boolean inHardLinks)
+    {
+      this.root = Objects.requireNonNull(inRoot, "root");
+      this.hardLinks = inHardLinks;
+    }
+
+    private static Path temporaryFor(
+      final Path file)
+    {
+      return file.resolveSibling(
+        "%s.%s.tmp".formatted(file.getFileName(), UUID.randomUUID())
+      );
+    }
+
+    @Override
+    public Path root()
+    {
+      return this.root;
+    }
+
+    @Override
+    public Path fileFor(
+      final String algorithm,
+      final byte[] checksum)
+    {
+      Objects.requireNonNull(algorithm, "algorithm");
+      Objects.requireNonNull(checksum, "checksum");
+
+      if (checksum.length < 2) {
+        throw new IllegalArgumentException(
+          "Checksums must be at least two octets long");
+      }
+
+      final var hex = HEX_FORMAT.formatHex(checksum);
+      return this.root
+        .resolve(algorithm.toLowerCase(Locale.ROOT))
+        .resolve(hex.substring(0, 2))
+        .resolve(hex.substring(2));
+    }
+
+    @Override
+    public boolean copyOut(
+      final String algorithm,
+      final byte[] checksum,
+      final Path file,
+      final boolean linkPermitted)
+      throws IOException
+    {
+      final var source = this.fileFor(algorithm, checksum);
+      if (!Files.isRegularFile(source)) {
+        return false;
+      }
+
+      final var fileTmp = temporaryFor(file);
+      try {
+        this.linkOrCopy(source, fileTmp, linkPermitted);
+        Files.move(fileTmp, file, ATOMIC_MOVE, REPLACE_EXISTING);
+      } catch (final IOException e) {
+        Files.deleteIfExists(fileTmp);
+        throw e;
+      }
+      return true;
+    }
+
+    @Override
+    public void copyIn(
+      final String algorithm,
+      final byte[] checksum,
+      final Path file,
+      final boolean linkPermitted)
+      throws IOException
+    {
+      final var target = this.fileFor(algorithm, checksum);
+      if (Files.isRegularFile(target)) {
+        return;
+      }
+
+      Files.createDirectories(target.getParent());
+
+      final var targetTmp = temporaryFor(target);
+      try {
+        this.linkOrCopy(file, targetTmp, linkPermitted);
+        Files.move(targetTmp, target, ATOMIC_MOVE, REPLACE_EXISTING);
+      } catch (final IOException e) {
+        Files.deleteIfExists(targetTmp);
+        throw e;
+      }
+    }
+
+    /**
+     * Hard links fail if the files are on different file systems, or if
+     * the file system does not support them. Either way, a copy is made.
+     */
+
+    private void linkOrCopy(
+      final Path source,
+      final Path target,
+      final boolean linkPermitted)
+      throws IOException
+    {
+      if (this.hardLinks && linkPermitted) {
+        try {
+          Files.createLink(target, source);
+          return;
+        } catch (final FileAlreadyExistsException e) {
+          throw e;
+        } catch (final UnsupportedOperationException | FileSystemException e) {
+          // Fall through to a copy.
+        }
+      }
+      Files.copy(source, target);
+    }
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The source of the primary checksum of a download.
+ */
+
+sealed interface JDownloadChecksumSource
+{
+  /**
+   * @return The checksum algorithm
+   */
+
+  String algorithm();
+
+  /**
+   * @param strategy The checksum strategy of a download request
+   *
+   * @return The source of the checksum, if the strategy has one
+   */
+
+  static Optional<JDownloadChecksumSource> of(
+    final JChecksumStrategyType strategy)
+  {
+    if (strategy instanceof final JChecksumStatically statically) {
+      return Optional.of(new Statically(statically));
+    }
+    if (strategy instanceof final JChecksumFromURI fromURI) {
+      return Optional.of(
+        new FromURI(
+          fromURI.algorithm(),
+          fromURI.checksumURI(),
+          Optional.of(fromURI)
+        )
+      );
+    }
+    if (strategy instanceof final JChecksumFromManifest fromManifest) {
+      return Optional.of(new FromManifest(fromManifest));
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * A checksum given as a value.
+   *
+   * @param value The checksum
+   */
+
+  record Statically(
+    JChecksumStatically value)
+    implements JDownloadChecksumSource
+  {
+    public Statically
+    {
+      Objects.requireNonNull(value, "value");
+    }
+
+    @Override
+    public String algorithm()
+    {
+      return this.value.algorithm();
+    }
+  }
+
+  /**
+   * A checksum fetched from a URI. The checksum is saved to a file if the
+   * download has a file strategy; otherwise, it is only held in memory.
+   *
+   * @param algorithm   The checksum algorithm
+   * @param checksumURI The checksum URI
+   * @param saved       The strategy that says where the checksum is saved
+   */
+
+  record FromURI(
+    String algorithm,
+    URI checksumURI,
+    Optional<JChecksumFromURI> saved)
+    implements JDownloadChecksumSource
+  {
+    public FromURI
+    {
+      Objects.requireNonNull(algorithm, "algorithm");
+      Objects.requireNonNull(checksumURI, "checksumURI");
+      Objects.requireNonNull(saved, "saved");
+
+      try {
+        MessageDigest.getInstance(algorithm);
+      } catch (final NoSuchAlgorithmException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+
+  /**
+   * A checksum looked up in a manifest.
+   *
+   * @param manifest The manifest strategy
+   */
+
+  record FromManifest(
+    JChecksumFromManifest manifest)
+    implements JDownloadChecksumSource
+  {
+    public FromManifest
+    {
+      Objects.requireNonNull(manifest, "manifest");
+    }
+
+    @Override
+    public String algorithm()
+    {
+      return this.manifest.algorithm();
+    }
+  }
+}
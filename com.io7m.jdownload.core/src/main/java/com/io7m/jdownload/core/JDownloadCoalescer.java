@@ -0,0 +1,241 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * The default coalescer implementation.
+ */
+
+final class JDownloadCoalescer implements JDownloadCoalescerType
+{
+  private final ConcurrentHashMap<Key, Flight> flights;
+
+  JDownloadCoalescer()
+  {
+    this.flights = new ConcurrentHashMap<>();
+  }
+
+  @Override
+  public int inFlight()
+  {
+    return this.flights.size();
+  }
+
+  /**
+   * Execute the given request, or attach to an identical download that is
+   * already in progress.
+   *
+   * @param request The request
+   * @param start   A function that starts a new download of the request
+   *
+   * @return The result of the download
+   */
+
+  CompletableFuture<JDownloadResultType> execute(
+    final JDownloadRequest request,
+    final Supplier<CompletableFuture<JDownloadResultType>> start)
+  {
+    final var key = Key.of(request);
+
+    while (true) {
+      final var flight =
+        this.flights.computeIfAbsent(key, k -> new Flight());
+      final var attached =
+        flight.attach();
+
+      if (attached == null) {
+        this.flights.remove(key, flight);
+        continue;
+      }
+
+      if (flight.claimStart()) {
+        final var future = start.get();
+        flight.started(future);
+        future.whenComplete((result, exception) -> {
+          this.flights.remove(key, flight);
+          if (exception != null) {
+            flight.result.completeExceptionally(exception);
+          } else {
+            flight.result.complete(result);
+          }
+        });
+      }
+
+      attached.whenComplete((result, exception) -> {
+        if (attached.isCancelled() && flight.detach()) {
+          this.flights.remove(key, flight);
+        }
+      });
+      return attached;
+    }
+  }
+
+  /**
+   * The key that identifies identical downloads.
+   *
+   * @param target     The target URI
+   * @param checksum   A description of the checksum strategy, any
+   *                   additional checksums, and any additional digests
+   * @param outputFile The absolute output file
+   */
+
+  private record Key(
+    URI target,
+    String checksum,
+    Path outputFile)
+  {
+    private Key
+    {
+      Objects.requireNonNull(target, "target");
+      Objects.requireNonNull(checksum, "checksum");
+      Objects.requireNonNull(outputFile, "outputFile");
+    }
+
+    static Key of(
+      final JDownloadRequest request)
+    {
+      final var checksum = new StringBuilder(64);
+      checksum.append(describe(request.checksumStrategy()));
+      for (final var additional : request.checksumsAdditional()) {
+        checksum.append(',');
+        checksum.append(describe(additional));
+      }
+      for (final var algorithm : request.digestAlgorithms()) {
+        checksum.append(",digest:");
+        checksum.append(algorithm);
+      }
+
+      return new Key(
+        request.target().normalize(),
+        checksum.toString(),
+        request.outputFile().toAbsolutePath().normalize()
+      );
+    }
+
+    private static String describe(
+      final JChecksumStrategyType strategy)
+    {
+      if (strategy instanceof final JChecksumStatically statically) {
+        return "static:%s:%s".formatted(
+          statically.algorithm(),
+          HexFormat.of().formatHex(statically.checksum())
+        );
+      }
+      if (strategy instanceof final JChecksumFromURI fromURI) {
+        return "uri:%s:%s".formatted(
+          fromURI.algorithm(),
+          fromURI.checksumURI()
+        );
+      }
+      if (strategy instanceof final JChecksumFromManifest fromManifest) {
+        return "manifest:%s:%s:%s".formatted(
+          fromManifest.algorithm(),
+          fromManifest.manifestURI(),
+          fromManifest.entry()
+        );
+      }
+      return "none";
+    }
+  }
+
+  /**
+   * A download in progress, and the executions waiting for it.
+   */
+
+  private static final class Flight
+  {
+    private final CompletableFuture<JDownloadResultType> result;
+    private CompletableFuture<JDownloadResultType> execution;
+    private boolean startClaimed;
+    private boolean closed;
+    private int waiting;
+
+    Flight()
+    {
+      this.result = new CompletableFuture<>();
+    }
+
+    /**
+     * @return A future for a new waiting execution, or {@code null} if the
+     *         flight has been cancelled
+     */
+
+    synchronized CompletableFuture<JDownloadResultType> attach()
+    {
+      if (this.closed) {
+        return null;
+      }
+      ++this.waiting;
+      return this.result.copy();
+    }
+
+    synchronized boolean claimStart()
+    {
+      if (this.startClaimed) {
+        return false;
+      }
+      this.startClaimed = true;
+      return true;
+    }
+
+    void started(
+      final CompletableFuture<JDownloadResultType> future)
+    {
+      final boolean cancel;
+      synchronized (this) {
+        this.execution = future;
+        cancel = this.closed;
+      }
+      if (cancel) {
+        future.cancel(true);
+      }
+    }
+
+    /**
+     * A waiting execution was cancelled.
+     *
+     * @return {@code true} if no executions are waiting, and the flight
+     *         has therefore been cancelled
+     */
+
+    boolean detach()
+    {
+      final CompletableFuture<JDownloadResultType> cancel;
+      synchronized (this) {
+        --this.waiting;
+        if (this.waiting > 0 || this.result.isDone()) {
+          return false;
+        }
+        this.closed = true;
+        cancel = this.execution;
+      }
+      if (cancel != null) {
+        cancel.cancel(true);
+      }
+      return true;
+    }
+  }
+}
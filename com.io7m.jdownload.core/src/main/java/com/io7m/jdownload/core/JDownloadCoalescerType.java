@@ -0,0 +1,42 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+/**
+ * A coalescer for identical downloads. Requests that share a coalescer and
+ * that have the same target URI, checksum strategy, and output file are
+ * identical; if a request is executed while an identical request is already
+ * in progress, the later request does not start a new download, but instead
+ * receives the result of the download that is in progress.
+ *
+ * Cancelling an individual execution (or interrupting a thread blocked in
+ * {@link JDownloadRequestType#execute()}) only cancels the shared download
+ * when every execution that is waiting for it has been cancelled.
+ *
+ * @see JDownloadCoalescers
+ */
+
+public sealed interface JDownloadCoalescerType
+  permits JDownloadCoalescer
+{
+  /**
+   * @return The number of distinct downloads currently in progress
+   */
+
+  int inFlight();
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * A persistent index of the digests of local files. Each entry records the
+ * digest of a file together with the size, modification time, and file
+ * key (such as the device and inode number) that the file had when it was
+ * hashed. An entry is only used if the file still has exactly those
+ * attributes, and so a lookup requires a single {@code stat} of the file
+ * rather than reading it.
+ *
+ * An index may be used by any number of threads. Changes are written to
+ * disk by {@link #save()}; if several processes share an index file, the
+ * last process to save wins, which at worst loses some entries.
+ */
+
+public interface JDownloadDigestIndexType
+{
+  /**
+   * @return The file that holds the index
+   */
+
+  Path file();
+
+  /**
+   * Find the digest of the given file, without reading the file. An entry
+   * for a file whose attributes have changed is removed.
+   *
+   * @param file      The file
+   * @param algorithm The digest algorithm (such as "SHA-256")
+   *
+   * @return The digest, if the index has a valid entry for the file
+   *
+   * @throws IOException On errors
+   */
+
+  Optional<byte[]> find(
+    Path file,
+    String algorithm)
+    throws IOException;
+
+  /**
+   * Find the digest of the given file, hashing the file and recording the
+   * digest if the index does not have a valid entry for it. Files that
+   * were modified within the last few seconds are hashed but not recorded,
+   * because a later modification might not change their modification time.
+   *
+   * @param file      The file
+   * @param algorithm The digest algorithm (such as "SHA-256")
+   *
+   * @return The digest
+   *
+   * @throws IOException On errors
+   */
+
+  byte[] digestOf(
+    Path file,
+    String algorithm)
+    throws IOException;
+
+  /**
+   * Write the index to disk, atomically replacing the index file, if the
+   * index has changed since it was opened or last saved.
+   *
+   * @throws IOException On errors
+   */
+
+  void save()
+    throws IOException;
+}
@@ -0,0 +1,381 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * A factory for digest indexes.
+ *
+ * The index file is a compact binary format: a header holding a magic
+ * number, a version, and a table of algorithm names, followed by the
+ * entries, followed by a CRC32 of everything before it. Each entry holds
+ * the absolute path of the file, an index into the algorithm table, the
+ * size and modification time (in nanoseconds) of the file, the file key,
+ * and the digest.
+ */
+
+public final class JDownloadDigestIndexes
+{
+  private static final int MAGIC = 0x4A444449;
+  private static final int VERSION = 1;
+
+  /*
+   * Files modified more recently than this when they are hashed are not
+   * recorded; on file systems with coarse timestamps, a modification made
+   * immediately after hashing might leave the modification time unchanged.
+   */
+
+  private static final Duration MODIFICATION_WINDOW = Duration.ofSeconds(2L);
+
+  private JDownloadDigestIndexes()
+  {
+
+  }
+
+  /**
+   * Open the index in the given file. The file is created when the index
+   * is first saved. As the index only ever saves work, an index file that
+   * cannot be read or is corrupt is ignored, and the index starts empty.
+   *
+   * @param file The index file
+   *
+   * @return An index
+   */
+
+  public static JDownloadDigestIndexType open(
+    final Path file)
+  {
+    final var index =
+      new JDownloadDigestIndex(file.toAbsolutePath().normalize());
+
+    try {
+      index.load();
+    } catch (final IOException e) {
+      index.entries.clear();
+    }
+    return index;
+  }
+
+  private record Key(
+    String path,
+    String algorithm)
+  {
+
+  }
+
+  private record State(
+    long size,
+    long modified,
+    String fileKey)
+  {
+    static State of(
+      final Path file)
+      throws IOException
+    {
+      final var attributes =
+        Files.readAttributes(file, BasicFileAttributes.class);
+      return new State(
+        attributes.size(),
+        attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS),
+        Objects.toString(attributes.fileKey(), "")
+      );
+    }
+  }
+
+  private record Entry(
+    State state,
+    byte[] digest)
+  {
+
+  }
+
+  private static final class JDownloadDigestIndex
+    implements JDownloadDigestIndexType
+  {
+    private final Path file;
+    private final ConcurrentHashMap<Key, Entry> entries;
+    private final AtomicBoolean dirty;
+
+    JDownloadDigestIndex(
+      final Path inFile)
+    {
+      this.file = Objects.requireNonNull(inFile, "file");
+      this.entries = new ConcurrentHashMap<>();
+      this.dirty = new AtomicBoolean(false);
+    }
+
+    private static Key keyOf(
+      final Path file,
+      final String algorithm)
+    {
+      return new Key(
+        file.toAbsolutePath().normalize().toString(),
+        algorithm.toUpperCase(Locale.ROOT)
+      );
+    }
+
+    @Override
+    public Path file()
+    {
+      return this.file;
+    }
+
+    @Override
+    public Optional<byte[]> find(
+      final Path file,
+      final String algorithm)
+      throws IOException
+    {
+      Objects.requireNonNull(file, "file");
+      Objects.requireNonNull(algorithm, "algorithm");
+
+      final var key = keyOf(file, algorithm);
+      final var entry = this.entries.get(key);
+      if (entry == null) {
+        return Optional.empty();
+      }
+
+      State state;
+      try {
+        state = State.of(file);
+      } catch (final NoSuchFileException e) {
+        state = null;
+      }
+
+      if (entry.state().equals(state)) {
+        return Optional.of(entry.digest().clone());
+      }
+      if (this.entries.remove(key, entry)) {
+        this.dirty.set(true);
+      }
+      return Optional.empty();
+    }
+
+    @Override
+    public byte[] digestOf(
+      final Path file,
+      final String algorithm)
+      throws IOException
+    {
+      final var existing = this.find(file, algorithm);
+      if (existing.isPresent()) {
+        return existing.get();
+      }
+
+      try {
+        MessageDigest.getInstance(algorithm);
+      } catch (final NoSuchAlgorithmException e) {
+        throw new IllegalStateException(e);
+      }
+
+      /*
+       * The file is only recorded if its attributes did not change while it
+       * was being hashed.
+       */
+
+      final var before = State.of(file);
+      final var digests = new JDownloadDigestSet(List.of(algorithm));
+      JDownloadDigests.updateFromFileMapped(digests, file);
+      final var digest = digests.digest().get(algorithm);
+      final var after = State.of(file);
+
+      final var settled =
+        Instant.now()
+          .minus(MODIFICATION_WINDOW)
+          .isAfter(Instant.EPOCH.plusNanos(after.modified()));
+
+      if (before.equals(after) && settled) {
+        this.entries.put(
+          keyOf(file, algorithm),
+          new Entry(after, digest.clone())
+        );
+        this.dirty.set(true);
+      }
+      return digest;
+    }
+
+    @Override
+    public synchronized void save()
+      throws IOException
+    {
+      if (!this.dirty.getAndSet(false)) {
+        return;
+      }
+
+      final var fileTmp =
+        this.file.resolveSibling(
+          "%s.%s.tmp".formatted(this.file.getFileName(), UUID.randomUUID())
+        );
+
+      try {
+        final var parent = this.file.getParent();
+        if (parent != null) {
+          Files.createDirectories(parent);
+        }
+        this.write(fileTmp);
+        Files.move(fileTmp, this.file, ATOMIC_MOVE, REPLACE_EXISTING);
+      } catch (final IOException e) {
+        this.dirty.set(true);
+        Files.deleteIfExists(fileTmp);
+        throw e;
+      }
+    }
+
+    private void write(
+      final Path output)
+      throws IOException
+    {
+      final var snapshot = new ArrayList<>(this.entries.entrySet());
+      final var algorithms = new HashMap<String, Integer>();
+      for (final var entry : snapshot) {
+        algorithms.putIfAbsent(
+          entry.getKey().algorithm(),
+          Integer.valueOf(algorithms.size())
+        );
+      }
+      if (algorithms.size() > 255) {
+        throw new IOException("Too many algorithms in digest index.");
+      }
+
+      final var algorithmTable = new String[algorithms.size()];
+      for (final var entry : algorithms.entrySet()) {
+        algorithmTable[entry.getValue().intValue()] = entry.getKey();
+      }
+
+      final var crc = new CRC32();
+      try (var stream = Files.newOutputStream(output)) {
+        final var checked =
+          new CheckedOutputStream(new BufferedOutputStream(stream), crc);
+        final var data = new DataOutputStream(checked);
+
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeByte(algorithmTable.length);
+        for (final var algorithm : algorithmTable) {
+          data.writeUTF(algorithm);
+        }
+
+        data.writeInt(snapshot.size());
+        for (final var entry : snapshot) {
+          final var key = entry.getKey();
+          final var value = entry.getValue();
+          data.writeUTF(key.path());
+          data.writeByte(algorithms.get(key.algorithm()).intValue());
+          data.writeLong(value.state().size());
+          data.writeLong(value.state().modified());
+          data.writeUTF(value.state().fileKey());
+          data.writeByte(value.digest().length);
+          data.write(value.digest());
+        }
+
+        data.flush();
+        final var checksum = (int) crc.getValue();
+        data.writeInt(checksum);
+        data.flush();
+      }
+    }
+
+    private void load()
+      throws IOException
+    {
+      if (!Files.isRegularFile(this.file)) {
+        return;
+      }
+
+      final var crc = new CRC32();
+      final Map<Key, Entry> loaded = new HashMap<>();
+      try (var stream = Files.newInputStream(this.file)) {
+        final var data =
+          new DataInputStream(
+            new CheckedInputStream(new BufferedInputStream(stream), crc)
+          );
+
+        if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+          throw new IOException("Unrecognized digest index format.");
+        }
+
+        final var algorithmTable = new String[data.readUnsignedByte()];
+        for (int index = 0; index < algorithmTable.length; ++index) {
+          algorithmTable[index] = data.readUTF();
+        }
+
+        final var count = data.readInt();
+        for (int index = 0; index < count; ++index) {
+          final var path = data.readUTF();
+          final var algorithm = data.readUnsignedByte();
+          final var size = data.readLong();
+          final var modified = data.readLong();
+          final var fileKey = data.readUTF();
+          final var digest = new byte[data.readUnsignedByte()];
+          data.readFully(digest);
+
+          if (algorithm >= algorithmTable.length) {
+            throw new IOException("Malformed digest index entry.");
+          }
+          loaded.put(
+            new Key(path, algorithmTable[algorithm]),
+            new Entry(new State(size, modified, fileKey), digest)
+          );
+        }
+
+        final var expected = (int) crc.getValue();
+        if (data.readInt() != expected) {
+          throw new IOException("Digest index checksum mismatch.");
+        }
+        if (data.read() != -1) {
+          throw new IOException("Trailing data in digest index.");
+        }
+      } catch (final EOFException e) {
+        throw new IOException("Truncated digest index.", e);
+      }
+
+      this.entries.putAll(loaded);
+    }
+  }
+}
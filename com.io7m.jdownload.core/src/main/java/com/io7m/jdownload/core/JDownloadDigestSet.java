@@ -0,0 +1,160 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A set of message digests that are all updated with the same data, so
+ * that any number of digests can be computed in a single pass.
+ */
+
+final class JDownloadDigestSet
+{
+  private static final HexFormat HEX_FORMAT =
+    HexFormat.of();
+
+  private final Map<String, MessageDigest> digests;
+  private long octets;
+  private long nanos;
+
+  /**
+   * Create a set of digests.
+   *
+   * @param algorithms The digest algorithms (such as "SHA-256")
+   */
+
+  JDownloadDigestSet(
+    final Collection<String> algorithms)
+  {
+    Objects.requireNonNull(algorithms, "algorithms");
+
+    this.digests = new LinkedHashMap<>(algorithms.size());
+    try {
+      for (final var algorithm : algorithms) {
+        if (!this.digests.containsKey(algorithm)) {
+          this.digests.put(algorithm, MessageDigest.getInstance(algorithm));
+        }
+      }
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @return {@code true} if the set contains no digests
+   */
+
+  boolean isEmpty()
+  {
+    return this.digests.isEmpty();
+  }
+
+  /**
+   * @return The digest algorithms
+   */
+
+  Set<String> algorithms()
+  {
+    return this.digests.keySet();
+  }
+
+  /**
+   * Update every digest with the remaining data in the given buffer. The
+   * position of the buffer is not changed.
+   *
+   * @param buffer The buffer
+   */
+
+  void update(
+    final ByteBuffer buffer)
+  {
+    if (this.digests.isEmpty()) {
+      return;
+    }
+
+    final var timeStart = System.nanoTime();
+    final var position = buffer.position();
+    this.octets += buffer.remaining();
+    for (final var digest : this.digests.values()) {
+      digest.update(buffer);
+      buffer.position(position);
+    }
+    this.nanos += System.nanoTime() - timeStart;
+  }
+
+  /**
+   * @return The number of octets passed to the digests
+   */
+
+  long octets()
+  {
+    return this.octets;
+  }
+
+  /**
+   * @return The total time spent updating the digests
+   */
+
+  Duration elapsed()
+  {
+    return Duration.ofNanos(this.nanos);
+  }
+
+  /**
+   * Complete every digest, resetting the set.
+   *
+   * @return The digest values, by algorithm
+   */
+
+  Map<String, byte[]> digest()
+  {
+    final var results =
+      new LinkedHashMap<String, byte[]>(this.digests.size());
+    for (final var entry : this.digests.entrySet()) {
+      results.put(entry.getKey(), entry.getValue().digest());
+    }
+    return results;
+  }
+
+  /**
+   * @param values The digest values, by algorithm
+   *
+   * @return The digest values as hexadecimal strings, by algorithm
+   */
+
+  static Map<String, String> hex(
+    final Map<String, byte[]> values)
+  {
+    final var results =
+      new LinkedHashMap<String, String>(values.size());
+    for (final var entry : values.entrySet()) {
+      results.put(entry.getKey(), HEX_FORMAT.formatHex(entry.getValue()));
+    }
+    return results;
+  }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Functions to compute digests of existing data.
+ */
+
+final class JDownloadDigests
+{
+  /*
+   * Files smaller than this are read through a pooled buffer; mapping a
+   * small file costs more than reading it.
+   */
+
+  private static final long MAP_THRESHOLD = 1024L * 1024L;
+
+  /*
+   * The largest region mapped at once, bounding the address space used
+   * when many large files are hashed in parallel.
+   */
+
+  private static final long MAP_REGION = 64L * 1024L * 1024L;
+
+  private JDownloadDigests()
+  {
+
+  }
+
+  /**
+   * Update the given digests with the entire contents of the given channel.
+   * The position of the channel is not changed.
+   *
+   * @param digests The digests
+   * @param channel The channel
+   *
+   * @throws IOException On errors
+   */
+
+  static void updateFromChannel(
+    final JDownloadDigestSet digests,
+    final FileChannel channel)
+    throws IOException
+  {
+    updateFromChannel(digests, channel, JDownloadBuffers.BUFFER_SIZE);
+  }
+
+  /**
+   * Update the given digests with the entire contents of the given channel,
+   * reading through a buffer of the given size. The position of the channel
+   * is not changed.
+   *
+   * @param digests    The digests
+   * @param channel    The channel
+   * @param bufferSize The buffer size
+   *
+   * @throws IOException On errors
+   */
+
+  static void updateFromChannel(
+    final JDownloadDigestSet digests,
+    final FileChannel channel,
+    final int bufferSize)
+    throws IOException
+  {
+    final var buffer = JDownloadBuffers.acquire(bufferSize);
+    try {
+      var position = 0L;
+      while (true) {
+        buffer.clear();
+        final var r = channel.read(buffer, position);
+        if (r == -1) {
+          break;
+        }
+        buffer.flip();
+        digests.update(buffer);
+        position += r;
+      }
+    } finally {
+      JDownloadBuffers.release(buffer);
+    }
+  }
+
+  /**
+   * Compute the digest of a region of the given channel. The position of
+   * the channel is not changed.
+   *
+   * @param algorithm The digest algorithm
+   * @param channel   The channel
+   * @param position  The start of the region
+   * @param length    The length of the region
+   *
+   * @return The digest
+   *
+   * @throws IOException On errors
+   */
+
+  static byte[] digestRange(
+    final String algorithm,
+    final FileChannel channel,
+    final long position,
+    final long length)
+    throws IOException
+  {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance(algorithm);
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+
+    final var buffer = JDownloadBuffers.acquire();
+    try {
+      var done = 0L;
+      while (done < length) {
+        buffer.clear();
+        buffer.limit((int) Math.min(buffer.capacity(), length - done));
+        final var r = channel.read(buffer, position + done);
+        if (r == -1) {
+          throw new IOException("Unexpected end of file.");
+        }
+        buffer.flip();
+        digest.update(buffer);
+        done += r;
+      }
+    } finally {
+      JDownloadBuffers.release(buffer);
+    }
+    return digest.digest();
+  }
+
+  /**
+   * Update the given digests with the entire contents of the given file.
+   *
+   * @param digests The digests
+   * @param file   The file
+   *
+   * @throws IOException On errors
+   */
+
+  static void updateFromFile(
+    final JDownloadDigestSet digests,
+    final Path file)
+    throws IOException
+  {
+    updateFromFile(digests, file, JDownloadBuffers.BUFFER_SIZE);
+  }
+
+  /**
+   * Update the given digests with the entire contents of the given file,
+   * reading through a buffer of the given size.
+   *
+   * @param digests    The digests
+   * @param file       The file
+   * @param bufferSize The buffer size
+   *
+   * @throws IOException On errors
+   */
+
+  static void updateFromFile(
+    final JDownloadDigestSet digests,
+    final Path file,
+    final int bufferSize)
+    throws IOException
+  {
+    try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      updateFromChannel(digests, channel, bufferSize);
+    }
+  }
+
+  /**
+   * Update the given digests with the entire contents of the given file.
+   * Large files are mapped into memory and hashed in place, rather than
+   * being read through a buffer.
+   *
+   * @param digests The digests
+   * @param file   The file
+   *
+   * @throws IOException On errors
+   */
+
+  static void updateFromFileMapped(
+    final JDownloadDigestSet digests,
+    final Path file)
+    throws IOException
+  {
+    try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      final var size = channel.size();
+      if (size < MAP_THRESHOLD) {
+        updateFromChannel(digests, channel);
+        return;
+      }
+
+      var position = 0L;
+      while (position < size) {
+        final var length = Math.min(MAP_REGION, size - position);
+        final var region =
+          channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        digests.update(region);
+        position += length;
+      }
+    }
+  }
+}
@@ -20,12 +20,13 @@ package com.io7m.jdownload.core;
 import java.net.URI;
 import java.nio.file.Path;
 import java.util.Objects;
+import java.util.Optional;
 
 /**
  * The download file failed a checksum check.
  *
  * @param uri          The target URI
- * @param outputFile   The output file
+ * @param outputFile   The output file, if the download has one
  * @param algorithm    The checksum algorithm (such as "SHA-256")
  * @param hashExpected The expected hash value
  * @param hashReceived The received hash value
@@ -33,7 +34,7 @@ import java.util.Objects;
 
 public record JDownloadErrorChecksumMismatch(
   URI uri,
-  Path outputFile,
+  Optional<Path> outputFile,
   String algorithm,
   String hashExpected,
   String hashReceived)
@@ -43,7 +44,7 @@ public record JDownloadErrorChecksumMismatch(
    * The download file failed a checksum check.
    *
    * @param uri          The target URI
-   * @param outputFile   The output file
+   * @param outputFile   The output file, if the download has one
    * @param algorithm    The checksum algorithm (such as "SHA-256")
    * @param hashExpected The expected hash value
    * @param hashReceived The received hash value
@@ -57,4 +58,24 @@ public record JDownloadErrorChecksumMismatch(
     Objects.requireNonNull(hashExpected, "hashExpected");
     Objects.requireNonNull(hashReceived, "hashReceived");
   }
+
+  /**
+   * The download file failed a checksum check.
+   *
+   * @param uri          The target URI
+   * @param outputFile   The output file
+   * @param algorithm    The checksum algorithm (such as "SHA-256")
+   * @param hashExpected The expected hash value
+   * @param hashReceived The received hash value
+   */
+
+  public JDownloadErrorChecksumMismatch(
+    final URI uri,
+    final Path outputFile,
+    final String algorithm,
+    final String hashExpected,
+    final String hashReceived)
+  {
+    this(uri, Optional.of(outputFile), algorithm, hashExpected, hashReceived);
+  }
 }
@@ -0,0 +1,75 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The checksum manifest did not contain a checksum for the file.
+ *
+ * @param uri         The target URI
+ * @param outputFile  The output file, if the download has one
+ * @param manifestURI The manifest URI
+ * @param entry       The name of the file in the manifest
+ */
+
+public record JDownloadErrorChecksumNotFound(
+  URI uri,
+  Optional<Path> outputFile,
+  URI manifestURI,
+  String entry)
+  implements JDownloadErrorType
+{
+  /**
+   * The checksum manifest did not contain a checksum for the file.
+   *
+   * @param uri         The target URI
+   * @param outputFile  The output file, if the download has one
+   * @param manifestURI The manifest URI
+   * @param entry       The name of the file in the manifest
+   */
+
+  public JDownloadErrorChecksumNotFound
+  {
+    Objects.requireNonNull(uri, "uri");
+    Objects.requireNonNull(outputFile, "outputFile");
+    Objects.requireNonNull(manifestURI, "manifestURI");
+    Objects.requireNonNull(entry, "entry");
+  }
+
+  /**
+   * The checksum manifest did not contain a checksum for the file.
+   *
+   * @param uri         The target URI
+   * @param outputFile  The output file
+   * @param manifestURI The manifest URI
+   * @param entry       The name of the file in the manifest
+   */
+
+  public JDownloadErrorChecksumNotFound(
+    final URI uri,
+    final Path outputFile,
+    final URI manifestURI,
+    final String entry)
+  {
+    this(uri, Optional.of(outputFile), manifestURI, entry);
+  }
+}
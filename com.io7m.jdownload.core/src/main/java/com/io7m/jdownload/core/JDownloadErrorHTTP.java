@@ -20,18 +20,19 @@ package com.io7m.jdownload.core;
 import java.net.URI;
 import java.nio.file.Path;
 import java.util.Objects;
+import java.util.Optional;
 
 /**
  * The remote server produced an HTTP error message.
  *
  * @param uri        The target URI
- * @param outputFile The output file
+ * @param outputFile The output file, if the download has one
  * @param status     The HTTP status
  */
 
 public record JDownloadErrorHTTP(
   URI uri,
-  Path outputFile,
+  Optional<Path> outputFile,
   int status)
   implements JDownloadErrorType
 {
@@ -39,7 +40,7 @@ public record JDownloadErrorHTTP(
    * The remote server produced an HTTP error message.
    *
    * @param uri        The target URI
-   * @param outputFile The output file
+   * @param outputFile The output file, if the download has one
    * @param status     The HTTP status
    */
 
@@ -48,4 +49,20 @@ public record JDownloadErrorHTTP(
     Objects.requireNonNull(uri, "uri");
     Objects.requireNonNull(outputFile, "outputFile");
   }
+
+  /**
+   * The remote server produced an HTTP error message.
+   *
+   * @param uri        The target URI
+   * @param outputFile The output file
+   * @param status     The HTTP status
+   */
+
+  public JDownloadErrorHTTP(
+    final URI uri,
+    final Path outputFile,
+    final int status)
+  {
+    this(uri, Optional.of(outputFile), status);
+  }
 }
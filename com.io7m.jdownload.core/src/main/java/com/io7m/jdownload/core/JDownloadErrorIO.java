@@ -21,18 +21,19 @@ import java.io.IOException;
 import java.net.URI;
 import java.nio.file.Path;
 import java.util.Objects;
+import java.util.Optional;
 
 /**
  * An I/O exception occurred during the download.
  *
  * @param uri        The target URI
- * @param outputFile The output file
+ * @param outputFile The output file, if the download has one
  * @param exception  The exception
  */
 
 public record JDownloadErrorIO(
   URI uri,
-  Path outputFile,
+  Optional<Path> outputFile,
   IOException exception)
   implements JDownloadErrorType
 {
@@ -40,7 +41,7 @@ public record JDownloadErrorIO(
    * An I/O exception occurred during the download.
    *
    * @param uri        The target URI
-   * @param outputFile The output file
+   * @param outputFile The output file, if the download has one
    * @param exception  The exception
    */
 
@@ -50,4 +51,20 @@ public record JDownloadErrorIO(
     Objects.requireNonNull(outputFile, "outputFile");
     Objects.requireNonNull(exception, "exception");
   }
+
+  /**
+   * An I/O exception occurred during the download.
+   *
+   * @param uri        The target URI
+   * @param outputFile The output file
+   * @param exception  The exception
+   */
+
+  public JDownloadErrorIO(
+    final URI uri,
+    final Path outputFile,
+    final IOException exception)
+  {
+    this(uri, Optional.of(outputFile), exception);
+  }
 }
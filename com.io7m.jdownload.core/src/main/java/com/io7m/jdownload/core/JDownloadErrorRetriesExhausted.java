@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Every attempt to perform the download failed.
+ *
+ * @param uri        The target URI
+ * @param outputFile The output file, if the download has one
+ * @param attempts   The error produced by each attempt, in order
+ *
+ * @see JDownloadRetryPolicy
+ */
+
+public record JDownloadErrorRetriesExhausted(
+  URI uri,
+  Optional<Path> outputFile,
+  List<JDownloadErrorType> attempts)
+  implements JDownloadErrorType
+{
+  /**
+   * Every attempt to perform the download failed.
+   *
+   * @param uri        The target URI
+   * @param outputFile The output file, if the download has one
+   * @param attempts   The error produced by each attempt, in order
+   */
+
+  public JDownloadErrorRetriesExhausted
+  {
+    Objects.requireNonNull(uri, "uri");
+    Objects.requireNonNull(outputFile, "outputFile");
+    attempts = List.copyOf(attempts);
+  }
+
+  /**
+   * Every attempt to perform the download failed.
+   *
+   * @param uri        The target URI
+   * @param outputFile The output file
+   * @param attempts   The error produced by each attempt, in order
+   */
+
+  public JDownloadErrorRetriesExhausted(
+    final URI uri,
+    final Path outputFile,
+    final List<JDownloadErrorType> attempts)
+  {
+    this(uri, Optional.of(outputFile), attempts);
+  }
+
+  /**
+   * @return The error produced by the last attempt
+   */
+
+  public JDownloadErrorType lastError()
+  {
+    return this.attempts.get(this.attempts.size() - 1);
+  }
+}
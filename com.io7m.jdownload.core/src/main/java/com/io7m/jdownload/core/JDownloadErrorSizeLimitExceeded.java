@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The response body was larger than the size limit of an in-memory sink.
+ * The transfer was abandoned as soon as the limit was exceeded (or
+ * before any data was received, if the server declared the size of the
+ * body in advance).
+ *
+ * @param uri        The target URI
+ * @param outputFile The output file, if the download has one
+ * @param sizeLimit  The size limit
+ *
+ * @see JDownloadStreamSinks#ofMemory(long)
+ */
+
+public record JDownloadErrorSizeLimitExceeded(
+  URI uri,
+  Optional<Path> outputFile,
+  long sizeLimit)
+  implements JDownloadErrorType
+{
+  /**
+   * The response body was larger than the size limit of an in-memory sink.
+   *
+   * @param uri        The target URI
+   * @param outputFile The output file, if the download has one
+   * @param sizeLimit  The size limit
+   */
+
+  public JDownloadErrorSizeLimitExceeded
+  {
+    Objects.requireNonNull(uri, "uri");
+    Objects.requireNonNull(outputFile, "outputFile");
+  }
+}
@@ -17,15 +17,31 @@
 
 package com.io7m.jdownload.core;
 
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Optional;
+
 /**
- * The type of errors that can occur during a download.
+ * The type of errors that can occur during a download. Downloads into
+ * files and streaming downloads report errors with the same types; the
+ * errors of streaming downloads have no output file.
  */
 
 public sealed interface JDownloadErrorType
-  extends JDownloadResultType
+  extends JDownloadResultType, JDownloadStreamResultType
   permits JDownloadErrorHTTP,
   JDownloadErrorChecksumMismatch,
-  JDownloadErrorIO
+  JDownloadErrorChecksumNotFound,
+  JDownloadErrorIO,
+  JDownloadErrorRetriesExhausted,
+  JDownloadErrorSizeLimitExceeded
 {
+  @Override
+  URI uri();
+
+  /**
+   * @return The output file, if the download has one
+   */
 
+  Optional<Path> outputFile();
 }
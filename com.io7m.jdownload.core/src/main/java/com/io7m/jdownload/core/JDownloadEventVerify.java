@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A flight recorder event covering the verification of downloaded data.
+ * Data is usually hashed as it arrives, so the event itself covers only
+ * the final comparison; the time spent hashing is recorded in a field.
+ */
+
+@Name("com.io7m.jdownload.Verify")
+@Label("Download Verify")
+@Category({"io7m", "jdownload"})
+@Description("Verifying downloaded data against expected checksums.")
+final class JDownloadEventVerify extends Event
+{
+  @Label("URI")
+  String uri;
+
+  @Label("Algorithms")
+  String algorithms;
+
+  @Label("Hashed")
+  @DataAmount
+  long octets;
+
+  @Label("Hash Time")
+  @Timespan(Timespan.NANOSECONDS)
+  long hashTime;
+
+  @Label("Matched")
+  boolean matched;
+
+  JDownloadEventVerify()
+  {
+
+  }
+}
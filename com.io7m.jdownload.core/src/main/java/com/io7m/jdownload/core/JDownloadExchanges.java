@@ -0,0 +1,220 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The HTTP exchanges of a single execution of a download. Every exchange
+ * is metered and throttled, and can be cancelled along with the others.
+ * Downloads into files and streaming downloads both send their exchanges
+ * here, so that failures are mapped to errors in the same way.
+ */
+
+final class JDownloadExchanges
+{
+  private final HttpClient client;
+  private final Optional<JDownloadMetricsType> metrics;
+  private final List<JDownloadBandwidthLimiter> bandwidthLimiters;
+  private final Queue<CompletableFuture<?>> exchanges;
+  private final Set<IOException> exchangeFailures;
+  private volatile Optional<Duration> retryAfter;
+  private volatile boolean cancelled;
+
+  JDownloadExchanges(
+    final HttpClient inClient,
+    final Optional<JDownloadMetricsType> inMetrics,
+    final List<JDownloadBandwidthLimiter> inBandwidthLimiters)
+  {
+    this.client =
+      Objects.requireNonNull(inClient, "client");
+    this.metrics =
+      Objects.requireNonNull(inMetrics, "metrics");
+    this.bandwidthLimiters =
+      List.copyOf(inBandwidthLimiters);
+    this.exchanges =
+      new ConcurrentLinkedQueue<>();
+    this.exchangeFailures =
+      ConcurrentHashMap.newKeySet();
+    this.retryAfter =
+      Optional.empty();
+  }
+
+  /**
+   * @return The delay requested by the server in the last error response,
+   *         if any
+   */
+
+  Optional<Duration> retryAfter()
+  {
+    return this.retryAfter;
+  }
+
+  /**
+   * Determine whether an exception was raised by an HTTP exchange, as
+   * opposed to an operation on a local file. Only failures of exchanges
+   * are worth retrying.
+   *
+   * @param exception The exception
+   *
+   * @return {@code true} if the exception is an exchange failure
+   */
+
+  boolean isExchangeFailure(
+    final IOException exception)
+  {
+    return this.exchangeFailures.contains(exception);
+  }
+
+  /**
+   * Record the delay requested by the server in an error response.
+   *
+   * @param headers The response headers
+   */
+
+  void saveRetryAfter(
+    final HttpHeaders headers)
+  {
+    this.retryAfter =
+      headers.firstValue("retry-after")
+        .flatMap(JDownloadExchanges::parseRetryAfter);
+  }
+
+  private static Optional<Duration> parseRetryAfter(
+    final String text)
+  {
+    final var trimmed = text.trim();
+    try {
+      return Optional.of(Duration.ofSeconds(Long.parseUnsignedLong(trimmed)));
+    } catch (final NumberFormatException e) {
+      // Not a delay in seconds; try a date.
+    }
+
+    try {
+      final var date =
+        ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME);
+      final var delay =
+        Duration.between(Instant.now(), date.toInstant());
+      return Optional.of(delay.isNegative() ? Duration.ZERO : delay);
+    } catch (final DateTimeParseException e) {
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Map the exception that failed an HTTP exchange to an error. Failures
+   * to write the received data to a local file are reported with their
+   * original exception, and are not recorded as exchange failures.
+   *
+   * @param uri       The URI
+   * @param file      The file, if any
+   * @param exception The exception
+   *
+   * @return An error
+   */
+
+  JDownloadErrorType errorFor(
+    final URI uri,
+    final Optional<Path> file,
+    final Throwable exception)
+  {
+    var cause = exception;
+    while (cause instanceof CompletionException && cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+
+    for (var c = cause; c != null; c = c.getCause()) {
+      if (c instanceof final JDownloadOutputException output) {
+        return new JDownloadErrorIO(uri, file, output.getCause());
+      }
+    }
+
+    if (cause instanceof final IOException e) {
+      this.exchangeFailures.add(e);
+      return new JDownloadErrorIO(uri, file, e);
+    }
+    throw new CompletionException(cause);
+  }
+
+  /**
+   * Cancel any HTTP requests that are still in progress, and any that are
+   * started afterwards.
+   */
+
+  void cancel()
+  {
+    this.cancelled = true;
+    for (final var exchange : this.exchanges) {
+      exchange.cancel(true);
+    }
+  }
+
+  /**
+   * Send a request.
+   *
+   * @param request The request
+   * @param handler The body handler
+   * @param <T>     The type of response bodies
+   *
+   * @return The response, eventually
+   */
+
+  <T> CompletableFuture<HttpResponse<T>> send(
+    final HttpRequest request,
+    final HttpResponse.BodyHandler<T> handler)
+  {
+    final var metered =
+      JDownloadMeteredSubscriber.metered(
+        this.metrics,
+        request,
+        JDownloadThrottledSubscriber.throttled(
+          this.bandwidthLimiters,
+          handler
+        )
+      );
+
+    final var future =
+      this.client.sendAsync(request, metered);
+
+    this.exchanges.add(future);
+    if (this.cancelled) {
+      future.cancel(true);
+    }
+    return future;
+  }
+}
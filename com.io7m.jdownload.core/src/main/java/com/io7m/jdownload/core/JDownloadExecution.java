@@ -0,0 +1,1739 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import static java.net.http.HttpResponse.BodyHandlers.discarding;
+import static java.net.http.HttpResponse.BodySubscribers.replacing;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * A single execution of a download request.
+ */
+
+final class JDownloadExecution
+{
+  private static final HexFormat HEX_FORMAT =
+    HexFormat.of();
+
+  static final OpenOption[] TEMPORARY_OPEN_OPTIONS = {
+    StandardOpenOption.CREATE,
+    StandardOpenOption.TRUNCATE_EXISTING,
+    StandardOpenOption.WRITE,
+  };
+
+  private static final OpenOption[] VERIFIED_OPEN_OPTIONS = {
+    StandardOpenOption.CREATE,
+    StandardOpenOption.TRUNCATE_EXISTING,
+    StandardOpenOption.READ,
+    StandardOpenOption.WRITE,
+  };
+
+  private static final Pattern CONTENT_RANGE =
+    Pattern.compile("bytes\\s+([0-9]+)-([0-9]+)/([0-9]+|\\*)");
+
+  /**
+   * Missing byte ranges of a delta download that are separated by fewer
+   * than this many octets are requested as a single range.
+   */
+
+  private static final long DELTA_RANGE_GAP = 16384L;
+
+  /**
+   * The minimum number of concurrent range requests in a delta or
+   * piecewise download.
+   */
+
+  private static final int RANGE_CONCURRENCY = 4;
+
+  private final JDownloadRequest request;
+  private final JDownloadDigestSet digests;
+  private final JDownloadExchanges exchanges;
+  private final JDownloadVerification verification;
+  private final boolean resumeSave;
+  private final boolean resumeUse;
+  private final List<URI> sources;
+  private Map<String, byte[]> digestsReceived;
+  private Optional<JDownloadValidators> conditionalBasis;
+  private volatile Optional<JDownloadValidators> received;
+  private volatile boolean notModified;
+  private volatile JDownloadOrigin origin;
+
+  /**
+   * Create an execution. A download that may be retried always records
+   * the validators needed to resume it, and every attempt after the first
+   * resumes from the partial temporary file if possible.
+   *
+   * @param inRequest The request
+   * @param attempt   The attempt number, starting at {@code 1}
+   */
+
+  JDownloadExecution(
+    final JDownloadRequest inRequest,
+    final int attempt)
+  {
+    this.request =
+      Objects.requireNonNull(inRequest, "request");
+    this.resumeSave =
+      inRequest.resumePartial()
+        || inRequest.retryPolicy().maximumAttempts() > 1;
+    this.resumeUse =
+      inRequest.resumePartial() || attempt > 1;
+
+    final var rotated = new ArrayList<>(inRequest.sources());
+    Collections.rotate(rotated, -(attempt - 1));
+    this.sources = List.copyOf(rotated);
+    this.exchanges =
+      new JDownloadExchanges(
+        inRequest.httpClient(),
+        inRequest.metrics(),
+        inRequest.bandwidthLimiters()
+      );
+
+    final var checksum =
+      JDownloadChecksumSource.of(inRequest.checksumStrategy());
+
+    this.verification =
+      new JDownloadVerification(
+        inRequest.target(),
+        checksum,
+        inRequest.checksumsAdditional(),
+        inRequest.checksumRequestModifier(),
+        inRequest.metrics(),
+        inRequest.httpClient(),
+        this.exchanges,
+        Optional.of(inRequest.outputFileTemporary())
+      );
+    this.digests =
+      new JDownloadDigestSet(
+        JDownloadVerification.algorithmsFor(
+          checksum,
+          inRequest.checksumsAdditional(),
+          inRequest.digestAlgorithms()
+        )
+      );
+    this.digestsReceived =
+      Map.of();
+    this.conditionalBasis =
+      Optional.empty();
+    this.received =
+      Optional.empty();
+    this.origin =
+      JDownloadOrigin.NETWORK;
+  }
+
+  /**
+   * @return The delay requested by the server in the last error response,
+   *         if any
+   */
+
+  Optional<Duration> retryAfter()
+  {
+    return this.exchanges.retryAfter();
+  }
+
+  /**
+   * Determine whether an exception was raised by an HTTP exchange, as
+   * opposed to an operation on a local file. Only failures of exchanges
+   * are worth retrying.
+   *
+   * @param exception The exception
+   *
+   * @return {@code true} if the exception is an exchange failure
+   */
+
+  boolean isExchangeFailure(
+    final IOException exception)
+  {
+    return this.exchanges.isExchangeFailure(exception);
+  }
+
+  static void createParentDirectories(
+    final Path... files)
+    throws IOException
+  {
+    for (final var file : files) {
+      final var parent = file.getParent();
+      if (parent != null) {
+        Files.createDirectories(parent);
+      }
+    }
+  }
+
+  /**
+   * Cancel any HTTP requests that are still in progress, and any that are
+   * started afterwards.
+   */
+
+  void cancel()
+  {
+    this.exchanges.cancel();
+  }
+
+  private <T> CompletableFuture<HttpResponse<T>> sendToSources(
+    final HttpRequest.Builder requestBuilder,
+    final HttpResponse.BodyHandler<T> handler)
+  {
+    if (this.sources.size() == 1) {
+      return this.exchanges.send(requestBuilder.build(), handler);
+    }
+
+    return new JDownloadSourceRace<>(
+      this.sources,
+      this.request.hedgeDelay(),
+      requestBuilder,
+      handler,
+      this.exchanges::send
+    ).start();
+  }
+
+  /**
+   * Start the execution.
+   *
+   * @return The result of the download
+   */
+
+  CompletableFuture<JDownloadResultType> run()
+  {
+    try {
+      createParentDirectories(
+        this.request.outputFileTemporary(),
+        this.request.outputFile()
+      );
+    } catch (final IOException e) {
+      return CompletableFuture.completedFuture(
+        new JDownloadErrorIO(
+          this.request.target(),
+          this.request.outputFileTemporary(),
+          e)
+      );
+    }
+
+    final var cached = this.cacheFetch();
+    if (cached.isPresent()) {
+      return CompletableFuture.completedFuture(cached.get());
+    }
+
+    /*
+     * If the checksum is to be fetched from a URI, the request for it is
+     * sent now so that it proceeds concurrently with the main download.
+     */
+
+    final var checksumFuture =
+      this.verification.fetch();
+    final var bodyFuture =
+      this.bodyFetchAny();
+
+    return bodyFuture.thenCompose(bodyError -> {
+      if (bodyError.isPresent()) {
+        this.cancel();
+        return CompletableFuture.completedFuture(bodyError.get());
+      }
+
+      return checksumFuture.thenCompose(checksumError -> {
+        if (checksumError.isPresent()) {
+          return CompletableFuture.completedFuture(checksumError.get());
+        }
+        if (this.notModified) {
+          return this.notModifiedResult();
+        }
+        return CompletableFuture.completedFuture(this.verifyAndMove());
+      });
+    });
+  }
+
+  /**
+   * Try to copy the output file out of the cache. Any validators recorded
+   * for the output file remain correct, as they include the checksum. The
+   * cache is an optimization, so errors simply result in a download.
+   *
+   * @return A result, if the cache contained the file
+   */
+
+  private Optional<JDownloadResultType> cacheFetch()
+  {
+    final var cache = this.request.cache();
+    if (cache.isEmpty()) {
+      return Optional.empty();
+    }
+
+    if (this.request.checksumStrategy()
+      instanceof final JChecksumStatically statically) {
+      final var outputFile = this.request.outputFile();
+      final var staging = this.cacheStaging();
+      final var algorithm = statically.algorithm();
+      final var expected = statically.checksum();
+      try {
+        final var found =
+          cache.get()
+            .copyOut(algorithm, expected, staging, this.cacheLinkable());
+
+        if (!found) {
+          return Optional.empty();
+        }
+
+        /*
+         * The cache entry is trusted no further than its contents: an entry
+         * that has been modified (through a hard link, for example) is
+         * removed, and the file is downloaded. The entry is verified before
+         * it replaces the output file, so a bad entry never destroys a good
+         * output file. Any partial download in the staging file has been
+         * overwritten, so it can no longer be resumed.
+         */
+
+        Files.deleteIfExists(JDownloadValidators.resumeFileFor(staging));
+
+        final var received = new JDownloadDigestSet(List.of(algorithm));
+        JDownloadDigests.updateFromFile(received, staging);
+        if (!Arrays.equals(received.digest().get(algorithm), expected)) {
+          Files.deleteIfExists(staging);
+          Files.deleteIfExists(cache.get().fileFor(algorithm, expected));
+          return Optional.empty();
+        }
+
+        /*
+         * The output file is about to be replaced, so any validators
+         * recorded for the old file are stale.
+         */
+
+        Files.move(staging, outputFile, ATOMIC_MOVE, REPLACE_EXISTING);
+        Files.deleteIfExists(JDownloadValidators.validatorsFileFor(outputFile));
+        return Optional.of(this.existingResult(JDownloadOrigin.CACHE));
+      } catch (final IOException e) {
+        try {
+          Files.deleteIfExists(staging);
+        } catch (final IOException x) {
+          e.addSuppressed(x);
+        }
+        return Optional.empty();
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * A file retrieved from the cache is verified in the temporary file
+   * before it replaces the output file. If the temporary file is the
+   * output file itself, a separate file beside it is used instead.
+   */
+
+  private Path cacheStaging()
+  {
+    final var outputFile = this.request.outputFile();
+    if (this.cacheLinkable()) {
+      return this.request.outputFileTemporary();
+    }
+    return outputFile.resolveSibling(
+      "%s.cache.tmp".formatted(outputFile.getFileName())
+    );
+  }
+
+  /**
+   * A file that is later opened for writing in place must never share its
+   * data with a cache entry.
+   */
+
+  private boolean cacheLinkable()
+  {
+    final var file =
+      this.request.outputFile().toAbsolutePath().normalize();
+    final var fileTmp =
+      this.request.outputFileTemporary().toAbsolutePath().normalize();
+    return !file.equals(fileTmp);
+  }
+
+  private void cacheInsert()
+  {
+    final var cache = this.request.cache();
+    if (cache.isEmpty()) {
+      return;
+    }
+
+    final var algorithm = this.verification.algorithm();
+    final var expected = this.verification.expected();
+    final var outputFile = this.request.outputFile();
+    try {
+      if (algorithm.isPresent() && expected.isPresent()) {
+        cache.get().copyIn(
+          algorithm.get(),
+          expected.get(),
+          outputFile,
+          this.cacheLinkable()
+        );
+      }
+    } catch (final IOException e) {
+      // The file will be inserted by a later download.
+    }
+  }
+
+  private CompletableFuture<Optional<JDownloadErrorType>> bodyFetchAny()
+  {
+    final var resume = this.resumePoint();
+    if (resume.isEmpty()) {
+      final var delta = this.request.delta();
+      if (delta.isPresent() && this.deltaUsable(delta.get())) {
+        return this.deltaFetch(delta.get());
+      }
+      this.conditionalBasis = this.conditionalPoint();
+    }
+
+    /*
+     * Segmented and piecewise downloads start from an empty file, so a
+     * partial download is always resumed with a single range request
+     * rather than being discarded.
+     */
+
+    final var pieces = this.request.pieceChecksums();
+    final var ranged = this.request.segmentCount() > 1 || pieces.isPresent();
+    if (resume.isEmpty() && ranged) {
+      return this.segmentProbe()
+        .thenCompose(plan -> {
+          if (this.notModified) {
+            return CompletableFuture.completedFuture(Optional.empty());
+          }
+          if (plan.isPresent()) {
+            final var size = plan.get().size();
+            if (pieces.isPresent() && pieces.get().describesSize(size)) {
+              return this.piecesFetch(pieces.get(), size);
+            }
+            return this.segmentedFetch(plan.get());
+          }
+          return this.bodyFetch(resume, this.conditionalBasis);
+        });
+    }
+    return this.bodyFetch(resume, this.conditionalBasis);
+  }
+
+  /**
+   * Determine whether a conditional request can be made for the output
+   * file. As with resumption, conditional requests are an optimization, and
+   * any problem with the recorded validators results in an unconditional
+   * request.
+   *
+   * @return The validators recorded for the existing output file, if any
+   */
+
+  private Optional<JDownloadValidators> conditionalPoint()
+  {
+    if (!this.request.conditional()) {
+      return Optional.empty();
+    }
+
+    final var file = this.request.outputFile();
+    try {
+      final var validatorsOpt =
+        JDownloadValidators.read(JDownloadValidators.validatorsFileFor(file))
+          .filter(JDownloadValidators::isUsable);
+
+      if (validatorsOpt.isEmpty() || !Files.isRegularFile(file)) {
+        return Optional.empty();
+      }
+
+      final var validators = validatorsOpt.get();
+      final var size = validators.contentLength();
+      if (size.isEmpty() || size.getAsLong() != Files.size(file)) {
+        return Optional.empty();
+      }
+
+      /*
+       * A checksum fetched from a URI or a manifest is not known until the
+       * request for it completes; that case is checked in
+       * notModifiedResult().
+       */
+
+      final var strategy = this.request.checksumStrategy();
+      final var fetched =
+        strategy instanceof JChecksumFromURI
+          || strategy instanceof JChecksumFromManifest;
+      if (!fetched && !validators.checksum().equals(this.checksumText())) {
+        return Optional.empty();
+      }
+      return validatorsOpt;
+    } catch (final IOException e) {
+      return Optional.empty();
+    }
+  }
+
+  private static void addConditionalHeaders(
+    final HttpRequest.Builder requestBuilder,
+    final Optional<JDownloadValidators> conditional)
+  {
+    conditional.flatMap(JDownloadValidators::entityTag)
+      .ifPresent(v -> requestBuilder.setHeader("If-None-Match", v));
+    conditional.flatMap(JDownloadValidators::lastModified)
+      .ifPresent(v -> requestBuilder.setHeader("If-Modified-Since", v));
+  }
+
+  /**
+   * The server claims that the output file is unchanged. If the checksum
+   * recorded for the output file is not the checksum that the request
+   * expects, the server's claim cannot be trusted, and the file is
+   * downloaded unconditionally.
+   */
+
+  private CompletableFuture<JDownloadResultType> notModifiedResult()
+  {
+    final var recorded =
+      this.conditionalBasis.flatMap(JDownloadValidators::checksum);
+
+    if (recorded.equals(this.checksumText())) {
+      return CompletableFuture.completedFuture(
+        this.existingResult(JDownloadOrigin.NOT_MODIFIED)
+      );
+    }
+
+    this.notModified = false;
+    this.deleteValidators();
+    return this.bodyFetch(Optional.empty(), Optional.empty())
+      .thenApply(error -> {
+        if (error.isPresent()) {
+          return error.get();
+        }
+        return this.verifyAndMove();
+      });
+  }
+
+  /**
+   * Ask the server for the size of the file, and whether it supports byte
+   * ranges. Any kind of failure simply results in a single stream download,
+   * which will then report errors in the usual way.
+   *
+   * @return A plan for a segmented download, if possible
+   */
+
+  private CompletableFuture<Optional<SegmentPlan>> segmentProbe()
+  {
+    final var requestBuilder =
+      HttpRequest.newBuilder(this.request.target());
+
+    this.request.requestModifier()
+      .accept(requestBuilder);
+
+    requestBuilder.method("HEAD", HttpRequest.BodyPublishers.noBody());
+    addConditionalHeaders(requestBuilder, this.conditionalBasis);
+
+    return this.exchanges.send(requestBuilder.build(), discarding())
+      .handle((response, exception) -> {
+        if (exception != null || response.statusCode() >= 400) {
+          return Optional.empty();
+        }
+
+        final var headers = response.headers();
+        if (response.statusCode() == 304
+          && this.conditionalBasis.isPresent()) {
+          this.notModified = true;
+          return Optional.empty();
+        }
+        this.received = Optional.of(JDownloadValidators.ofHeaders(headers));
+
+        final var ranges =
+          headers.firstValue("accept-ranges")
+            .map(x -> x.toLowerCase(Locale.ROOT))
+            .filter(x -> x.contains("bytes"));
+        final var size =
+          headers.firstValueAsLong("content-length");
+
+        if (ranges.isEmpty() || size.isEmpty()) {
+          return Optional.empty();
+        }
+
+        return Optional.of(
+          new SegmentPlan(
+            size.getAsLong(),
+            JDownloadValidators.ofHeaders(headers).ifRange()
+          )
+        );
+      });
+  }
+
+  private CompletableFuture<Optional<JDownloadErrorType>> segmentedFetch(
+    final SegmentPlan plan)
+  {
+    final var size =
+      plan.size();
+    final var count =
+      (int) Math.min(
+        this.request.segmentCount(),
+        size / this.request.segmentSizeMinimum()
+      );
+
+    if (count < 2) {
+      return this.bodyFetch(this.resumePoint(), this.conditionalBasis);
+    }
+
+    final var file =
+      this.request.outputFileTemporary();
+    final var target =
+      this.request.target();
+
+    /*
+     * A segmented download leaves "holes" in the temporary file, so it
+     * must never be mistaken for a partial download that could be resumed.
+     */
+
+    final FileChannel channel;
+    try {
+      Files.deleteIfExists(JDownloadValidators.resumeFileFor(file));
+      channel = FileChannel.open(file, TEMPORARY_OPEN_OPTIONS);
+      channel.write(ByteBuffer.allocate(1), size - 1L);
+    } catch (final IOException e) {
+      return CompletableFuture.completedFuture(
+        Optional.of(new JDownloadErrorIO(target, file, e))
+      );
+    }
+
+    final var group =
+      new SegmentGroup(
+        channel,
+        new JDownloadProgress(
+          OptionalLong.of(size),
+          this.request.statisticsReceiver()
+        )
+      );
+
+    final var segments =
+      new ArrayList<CompletableFuture<Optional<JDownloadErrorType>>>(count);
+
+    for (int index = 0; index < count; ++index) {
+      final var start = (size * index) / count;
+      final var end = ((size * (index + 1)) / count) - 1L;
+      segments.add(this.segmentFetch(plan, group, start, end));
+    }
+
+    return this.segmentsFinish(group, segments);
+  }
+
+  private CompletableFuture<Optional<JDownloadErrorType>> segmentsFinish(
+    final SegmentGroup group,
+    final List<CompletableFuture<Optional<JDownloadErrorType>>> segments)
+  {
+    return this.segmentsFinish(group, segments, channel -> true);
+  }
+
+  /**
+   * Wait for all segments to complete, falling back to a single stream
+   * download if the server rejected any of the segments or if the
+   * assembled file fails the given check, and then compute the digests of
+   * the temporary file.
+   */
+
+  private CompletableFuture<Optional<JDownloadErrorType>> segmentsFinish(
+    final SegmentGroup group,
+    final List<CompletableFuture<Optional<JDownloadErrorType>>> segments,
+    final SegmentsCheck check)
+  {
+    final var file =
+      this.request.outputFileTemporary();
+    final var target =
+      this.request.target();
+    final var all =
+      CompletableFuture.allOf(segments.toArray(new CompletableFuture<?>[0]));
+
+    return all.thenCompose(ignored -> {
+      try {
+        try {
+          if (!group.rejected && !group.cancelled) {
+            group.rejected = !check.check(group.channel);
+          }
+        } finally {
+          group.close();
+        }
+      } catch (final IOException e) {
+        return CompletableFuture.completedFuture(
+          Optional.of(new JDownloadErrorIO(target, file, e))
+        );
+      }
+
+      if (group.rejected) {
+        return this.bodyFetch(Optional.empty(), Optional.empty());
+      }
+
+      for (final var segment : segments) {
+        final var error = segment.join();
+        if (error.isPresent()) {
+          return CompletableFuture.completedFuture(error);
+        }
+      }
+
+      try {
+        if (!this.digests.isEmpty()) {
+          JDownloadDigests.updateFromFile(this.digests, file);
+        }
+      } catch (final IOException e) {
+        return CompletableFuture.completedFuture(
+          Optional.of(new JDownloadErrorIO(target, file, e))
+        );
+      }
+      return CompletableFuture.completedFuture(Optional.empty());
+    });
+  }
+
+  /**
+   * Download the file piece by piece. The pieces are divided between a
+   * small number of lanes, each of which requests its pieces one after
+   * another, and consecutive pieces start at consecutive sources so that
+   * the load is spread across all sources.
+   */
+
+  private CompletableFuture<Optional<JDownloadErrorType>> piecesFetch(
+    final JDownloadPieceChecksums pieces,
+    final long size)
+  {
+    final var file =
+      this.request.outputFileTemporary();
+
+    final FileChannel channel;
+    try {
+      Files.deleteIfExists(JDownloadValidators.resumeFileFor(file));
+      channel = FileChannel.open(file, VERIFIED_OPEN_OPTIONS);
+      channel.write(ByteBuffer.allocate(1), size - 1L);
+    } catch (final IOException e) {
+      return CompletableFuture.completedFuture(
+        Optional.of(new JDownloadErrorIO(this.request.target(), file, e))
+      );
+    }
+
+    final var group =
+      new SegmentGroup(
+        channel,
+        new JDownloadProgress(
+          OptionalLong.of(size),
+          this.request.statisticsReceiver()
+        )
+      );
+
+    final var count =
+      pieces.pieceCount();
+    final var lanes =
+      Math.min(
+        count,
+        Math.max(this.request.segmentCount(), RANGE_CONCURRENCY)
+      );
+
+    final var segments =
+      new ArrayList<CompletableFuture<Optional<JDownloadErrorType>>>(lanes);
+
+    for (int lane = 0; lane < lanes; ++lane) {
+      CompletableFuture<Optional<JDownloadErrorType>> future =
+        CompletableFuture.completedFuture(Optional.empty());
+
+      for (int piece = lane; piece < count; piece += lanes) {
+        final var index = piece;
+        future = future.thenCompose(error -> {
+          if (error.isPresent() || group.cancelled) {
+            return CompletableFuture.completedFuture(error);
+          }
+          return this.pieceFetch(pieces, size, group, index, 0);
+        });
+      }
+      segments.add(future);
+    }
+
+    return this.segmentsFinish(group, segments);
+  }
+
+  /**
+   * Request a single piece from a source, verify it, and request it again
+   * from the next source if anything went wrong.
+   */
+
+  private CompletableFuture<Optional<JDownloadErrorType>> pieceFetch(
+    final JDownloadPieceChecksums pieces,
+    final long size,
+    final SegmentGroup group,
+    final int piece,
+    final int attempt)
+  {
+    final var source =
+      this.sources.get((piece + attempt) % this.sources.size());
+    final var start =
+      piece * pieces.pieceLength();
+    final var length =
+      Math.min(pieces.pieceLength(), size - start);
+    final var end =
+      start + length - 1L;
+
+    final var requestBuilder =
+      HttpRequest.newBuilder(source);
+
+    this.request.requestModifier()
+      .accept(requestBuilder);
+
+    requestBuilder.setHeader(
+      "Range",
+      "bytes=%d-%d".formatted(Long.valueOf(start), Long.valueOf(end))
+    );
+
+    final var rejected =
+      new AtomicBoolean(false);
+
+    final var future =
+      this.exchanges.send(requestBuilder.build(), info -> {
+        if (info.statusCode() >= 400) {
+          return replacing(Long.valueOf(0L));
+        }
+        if (info.statusCode() != 206
+          || contentRangeStart(info.headers()) != start) {
+          rejected.set(true);
+          return replacing(Long.valueOf(0L));
+        }
+        return new JDownloadSegmentSubscriber(
+          group.channel,
+          start,
+          length,
+          group.progress
+        );
+      });
+
+    group.register(future);
+
+    return future.handle((response, exception) -> {
+      if (group.cancelled) {
+        return CompletableFuture.completedFuture(
+          Optional.<JDownloadErrorType>empty()
+        );
+      }
+
+      var error = this.bodyResult(response, exception);
+      if (error.isEmpty() && rejected.get()) {
+        error = Optional.of(
+          new JDownloadErrorIO(
+            source,
+            this.request.outputFileTemporary(),
+            new IOException("Server did not honour a byte range request.")
+          )
+        );
+      }
+      if (error.isEmpty()) {
+        error = this.pieceVerify(pieces, group, source, start, length, piece);
+      }
+      if (error.isEmpty()) {
+        return CompletableFuture.completedFuture(error);
+      }
+
+      final var attempts = Math.max(2, this.sources.size());
+      if (attempt + 1 < attempts) {
+        return this.pieceFetch(pieces, size, group, piece, attempt + 1);
+      }
+
+      group.cancel();
+      return CompletableFuture.completedFuture(error);
+    }).thenCompose(Function.identity());
+  }
+
+  private Optional<JDownloadErrorType> pieceVerify(
+    final JDownloadPieceChecksums pieces,
+    final SegmentGroup group,
+    final URI source,
+    final long start,
+    final long length,
+    final int piece)
+  {
+    final byte[] received;
+    try {
+      received = JDownloadDigests.digestRange(
+        pieces.algorithm(),
+        group.channel,
+        start,
+        length
+      );
+    } catch (final IOException e) {
+      return Optional.of(
+        new JDownloadErrorIO(source, this.request.outputFileTemporary(), e)
+      );
+    }
+
+    final var expected = pieces.checksum(piece);
+    if (Arrays.equals(expected, received)) {
+      return Optional.empty();
+    }
+    return Optional.of(
+      new JDownloadErrorChecksumMismatch(
+        source,
+        this.request.outputFile(),
+        pieces.algorithm(),
+        HEX_FORMAT.formatHex(expected),
+        HEX_FORMAT.formatHex(received)
+      )
+    );
+  }
+
+  /**
+   * A delta download copies blocks from the basis into the temporary file,
+   * so the basis cannot be the temporary file itself.
+   */
+
+  private boolean deltaUsable(
+    final JDownloadDelta delta)
+  {
+    final var basis =
+      delta.basis().toAbsolutePath().normalize();
+    final var file =
+      this.request.outputFileTemporary().toAbsolutePath().normalize();
+    return Files.isRegularFile(basis) && !basis.equals(file);
+  }
+
+  /**
+   * Fetch the block index and ask the server for the size of the file. As
+   * with segmented downloads, any kind of failure simply results in an
+   * ordinary download.
+   */
+
+  private CompletableFuture<Optional<JDownloadErrorType>> deltaFetch(
+    final JDownloadDelta delta)
+  {
+    final var requestBuilder =
+      HttpRequest.newBuilder(delta.blockIndex());
+
+    this.request.checksumRequestModifier()
+      .accept(requestBuilder);
+
+    final var index =
+      this.exchanges.send(
+          requestBuilder.build(),
+          HttpResponse.BodyHandlers.ofByteArray()
+        ).handle((response, exception) -> {
+          if (exception != null || response.statusCode() >= 400) {
+            return Optional.<JDownloadBlockIndex>empty();
+          }
+          try {
+            return Optional.of(JDownloadBlockIndex.parse(response.body()));
+          } catch (final IOException e) {
+            return Optional.<JDownloadBlockIndex>empty();
+          }
+        });
+
+    return index.thenCombine(this.segmentProbe(), DeltaPlan::new)
+      .thenCompose(plan -> {
+        if (plan.index().isPresent() && plan.segments().isPresent()) {
+          final var blocks = plan.index().get();
+          final var segments = plan.segments().get();
+          if (blocks.length() == segments.size() && segments.size() > 0L) {
+            return this.deltaApply(blocks, segments, delta.basis());
+          }
+        }
+        if (plan.segments().isPresent() && this.request.segmentCount() > 1) {
+          return this.segmentedFetch(plan.segments().get());
+        }
+        return this.bodyFetch(Optional.empty(), Optional.empty());
+      });
+  }
+
+  /**
+   * Find the blocks of the file in the basis. Searching the basis reads
+   * the whole basis, so it is done on the common pool rather than on the
+   * thread that completed the HTTP exchanges.
+   */
+
+  private CompletableFuture<Optional<JDownloadErrorType>> deltaApply(
+    final JDownloadBlockIndex index,
+    final SegmentPlan plan,
+    final Path basis)
+  {
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return index.match(basis);
+      } catch (final IOException e) {
+        throw new CompletionException(e);
+      }
+    }).handle((offsets, exception) -> {
+      if (exception == null) {
+        return this.deltaAssemble(index, plan, basis, offsets);
+      }
+
+      final var cause = exception.getCause();
+      if (cause instanceof final IOException e) {
+        return CompletableFuture.completedFuture(
+          Optional.<JDownloadErrorType>of(
+            new JDownloadErrorIO(this.request.target(), basis, e)
+          )
+        );
+      }
+      throw new CompletionException(cause);
+    }).thenCompose(Function.identity());
+  }
+
+  /**
+   * Assemble the temporary file from the blocks found in the basis, and
+   * request the remaining ranges from the server. The ranges are divided
+   * between a small number of lanes, each of which requests its ranges
+   * one after another. Every block received from the server is checked
+   * against the strong checksum in the index, and the file is downloaded
+   * as a single stream if any block does not match.
+   */
+
+  private CompletableFuture<Optional<JDownloadErrorType>> deltaAssemble(
+    final JDownloadBlockIndex index,
+    final SegmentPlan plan,
+    final Path basis,
+    final long[] offsets)
+  {
+    final var file =
+      this.request.outputFileTemporary();
+    final var target =
+      this.request.target();
+    final var size =
+      plan.size();
+
+    final FileChannel channel;
+    try {
+      Files.deleteIfExists(JDownloadValidators.resumeFileFor(file));
+      channel = FileChannel.open(file, VERIFIED_OPEN_OPTIONS);
+    } catch (final IOException e) {
+      return CompletableFuture.completedFuture(
+        Optional.of(new JDownloadErrorIO(target, file, e))
+      );
+    }
+
+    final var ranges = new ArrayList<long[]>();
+    try {
+      channel.write(ByteBuffer.allocate(1), size - 1L);
+      deltaCopy(index, offsets, basis, channel);
+    } catch (final IOException e) {
+      try {
+        channel.close();
+      } catch (final IOException x) {
+        e.addSuppressed(x);
+      }
+      return CompletableFuture.completedFuture(
+        Optional.of(new JDownloadErrorIO(target, file, e))
+      );
+    }
+
+    final var fetched = new BitSet(offsets.length);
+    var fetchedLast = -1;
+    for (int block = 0; block < offsets.length; ++block) {
+      if (offsets[block] != -1L) {
+        continue;
+      }
+      final var start = index.blockStart(block);
+      final var end = start + index.blockLength(block) - 1L;
+      final var last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+      if (last != null && start - last[1] <= DELTA_RANGE_GAP) {
+        last[1] = end;
+        fetched.set(fetchedLast + 1, block + 1);
+      } else {
+        ranges.add(new long[]{start, end});
+        fetched.set(block);
+      }
+      fetchedLast = block;
+    }
+
+    var missing = 0L;
+    for (final var range : ranges) {
+      missing += (range[1] - range[0]) + 1L;
+    }
+
+    final var group =
+      new SegmentGroup(
+        channel,
+        new JDownloadProgress(
+          OptionalLong.of(missing),
+          this.request.statisticsReceiver()
+        )
+      );
+
+    final var lanes =
+      Math.min(
+        ranges.size(),
+        Math.max(this.request.segmentCount(), RANGE_CONCURRENCY)
+      );
+
+    final var segments =
+      new ArrayList<CompletableFuture<Optional<JDownloadErrorType>>>(lanes);
+
+    for (int lane = 0; lane < lanes; ++lane) {
+      CompletableFuture<Optional<JDownloadErrorType>> future =
+        CompletableFuture.completedFuture(Optional.empty());
+
+      for (int next = lane; next < ranges.size(); next += lanes) {
+        final var range = ranges.get(next);
+        future = future.thenCompose(error -> {
+          if (error.isPresent() || group.cancelled) {
+            return CompletableFuture.completedFuture(error);
+          }
+          return this.segmentFetch(plan, group, range[0], range[1]);
+        });
+      }
+      segments.add(future);
+    }
+
+    final SegmentsCheck check = assembled -> {
+      var block = fetched.nextSetBit(0);
+      while (block >= 0) {
+        if (!index.verify(block, assembled)) {
+          return false;
+        }
+        block = fetched.nextSetBit(block + 1);
+      }
+      return true;
+    };
+
+    return this.segmentsFinish(group, segments, check)
+      .thenApply(error -> {
+        if (error.isEmpty() && !group.rejected) {
+          this.origin = JDownloadOrigin.DELTA;
+        }
+        return error;
+      });
+  }
+
+  /**
+   * Copy the blocks found in the basis into the temporary file, copying
+   * runs of consecutive blocks with a single transfer.
+   */
+
+  private static void deltaCopy(
+    final JDownloadBlockIndex index,
+    final long[] offsets,
+    final Path basis,
+    final FileChannel channel)
+    throws IOException
+  {
+    try (var source = FileChannel.open(basis, StandardOpenOption.READ)) {
+      var block = 0;
+      while (block < offsets.length) {
+        if (offsets[block] == -1L) {
+          ++block;
+          continue;
+        }
+
+        final var sourceStart = offsets[block];
+        final var targetStart = index.blockStart(block);
+        var count = (long) index.blockLength(block);
+        ++block;
+        while (block < offsets.length
+          && offsets[block] == sourceStart + count) {
+          count += index.blockLength(block);
+          ++block;
+        }
+
+        var copied = 0L;
+        source.position(sourceStart);
+        while (copied < count) {
+          final var r =
+            channel.transferFrom(source, targetStart + copied, count - copied);
+          if (r == 0L) {
+            throw new IOException(
+              "File %s changed while it was being read.".formatted(basis)
+            );
+          }
+          copied += r;
+        }
+      }
+    }
+  }
+
+  private CompletableFuture<Optional<JDownloadErrorType>> segmentFetch(
+    final SegmentPlan plan,
+    final SegmentGroup group,
+    final long start,
+    final long end)
+  {
+    final var requestBuilder =
+      HttpRequest.newBuilder(this.request.target());
+
+    this.request.requestModifier()
+      .accept(requestBuilder);
+
+    requestBuilder.setHeader(
+      "Range",
+      "bytes=%d-%d".formatted(Long.valueOf(start), Long.valueOf(end))
+    );
+    plan.ifRange()
+      .ifPresent(v -> requestBuilder.setHeader("If-Range", v));
+
+    final var future =
+      this.exchanges.send(requestBuilder.build(), info -> {
+        if (info.statusCode() >= 400) {
+          return replacing(Long.valueOf(0L));
+        }
+
+        /*
+         * Anything other than the requested range means that the server
+         * changed its mind about supporting ranges, or that the file changed
+         * since the probe. Either way, the segments are abandoned and the
+         * file is downloaded as a single stream.
+         */
+
+        if (info.statusCode() != 206
+          || contentRangeStart(info.headers()) != start) {
+          group.rejected = true;
+          group.cancel();
+          return replacing(Long.valueOf(0L));
+        }
+
+        return new JDownloadSegmentSubscriber(
+          group.channel,
+          start,
+          (end - start) + 1L,
+          group.progress
+        );
+      });
+
+    group.register(future);
+
+    return future.handle((response, exception) -> {
+      if (group.rejected || exception instanceof CancellationException) {
+        return Optional.empty();
+      }
+
+      final var r = this.bodyResult(response, exception);
+      if (r.isPresent()) {
+        group.cancel();
+      }
+      return r;
+    });
+  }
+
+  /**
+   * The state shared between the segments of a segmented download.
+   */
+
+  private static final class SegmentGroup
+  {
+    private final FileChannel channel;
+    private final JDownloadProgress progress;
+    private final Queue<CompletableFuture<?>> exchanges;
+    private volatile boolean rejected;
+    private volatile boolean cancelled;
+
+    SegmentGroup(
+      final FileChannel inChannel,
+      final JDownloadProgress inProgress)
+    {
+      this.channel = inChannel;
+      this.progress = inProgress;
+      this.exchanges = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Register an exchange so that it is cancelled along with the rest of
+     * the group. An exchange registered after the group was cancelled is
+     * cancelled immediately.
+     */
+
+    void register(
+      final CompletableFuture<?> exchange)
+    {
+      this.exchanges.add(exchange);
+      if (this.cancelled) {
+        exchange.cancel(true);
+      }
+    }
+
+    void cancel()
+    {
+      this.cancelled = true;
+      for (final var exchange : this.exchanges) {
+        exchange.cancel(true);
+      }
+    }
+
+    void close()
+      throws IOException
+    {
+      this.progress.close();
+      this.channel.close();
+    }
+  }
+
+  /**
+   * Determine whether a partial download can be resumed. Resumption is an
+   * optimization; if the recorded validators cannot be read for any reason,
+   * the download simply starts from the beginning.
+   *
+   * @return The point from which to resume the download, if any
+   */
+
+  private Optional<ResumePoint> resumePoint()
+  {
+    if (!this.resumeUse) {
+      return Optional.empty();
+    }
+
+    final var file = this.request.outputFileTemporary();
+    try {
+      final var validators =
+        JDownloadValidators.read(JDownloadValidators.resumeFileFor(file))
+          .flatMap(JDownloadValidators::ifRange);
+
+      if (validators.isEmpty() || !Files.isRegularFile(file)) {
+        return Optional.empty();
+      }
+
+      final var size = Files.size(file);
+      if (size == 0L) {
+        return Optional.empty();
+      }
+      return Optional.of(new ResumePoint(size, validators.get()));
+    } catch (final IOException e) {
+      return Optional.empty();
+    }
+  }
+
+  private CompletableFuture<Optional<JDownloadErrorType>> bodyFetch(
+    final Optional<ResumePoint> resume,
+    final Optional<JDownloadValidators> conditional)
+  {
+    final var target =
+      this.request.target();
+    final var requestBuilder =
+      HttpRequest.newBuilder(target);
+
+    this.request.requestModifier()
+      .accept(requestBuilder);
+
+    resume.ifPresent(r -> {
+      requestBuilder.setHeader("Range", "bytes=%d-".formatted(r.offset()));
+      requestBuilder.setHeader("If-Range", r.ifRange());
+    });
+    addConditionalHeaders(requestBuilder, conditional);
+
+    final var rejected =
+      new AtomicBoolean(false);
+
+    final var future =
+      this.sendToSources(
+        requestBuilder,
+        info -> this.bodySubscriberFor(info, resume, conditional, rejected)
+      );
+
+    return future.handle((response, exception) -> {
+      if (exception == null && rejected.get()) {
+        return this.bodyFetchRestart();
+      }
+      return CompletableFuture.completedFuture(
+        this.bodyResult(response, exception)
+      );
+    }).thenCompose(Function.identity());
+  }
+
+  /**
+   * The server refused to resume a download; download the entire file
+   * instead.
+   */
+
+  private CompletableFuture<Optional<JDownloadErrorType>> bodyFetchRestart()
+  {
+    final var file = this.request.outputFileTemporary();
+    try {
+      Files.deleteIfExists(JDownloadValidators.resumeFileFor(file));
+    } catch (final IOException e) {
+      return CompletableFuture.completedFuture(
+        Optional.of(new JDownloadErrorIO(this.request.target(), file, e))
+      );
+    }
+    return this.bodyFetch(Optional.empty(), Optional.empty());
+  }
+
+  private Optional<JDownloadErrorType> bodyResult(
+    final HttpResponse<Long> response,
+    final Throwable exception)
+  {
+    final var target = this.request.target();
+    if (exception != null) {
+      return Optional.of(
+        this.exchanges.errorFor(
+          target,
+          Optional.of(this.request.outputFileTemporary()),
+          exception
+        )
+      );
+    }
+
+    final var statusCode = response.statusCode();
+    if (statusCode >= 400) {
+      this.exchanges.saveRetryAfter(response.headers());
+      return Optional.of(
+        new JDownloadErrorHTTP(
+          response.request().uri(),
+          this.request.outputFile(),
+          statusCode)
+      );
+    }
+    return Optional.empty();
+  }
+
+  private HttpResponse.BodySubscriber<Long> bodySubscriberFor(
+    final HttpResponse.ResponseInfo info,
+    final Optional<ResumePoint> resume,
+    final Optional<JDownloadValidators> conditional,
+    final AtomicBoolean rejected)
+  {
+    final var statusCode = info.statusCode();
+    final var headers = info.headers();
+
+    if (statusCode == 304 && conditional.isPresent()) {
+      this.notModified = true;
+      return replacing(Long.valueOf(0L));
+    }
+
+    if (resume.isPresent()) {
+      if (statusCode == 416) {
+        rejected.set(true);
+        return replacing(Long.valueOf(0L));
+      }
+
+      if (statusCode == 206) {
+        final var offset = resume.get().offset();
+        if (contentRangeStart(headers) != offset) {
+          rejected.set(true);
+          return replacing(Long.valueOf(0L));
+        }
+
+        this.received = Optional.of(JDownloadValidators.ofHeaders(headers));
+        return JDownloadFileSubscriber.appending(
+          this.request.outputFileTemporary(),
+          this.digests,
+          new JDownloadProgress(
+            headers.firstValueAsLong("content-length"),
+            this.request.statisticsReceiver()
+          )
+        );
+      }
+    }
+
+    if (statusCode >= 400) {
+      return replacing(Long.valueOf(0L));
+    }
+
+    this.received = Optional.of(JDownloadValidators.ofHeaders(headers));
+    if (this.resumeSave) {
+      this.saveResumeValidators(headers);
+    }
+
+    return new JDownloadFileSubscriber(
+      this.request.outputFileTemporary(),
+      TEMPORARY_OPEN_OPTIONS,
+      this.digests,
+      new JDownloadProgress(
+        headers.firstValueAsLong("content-length"),
+        this.request.statisticsReceiver()
+      )
+    );
+  }
+
+  /**
+   * Record the validators for a download that is about to start. If the
+   * validators cannot be written, any previous validators are removed. This
+   * cannot cause a corrupted download, as the {@code If-Range} header ensures
+   * that the server only returns partial content for an unchanged file.
+   */
+
+  private void saveResumeValidators(
+    final HttpHeaders headers)
+  {
+    final var file =
+      JDownloadValidators.resumeFileFor(this.request.outputFileTemporary());
+
+    try {
+      final var validators = JDownloadValidators.ofHeaders(headers);
+      if (validators.ifRange().isPresent()) {
+        validators.write(file);
+      } else {
+        Files.deleteIfExists(file);
+      }
+    } catch (final IOException e) {
+      this.deleteResumeValidators();
+    }
+  }
+
+  private void deleteResumeValidators()
+  {
+    try {
+      Files.deleteIfExists(
+        JDownloadValidators.resumeFileFor(this.request.outputFileTemporary())
+      );
+    } catch (final IOException e) {
+      // Stale validators are harmless; see saveResumeValidators().
+    }
+  }
+
+  private static long contentRangeStart(
+    final HttpHeaders headers)
+  {
+    final var range = headers.firstValue("content-range");
+    if (range.isEmpty()) {
+      return -1L;
+    }
+
+    final var matcher = CONTENT_RANGE.matcher(range.get());
+    if (!matcher.matches()) {
+      return -1L;
+    }
+    return Long.parseLong(matcher.group(1));
+  }
+
+  private JDownloadResultType verifyAndMove()
+  {
+    final var r = this.verify();
+    if (r.isPresent()) {
+      if (this.resumeSave) {
+        this.deleteResumeValidators();
+      }
+      return r.get();
+    }
+
+    final var outputFile = this.request.outputFile();
+
+    /*
+     * The validators describe the old output file, and must not survive
+     * its replacement.
+     */
+
+    if (this.request.conditional()) {
+      final var file = JDownloadValidators.validatorsFileFor(outputFile);
+      try {
+        Files.deleteIfExists(file);
+      } catch (final IOException e) {
+        return new JDownloadErrorIO(this.request.target(), file, e);
+      }
+    }
+
+    final var event = JDownloadFlightRecorder.beginMove();
+    final var timeMove = System.nanoTime();
+    try {
+      Files.move(
+        this.request.outputFileTemporary(),
+        outputFile,
+        ATOMIC_MOVE,
+        REPLACE_EXISTING
+      );
+      this.moveRecorded(event, true);
+    } catch (final IOException e) {
+      this.moveRecorded(event, false);
+      return new JDownloadErrorIO(this.request.target(), outputFile, e);
+    }
+    this.request.metrics().ifPresent(m -> {
+      m.onMoveCompleted(
+        this.request.target(),
+        Duration.ofNanos(System.nanoTime() - timeMove)
+      );
+    });
+
+    if (this.resumeSave) {
+      this.deleteResumeValidators();
+    }
+    if (this.request.conditional()) {
+      this.saveValidators();
+    }
+    this.cacheInsert();
+    return new JDownloadSucceeded(
+      outputFile,
+      this.verification.checksumFile(),
+      this.origin,
+      List.of(),
+      JDownloadDigestSet.hex(this.digestsReceived)
+    );
+  }
+
+  /**
+   * Record the validators for a successfully downloaded output file. If
+   * the validators cannot be written, the next download is simply
+   * unconditional.
+   */
+
+  private void saveValidators()
+  {
+    final var outputFile = this.request.outputFile();
+    final var file = JDownloadValidators.validatorsFileFor(outputFile);
+
+    try {
+      final var validators =
+        this.received.filter(JDownloadValidators::isUsable);
+      if (validators.isPresent()) {
+        validators.get()
+          .withFile(Files.size(outputFile), this.checksumText())
+          .write(file);
+      }
+    } catch (final IOException e) {
+      this.deleteValidators();
+    }
+  }
+
+  private void deleteValidators()
+  {
+    try {
+      Files.deleteIfExists(
+        JDownloadValidators.validatorsFileFor(this.request.outputFile())
+      );
+    } catch (final IOException e) {
+      // The size check in conditionalPoint() catches most stale validators.
+    }
+  }
+
+  /**
+   * @return The expected checksum in the form recorded in validators
+   */
+
+  private Optional<String> checksumText()
+  {
+    final var algorithm = this.verification.algorithm();
+    final var expected = this.verification.expected();
+    if (algorithm.isPresent() && expected.isPresent()) {
+      return Optional.of(
+        algorithm.get() + ":" + HEX_FORMAT.formatHex(expected.get())
+      );
+    }
+    return Optional.empty();
+  }
+
+  private Optional<JDownloadErrorType> verify()
+  {
+    this.digestsReceived = this.digests.digest();
+    this.verification.hashCompleted(this.digests);
+    return this.verification.verify(
+      this.digestsReceived,
+      this.digests,
+      Optional.of(this.request.outputFileTemporary())
+    );
+  }
+
+  /**
+   * Produce a result for an output file that was not transferred over the
+   * network. The digests of the file are only computed if the request asks
+   * for digests other than the one whose value is already known.
+   *
+   * @param origin The origin of the file
+   *
+   * @return The result
+   */
+
+  private JDownloadResultType existingResult(
+    final JDownloadOrigin origin)
+  {
+    final var outputFile = this.request.outputFile();
+    final var algorithm = this.verification.algorithm();
+    final var expected = this.verification.expected();
+
+    final Map<String, byte[]> received;
+    if (algorithm.isPresent()
+      && expected.isPresent()
+      && this.digests.algorithms().equals(Set.of(algorithm.get()))) {
+      received = Map.of(algorithm.get(), expected.get());
+    } else if (this.digests.isEmpty()) {
+      received = Map.of();
+    } else {
+      try {
+        JDownloadDigests.updateFromFile(this.digests, outputFile);
+      } catch (final IOException e) {
+        return new JDownloadErrorIO(this.request.target(), outputFile, e);
+      }
+      received = this.digests.digest();
+      this.verification.hashCompleted(this.digests);
+    }
+
+    final var error =
+      this.verification.verify(received, this.digests, Optional.of(outputFile));
+    if (error.isPresent()) {
+      return error.get();
+    }
+
+    return new JDownloadSucceeded(
+      outputFile,
+      this.verification.checksumFile(),
+      origin,
+      List.of(),
+      JDownloadDigestSet.hex(received)
+    );
+  }
+
+  private void moveRecorded(
+    final Optional<JDownloadEventMove> eventOpt,
+    final boolean succeeded)
+  {
+    if (eventOpt.isEmpty()) {
+      return;
+    }
+
+    final var event = eventOpt.get();
+    event.end();
+    if (event.shouldCommit()) {
+      event.uri = this.request.target().toString();
+      event.source = this.request.outputFileTemporary().toString();
+      event.target = this.request.outputFile().toString();
+      event.succeeded = succeeded;
+      event.commit();
+    }
+  }
+
+  /**
+   * A check of the temporary file after all segments have completed.
+   */
+
+  private interface SegmentsCheck
+  {
+    boolean check(FileChannel channel)
+      throws IOException;
+  }
+
+  private record SegmentPlan(
+    long size,
+    Optional<String> ifRange)
+  {
+
+  }
+
+  private record DeltaPlan(
+    Optional<JDownloadBlockIndex> index,
+    Optional<SegmentPlan> segments)
+  {
+
+  }
+
+  private record ResumePoint(
+    long offset,
+    String ifRange)
+  {
+
+  }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * A body subscriber that writes the response body to a file, updating a
+ * set of message digests with the data as it is written. In append mode, the
+ * existing contents of the file are passed to the message digests before
+ * any new data is written to the end of the file.
+ *
+ * Each list of buffers delivered by the HTTP client is written to the file
+ * with a single gathering write where possible, and progress is reported
+ * once per list rather than once per buffer.
+ */
+
+final class JDownloadFileSubscriber
+  implements HttpResponse.BodySubscriber<Long>
+{
+  private static final OpenOption[] APPEND_OPEN_OPTIONS = {
+    StandardOpenOption.READ,
+    StandardOpenOption.WRITE,
+  };
+
+  private final Path file;
+  private final OpenOption[] options;
+  private final boolean append;
+  private final JDownloadDigestSet digests;
+  private final JDownloadProgress progress;
+  private final CompletableFuture<Long> result;
+  private Flow.Subscription subscription;
+  private FileChannel channel;
+  private ByteBuffer[] gather;
+  private long octets;
+
+  JDownloadFileSubscriber(
+    final Path inFile,
+    final OpenOption[] inOptions,
+    final JDownloadDigestSet inDigests,
+    final JDownloadProgress inProgress)
+  {
+    this(inFile, inOptions, false, inDigests, inProgress);
+  }
+
+  private JDownloadFileSubscriber(
+    final Path inFile,
+    final OpenOption[] inOptions,
+    final boolean inAppend,
+    final JDownloadDigestSet inDigests,
+    final JDownloadProgress inProgress)
+  {
+    this.file =
+      Objects.requireNonNull(inFile, "file");
+    this.options =
+      Objects.requireNonNull(inOptions, "options");
+    this.append =
+      inAppend;
+    this.digests =
+      Objects.requireNonNull(inDigests, "digests");
+    this.progress =
+      Objects.requireNonNull(inProgress, "progress");
+    this.result =
+      new CompletableFuture<>();
+    this.gather =
+      new ByteBuffer[0];
+  }
+
+  /**
+   * Create a subscriber that appends to an existing file.
+   *
+   * @param file     The file
+   * @param digests  The message digests
+   * @param progress The progress tracker
+   *
+   * @return A subscriber
+   */
+
+  static JDownloadFileSubscriber appending(
+    final Path file,
+    final JDownloadDigestSet digests,
+    final JDownloadProgress progress)
+  {
+    return new JDownloadFileSubscriber(
+      file,
+      APPEND_OPEN_OPTIONS,
+      true,
+      digests,
+      progress
+    );
+  }
+
+  @Override
+  public CompletionStage<Long> getBody()
+  {
+    return this.result;
+  }
+
+  @Override
+  public void onSubscribe(
+    final Flow.Subscription inSubscription)
+  {
+    this.subscription =
+      Objects.requireNonNull(inSubscription, "subscription");
+
+    try {
+      this.channel = FileChannel.open(this.file, this.options);
+      if (this.append) {
+        if (!this.digests.isEmpty()) {
+          JDownloadDigests.updateFromChannel(this.digests, this.channel);
+        }
+        this.channel.position(this.channel.size());
+      }
+    } catch (final IOException e) {
+      this.fail(e);
+      return;
+    }
+
+    this.subscription.request(1L);
+  }
+
+  @Override
+  public void onNext(
+    final List<ByteBuffer> buffers)
+  {
+    final var count = buffers.size();
+    if (this.gather.length < count) {
+      this.gather = new ByteBuffer[count];
+    }
+
+    try {
+      var size = 0L;
+      for (int index = 0; index < count; ++index) {
+        final var buffer = buffers.get(index);
+        size += buffer.remaining();
+        this.digests.update(buffer);
+        this.gather[index] = buffer;
+      }
+
+      var written = 0L;
+      while (written < size) {
+        written += this.channel.write(this.gather, 0, count);
+      }
+      this.octets += size;
+      this.progress.add(size);
+    } catch (final IOException e) {
+      this.fail(e);
+      return;
+    } finally {
+      Arrays.fill(this.gather, 0, count, null);
+    }
+
+    this.subscription.request(1L);
+  }
+
+  @Override
+  public void onError(
+    final Throwable throwable)
+  {
+    this.closeAfterError(throwable);
+    this.result.completeExceptionally(throwable);
+  }
+
+  @Override
+  public void onComplete()
+  {
+    try {
+      this.progress.close();
+      if (this.channel != null) {
+        this.channel.close();
+      }
+    } catch (final IOException e) {
+      this.result.completeExceptionally(new JDownloadOutputException(e));
+      return;
+    }
+    this.result.complete(Long.valueOf(this.octets));
+  }
+
+  private void fail(
+    final IOException e)
+  {
+    this.subscription.cancel();
+    this.closeAfterError(e);
+    this.result.completeExceptionally(new JDownloadOutputException(e));
+  }
+
+  private void closeAfterError(
+    final Throwable cause)
+  {
+    this.progress.close();
+    if (this.channel != null) {
+      try {
+        this.channel.close();
+      } catch (final IOException e) {
+        cause.addSuppressed(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.util.Optional;
+
+/**
+ * Access to the flight recorder. The {@code jdk.jfr} module is optional,
+ * and the event classes cannot be loaded if it is absent at run time, so
+ * events are only ever created through this class. Each method returns an
+ * event that has begun, or nothing if the flight recorder is unavailable
+ * or the event is disabled.
+ */
+
+final class JDownloadFlightRecorder
+{
+  /**
+   * {@code true} if the {@code jdk.jfr} module is present and readable.
+   */
+
+  static final boolean AVAILABLE = isAvailable();
+
+  private JDownloadFlightRecorder()
+  {
+
+  }
+
+  private static boolean isAvailable()
+  {
+    final var module = JDownloadFlightRecorder.class.getModule();
+    final var layer = module.getLayer();
+    return Optional.ofNullable(layer)
+      .orElse(ModuleLayer.boot())
+      .findModule("jdk.jfr")
+      .map(jfr -> Boolean.valueOf(module.canRead(jfr)))
+      .orElse(Boolean.FALSE)
+      .booleanValue();
+  }
+
+  /*
+   * The methods below deliberately avoid lambda expressions and method
+   * references that mention the event classes; linking those would load
+   * the classes even when no event is created.
+   */
+
+  static Optional<JDownloadEventRequest> beginRequest()
+  {
+    if (!AVAILABLE) {
+      return Optional.empty();
+    }
+    final var event = new JDownloadEventRequest();
+    if (!event.isEnabled()) {
+      return Optional.empty();
+    }
+    event.begin();
+    return Optional.of(event);
+  }
+
+  static Optional<JDownloadEventHeaders> beginHeaders()
+  {
+    if (!AVAILABLE) {
+      return Optional.empty();
+    }
+    final var event = new JDownloadEventHeaders();
+    if (!event.isEnabled()) {
+      return Optional.empty();
+    }
+    event.begin();
+    return Optional.of(event);
+  }
+
+  static Optional<JDownloadEventTransfer> beginTransfer()
+  {
+    if (!AVAILABLE) {
+      return Optional.empty();
+    }
+    final var event = new JDownloadEventTransfer();
+    if (!event.isEnabled()) {
+      return Optional.empty();
+    }
+    event.begin();
+    return Optional.of(event);
+  }
+
+  /**
+   * @return {@code true} if transfer events would be recorded
+   */
+
+  static boolean isTransferEnabled()
+  {
+    return AVAILABLE && new JDownloadEventTransfer().isEnabled();
+  }
+
+  static Optional<JDownloadEventChecksumFetch> beginChecksumFetch()
+  {
+    if (!AVAILABLE) {
+      return Optional.empty();
+    }
+    final var event = new JDownloadEventChecksumFetch();
+    if (!event.isEnabled()) {
+      return Optional.empty();
+    }
+    event.begin();
+    return Optional.of(event);
+  }
+
+  static Optional<JDownloadEventVerify> beginVerify()
+  {
+    if (!AVAILABLE) {
+      return Optional.empty();
+    }
+    final var event = new JDownloadEventVerify();
+    if (!event.isEnabled()) {
+      return Optional.empty();
+    }
+    event.begin();
+    return Optional.of(event);
+  }
+
+  static Optional<JDownloadEventMove> beginMove()
+  {
+    if (!AVAILABLE) {
+      return Optional.empty();
+    }
+    final var event = new JDownloadEventMove();
+    if (!event.isEnabled()) {
+      return Optional.empty();
+    }
+    event.begin();
+    return Optional.of(event);
+  }
+}
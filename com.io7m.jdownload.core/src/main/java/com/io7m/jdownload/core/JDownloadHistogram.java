@@ -0,0 +1,145 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram with fixed bucket bounds.
+ */
+
+final class JDownloadHistogram
+{
+  private final String name;
+  private final String help;
+  private final double[] bounds;
+  private final LongAdder[] buckets;
+  private final DoubleAdder sum;
+
+  /**
+   * Create a histogram.
+   *
+   * @param inName   The metric name
+   * @param inHelp   The metric description
+   * @param inBounds The inclusive upper bounds of the buckets, in ascending
+   *                 order; a final unbounded bucket is added implicitly
+   */
+
+  JDownloadHistogram(
+    final String inName,
+    final String inHelp,
+    final double... inBounds)
+  {
+    this.name = Objects.requireNonNull(inName, "name");
+    this.help = Objects.requireNonNull(inHelp, "help");
+    this.bounds = inBounds.clone();
+    this.buckets = new LongAdder[inBounds.length + 1];
+    for (int index = 0; index < this.buckets.length; ++index) {
+      this.buckets[index] = new LongAdder();
+    }
+    this.sum = new DoubleAdder();
+  }
+
+  /**
+   * @param first  The first bound
+   * @param factor The factor between consecutive bounds
+   * @param count  The number of bounds
+   *
+   * @return Exponentially increasing bucket bounds
+   */
+
+  static double[] exponential(
+    final double first,
+    final double factor,
+    final int count)
+  {
+    final var results = new double[count];
+    var bound = first;
+    for (int index = 0; index < count; ++index) {
+      results[index] = bound;
+      bound *= factor;
+    }
+    return results;
+  }
+
+  /**
+   * Record a value.
+   *
+   * @param value The value
+   */
+
+  void observe(
+    final double value)
+  {
+    var index = 0;
+    while (index < this.bounds.length && value > this.bounds[index]) {
+      ++index;
+    }
+    this.buckets[index].increment();
+    this.sum.add(value);
+  }
+
+  /**
+   * Write the histogram in the Prometheus text exposition format.
+   *
+   * @param output The output
+   *
+   * @throws IOException On errors
+   */
+
+  void write(
+    final Appendable output)
+    throws IOException
+  {
+    output.append("# HELP ")
+      .append(this.name)
+      .append(' ')
+      .append(this.help)
+      .append('\n');
+    output.append("# TYPE ")
+      .append(this.name)
+      .append(" histogram\n");
+
+    var cumulative = 0L;
+    for (int index = 0; index < this.buckets.length; ++index) {
+      cumulative += this.buckets[index].sum();
+      final var bound =
+        index < this.bounds.length
+          ? Double.toString(this.bounds[index])
+          : "+Inf";
+      output.append(this.name)
+        .append("_bucket{le=\"")
+        .append(bound)
+        .append("\"} ")
+        .append(Long.toString(cumulative))
+        .append('\n');
+    }
+
+    output.append(this.name)
+      .append("_sum ")
+      .append(Double.toString(this.sum.sum()))
+      .append('\n');
+    output.append(this.name)
+      .append("_count ")
+      .append(Long.toString(cumulative))
+      .append('\n');
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A parsed Metalink document.
+ *
+ * @param files The files described by the document
+ *
+ * @see JDownloadMetalinks
+ */
+
+public record JDownloadMetalink(
+  List<JDownloadMetalinkFile> files)
+{
+  /**
+   * A parsed Metalink document.
+   *
+   * @param files The files described by the document
+   */
+
+  public JDownloadMetalink
+  {
+    files = List.copyOf(files);
+  }
+
+  /**
+   * @param name The file name
+   *
+   * @return The file with the given name, if any
+   */
+
+  public Optional<JDownloadMetalinkFile> file(
+    final String name)
+  {
+    return this.files.stream()
+      .filter(f -> f.name().equals(name))
+      .findFirst();
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * A file described by a Metalink document.
+ *
+ * @param name      The name of the file
+ * @param size      The size of the file, if specified
+ * @param checksums The checksums of the whole file, omitting any checksums
+ *                  whose algorithms are not supported
+ * @param pieces    The checksums of the pieces of the file, if specified
+ *                  with a supported algorithm
+ * @param urls      The URLs from which the file can be downloaded, most
+ *                  preferred first
+ */
+
+public record JDownloadMetalinkFile(
+  String name,
+  OptionalLong size,
+  List<JChecksumStatically> checksums,
+  Optional<JDownloadPieceChecksums> pieces,
+  List<URI> urls)
+{
+  /**
+   * A file described by a Metalink document.
+   *
+   * @param name      The name of the file
+   * @param size      The size of the file, if specified
+   * @param checksums The checksums of the whole file, omitting any
+   *                  checksums whose algorithms are not supported
+   * @param pieces    The checksums of the pieces of the file, if specified
+   *                  with a supported algorithm
+   * @param urls      The URLs from which the file can be downloaded, most
+   *                  preferred first
+   */
+
+  public JDownloadMetalinkFile
+  {
+    Objects.requireNonNull(name, "name");
+    Objects.requireNonNull(size, "size");
+    Objects.requireNonNull(pieces, "pieces");
+    checksums = List.copyOf(checksums);
+    urls = List.copyOf(urls);
+  }
+}
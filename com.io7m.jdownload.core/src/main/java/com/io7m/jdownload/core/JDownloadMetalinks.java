@@ -0,0 +1,293 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * Functions to parse Metalink (RFC 5854) documents.
+ *
+ * A Metalink document lists the URLs from which a file can be downloaded,
+ * the checksum of the whole file, and optionally the checksums of the
+ * fixed-size pieces of the file. A request built from a Metalink file (see
+ * {@link JDownloadRequests#builderFromMetalink}) downloads the pieces
+ * concurrently from all of the URLs, and requests only the pieces that
+ * fail verification again.
+ */
+
+public final class JDownloadMetalinks
+{
+  /**
+   * The Metalink 4 XML namespace.
+   */
+
+  public static final String NAMESPACE =
+    "urn:ietf:params:xml:ns:metalink";
+
+  private static final int PRIORITY_LOWEST = 999999;
+
+  private JDownloadMetalinks()
+  {
+
+  }
+
+  /**
+   * Parse a Metalink document. Relative URLs are resolved against the URI
+   * of the document. URLs with schemes other than {@code http} and
+   * {@code https}, and checksums with unsupported algorithms, are ignored.
+   *
+   * @param source The URI of the document
+   * @param stream The document
+   *
+   * @return The parsed document
+   *
+   * @throws IOException If the document cannot be read or is malformed
+   */
+
+  public static JDownloadMetalink parse(
+    final URI source,
+    final InputStream stream)
+    throws IOException
+  {
+    Objects.requireNonNull(source, "source");
+    Objects.requireNonNull(stream, "stream");
+
+    final Element root;
+    try {
+      final var factory = DocumentBuilderFactory.newInstance();
+      factory.setNamespaceAware(true);
+      factory.setXIncludeAware(false);
+      factory.setExpandEntityReferences(false);
+      factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+      factory.setFeature(
+        "http://apache.org/xml/features/disallow-doctype-decl",
+        true
+      );
+
+      final var builder = factory.newDocumentBuilder();
+      builder.setErrorHandler(new DefaultHandler());
+      root = builder.parse(stream, source.toString()).getDocumentElement();
+    } catch (final ParserConfigurationException | SAXException e) {
+      throw new IOException(e);
+    }
+
+    if (!isElement(root, "metalink")) {
+      throw new IOException(
+        "Expected a metalink element in the namespace %s".formatted(NAMESPACE)
+      );
+    }
+
+    final var files = new ArrayList<JDownloadMetalinkFile>();
+    for (final var element : children(root, "file")) {
+      files.add(parseFile(source, element));
+    }
+    return new JDownloadMetalink(files);
+  }
+
+  private static JDownloadMetalinkFile parseFile(
+    final URI source,
+    final Element file)
+    throws IOException
+  {
+    final var name = file.getAttribute("name");
+    if (name.isEmpty()) {
+      throw new IOException("A file element is missing a name.");
+    }
+
+    var size = OptionalLong.empty();
+    for (final var element : children(file, "size")) {
+      size = OptionalLong.of(parseLong(element.getTextContent()));
+    }
+
+    final var checksums = new ArrayList<JChecksumStatically>();
+    for (final var element : children(file, "hash")) {
+      final var algorithm = algorithmFor(element.getAttribute("type"));
+      if (algorithm.isPresent()) {
+        checksums.add(
+          new JChecksumStatically(
+            algorithm.get(),
+            parseHex(element.getTextContent())
+          )
+        );
+      }
+    }
+
+    Optional<JDownloadPieceChecksums> pieces = Optional.empty();
+    for (final var element : children(file, "pieces")) {
+      final var algorithm = algorithmFor(element.getAttribute("type"));
+      if (algorithm.isEmpty()) {
+        continue;
+      }
+
+      final var hashes = new ArrayList<byte[]>();
+      for (final var hash : children(element, "hash")) {
+        hashes.add(parseHex(hash.getTextContent()));
+      }
+
+      final var length = parseLong(element.getAttribute("length"));
+      if (length < 1L) {
+        throw new IOException("Piece length must be positive.");
+      }
+      pieces = Optional.of(
+        new JDownloadPieceChecksums(algorithm.get(), length, hashes)
+      );
+    }
+
+    final var urls = new ArrayList<PrioritizedURI>();
+    for (final var element : children(file, "url")) {
+      final var uri = parseURI(source, element.getTextContent());
+      final var scheme =
+        Optional.ofNullable(uri.getScheme())
+          .map(s -> s.toLowerCase(Locale.ROOT))
+          .orElse("");
+
+      if (scheme.equals("http") || scheme.equals("https")) {
+        final var priority = element.getAttribute("priority");
+        urls.add(
+          new PrioritizedURI(
+            uri,
+            priority.isEmpty() ? PRIORITY_LOWEST : parseInt(priority)
+          )
+        );
+      }
+    }
+    urls.sort(Comparator.comparingInt(PrioritizedURI::priority));
+
+    return new JDownloadMetalinkFile(
+      name,
+      size,
+      checksums,
+      pieces,
+      urls.stream().map(PrioritizedURI::uri).toList()
+    );
+  }
+
+  private record PrioritizedURI(
+    URI uri,
+    int priority)
+  {
+
+  }
+
+  /**
+   * Map an IANA hash function name (such as {@code sha-256}) to a Java
+   * algorithm name.
+   */
+
+  private static Optional<String> algorithmFor(
+    final String type)
+  {
+    final var algorithm = type.strip().toUpperCase(Locale.ROOT);
+    try {
+      MessageDigest.getInstance(algorithm);
+      return Optional.of(algorithm);
+    } catch (final NoSuchAlgorithmException e) {
+      return Optional.empty();
+    }
+  }
+
+  private static boolean isElement(
+    final Node node,
+    final String name)
+  {
+    return node instanceof Element
+      && NAMESPACE.equals(node.getNamespaceURI())
+      && name.equals(node.getLocalName());
+  }
+
+  private static List<Element> children(
+    final Element parent,
+    final String name)
+  {
+    final var results = new ArrayList<Element>();
+    final var nodes = parent.getChildNodes();
+    for (int index = 0; index < nodes.getLength(); ++index) {
+      final var node = nodes.item(index);
+      if (isElement(node, name)) {
+        results.add((Element) node);
+      }
+    }
+    return results;
+  }
+
+  private static URI parseURI(
+    final URI source,
+    final String text)
+    throws IOException
+  {
+    try {
+      return source.resolve(new URI(text.strip()));
+    } catch (final URISyntaxException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private static byte[] parseHex(
+    final String text)
+    throws IOException
+  {
+    try {
+      return HexFormat.of().parseHex(text.strip());
+    } catch (final IllegalArgumentException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private static long parseLong(
+    final String text)
+    throws IOException
+  {
+    try {
+      return Long.parseLong(text.strip());
+    } catch (final NumberFormatException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private static int parseInt(
+    final String text)
+    throws IOException
+  {
+    try {
+      return Integer.parseInt(text.strip());
+    } catch (final NumberFormatException e) {
+      throw new IOException(e);
+    }
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * A body subscriber that reports the timing of a successful response body
+ * to a metrics receiver and to the flight recorder before passing the body
+ * on to another subscriber.
+ *
+ * @param <T> The type of response body
+ */
+
+final class JDownloadMeteredSubscriber<T>
+  implements HttpResponse.BodySubscriber<T>
+{
+  private final HttpResponse.BodySubscriber<T> delegate;
+  private final Optional<JDownloadMetricsType> metrics;
+  private final Optional<JDownloadEventTransfer> event;
+  private final URI uri;
+  private final int status;
+  private final long timeSent;
+  private final long timeHeaders;
+  private boolean received;
+  private long octets;
+
+  private JDownloadMeteredSubscriber(
+    final HttpResponse.BodySubscriber<T> inDelegate,
+    final Optional<JDownloadMetricsType> inMetrics,
+    final Optional<JDownloadEventTransfer> inEvent,
+    final URI inURI,
+    final int inStatus,
+    final long inTimeSent,
+    final long inTimeHeaders)
+  {
+    this.delegate =
+      Objects.requireNonNull(inDelegate, "delegate");
+    this.metrics =
+      Objects.requireNonNull(inMetrics, "metrics");
+    this.event =
+      Objects.requireNonNull(inEvent, "event");
+    this.uri =
+      Objects.requireNonNull(inURI, "uri");
+    this.status =
+      inStatus;
+    this.timeSent =
+      inTimeSent;
+    this.timeHeaders =
+      inTimeHeaders;
+  }
+
+  /**
+   * Wrap a body handler so that the response headers of every response
+   * are reported to the given metrics receiver and the flight recorder,
+   * along with the timing of the body of any successful response. The
+   * request is assumed to be sent immediately after this method is called.
+   * If there is no metrics receiver and the flight recorder events are
+   * disabled, the handler is returned unchanged.
+   *
+   * @param metrics The metrics receiver
+   * @param request The request
+   * @param handler The body handler
+   * @param <T>     The type of response body
+   *
+   * @return A body handler
+   */
+
+  static <T> HttpResponse.BodyHandler<T> metered(
+    final Optional<JDownloadMetricsType> metrics,
+    final HttpRequest request,
+    final HttpResponse.BodyHandler<T> handler)
+  {
+    final var headersEvent = JDownloadFlightRecorder.beginHeaders();
+    if (metrics.isEmpty()
+      && headersEvent.isEmpty()
+      && !JDownloadFlightRecorder.isTransferEnabled()) {
+      return handler;
+    }
+
+    final var uri = request.uri();
+    final var timeSent = System.nanoTime();
+
+    return info -> {
+      final var timeHeaders = System.nanoTime();
+      final var status = info.statusCode();
+
+      if (headersEvent.isPresent()) {
+        final var event = headersEvent.get();
+        event.end();
+        if (event.shouldCommit()) {
+          event.uri = uri.toString();
+          event.method = request.method();
+          event.status = status;
+          event.commit();
+        }
+      }
+      if (metrics.isPresent()) {
+        metrics.get().onResponseHeaders(
+          uri,
+          status,
+          Duration.ofNanos(timeHeaders - timeSent)
+        );
+      }
+
+      final var subscriber = handler.apply(info);
+      if (status < 200 || status >= 300) {
+        return subscriber;
+      }
+
+      return new JDownloadMeteredSubscriber<>(
+        subscriber,
+        metrics,
+        JDownloadFlightRecorder.beginTransfer(),
+        uri,
+        status,
+        timeSent,
+        timeHeaders
+      );
+    };
+  }
+
+  @Override
+  public CompletionStage<T> getBody()
+  {
+    return this.delegate.getBody();
+  }
+
+  @Override
+  public void onSubscribe(
+    final Flow.Subscription subscription)
+  {
+    this.delegate.onSubscribe(subscription);
+  }
+
+  @Override
+  public void onNext(
+    final List<ByteBuffer> buffers)
+  {
+    if (!this.received) {
+      this.received = true;
+      if (this.metrics.isPresent()) {
+        this.metrics.get().onFirstByte(
+          this.uri,
+          Duration.ofNanos(System.nanoTime() - this.timeSent)
+        );
+      }
+    }
+
+    for (int index = 0; index < buffers.size(); ++index) {
+      this.octets += buffers.get(index).remaining();
+    }
+    this.delegate.onNext(buffers);
+  }
+
+  @Override
+  public void onError(
+    final Throwable throwable)
+  {
+    this.delegate.onError(throwable);
+  }
+
+  @Override
+  public void onComplete()
+  {
+    if (this.event.isPresent()) {
+      final var transfer = this.event.get();
+      transfer.end();
+      if (transfer.shouldCommit()) {
+        transfer.uri = this.uri.toString();
+        transfer.status = this.status;
+        transfer.octets = this.octets;
+        transfer.commit();
+      }
+    }
+    if (this.metrics.isPresent()) {
+      this.metrics.get().onTransferCompleted(
+        this.uri,
+        this.octets,
+        Duration.ofNanos(System.nanoTime() - this.timeHeaders)
+      );
+    }
+    this.delegate.onComplete();
+  }
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The default in-memory metrics collector.
+ */
+
+final class JDownloadMetricsCollector
+  implements JDownloadMetricsCollectorType
+{
+  private static final double[] SECONDS = {
+    0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5,
+    1.0, 2.5, 5.0, 10.0, 30.0, 60.0, 120.0, 300.0,
+  };
+
+  private final JDownloadHistogram timeToHeaders;
+  private final JDownloadHistogram timeToFirstByte;
+  private final JDownloadHistogram transferDuration;
+  private final JDownloadHistogram transferSize;
+  private final JDownloadHistogram transferThroughput;
+  private final JDownloadHistogram hashDuration;
+  private final JDownloadHistogram moveDuration;
+  private final JDownloadHistogram requestDuration;
+  private final LongAdder octets;
+  private final Counters responses;
+  private final Counters results;
+
+  JDownloadMetricsCollector()
+  {
+    this.timeToHeaders =
+      new JDownloadHistogram(
+        "jdownload_time_to_headers_seconds",
+        "Time from sending an HTTP request to receiving the headers.",
+        SECONDS
+      );
+    this.timeToFirstByte =
+      new JDownloadHistogram(
+        "jdownload_time_to_first_byte_seconds",
+        "Time from sending an HTTP request to receiving the first octets.",
+        SECONDS
+      );
+    this.transferDuration =
+      new JDownloadHistogram(
+        "jdownload_transfer_duration_seconds",
+        "Time from receiving the headers to receiving the end of the body.",
+        SECONDS
+      );
+    this.transferSize =
+      new JDownloadHistogram(
+        "jdownload_transfer_size_bytes",
+        "The size of response bodies.",
+        JDownloadHistogram.exponential(1024.0, 4.0, 12)
+      );
+    this.transferThroughput =
+      new JDownloadHistogram(
+        "jdownload_transfer_throughput_bytes_per_second",
+        "The throughput of response body transfers.",
+        JDownloadHistogram.exponential(16384.0, 4.0, 10)
+      );
+    this.hashDuration =
+      new JDownloadHistogram(
+        "jdownload_hash_duration_seconds",
+        "Time spent hashing downloaded data.",
+        SECONDS
+      );
+    this.moveDuration =
+      new JDownloadHistogram(
+        "jdownload_move_duration_seconds",
+        "Time spent moving temporary files to output files.",
+        SECONDS
+      );
+    this.requestDuration =
+      new JDownloadHistogram(
+        "jdownload_request_duration_seconds",
+        "Time from starting a request to receiving the result.",
+        SECONDS
+      );
+    this.octets =
+      new LongAdder();
+    this.responses =
+      new Counters(
+        "jdownload_responses_total",
+        "HTTP responses received, by status.",
+        List.of("status")
+      );
+    this.results =
+      new Counters(
+        "jdownload_results_total",
+        "Request results, by result type and HTTP status.",
+        List.of("result", "status")
+      );
+  }
+
+  private static double seconds(
+    final Duration duration)
+  {
+    return (double) duration.toNanos() / 1_000_000_000.0;
+  }
+
+  @Override
+  public void onResponseHeaders(
+    final URI uri,
+    final int status,
+    final Duration elapsed)
+  {
+    this.timeToHeaders.observe(seconds(elapsed));
+    this.responses.increment(List.of(Integer.toString(status)));
+  }
+
+  @Override
+  public void onFirstByte(
+    final URI uri,
+    final Duration elapsed)
+  {
+    this.timeToFirstByte.observe(seconds(elapsed));
+  }
+
+  @Override
+  public void onTransferCompleted(
+    final URI uri,
+    final long size,
+    final Duration elapsed)
+  {
+    final var time = seconds(elapsed);
+    this.transferDuration.observe(time);
+    this.transferSize.observe((double) size);
+    if (time > 0.0) {
+      this.transferThroughput.observe((double) size / time);
+    }
+    this.octets.add(size);
+  }
+
+  @Override
+  public void onHashCompleted(
+    final URI uri,
+    final long size,
+    final Duration elapsed)
+  {
+    this.hashDuration.observe(seconds(elapsed));
+  }
+
+  @Override
+  public void onMoveCompleted(
+    final URI uri,
+    final Duration elapsed)
+  {
+    this.moveDuration.observe(seconds(elapsed));
+  }
+
+  @Override
+  public void onRequestCompleted(
+    final URI uri,
+    final JDownloadResultType result,
+    final Duration elapsed)
+  {
+    this.requestDuration.observe(seconds(elapsed));
+    final var status = JDownloadResultNames.statusOf(result);
+    this.results.increment(
+      List.of(
+        JDownloadResultNames.nameOf(result),
+        status == 0 ? "" : Integer.toString(status)
+      )
+    );
+  }
+
+  @Override
+  public void writePrometheus(
+    final Appendable output)
+    throws IOException
+  {
+    Objects.requireNonNull(output, "output");
+
+    this.timeToHeaders.write(output);
+    this.timeToFirstByte.write(output);
+    this.transferDuration.write(output);
+    this.transferSize.write(output);
+    this.transferThroughput.write(output);
+    this.hashDuration.write(output);
+    this.moveDuration.write(output);
+    this.requestDuration.write(output);
+
+    output.append("# HELP jdownload_transferred_bytes_total ");
+    output.append("Octets received in response bodies.\n");
+    output.append("# TYPE jdownload_transferred_bytes_total counter\n");
+    output.append("jdownload_transferred_bytes_total ")
+      .append(Long.toString(this.octets.sum()))
+      .append('\n');
+
+    this.responses.write(output);
+    this.results.write(output);
+  }
+
+  /**
+   * A family of counters distinguished by label values.
+   */
+
+  private static final class Counters
+  {
+    private final String name;
+    private final String help;
+    private final List<String> labels;
+    private final ConcurrentHashMap<List<String>, LongAdder> values;
+
+    Counters(
+      final String inName,
+      final String inHelp,
+      final List<String> inLabels)
+    {
+      this.name = inName;
+      this.help = inHelp;
+      this.labels = inLabels;
+      this.values = new ConcurrentHashMap<>();
+    }
+
+    void increment(
+      final List<String> labelValues)
+    {
+      this.values.computeIfAbsent(labelValues, k -> new LongAdder())
+        .increment();
+    }
+
+    void write(
+      final Appendable output)
+      throws IOException
+    {
+      output.append("# HELP ")
+        .append(this.name)
+        .append(' ')
+        .append(this.help)
+        .append('\n');
+      output.append("# TYPE ")
+        .append(this.name)
+        .append(" counter\n");
+
+      final var sorted =
+        new TreeMap<String, Long>();
+      for (final Map.Entry<List<String>, LongAdder> entry :
+        this.values.entrySet()) {
+        sorted.put(
+          this.labelText(entry.getKey()),
+          Long.valueOf(entry.getValue().sum())
+        );
+      }
+
+      for (final var entry : sorted.entrySet()) {
+        output.append(this.name)
+          .append(entry.getKey())
+          .append(' ')
+          .append(Long.toString(entry.getValue().longValue()))
+          .append('\n');
+      }
+    }
+
+    private String labelText(
+      final List<String> labelValues)
+    {
+      final var text = new StringBuilder(64);
+      text.append('{');
+      for (int index = 0; index < this.labels.size(); ++index) {
+        if (index > 0) {
+          text.append(',');
+        }
+        text.append(this.labels.get(index));
+        text.append("=\"");
+        text.append(escape(labelValues.get(index)));
+        text.append('"');
+      }
+      text.append('}');
+      return text.toString();
+    }
+
+    private static String escape(
+      final String value)
+    {
+      return value.replace("\\", "\\\\")
+        .replace("\"", "\\\"")
+        .replace("\n", "\\n");
+    }
+  }
+}
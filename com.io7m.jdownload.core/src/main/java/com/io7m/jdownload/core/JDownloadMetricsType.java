@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * A receiver of metrics for downloads. Every method has an empty default
+ * implementation, so implementations need only override the methods for
+ * the metrics that they record.
+ *
+ * Methods are called on the threads of the HTTP client and must not block.
+ *
+ * @see JDownloadMetricsCollectors
+ */
+
+public interface JDownloadMetricsType
+{
+  /**
+   * The response headers were received for an HTTP request.
+   *
+   * @param uri     The URI of the request
+   * @param status  The HTTP status
+   * @param elapsed The time from sending the request to receiving the
+   *                headers
+   */
+
+  default void onResponseHeaders(
+    final URI uri,
+    final int status,
+    final Duration elapsed)
+  {
+
+  }
+
+  /**
+   * The first octets of a successful response body were received.
+   *
+   * @param uri     The URI of the request
+   * @param elapsed The time from sending the request to receiving the
+   *                first octets
+   */
+
+  default void onFirstByte(
+    final URI uri,
+    final Duration elapsed)
+  {
+
+  }
+
+  /**
+   * A successful response body was received completely.
+   *
+   * @param uri     The URI of the request
+   * @param octets  The number of octets received
+   * @param elapsed The time from receiving the headers to receiving the
+   *                end of the body
+   */
+
+  default void onTransferCompleted(
+    final URI uri,
+    final long octets,
+    final Duration elapsed)
+  {
+
+  }
+
+  /**
+   * The downloaded data was hashed. For data that is hashed as it arrives,
+   * the duration is the time spent hashing, excluding the time spent
+   * waiting for data.
+   *
+   * @param uri     The target URI
+   * @param octets  The number of octets hashed
+   * @param elapsed The time spent hashing
+   */
+
+  default void onHashCompleted(
+    final URI uri,
+    final long octets,
+    final Duration elapsed)
+  {
+
+  }
+
+  /**
+   * The temporary file was moved to the output file.
+   *
+   * @param uri     The target URI
+   * @param elapsed The time spent moving the file
+   */
+
+  default void onMoveCompleted(
+    final URI uri,
+    final Duration elapsed)
+  {
+
+  }
+
+  /**
+   * A request completed.
+   *
+   * @param uri     The target URI
+   * @param result  The result
+   * @param elapsed The time from starting the request to receiving the
+   *                result, including any retries
+   */
+
+  default void onRequestCompleted(
+    final URI uri,
+    final JDownloadResultType result,
+    final Duration elapsed)
+  {
+
+  }
+}
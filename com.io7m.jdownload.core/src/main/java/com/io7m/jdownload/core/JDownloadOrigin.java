@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+/**
+ * The origin of the data in a successfully downloaded file.
+ */
+
+public enum JDownloadOrigin
+{
+  /**
+   * The file was downloaded from the network.
+   */
+
+  NETWORK,
+
+  /**
+   * The server reported that the remote file had not changed since it was
+   * last downloaded, and so the existing output file was left untouched.
+   */
+
+  NOT_MODIFIED,
+
+  /**
+   * The file was copied out of a local cache, without using the network.
+   *
+   * @see JDownloadCacheType
+   */
+
+  CACHE,
+
+  /**
+   * The file was assembled from blocks of an existing local file and byte
+   * ranges downloaded from the network.
+   *
+   * @see JDownloadRequestBuilderType#setDeltaFromBlockIndex(java.net.URI)
+   */
+
+  DELTA
+}
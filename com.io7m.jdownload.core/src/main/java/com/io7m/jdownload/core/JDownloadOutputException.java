@@ -0,0 +1,45 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * An exception used by body subscribers to mark a failure to write to a
+ * local file, so that it is not mistaken for a failure of the HTTP exchange
+ * that delivered the data. The exception is unwrapped before it is reported
+ * to the user.
+ */
+
+final class JDownloadOutputException extends IOException
+{
+  private static final long serialVersionUID = 1L;
+
+  JDownloadOutputException(
+    final IOException cause)
+  {
+    super(Objects.requireNonNull(cause, "cause"));
+  }
+
+  @Override
+  public synchronized IOException getCause()
+  {
+    return (IOException) super.getCause();
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The checksums of the consecutive, fixed-size pieces of a file. The final
+ * piece may be shorter than the piece length.
+ *
+ * @param algorithm   The checksum algorithm (such as "SHA-256")
+ * @param pieceLength The length of each piece
+ * @param checksums   The checksum of each piece, in order
+ */
+
+public record JDownloadPieceChecksums(
+  String algorithm,
+  long pieceLength,
+  List<byte[]> checksums)
+{
+  /**
+   * The checksums of the consecutive, fixed-size pieces of a file. The
+   * final piece may be shorter than the piece length.
+   *
+   * @param algorithm   The checksum algorithm (such as "SHA-256")
+   * @param pieceLength The length of each piece
+   * @param checksums   The checksum of each piece, in order
+   */
+
+  public JDownloadPieceChecksums
+  {
+    Objects.requireNonNull(algorithm, "algorithm");
+    Objects.requireNonNull(checksums, "checksums");
+
+    if (pieceLength < 1L) {
+      throw new IllegalArgumentException(
+        "Piece length must be positive (received %d)"
+          .formatted(Long.valueOf(pieceLength))
+      );
+    }
+
+    try {
+      MessageDigest.getInstance(algorithm);
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+
+    final var copies = new ArrayList<byte[]>(checksums.size());
+    for (final var checksum : checksums) {
+      copies.add(Objects.requireNonNull(checksum, "checksum").clone());
+    }
+    checksums = List.copyOf(copies);
+  }
+
+  /**
+   * @return The checksum of each piece, in order
+   */
+
+  @Override
+  public List<byte[]> checksums()
+  {
+    final var copies = new ArrayList<byte[]>(this.checksums.size());
+    for (final var checksum : this.checksums) {
+      copies.add(checksum.clone());
+    }
+    return List.copyOf(copies);
+  }
+
+  /**
+   * @return The number of pieces
+   */
+
+  public int pieceCount()
+  {
+    return this.checksums.size();
+  }
+
+  /**
+   * @param piece The index of a piece
+   *
+   * @return The checksum of the piece
+   */
+
+  public byte[] checksum(
+    final int piece)
+  {
+    return this.checksums.get(piece).clone();
+  }
+
+  /**
+   * @param size The size of a file
+   *
+   * @return {@code true} if these checksums describe a file of the given
+   * size
+   */
+
+  public boolean describesSize(
+    final long size)
+  {
+    final var count = (size + this.pieceLength - 1L) / this.pieceLength;
+    return size > 0L && count == this.pieceCount();
+  }
+}
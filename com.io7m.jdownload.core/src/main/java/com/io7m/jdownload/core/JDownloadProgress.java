@@ -0,0 +1,129 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import com.io7m.streamtime.core.STTimedInputStream;
+import com.io7m.streamtime.core.STTransferStatistics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
+
+/**
+ * A transfer progress tracker for data that does not arrive through an
+ * input stream.
+ *
+ * Statistics are produced by a timed input stream that is "read" each time
+ * a chunk of data has been received. The underlying stream never copies any
+ * data; it simply reports the size of each chunk, so the timed stream sees
+ * exactly the same sequence of reads that it would have seen had the data
+ * been read through it directly.
+ */
+
+final class JDownloadProgress implements AutoCloseable
+{
+  private static final byte[] UNUSED =
+    new byte[65536];
+
+  private final PendingStream pending;
+  private final STTimedInputStream stream;
+
+  JDownloadProgress(
+    final OptionalLong expectedSize,
+    final Consumer<STTransferStatistics> receiver)
+  {
+    this.pending =
+      new PendingStream();
+    this.stream =
+      new STTimedInputStream(
+        Objects.requireNonNull(expectedSize, "expectedSize"),
+        Objects.requireNonNull(receiver, "receiver"),
+        this.pending
+      );
+  }
+
+  /**
+   * Indicate that the given number of octets have been received.
+   *
+   * @param octets The number of octets
+   */
+
+  synchronized void add(
+    final long octets)
+  {
+    try {
+      this.pending.remaining = octets;
+      while (this.pending.remaining > 0L) {
+        final var size =
+          (int) Math.min(this.pending.remaining, UNUSED.length);
+        this.stream.read(UNUSED, 0, size);
+      }
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public synchronized void close()
+  {
+    try {
+      this.stream.close();
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static final class PendingStream extends InputStream
+  {
+    private long remaining;
+
+    PendingStream()
+    {
+
+    }
+
+    @Override
+    public int read()
+    {
+      if (this.remaining == 0L) {
+        return -1;
+      }
+
+      this.remaining -= 1L;
+      return 0;
+    }
+
+    @Override
+    public int read(
+      final byte[] b,
+      final int off,
+      final int len)
+    {
+      if (this.remaining == 0L) {
+        return -1;
+      }
+
+      final var size = (int) Math.min(len, this.remaining);
+      this.remaining -= size;
+      return size;
+    }
+  }
+}
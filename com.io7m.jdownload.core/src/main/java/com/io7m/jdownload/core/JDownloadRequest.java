@@ -0,0 +1,357 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import com.io7m.streamtime.core.STTransferStatistics;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * An immutable download request.
+ */
+
+final class JDownloadRequest implements JDownloadRequestType
+{
+  private final HttpClient client;
+  private final JChecksumStrategyType checksum;
+  private final URI target;
+  private final Path outputFile;
+  private final Path outputFileTmp;
+  private final Consumer<STTransferStatistics> receiver;
+  private final Consumer<HttpRequest.Builder> requestModifier;
+  private final Consumer<HttpRequest.Builder> checksumRequestModifier;
+  private final boolean resumePartial;
+  private final int segmentCount;
+  private final long segmentSizeMinimum;
+  private final boolean conditional;
+  private final Optional<JDownloadCacheType> cache;
+  private final Optional<JDownloadCoalescer> coalescer;
+  private final JDownloadRetryPolicy retryPolicy;
+  private final List<URI> sources;
+  private final Optional<Duration> hedgeDelay;
+  private final List<String> digestAlgorithms;
+  private final List<JChecksumStatically> checksumsAdditional;
+  private final Optional<JDownloadMetricsType> metrics;
+  private final List<JDownloadBandwidthLimiter> bandwidthLimiters;
+  private final Optional<JDownloadDelta> delta;
+  private final Optional<JDownloadPieceChecksums> pieceChecksums;
+
+  JDownloadRequest(
+    final HttpClient inClient,
+    final JChecksumStrategyType inChecksum,
+    final URI inTarget,
+    final Path inOutputFile,
+    final Path inOutputFileTmp,
+    final Consumer<STTransferStatistics> inReceiver,
+    final Consumer<HttpRequest.Builder> inRequestModifier,
+    final Consumer<HttpRequest.Builder> inChecksumRequestModifier,
+    final boolean inResumePartial,
+    final int inSegmentCount,
+    final long inSegmentSizeMinimum,
+    final boolean inConditional,
+    final Optional<JDownloadCacheType> inCache,
+    final Optional<JDownloadCoalescer> inCoalescer,
+    final JDownloadRetryPolicy inRetryPolicy,
+    final List<URI> inMirrors,
+    final Optional<Duration> inHedgeDelay,
+    final List<String> inDigestAlgorithms,
+    final List<JChecksumStatically> inChecksumsAdditional,
+    final Optional<JDownloadMetricsType> inMetrics,
+    final List<JDownloadBandwidthLimiter> inBandwidthLimiters,
+    final Optional<JDownloadDelta> inDelta,
+    final Optional<JDownloadPieceChecksums> inPieceChecksums)
+  {
+    this.client =
+      Objects.requireNonNull(inClient, "client");
+    this.checksum =
+      Objects.requireNonNull(inChecksum, "checksum");
+    this.target =
+      Objects.requireNonNull(inTarget, "target");
+    this.outputFile =
+      Objects.requireNonNull(inOutputFile, "outputFile");
+    this.outputFileTmp =
+      Objects.requireNonNull(inOutputFileTmp, "outputFileTmp");
+    this.receiver =
+      Objects.requireNonNull(inReceiver, "receiver");
+    this.requestModifier =
+      Objects.requireNonNull(inRequestModifier, "requestModifier");
+    this.checksumRequestModifier =
+      Objects.requireNonNull(
+        inChecksumRequestModifier,
+        "checksumRequestModifier");
+    this.resumePartial =
+      inResumePartial;
+    this.segmentCount =
+      inSegmentCount;
+    this.segmentSizeMinimum =
+      inSegmentSizeMinimum;
+    this.conditional =
+      inConditional;
+    this.cache =
+      Objects.requireNonNull(inCache, "cache");
+    this.coalescer =
+      Objects.requireNonNull(inCoalescer, "coalescer");
+    this.retryPolicy =
+      Objects.requireNonNull(inRetryPolicy, "retryPolicy");
+    this.hedgeDelay =
+      Objects.requireNonNull(inHedgeDelay, "hedgeDelay");
+    this.digestAlgorithms =
+      List.copyOf(inDigestAlgorithms);
+    this.checksumsAdditional =
+      List.copyOf(inChecksumsAdditional);
+    this.metrics =
+      Objects.requireNonNull(inMetrics, "metrics");
+    this.bandwidthLimiters =
+      List.copyOf(inBandwidthLimiters);
+    this.delta =
+      Objects.requireNonNull(inDelta, "delta");
+    this.pieceChecksums =
+      Objects.requireNonNull(inPieceChecksums, "pieceChecksums");
+
+    final var sourceList = new ArrayList<URI>(inMirrors.size() + 1);
+    sourceList.add(inTarget);
+    sourceList.addAll(inMirrors);
+    this.sources = List.copyOf(sourceList);
+  }
+
+  @Override
+  public URI target()
+  {
+    return this.target;
+  }
+
+  Consumer<HttpRequest.Builder> requestModifier()
+  {
+    return this.requestModifier;
+  }
+
+  Consumer<HttpRequest.Builder> checksumRequestModifier()
+  {
+    return this.checksumRequestModifier;
+  }
+
+  boolean resumePartial()
+  {
+    return this.resumePartial;
+  }
+
+  int segmentCount()
+  {
+    return this.segmentCount;
+  }
+
+  long segmentSizeMinimum()
+  {
+    return this.segmentSizeMinimum;
+  }
+
+  boolean conditional()
+  {
+    return this.conditional;
+  }
+
+  Optional<JDownloadCacheType> cache()
+  {
+    return this.cache;
+  }
+
+  JDownloadRetryPolicy retryPolicy()
+  {
+    return this.retryPolicy;
+  }
+
+  /**
+   * @return The target URI followed by any mirrors
+   */
+
+  List<URI> sources()
+  {
+    return this.sources;
+  }
+
+  Optional<Duration> hedgeDelay()
+  {
+    return this.hedgeDelay;
+  }
+
+  /**
+   * @return The algorithms of any additional digests to compute
+   */
+
+  List<String> digestAlgorithms()
+  {
+    return this.digestAlgorithms;
+  }
+
+  /**
+   * @return Any checksums to verify in addition to the checksum strategy
+   */
+
+  List<JChecksumStatically> checksumsAdditional()
+  {
+    return this.checksumsAdditional;
+  }
+
+  Optional<JDownloadMetricsType> metrics()
+  {
+    return this.metrics;
+  }
+
+  List<JDownloadBandwidthLimiter> bandwidthLimiters()
+  {
+    return this.bandwidthLimiters;
+  }
+
+  Optional<JDownloadDelta> delta()
+  {
+    return this.delta;
+  }
+
+  Optional<JDownloadPieceChecksums> pieceChecksums()
+  {
+    return this.pieceChecksums;
+  }
+
+  @Override
+  public HttpClient httpClient()
+  {
+    return this.client;
+  }
+
+  @Override
+  public Consumer<STTransferStatistics> statisticsReceiver()
+  {
+    return this.receiver;
+  }
+
+  @Override
+  public Path outputFile()
+  {
+    return this.outputFile;
+  }
+
+  @Override
+  public Path outputFileTemporary()
+  {
+    return this.outputFileTmp;
+  }
+
+  @Override
+  public JChecksumStrategyType checksumStrategy()
+  {
+    return this.checksum;
+  }
+
+  @Override
+  public JDownloadResultType execute()
+    throws InterruptedException
+  {
+    final var future = this.executeAsync();
+    try {
+      return future.get();
+    } catch (final InterruptedException e) {
+      future.cancel(true);
+      throw e;
+    } catch (final ExecutionException e) {
+      final var cause = e.getCause();
+      if (cause instanceof final RuntimeException ex) {
+        throw ex;
+      }
+      if (cause instanceof final Error ex) {
+        throw ex;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  @Override
+  public CompletableFuture<JDownloadResultType> executeAsync()
+  {
+    final var timeStart = System.nanoTime();
+    final var eventOpt = JDownloadFlightRecorder.beginRequest();
+
+    final CompletableFuture<JDownloadResultType> future;
+    if (this.coalescer.isPresent()) {
+      future = this.coalescer.get().execute(this, this::executeDirectly);
+    } else {
+      future = this.executeDirectly();
+    }
+
+    if (eventOpt.isPresent()) {
+      final var event = eventOpt.get();
+      future.thenAccept(result -> {
+        event.end();
+        if (event.shouldCommit()) {
+          event.uri = this.target.toString();
+          event.outputFile = this.outputFile.toString();
+          event.result = JDownloadResultNames.nameOf(result);
+          event.status = JDownloadResultNames.statusOf(result);
+          event.commit();
+        }
+      });
+    }
+
+    if (this.metrics.isEmpty()) {
+      return future;
+    }
+
+    /*
+     * The metrics receiver is called before the result is delivered, so
+     * that a caller that has received the result can rely on the metrics
+     * being up to date. Cancelling the returned future cancels the
+     * download.
+     */
+
+    final var m = this.metrics.get();
+    final var metered = new CompletableFuture<JDownloadResultType>();
+    future.whenComplete((result, exception) -> {
+      if (exception != null) {
+        metered.completeExceptionally(exception);
+        return;
+      }
+      m.onRequestCompleted(
+        this.target,
+        result,
+        Duration.ofNanos(System.nanoTime() - timeStart)
+      );
+      metered.complete(result);
+    });
+    metered.whenComplete((result, exception) -> {
+      if (metered.isCancelled()) {
+        future.cancel(true);
+      }
+    });
+    return metered;
+  }
+
+  private CompletableFuture<JDownloadResultType> executeDirectly()
+  {
+    return new JDownloadAttempts(this).run();
+  }
+}
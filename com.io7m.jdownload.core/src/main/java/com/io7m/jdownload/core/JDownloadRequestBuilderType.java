@@ -22,6 +22,8 @@ import com.io7m.streamtime.core.STTransferStatistics;
 import java.net.URI;
 import java.net.http.HttpRequest;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
 import java.util.function.Consumer;
 
 /**
@@ -96,6 +98,45 @@ public interface JDownloadRequestBuilderType
     Consumer<STTransferStatistics> receiver
   );
 
+  /**
+   * Set a manifest that is expected to contain a checksum value for the
+   * downloaded data, under the given entry name. The manifest is downloaded
+   * once and kept in the index shared by the whole process (see
+   * {@link JChecksumManifestIndexes#shared()}).
+   *
+   * @param manifestURI The manifest URI
+   * @param algorithm   The checksum algorithm
+   * @param entry       The name of the file in the manifest
+   *
+   * @return this
+   */
+
+  JDownloadRequestBuilderType setChecksumFromManifest(
+    URI manifestURI,
+    String algorithm,
+    String entry
+  );
+
+  /**
+   * Set a manifest that is expected to contain a checksum value for the
+   * downloaded data, under the given entry name. The manifest is downloaded
+   * once and kept in the given index.
+   *
+   * @param manifestURI The manifest URI
+   * @param algorithm   The checksum algorithm
+   * @param entry       The name of the file in the manifest
+   * @param index       The manifest index
+   *
+   * @return this
+   */
+
+  JDownloadRequestBuilderType setChecksumFromManifest(
+    URI manifestURI,
+    String algorithm,
+    String entry,
+    JChecksumManifestIndexType index
+  );
+
   /**
    * Set a modifier function that can adjust HTTP requests.
    *
@@ -120,6 +161,303 @@ public interface JDownloadRequestBuilderType
     Consumer<HttpRequest.Builder> modifier
   );
 
+  /**
+   * Enable or disable the resumption of partial downloads. If enabled, the
+   * validators of the response ({@code ETag} and {@code Last-Modified}) are
+   * recorded in a sidecar file next to the temporary output file. If a later
+   * execution finds a partial temporary file and its validators, it sends
+   * a {@code Range} request with an {@code If-Range} header and appends the
+   * remaining data to the temporary file. If the server returns the full
+   * content instead (because the remote file changed, or because the server
+   * does not support ranges), the temporary file is overwritten.
+   *
+   * @param resume {@code true} if partial downloads should be resumed
+   *
+   * @return this
+   */
+
+  JDownloadRequestBuilderType setResumePartialDownloads(
+    boolean resume
+  );
+
+  /**
+   * Enable or disable segmented downloads. If {@code segments} is greater
+   * than {@code 1}, the server is first asked for the size of the file
+   * with a {@code HEAD} request. If the server supports byte ranges, the file
+   * is divided into at most {@code segments} segments of at least
+   * {@code segmentSizeMinimum} octets, and the segments are downloaded
+   * concurrently into a preallocated temporary file. If the server does not
+   * support byte ranges, or the file is too small to be divided, the file is
+   * downloaded as a single stream.
+   *
+   * Segmented downloads cannot be resumed, and the checksum of a segmented
+   * download is computed after all segments have been written. If a
+   * partial download left by a single stream download can be resumed, it
+   * is resumed with a single range request instead of being discarded.
+   *
+   * @param segments           The maximum number of segments
+   * @param segmentSizeMinimum The minimum size of a segment
+   *
+   * @return this
+   */
+
+  JDownloadRequestBuilderType setSegmentedDownloads(
+    int segments,
+    long segmentSizeMinimum
+  );
+
+  /**
+   * Enable or disable conditional requests. If enabled, the validators
+   * ({@code ETag}, {@code Last-Modified}, and the size and checksum of the
+   * file) of each successful download are recorded in a
+   * {@code .validators} file next to the output file. Later downloads to
+   * the same output file send {@code If-None-Match} and
+   * {@code If-Modified-Since} headers and, if the server indicates that the
+   * remote file has not changed, the existing output file is left untouched
+   * and the result has an origin of {@link JDownloadOrigin#NOT_MODIFIED}.
+   *
+   * The recorded validators are ignored if the output file's size has
+   * changed, or if the request's expected checksum differs from the checksum
+   * recorded when the file was last downloaded.
+   *
+   * @param conditional {@code true} if conditional requests should be used
+   *
+   * @return this
+   */
+
+  JDownloadRequestBuilderType setConditionalRequests(
+    boolean conditional
+  );
+
+  /**
+   * Set the cache used for downloads. If the request has a static
+   * checksum (see {@link #setChecksumStatically(String, byte[])}) and the
+   * cache contains data with that checksum, the output file is copied out
+   * of the cache without using the network, and the result has an origin of
+   * {@link JDownloadOrigin#CACHE}. Otherwise, any successfully verified
+   * download is inserted into the cache.
+   *
+   * @param cache The cache
+   *
+   * @return this
+   */
+
+  JDownloadRequestBuilderType setCache(
+    JDownloadCacheType cache
+  );
+
+  /**
+   * Set the coalescer used for downloads. If an identical request that uses
+   * the same coalescer is already in progress when this request is
+   * executed, this request receives the result of that download instead of
+   * starting another.
+   *
+   * @param coalescer The coalescer
+   *
+   * @return this
+   *
+   * @see JDownloadCoalescerType
+   */
+
+  JDownloadRequestBuilderType setCoalescer(
+    JDownloadCoalescerType coalescer
+  );
+
+  /**
+   * Set the policy that determines how failed downloads are retried. If
+   * the policy permits more than one attempt, the validators needed to
+   * resume the download are always recorded, and retries resume from the
+   * partial temporary file where the server permits it (see
+   * {@link #setResumePartialDownloads(boolean)}). The default policy is
+   * {@link JDownloadRetryPolicy#NO_RETRIES}.
+   *
+   * @param policy The retry policy
+   *
+   * @return this
+   */
+
+  JDownloadRequestBuilderType setRetryPolicy(
+    JDownloadRetryPolicy policy
+  );
+
+  /**
+   * Set a list of mirrors that serve the same file as the target URI. If
+   * the target URI fails before producing a response, or produces an error
+   * response, the mirrors are tried in order. Mirrors are only used for the
+   * request that downloads the file body; the {@code HEAD} request of a
+   * segmented download, and the segments themselves, always use the target
+   * URI, but the pieces of a piecewise download (see
+   * {@link #setPieceChecksums(JDownloadPieceChecksums)}) are spread across
+   * the target URI and all mirrors. A failure after the body has started
+   * to arrive is an error of the download as a whole; with a retry policy
+   * (see {@link #setRetryPolicy(JDownloadRetryPolicy)}), each retry starts
+   * with the next source in the list.
+   *
+   * @param mirrors The mirrors
+   *
+   * @return this
+   */
+
+  JDownloadRequestBuilderType setMirrorsSequential(
+    List<URI> mirrors
+  );
+
+  /**
+   * Set a list of mirrors that serve the same file as the target URI, as
+   * with {@link #setMirrorsSequential(List)}. Additionally, if a source
+   * has not responded within {@code hedgeDelay}, the request is also sent
+   * to the next source without waiting for the first to fail. The first
+   * source to respond is used, and the requests to the other sources are
+   * cancelled.
+   *
+   * @param mirrors    The mirrors
+   * @param hedgeDelay The time to wait for a response before also sending
+   *                   the request to the next source
+   *
+   * @return this
+   */
+
+  JDownloadRequestBuilderType setMirrorsHedged(
+    List<URI> mirrors,
+    Duration hedgeDelay
+  );
+
+  /**
+   * Compute a digest of the downloaded data using the given algorithm. The
+   * digest is computed in the same pass as any checksum, and is returned in
+   * {@link JDownloadSucceeded#digests()}. This method may be called any
+   * number of times to compute several digests.
+   *
+   * @param algorithm The digest algorithm (such as "SHA-512")
+   *
+   * @return this
+   */
+
+  JDownloadRequestBuilderType addDigest(
+    String algorithm
+  );
+
+  /**
+   * Add a static checksum value that will be used to verify the downloaded
+   * data, in addition to the checksum set with
+   * {@link #setChecksumStatically(String, byte[])} or
+   * {@link #setChecksumFromURL(URI, String, Path, Consumer)}. Every
+   * checksum must match for the download to succeed, and all are computed
+   * in a single pass over the data.
+   *
+   * @param algorithm The checksum algorithm
+   * @param checksum  The checksum value
+   *
+   * @return this
+   */
+
+  JDownloadRequestBuilderType addChecksumStatically(
+    String algorithm,
+    byte[] checksum
+  );
+
+  /**
+   * Set a receiver for metrics about the download, such as the time taken
+   * to receive response headers and the throughput of the transfer. The
+   * same receiver may be shared by any number of requests in order to
+   * aggregate metrics (see {@link JDownloadMetricsCollectors}).
+   *
+   * @param metrics The metrics receiver
+   *
+   * @return this
+   */
+
+  JDownloadRequestBuilderType setMetrics(
+    JDownloadMetricsType metrics
+  );
+
+  /**
+   * Add a bandwidth limiter that limits the rate at which data is received.
+   * The same limiter may be shared by any number of requests in order to
+   * limit their combined rate, and a request may have any number of
+   * limiters, in which case the most restrictive limiter applies at any
+   * given moment. Segmented downloads share the limiters of the request
+   * across all segments.
+   *
+   * @param limiter The bandwidth limiter
+   *
+   * @return this
+   *
+   * @see JDownloadBandwidthLimiters
+   */
+
+  JDownloadRequestBuilderType addBandwidthLimiter(
+    JDownloadBandwidthLimiterType limiter
+  );
+
+  /**
+   * Enable delta downloads. Before the file is downloaded, the block index
+   * at {@code blockIndex} (as written by {@link JDownloadBlockIndexes}) is
+   * fetched, and the existing output file is scanned for blocks of the
+   * remote file. Blocks that are found are copied from the existing file,
+   * and only the remaining byte ranges are requested from the server. Each
+   * block received from the server is checked against the strong checksum
+   * in the block index. The assembled file is verified with the request's
+   * checksum strategy in the same way as any other download, and the
+   * result has an origin of {@link JDownloadOrigin#DELTA}.
+   *
+   * If the existing file does not exist, the block index cannot be
+   * fetched, the server does not support byte ranges, or a block received
+   * from the server does not match the block index, the file is
+   * downloaded in full. Delta downloads take precedence over conditional
+   * requests.
+   *
+   * @param blockIndex The URI of the block index
+   *
+   * @return this
+   */
+
+  JDownloadRequestBuilderType setDeltaFromBlockIndex(
+    URI blockIndex
+  );
+
+  /**
+   * Enable delta downloads, using {@code basis} rather than the existing
+   * output file as the source of matching blocks.
+   *
+   * @param blockIndex The URI of the block index
+   * @param basis      The local file from which matching blocks are copied
+   *
+   * @return this
+   *
+   * @see #setDeltaFromBlockIndex(URI)
+   */
+
+  JDownloadRequestBuilderType setDeltaFromBlockIndex(
+    URI blockIndex,
+    Path basis
+  );
+
+  /**
+   * Enable piecewise downloads. If the server supports byte ranges and the
+   * size of the file matches the given checksums, each piece of the file
+   * is requested separately, and pieces are downloaded concurrently from
+   * the target URI and any mirrors. Each piece is verified against its
+   * checksum as soon as it has been written, and a piece that fails
+   * verification (or whose request fails) is requested again from the
+   * next source; only the failed piece is downloaded again. Each piece is
+   * tried once against each source, and at least twice. The complete file
+   * is then verified with the request's checksum strategy as usual.
+   *
+   * If the server does not support byte ranges, or the size of the file
+   * does not match, the file is downloaded as a single stream.
+   *
+   * @param pieces The piece checksums
+   *
+   * @return this
+   *
+   * @see JDownloadMetalinks
+   */
+
+  JDownloadRequestBuilderType setPieceChecksums(
+    JDownloadPieceChecksums pieces
+  );
+
   /**
    * Build an immutable request.
    *
@@ -19,8 +19,10 @@ package com.io7m.jdownload.core;
 
 import com.io7m.streamtime.core.STTransferStatistics;
 
+import java.net.URI;
 import java.net.http.HttpClient;
 import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 /**
@@ -35,6 +37,12 @@ public interface JDownloadRequestType
 
   HttpClient httpClient();
 
+  /**
+   * @return The target URI
+   */
+
+  URI target();
+
   /**
    * @return The receiver of transfer statistics
    */
@@ -69,4 +77,15 @@ public interface JDownloadRequestType
 
   JDownloadResultType execute()
     throws InterruptedException;
+
+  /**
+   * Execute the download request asynchronously. The returned future is
+   * completed with the result of the download; errors are reported as
+   * results in exactly the same manner as {@link #execute()}. Cancelling the
+   * returned future cancels any HTTP requests that are still in progress.
+   *
+   * @return The result, eventually
+   */
+
+  CompletableFuture<JDownloadResultType> executeAsync();
 }
@@ -17,29 +17,22 @@
 
 package com.io7m.jdownload.core;
 
-import com.io7m.streamtime.core.STTimedInputStream;
 import com.io7m.streamtime.core.STTransferStatistics;
 
-import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
-import java.nio.file.Files;
-import java.nio.file.OpenOption;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.Arrays;
-import java.util.HexFormat;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Consumer;
 
-import static java.net.http.HttpResponse.BodyHandlers.ofInputStream;
-import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
-import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
-
 /**
  * A factory for download requests.
  */
@@ -94,6 +87,60 @@ public final class JDownloadRequests
     return builder(client, target, outputFile, outputFile);
   }
 
+  /**
+   * Create a new mutable builder for downloading a file described by a
+   * Metalink document. The first URL of the file is the target URI, and
+   * the remaining URLs are mirrors. The request verifies the whole file
+   * against the checksum with the longest digest, if the file has any
+   * checksums, and downloads and verifies the file piece by piece if the
+   * file has piece checksums (see
+   * {@link JDownloadRequestBuilderType#setPieceChecksums}).
+   *
+   * @param client        An HTTP client
+   * @param file          The Metalink file
+   * @param outputFile    The output file
+   * @param outputFileTmp The temporary output file
+   *
+   * @return A mutable builder
+   *
+   * @see JDownloadMetalinks
+   */
+
+  public static JDownloadRequestBuilderType builderFromMetalink(
+    final HttpClient client,
+    final JDownloadMetalinkFile file,
+    final Path outputFile,
+    final Path outputFileTmp)
+  {
+    Objects.requireNonNull(file, "file");
+
+    final var urls = file.urls();
+    if (urls.isEmpty()) {
+      throw new IllegalArgumentException(
+        "Metalink file %s has no usable URLs".formatted(file.name())
+      );
+    }
+
+    final var builder =
+      builder(client, urls.get(0), outputFile, outputFileTmp);
+
+    if (urls.size() > 1) {
+      builder.setMirrorsSequential(urls.subList(1, urls.size()));
+    }
+
+    file.checksums()
+      .stream()
+      .max(Comparator.comparingInt(c -> c.checksum().length))
+      .ifPresent(c -> builder.setChecksumStatically(
+        c.algorithm(),
+        c.checksum()
+      ));
+
+    file.pieces()
+      .ifPresent(builder::setPieceChecksums);
+    return builder;
+  }
+
   private static final class JDownloadRequestBuilder
     implements JDownloadRequestBuilderType
   {
@@ -118,6 +165,24 @@ public final class JDownloadRequests
 
       };
 
+    private boolean resumePartial;
+    private int segmentCount = 1;
+    private long segmentSizeMinimum = 1L;
+    private boolean conditional;
+    private Optional<JDownloadCacheType> cache = Optional.empty();
+    private Optional<JDownloadCoalescer> coalescer = Optional.empty();
+    private JDownloadRetryPolicy retryPolicy = JDownloadRetryPolicy.NO_RETRIES;
+    private List<URI> mirrors = List.of();
+    private Optional<Duration> hedgeDelay = Optional.empty();
+    private final List<String> digestAlgorithms = new ArrayList<>();
+    private Optional<JDownloadMetricsType> metrics = Optional.empty();
+    private final List<JDownloadBandwidthLimiter> bandwidthLimiters =
+      new ArrayList<>();
+    private final List<JChecksumStatically> checksumsAdditional =
+      new ArrayList<>();
+    private Optional<JDownloadDelta> delta = Optional.empty();
+    private Optional<JDownloadPieceChecksums> pieces = Optional.empty();
+
     JDownloadRequestBuilder(
       final HttpClient inClient,
       final URI inTarget,
@@ -190,6 +255,32 @@ public final class JDownloadRequests
       return this;
     }
 
+    @Override
+    public JDownloadRequestBuilderType setChecksumFromManifest(
+      final URI manifestURI,
+      final String algorithm,
+      final String entry)
+    {
+      return this.setChecksumFromManifest(
+        manifestURI,
+        algorithm,
+        entry,
+        JChecksumManifestIndexes.shared()
+      );
+    }
+
+    @Override
+    public JDownloadRequestBuilderType setChecksumFromManifest(
+      final URI manifestURI,
+      final String algorithm,
+      final String entry,
+      final JChecksumManifestIndexType index)
+    {
+      this.checksum =
+        new JChecksumFromManifest(algorithm, manifestURI, entry, index);
+      return this;
+    }
+
     @Override
     public JDownloadRequestBuilderType setRequestModifier(
       final Consumer<HttpRequest.Builder> modifier)
@@ -209,354 +300,194 @@ public final class JDownloadRequests
     }
 
     @Override
-    public JDownloadRequestType build()
+    public JDownloadRequestBuilderType setResumePartialDownloads(
+      final boolean resume)
     {
-      return new JDownloadRequest(
-        this.client,
-        this.checksum,
-        this.target,
-        this.outputFile,
-        this.outputFileTmp,
-        this.receiver,
-        this.requestModifier,
-        this.checksumRequestModifier
-      );
+      this.resumePartial = resume;
+      return this;
     }
-  }
-
-  private static final class JDownloadRequest implements JDownloadRequestType
-  {
-    private static final HexFormat HEX_FORMAT =
-      HexFormat.of();
-
-    private static final OpenOption[] TEMPORARY_OPEN_OPTIONS = {
-      StandardOpenOption.CREATE,
-      StandardOpenOption.TRUNCATE_EXISTING,
-      StandardOpenOption.WRITE,
-    };
 
-    private final HttpClient client;
-    private final JChecksumStrategyType checksum;
-    private final URI target;
-    private final Path outputFile;
-    private final Path outputFileTmp;
-    private final Consumer<STTransferStatistics> receiver;
-    private final Consumer<HttpRequest.Builder> requestModifier;
-    private final Consumer<HttpRequest.Builder> checksumRequestModifier;
-    private Optional<Path> checksumFile;
-
-    JDownloadRequest(
-      final HttpClient inClient,
-      final JChecksumStrategyType inChecksum,
-      final URI inTarget,
-      final Path inOutputFile,
-      final Path inOutputFileTmp,
-      final Consumer<STTransferStatistics> inReceiver,
-      final Consumer<HttpRequest.Builder> inRequestModifier,
-      final Consumer<HttpRequest.Builder> inChecksumRequestModifier)
+    @Override
+    public JDownloadRequestBuilderType setSegmentedDownloads(
+      final int segments,
+      final long segmentSizeMinimum)
     {
-      this.client =
-        Objects.requireNonNull(inClient, "client");
-      this.checksum =
-        Objects.requireNonNull(inChecksum, "checksum");
-      this.target =
-        Objects.requireNonNull(inTarget, "target");
-      this.outputFile =
-        Objects.requireNonNull(inOutputFile, "outputFile");
-      this.outputFileTmp =
-        Objects.requireNonNull(inOutputFileTmp, "outputFileTmp");
-      this.receiver =
-        Objects.requireNonNull(inReceiver, "receiver");
-      this.requestModifier =
-        Objects.requireNonNull(inRequestModifier, "requestModifier");
-      this.checksumRequestModifier =
-        Objects.requireNonNull(
-          inChecksumRequestModifier,
-          "checksumRequestModifier");
+      if (segments < 1) {
+        throw new IllegalArgumentException(
+          "Segment count must be positive (received %d)"
+            .formatted(Integer.valueOf(segments))
+        );
+      }
+      if (segmentSizeMinimum < 1L) {
+        throw new IllegalArgumentException(
+          "Minimum segment size must be positive (received %d)"
+            .formatted(Long.valueOf(segmentSizeMinimum))
+        );
+      }
 
-      this.checksumFile = Optional.empty();
+      this.segmentCount = segments;
+      this.segmentSizeMinimum = segmentSizeMinimum;
+      return this;
     }
 
     @Override
-    public HttpClient httpClient()
+    public JDownloadRequestBuilderType setConditionalRequests(
+      final boolean inConditional)
     {
-      return this.client;
+      this.conditional = inConditional;
+      return this;
     }
 
     @Override
-    public Consumer<STTransferStatistics> statisticsReceiver()
+    public JDownloadRequestBuilderType setCache(
+      final JDownloadCacheType inCache)
     {
-      return this.receiver;
+      this.cache = Optional.of(Objects.requireNonNull(inCache, "cache"));
+      return this;
     }
 
     @Override
-    public Path outputFile()
+    public JDownloadRequestBuilderType setCoalescer(
+      final JDownloadCoalescerType inCoalescer)
     {
-      return this.outputFile;
+      Objects.requireNonNull(inCoalescer, "coalescer");
+      this.coalescer = Optional.of((JDownloadCoalescer) inCoalescer);
+      return this;
     }
 
     @Override
-    public Path outputFileTemporary()
+    public JDownloadRequestBuilderType setRetryPolicy(
+      final JDownloadRetryPolicy policy)
     {
-      return this.outputFileTmp;
+      this.retryPolicy = Objects.requireNonNull(policy, "policy");
+      return this;
     }
 
     @Override
-    public JChecksumStrategyType checksumStrategy()
+    public JDownloadRequestBuilderType setMirrorsSequential(
+      final List<URI> inMirrors)
     {
-      return this.checksum;
+      this.mirrors = List.copyOf(inMirrors);
+      this.hedgeDelay = Optional.empty();
+      return this;
     }
 
     @Override
-    public JDownloadResultType execute()
-      throws InterruptedException
+    public JDownloadRequestBuilderType setMirrorsHedged(
+      final List<URI> inMirrors,
+      final Duration inHedgeDelay)
     {
-      this.checksumFile = Optional.empty();
-
-      final Optional<JDownloadErrorType> r0 = this.downloadFileToTemporary();
-      if (r0.isPresent()) {
-        return r0.get();
-      }
-
-      final Optional<JDownloadErrorType> r1 = this.executeChecksum();
-      if (r1.isPresent()) {
-        return r1.get();
-      }
-
-      try {
-        Files.move(
-          this.outputFileTmp,
-          this.outputFile,
-          ATOMIC_MOVE,
-          REPLACE_EXISTING
+      Objects.requireNonNull(inHedgeDelay, "hedgeDelay");
+      if (inHedgeDelay.isNegative()) {
+        throw new IllegalArgumentException(
+          "Hedge delay must be non-negative (received %s)"
+            .formatted(inHedgeDelay)
         );
-      } catch (final IOException e) {
-        return new JDownloadErrorIO(this.target, this.outputFile, e);
       }
 
-      return new JDownloadSucceeded(this.outputFile, this.checksumFile);
+      this.mirrors = List.copyOf(inMirrors);
+      this.hedgeDelay = Optional.of(inHedgeDelay);
+      return this;
     }
 
-    private Optional<JDownloadErrorType> executeChecksum()
-      throws InterruptedException
+    @Override
+    public JDownloadRequestBuilderType addDigest(
+      final String algorithm)
     {
-      final var strategy = this.checksumStrategy();
-      if (strategy instanceof JChecksumNone) {
-        return Optional.empty();
-      }
-
-      if (strategy instanceof final JChecksumStatically statically) {
-        return this.executeChecksumStatically(statically);
-      }
-
-      if (strategy instanceof final JChecksumFromURI fromURI) {
-        return this.executeChecksumFromURI(fromURI);
+      Objects.requireNonNull(algorithm, "algorithm");
+      try {
+        MessageDigest.getInstance(algorithm);
+      } catch (final NoSuchAlgorithmException e) {
+        throw new IllegalStateException(e);
       }
+      this.digestAlgorithms.add(algorithm);
+      return this;
+    }
 
-      throw new IllegalStateException();
+    @Override
+    public JDownloadRequestBuilderType addChecksumStatically(
+      final String algorithm,
+      final byte[] checksumValue)
+    {
+      this.checksumsAdditional.add(
+        new JChecksumStatically(algorithm, checksumValue)
+      );
+      return this;
     }
 
-    private Optional<JDownloadErrorType> executeChecksumFromURI(
-      final JChecksumFromURI fromURI)
-      throws InterruptedException
+    @Override
+    public JDownloadRequestBuilderType setMetrics(
+      final JDownloadMetricsType inMetrics)
     {
-      try {
-        final var requestBuilder =
-          HttpRequest.newBuilder(fromURI.checksumURI());
-
-        this.checksumRequestModifier.accept(requestBuilder);
-
-        final var request =
-          requestBuilder.build();
-
-        final var response =
-          this.httpClient().send(request, ofInputStream());
-
-        final var statusCode = response.statusCode();
-        if (statusCode >= 400) {
-          return Optional.of(
-            new JDownloadErrorHTTP(
-              fromURI.checksumURI(),
-              fromURI.outputFileTemp(),
-              statusCode
-            ));
-        }
-
-        final var contentLength =
-          response.headers().firstValueAsLong("content-length");
-
-        final var timedStream =
-          new STTimedInputStream(
-            contentLength,
-            fromURI.receiver(),
-            response.body()
-          );
-
-        try (timedStream) {
-          final var p0 = fromURI.outputFileTemp().getParent();
-          if (p0 != null) {
-            Files.createDirectories(p0);
-          }
-          final var p1 = fromURI.outputFile().getParent();
-          if (p1 != null) {
-            Files.createDirectories(p1);
-          }
-
-          try (var output =
-                 Files.newOutputStream(
-                   fromURI.outputFileTemp(), TEMPORARY_OPEN_OPTIONS)) {
-            timedStream.transferTo(output);
-          }
-        }
-
-        Files.move(fromURI.outputFileTemp(), fromURI.outputFile());
-
-        final var expectedHashText =
-          Files.readString(fromURI.outputFile());
-        final var expectedHash =
-          HEX_FORMAT.parseHex(expectedHashText);
-
-        return this.checkHash(
-          this.outputFileTmp,
-          fromURI.algorithm(),
-          expectedHash
-        );
-      } catch (final IOException e) {
-        return Optional.of(
-          new JDownloadErrorIO(
-            fromURI.checksumURI(),
-            fromURI.outputFileTemp(),
-            e
-          )
-        );
-      }
+      this.metrics = Optional.of(
+        Objects.requireNonNull(inMetrics, "metrics")
+      );
+      return this;
     }
 
-    private Optional<JDownloadErrorType> executeChecksumStatically(
-      final JChecksumStatically statically)
+    @Override
+    public JDownloadRequestBuilderType addBandwidthLimiter(
+      final JDownloadBandwidthLimiterType limiter)
     {
-      try {
-        return this.checkHash(
-          this.outputFileTmp,
-          statically.algorithm(),
-          statically.checksum()
-        );
-      } catch (final IOException e) {
-        return Optional.of(
-          new JDownloadErrorIO(
-            this.target,
-            this.outputFileTmp,
-            e
-          )
-        );
-      }
+      Objects.requireNonNull(limiter, "limiter");
+      this.bandwidthLimiters.add((JDownloadBandwidthLimiter) limiter);
+      return this;
     }
 
-    private Optional<JDownloadErrorType> checkHash(
-      final Path file,
-      final String algorithm,
-      final byte[] expectedHash)
-      throws IOException
+    @Override
+    public JDownloadRequestBuilderType setDeltaFromBlockIndex(
+      final URI blockIndex)
     {
-      final var receivedHash =
-        hashOf(algorithm, file);
-
-      if (!Arrays.equals(receivedHash, expectedHash)) {
-        return Optional.of(
-          new JDownloadErrorChecksumMismatch(
-            this.target,
-            file,
-            algorithm,
-            HEX_FORMAT.formatHex(expectedHash),
-            HEX_FORMAT.formatHex(receivedHash)
-          )
-        );
-      }
+      return this.setDeltaFromBlockIndex(blockIndex, this.outputFile);
+    }
 
-      return Optional.empty();
+    @Override
+    public JDownloadRequestBuilderType setDeltaFromBlockIndex(
+      final URI blockIndex,
+      final Path basis)
+    {
+      this.delta = Optional.of(new JDownloadDelta(blockIndex, basis));
+      return this;
     }
 
-    private static byte[] hashOf(
-      final String algorithm,
-      final Path outputFileTmp)
-      throws IOException
+    @Override
+    public JDownloadRequestBuilderType setPieceChecksums(
+      final JDownloadPieceChecksums inPieces)
     {
-      try {
-        final var digest =
-          MessageDigest.getInstance(algorithm);
-
-        final var buffer = new byte[8192];
-        try (var stream = Files.newInputStream(outputFileTmp)) {
-          while (true) {
-            final var r = stream.read(buffer);
-            if (r == -1) {
-              break;
-            }
-            digest.update(buffer, 0, r);
-          }
-        }
-
-        return digest.digest();
-      } catch (final NoSuchAlgorithmException e) {
-        throw new IllegalStateException(e);
-      }
+      this.pieces = Optional.of(
+        Objects.requireNonNull(inPieces, "pieces")
+      );
+      return this;
     }
 
-    private Optional<JDownloadErrorType> downloadFileToTemporary()
-      throws InterruptedException
+    @Override
+    public JDownloadRequestType build()
     {
-      try {
-        final var requestBuilder =
-          HttpRequest.newBuilder(this.target);
-
-        this.requestModifier.accept(requestBuilder);
-
-        final var request =
-          requestBuilder.build();
-
-        final var response =
-          this.httpClient().send(request, ofInputStream());
-
-        final var statusCode = response.statusCode();
-        if (statusCode >= 400) {
-          return Optional.of(
-            new JDownloadErrorHTTP(this.target, this.outputFile, statusCode)
-          );
-        }
-
-        final var contentLength =
-          response.headers().firstValueAsLong("content-length");
-
-        final var timedStream =
-          new STTimedInputStream(
-            contentLength,
-            this.statisticsReceiver(),
-            response.body()
-          );
-
-        try (timedStream) {
-          final var p0 = this.outputFileTmp.getParent();
-          if (p0 != null) {
-            Files.createDirectories(p0);
-          }
-          final var p1 = this.outputFile.getParent();
-          if (p1 != null) {
-            Files.createDirectories(p1);
-          }
-
-          try (var output =
-                 Files.newOutputStream(
-                   this.outputFileTmp, TEMPORARY_OPEN_OPTIONS)) {
-            timedStream.transferTo(output);
-          }
-        }
-
-        return Optional.empty();
-      } catch (final IOException e) {
-        return Optional.of(
-          new JDownloadErrorIO(this.target, this.outputFileTmp, e)
-        );
-      }
+      return new JDownloadRequest(
+        this.client,
+        this.checksum,
+        this.target,
+        this.outputFile,
+        this.outputFileTmp,
+        this.receiver,
+        this.requestModifier,
+        this.checksumRequestModifier,
+        this.resumePartial,
+        this.segmentCount,
+        this.segmentSizeMinimum,
+        this.conditional,
+        this.cache,
+        this.coalescer,
+        this.retryPolicy,
+        this.mirrors,
+        this.hedgeDelay,
+        this.digestAlgorithms,
+        this.checksumsAdditional,
+        this.metrics,
+        this.bandwidthLimiters,
+        this.delta,
+        this.pieces
+      );
     }
   }
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+/**
+ * Short names for results, used when reporting results to metrics
+ * receivers and the flight recorder.
+ */
+
+final class JDownloadResultNames
+{
+  private JDownloadResultNames()
+  {
+
+  }
+
+  /**
+   * @param result The result
+   *
+   * @return A short name for the type of result
+   */
+
+  static String nameOf(
+    final JDownloadResultType result)
+  {
+    if (result instanceof JDownloadSucceeded) {
+      return "succeeded";
+    }
+    if (result instanceof JDownloadErrorHTTP) {
+      return "error_http";
+    }
+    if (result instanceof JDownloadErrorIO) {
+      return "error_io";
+    }
+    if (result instanceof JDownloadErrorChecksumMismatch) {
+      return "error_checksum_mismatch";
+    }
+    if (result instanceof JDownloadErrorChecksumNotFound) {
+      return "error_checksum_not_found";
+    }
+    if (result instanceof JDownloadErrorRetriesExhausted) {
+      return "error_retries_exhausted";
+    }
+    if (result instanceof JDownloadErrorSizeLimitExceeded) {
+      return "error_size_limit_exceeded";
+    }
+    return "error";
+  }
+
+  /**
+   * @param result The result
+   *
+   * @return The HTTP status of a failed result, or {@code 0}
+   */
+
+  static int statusOf(
+    final JDownloadResultType result)
+  {
+    if (result instanceof final JDownloadErrorHTTP http) {
+      return http.status();
+    }
+    if (result instanceof final JDownloadErrorRetriesExhausted exhausted) {
+      return statusOf(exhausted.lastError());
+    }
+    return 0;
+  }
+}
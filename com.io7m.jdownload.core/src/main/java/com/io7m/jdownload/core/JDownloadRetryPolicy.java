@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * A policy that determines how failed downloads are retried. Only transient
+ * errors are retried: network I/O errors such as refused or reset
+ * connections and timeouts, and the HTTP statuses {@code 408},
+ * {@code 429}, {@code 502}, {@code 503}, and {@code 504}. Errors writing
+ * local files and checksum mismatches are permanent.
+ *
+ * The delay before retry {@code n} (counting from {@code 1}) is
+ * {@code initialDelay * multiplier^(n - 1)}, limited to
+ * {@code maximumDelay}, and then reduced by a random fraction of at most
+ * {@code jitter}. If the server supplies a {@code Retry-After} header that
+ * asks for a longer delay, that delay is used instead, unless it exceeds
+ * {@code maximumDelay}, in which case the download fails.
+ *
+ * @param maximumAttempts The maximum number of attempts, including the first
+ * @param initialDelay    The delay before the first retry
+ * @param maximumDelay    The maximum delay between attempts
+ * @param multiplier      The factor by which the delay grows per attempt
+ * @param jitter          The maximum fraction of each delay that is
+ *                        randomly removed, in the range {@code [0, 1]}
+ */
+
+public record JDownloadRetryPolicy(
+  int maximumAttempts,
+  Duration initialDelay,
+  Duration maximumDelay,
+  double multiplier,
+  double jitter)
+{
+  /**
+   * A policy that never retries.
+   */
+
+  public static final JDownloadRetryPolicy NO_RETRIES =
+    new JDownloadRetryPolicy(1, Duration.ZERO, Duration.ZERO, 1.0, 0.0);
+
+  /**
+   * A policy that determines how failed downloads are retried.
+   *
+   * @param maximumAttempts The maximum number of attempts, including the
+   *                        first
+   * @param initialDelay    The delay before the first retry
+   * @param maximumDelay    The maximum delay between attempts
+   * @param multiplier      The factor by which the delay grows per attempt
+   * @param jitter          The maximum fraction of each delay that is
+   *                        randomly removed, in the range {@code [0, 1]}
+   */
+
+  public JDownloadRetryPolicy
+  {
+    Objects.requireNonNull(initialDelay, "initialDelay");
+    Objects.requireNonNull(maximumDelay, "maximumDelay");
+
+    if (maximumAttempts < 1) {
+      throw new IllegalArgumentException(
+        "Maximum attempts must be positive (received %d)"
+          .formatted(Integer.valueOf(maximumAttempts))
+      );
+    }
+    if (initialDelay.isNegative() || maximumDelay.isNegative()) {
+      throw new IllegalArgumentException("Delays must be non-negative");
+    }
+    if (!(multiplier >= 1.0)) {
+      throw new IllegalArgumentException(
+        "Multiplier must be at least 1.0 (received %s)"
+          .formatted(Double.valueOf(multiplier))
+      );
+    }
+    if (!(jitter >= 0.0 && jitter <= 1.0)) {
+      throw new IllegalArgumentException(
+        "Jitter must be in the range [0, 1] (received %s)"
+          .formatted(Double.valueOf(jitter))
+      );
+    }
+  }
+
+  /**
+   * A policy that makes at most {@code maximumAttempts} attempts, starting
+   * with a delay of half a second, doubling the delay for each retry up to
+   * thirty seconds, with up to half of each delay removed at random.
+   *
+   * @param maximumAttempts The maximum number of attempts, including the
+   *                        first
+   *
+   * @return A policy
+   */
+
+  public static JDownloadRetryPolicy exponential(
+    final int maximumAttempts)
+  {
+    return new JDownloadRetryPolicy(
+      maximumAttempts,
+      Duration.ofMillis(500L),
+      Duration.ofSeconds(30L),
+      2.0,
+      0.5
+    );
+  }
+
+  /**
+   * Calculate the delay before the given retry.
+   *
+   * @param retry  The retry number, starting at {@code 1}
+   * @param random A random value in the range {@code [0, 1)}
+   *
+   * @return The delay
+   */
+
+  public Duration delayFor(
+    final int retry,
+    final double random)
+  {
+    final var initial =
+      (double) this.initialDelay.toMillis();
+    final var maximum =
+      (double) this.maximumDelay.toMillis();
+    final var base =
+      Math.min(maximum, initial * Math.pow(this.multiplier, retry - 1));
+
+    return Duration.ofMillis(
+      (long) (base * (1.0 - (this.jitter * random)))
+    );
+  }
+}
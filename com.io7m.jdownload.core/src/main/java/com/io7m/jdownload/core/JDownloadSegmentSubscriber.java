@@ -0,0 +1,141 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * A body subscriber that writes one segment of a file, using positional
+ * writes on a channel that is shared with the subscribers for the other
+ * segments of the same file.
+ */
+
+final class JDownloadSegmentSubscriber
+  implements HttpResponse.BodySubscriber<Long>
+{
+  private final FileChannel channel;
+  private final long start;
+  private final long length;
+  private final JDownloadProgress progress;
+  private final CompletableFuture<Long> result;
+  private Flow.Subscription subscription;
+  private long octets;
+
+  JDownloadSegmentSubscriber(
+    final FileChannel inChannel,
+    final long inStart,
+    final long inLength,
+    final JDownloadProgress inProgress)
+  {
+    this.channel =
+      Objects.requireNonNull(inChannel, "channel");
+    this.start =
+      inStart;
+    this.length =
+      inLength;
+    this.progress =
+      Objects.requireNonNull(inProgress, "progress");
+    this.result =
+      new CompletableFuture<>();
+  }
+
+  @Override
+  public CompletionStage<Long> getBody()
+  {
+    return this.result;
+  }
+
+  @Override
+  public void onSubscribe(
+    final Flow.Subscription inSubscription)
+  {
+    this.subscription =
+      Objects.requireNonNull(inSubscription, "subscription");
+    this.subscription.request(1L);
+  }
+
+  @Override
+  public void onNext(
+    final List<ByteBuffer> buffers)
+  {
+    try {
+      for (final var buffer : buffers) {
+        final var size = buffer.remaining();
+        if (this.octets + size > this.length) {
+          throw new IOException(
+            "Server sent more than the %d octets requested for a segment"
+              .formatted(Long.valueOf(this.length))
+          );
+        }
+
+        this.write(buffer);
+        this.progress.add(size);
+      }
+    } catch (final IOException e) {
+      this.subscription.cancel();
+      this.result.completeExceptionally(e);
+      return;
+    }
+
+    this.subscription.request(1L);
+  }
+
+  private void write(
+    final ByteBuffer buffer)
+    throws JDownloadOutputException
+  {
+    try {
+      while (buffer.hasRemaining()) {
+        this.octets +=
+          this.channel.write(buffer, this.start + this.octets);
+      }
+    } catch (final IOException e) {
+      throw new JDownloadOutputException(e);
+    }
+  }
+
+  @Override
+  public void onError(
+    final Throwable throwable)
+  {
+    this.result.completeExceptionally(throwable);
+  }
+
+  @Override
+  public void onComplete()
+  {
+    if (this.octets != this.length) {
+      this.result.completeExceptionally(
+        new IOException(
+          "Server sent %d octets for a segment of %d octets"
+            .formatted(Long.valueOf(this.octets), Long.valueOf(this.length))
+        )
+      );
+      return;
+    }
+    this.result.complete(Long.valueOf(this.octets));
+  }
+}
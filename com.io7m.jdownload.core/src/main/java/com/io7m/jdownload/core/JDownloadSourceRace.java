@@ -0,0 +1,206 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiFunction;
+
+import static java.net.http.HttpResponse.BodySubscribers.replacing;
+
+/**
+ * A request sent to each of a list of sources in turn, until one of them
+ * produces a usable response.
+ *
+ * A source that fails before producing a response, or that produces an
+ * error response, causes the request to be sent to the next source
+ * immediately. If a hedge delay is given, the request is also sent to the
+ * next source if the current source has not responded within the delay.
+ * The first source to respond claims the exchange, and the requests sent to
+ * the other sources are cancelled. Only the claiming response is passed to
+ * the body handler, so at most one response body is ever consumed.
+ *
+ * @param <T> The type of response bodies
+ */
+
+final class JDownloadSourceRace<T>
+{
+  private final List<URI> sources;
+  private final Optional<Duration> hedgeDelay;
+  private final HttpRequest.Builder requestBuilder;
+  private final HttpResponse.BodyHandler<T> handler;
+  private final BiFunction<HttpRequest, HttpResponse.BodyHandler<T>,
+    CompletableFuture<HttpResponse<T>>> sender;
+  private final CompletableFuture<HttpResponse<T>> result;
+  private final AtomicReferenceArray<CompletableFuture<HttpResponse<T>>>
+    racers;
+  private final AtomicInteger launched;
+  private final AtomicInteger failed;
+  private final AtomicInteger winner;
+
+  JDownloadSourceRace(
+    final List<URI> inSources,
+    final Optional<Duration> inHedgeDelay,
+    final HttpRequest.Builder inRequestBuilder,
+    final HttpResponse.BodyHandler<T> inHandler,
+    final BiFunction<HttpRequest, HttpResponse.BodyHandler<T>,
+      CompletableFuture<HttpResponse<T>>> inSender)
+  {
+    this.sources =
+      List.copyOf(inSources);
+    this.hedgeDelay =
+      Objects.requireNonNull(inHedgeDelay, "hedgeDelay");
+    this.requestBuilder =
+      Objects.requireNonNull(inRequestBuilder, "requestBuilder");
+    this.handler =
+      Objects.requireNonNull(inHandler, "handler");
+    this.sender =
+      Objects.requireNonNull(inSender, "sender");
+    this.result =
+      new CompletableFuture<>();
+    this.racers =
+      new AtomicReferenceArray<>(this.sources.size());
+    this.launched =
+      new AtomicInteger(0);
+    this.failed =
+      new AtomicInteger(0);
+    this.winner =
+      new AtomicInteger(-1);
+  }
+
+  /**
+   * Send the request to the first source.
+   *
+   * @return The response of the source that claimed the exchange, or the
+   *         last failure if every source failed
+   */
+
+  CompletableFuture<HttpResponse<T>> start()
+  {
+    this.launch(0);
+    return this.result;
+  }
+
+  /**
+   * Responses with error statuses are not usable, except for a 416 status,
+   * which the body handler interprets when resuming a download.
+   */
+
+  private static boolean isUsable(
+    final HttpResponse.ResponseInfo info)
+  {
+    final var status = info.statusCode();
+    return status < 400 || status == 416;
+  }
+
+  private void launch(
+    final int index)
+  {
+    if (index >= this.sources.size()
+      || this.winner.get() != -1
+      || this.result.isDone()
+      || !this.launched.compareAndSet(index, index + 1)) {
+      return;
+    }
+
+    final var request =
+      this.requestBuilder.copy()
+        .uri(this.sources.get(index))
+        .build();
+
+    final var future =
+      this.sender.apply(request, info -> {
+        if (isUsable(info) && this.winner.compareAndSet(-1, index)) {
+          this.cancelLosers(index);
+          return this.handler.apply(info);
+        }
+        return replacing(null);
+      });
+
+    this.racers.set(index, future);
+
+    final var claimed = this.winner.get();
+    if (claimed != -1 && claimed != index) {
+      future.cancel(true);
+    }
+
+    future.whenComplete((response, exception) -> {
+      this.finished(index, response, exception);
+    });
+
+    if (this.hedgeDelay.isPresent()) {
+      CompletableFuture.delayedExecutor(
+        this.hedgeDelay.get().toNanos(),
+        TimeUnit.NANOSECONDS
+      ).execute(() -> this.launch(index + 1));
+    }
+  }
+
+  private void cancelLosers(
+    final int index)
+  {
+    for (int position = 0; position < this.racers.length(); ++position) {
+      final var racer = this.racers.get(position);
+      if (position != index && racer != null) {
+        racer.cancel(true);
+      }
+    }
+  }
+
+  private void finished(
+    final int index,
+    final HttpResponse<T> response,
+    final Throwable exception)
+  {
+    final var claimed = this.winner.get();
+    if (claimed == index) {
+      this.complete(response, exception);
+      return;
+    }
+    if (claimed != -1) {
+      return;
+    }
+
+    final var failures = this.failed.incrementAndGet();
+    if (failures == this.sources.size()) {
+      this.complete(response, exception);
+      return;
+    }
+    this.launch(this.launched.get());
+  }
+
+  private void complete(
+    final HttpResponse<T> response,
+    final Throwable exception)
+  {
+    if (exception != null) {
+      this.result.completeExceptionally(exception);
+    } else {
+      this.result.complete(response);
+    }
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * A body subscriber that writes the response body to a caller-supplied
+ * channel, updating a set of message digests with the data as it is
+ * written. The channel is not closed.
+ */
+
+final class JDownloadStreamChannelSubscriber
+  implements HttpResponse.BodySubscriber<Long>
+{
+  private final WritableByteChannel channel;
+  private final JDownloadDigestSet digests;
+  private final JDownloadProgress progress;
+  private final CompletableFuture<Long> result;
+  private Flow.Subscription subscription;
+  private long octets;
+
+  JDownloadStreamChannelSubscriber(
+    final WritableByteChannel inChannel,
+    final JDownloadDigestSet inDigests,
+    final JDownloadProgress inProgress)
+  {
+    this.channel =
+      Objects.requireNonNull(inChannel, "channel");
+    this.digests =
+      Objects.requireNonNull(inDigests, "digests");
+    this.progress =
+      Objects.requireNonNull(inProgress, "progress");
+    this.result =
+      new CompletableFuture<>();
+  }
+
+  @Override
+  public CompletionStage<Long> getBody()
+  {
+    return this.result;
+  }
+
+  @Override
+  public void onSubscribe(
+    final Flow.Subscription inSubscription)
+  {
+    this.subscription =
+      Objects.requireNonNull(inSubscription, "subscription");
+    this.subscription.request(1L);
+  }
+
+  @Override
+  public void onNext(
+    final List<ByteBuffer> buffers)
+  {
+    try {
+      var size = 0L;
+      for (int index = 0; index < buffers.size(); ++index) {
+        final var buffer = buffers.get(index);
+        size += buffer.remaining();
+        this.digests.update(buffer);
+        while (buffer.hasRemaining()) {
+          this.channel.write(buffer);
+        }
+      }
+      this.octets += size;
+      this.progress.add(size);
+    } catch (final IOException e) {
+      this.subscription.cancel();
+      this.progress.close();
+      this.result.completeExceptionally(e);
+      return;
+    }
+
+    this.subscription.request(1L);
+  }
+
+  @Override
+  public void onError(
+    final Throwable throwable)
+  {
+    this.progress.close();
+    this.result.completeExceptionally(throwable);
+  }
+
+  @Override
+  public void onComplete()
+  {
+    this.progress.close();
+    this.result.complete(Long.valueOf(this.octets));
+  }
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+
+import static java.net.http.HttpResponse.BodySubscribers.replacing;
+
+/**
+ * A single execution of a streaming download request.
+ *
+ * The checksum (if it must be fetched) is requested concurrently with the
+ * body, exactly as for file downloads, and with the same implementation.
+ * The body is passed to the sink as it arrives, and digests are computed in
+ * the same pass, so the data can only be verified once the sink has
+ * received all of it. A subscriber sink is told the outcome of the
+ * verification through its terminal signal; other sinks learn it from the
+ * result.
+ */
+
+final class JDownloadStreamExecution
+{
+  private final JDownloadStreamRequest request;
+  private final JDownloadStreamSinkType sink;
+  private final JDownloadDigestSet digests;
+  private final JDownloadExchanges exchanges;
+  private final JDownloadVerification verification;
+  private final Optional<JDownloadStreamPublisher> publisher;
+  private volatile JDownloadStreamMemorySubscriber memory;
+  private volatile long octets;
+
+  JDownloadStreamExecution(
+    final JDownloadStreamRequest inRequest,
+    final JDownloadStreamSinkType inSink)
+  {
+    this.request =
+      Objects.requireNonNull(inRequest, "request");
+    this.sink =
+      Objects.requireNonNull(inSink, "sink");
+    this.exchanges =
+      new JDownloadExchanges(
+        inRequest.httpClient(),
+        inRequest.metrics(),
+        inRequest.bandwidthLimiters()
+      );
+    this.verification =
+      new JDownloadVerification(
+        inRequest.target(),
+        inRequest.checksum(),
+        inRequest.checksumsAdditional(),
+        inRequest.checksumRequestModifier(),
+        inRequest.metrics(),
+        inRequest.httpClient(),
+        this.exchanges,
+        Optional.empty()
+      );
+    this.digests =
+      new JDownloadDigestSet(
+        JDownloadVerification.algorithmsFor(
+          inRequest.checksum(),
+          inRequest.checksumsAdditional(),
+          inRequest.digestAlgorithms()
+        )
+      );
+
+    if (inSink instanceof final JDownloadStreamSinkSubscriber subscriber) {
+      this.publisher = Optional.of(
+        new JDownloadStreamPublisher(
+          subscriber.subscriber(),
+          this.exchanges::cancel
+        )
+      );
+    } else {
+      this.publisher = Optional.empty();
+    }
+  }
+
+  private static IOException exceptionFor(
+    final JDownloadErrorType error)
+  {
+    if (error instanceof final JDownloadErrorIO io) {
+      return io.exception();
+    }
+    if (error instanceof final JDownloadErrorHTTP http) {
+      return new IOException(
+        "HTTP error %d from %s"
+          .formatted(Integer.valueOf(http.status()), http.uri())
+      );
+    }
+    if (error instanceof final JDownloadErrorChecksumMismatch mismatch) {
+      return new IOException(
+        "Checksum mismatch for %s (%s): expected %s, received %s"
+          .formatted(
+            mismatch.uri(),
+            mismatch.algorithm(),
+            mismatch.hashExpected(),
+            mismatch.hashReceived()
+          )
+      );
+    }
+    if (error instanceof final JDownloadErrorSizeLimitExceeded size) {
+      return new IOException(
+        "Response body from %s exceeds the size limit of %d octets"
+          .formatted(size.uri(), Long.valueOf(size.sizeLimit()))
+      );
+    }
+    if (error instanceof final JDownloadErrorChecksumNotFound missing) {
+      return new IOException(
+        "No checksum for %s in manifest %s"
+          .formatted(missing.entry(), missing.manifestURI())
+      );
+    }
+    if (error instanceof final JDownloadErrorRetriesExhausted exhausted) {
+      return exceptionFor(exhausted.lastError());
+    }
+    throw new IllegalStateException("Unrecognized error: " + error);
+  }
+
+  /**
+   * Run the execution.
+   *
+   * @return The result
+   */
+
+  CompletableFuture<JDownloadStreamResultType> run()
+  {
+    this.publisher.ifPresent(JDownloadStreamPublisher::start);
+
+    final var checksumFuture =
+      this.verification.fetch();
+    final var bodyFuture =
+      this.bodyFetch();
+
+    final CompletableFuture<JDownloadStreamResultType> result =
+      bodyFuture.thenCompose(bodyError -> {
+        if (bodyError.isPresent()) {
+          this.exchanges.cancel();
+          return CompletableFuture.completedFuture(bodyError.get());
+        }
+
+        return checksumFuture.thenApply(checksumError -> {
+          if (checksumError.isPresent()) {
+            return checksumError.get();
+          }
+          return this.verify();
+        });
+      });
+
+    return result.whenComplete(this::signal);
+  }
+
+  /**
+   * Cancel any HTTP requests that are still in progress, and fail a
+   * subscriber sink with the given exception.
+   *
+   * @param exception The exception
+   */
+
+  void cancel(
+    final Throwable exception)
+  {
+    this.exchanges.cancel();
+    this.publisher.ifPresent(p -> p.fail(exception));
+  }
+
+  private void signal(
+    final JDownloadStreamResultType result,
+    final Throwable exception)
+  {
+    if (this.publisher.isEmpty()) {
+      return;
+    }
+
+    final var p = this.publisher.get();
+    if (exception != null) {
+      p.fail(exception);
+    } else if (result instanceof final JDownloadErrorType error) {
+      p.fail(exceptionFor(error));
+    } else {
+      p.complete();
+    }
+  }
+
+  private JDownloadErrorType errorFor(
+    final URI uri,
+    final Throwable exception)
+  {
+    if (this.publisher.isPresent() && this.publisher.get().isCancelled()) {
+      return new JDownloadErrorIO(
+        uri,
+        Optional.empty(),
+        new IOException("The subscriber cancelled the transfer.")
+      );
+    }
+    return this.exchanges.errorFor(uri, Optional.empty(), exception);
+  }
+
+  private CompletableFuture<Optional<JDownloadErrorType>> bodyFetch()
+  {
+    final var target = this.request.target();
+    final var requestBuilder = HttpRequest.newBuilder(target);
+    this.request.requestModifier()
+      .accept(requestBuilder);
+
+    final var future =
+      this.exchanges.send(requestBuilder.build(), info -> {
+        final var status = info.statusCode();
+        if (status < 200 || status >= 300) {
+          return replacing(Long.valueOf(0L));
+        }
+        return this.bodySubscriberFor(
+          info.headers().firstValueAsLong("content-length")
+        );
+      });
+
+    return future.handle((response, exception) -> {
+      if (exception != null) {
+        final var collector = this.memory;
+        if (collector != null && collector.exceeded()) {
+          return Optional.of(
+            new JDownloadErrorSizeLimitExceeded(
+              target,
+              Optional.empty(),
+              ((JDownloadStreamSinkMemory) this.sink).sizeLimit()
+            )
+          );
+        }
+        return Optional.of(this.errorFor(target, exception));
+      }
+
+      final var status = response.statusCode();
+      if (status < 200 || status >= 300) {
+        return Optional.of(
+          new JDownloadErrorHTTP(target, Optional.empty(), status)
+        );
+      }
+
+      this.octets = response.body().longValue();
+      return Optional.empty();
+    });
+  }
+
+  private HttpResponse.BodySubscriber<Long> bodySubscriberFor(
+    final OptionalLong expectedSize)
+  {
+    final var progress =
+      new JDownloadProgress(expectedSize, this.request.statisticsReceiver());
+
+    if (this.publisher.isPresent()) {
+      return this.publisher.get().bodySubscriber(this.digests, progress);
+    }
+
+    if (this.sink instanceof final JDownloadStreamSinkMemory inMemory) {
+      final var collector =
+        new JDownloadStreamMemorySubscriber(
+          inMemory.sizeLimit(),
+          expectedSize,
+          this.digests,
+          progress
+        );
+      this.memory = collector;
+      return collector;
+    }
+
+    final var channel = (JDownloadStreamSinkChannel) this.sink;
+    return new JDownloadStreamChannelSubscriber(
+      channel.channel(),
+      this.digests,
+      progress
+    );
+  }
+
+  private JDownloadStreamResultType verify()
+  {
+    final var received = this.digests.digest();
+    final var error =
+      this.verification.verify(received, this.digests, Optional.empty());
+    this.verification.hashCompleted(this.digests);
+
+    if (error.isPresent()) {
+      return error.get();
+    }
+
+    final var collector = this.memory;
+    return new JDownloadStreamSucceeded(
+      this.request.target(),
+      this.octets,
+      JDownloadDigestSet.hex(received),
+      Optional.ofNullable(collector).map(JDownloadStreamMemorySubscriber::data)
+    );
+  }
+}
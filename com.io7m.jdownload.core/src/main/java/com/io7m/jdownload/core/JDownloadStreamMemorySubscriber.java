@@ -0,0 +1,178 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * A body subscriber that collects the response body in a byte array,
+ * updating a set of message digests with the data as it arrives. If the
+ * server declares the size of the body, the array is allocated once at
+ * exactly that size; otherwise it grows as needed. The transfer is
+ * abandoned as soon as the body is known to exceed the size limit.
+ */
+
+final class JDownloadStreamMemorySubscriber
+  implements HttpResponse.BodySubscriber<Long>
+{
+  private static final int INITIAL_SIZE = 8192;
+
+  private final long sizeLimit;
+  private final OptionalLong expectedSize;
+  private final JDownloadDigestSet digests;
+  private final JDownloadProgress progress;
+  private final CompletableFuture<Long> result;
+  private Flow.Subscription subscription;
+  private byte[] data;
+  private int size;
+  private volatile boolean exceeded;
+
+  JDownloadStreamMemorySubscriber(
+    final long inSizeLimit,
+    final OptionalLong inExpectedSize,
+    final JDownloadDigestSet inDigests,
+    final JDownloadProgress inProgress)
+  {
+    this.sizeLimit =
+      inSizeLimit;
+    this.expectedSize =
+      Objects.requireNonNull(inExpectedSize, "expectedSize");
+    this.digests =
+      Objects.requireNonNull(inDigests, "digests");
+    this.progress =
+      Objects.requireNonNull(inProgress, "progress");
+    this.result =
+      new CompletableFuture<>();
+    this.data =
+      new byte[0];
+  }
+
+  /**
+   * @return {@code true} if the body exceeded the size limit
+   */
+
+  boolean exceeded()
+  {
+    return this.exceeded;
+  }
+
+  /**
+   * @return A read-only view of the collected data
+   */
+
+  ByteBuffer data()
+  {
+    return ByteBuffer.wrap(this.data, 0, this.size)
+      .slice()
+      .asReadOnlyBuffer();
+  }
+
+  @Override
+  public CompletionStage<Long> getBody()
+  {
+    return this.result;
+  }
+
+  @Override
+  public void onSubscribe(
+    final Flow.Subscription inSubscription)
+  {
+    this.subscription =
+      Objects.requireNonNull(inSubscription, "subscription");
+
+    if (this.expectedSize.isPresent()) {
+      final var expected = this.expectedSize.getAsLong();
+      if (expected > this.sizeLimit) {
+        this.failExceeded();
+        return;
+      }
+      this.data = new byte[(int) expected];
+    }
+
+    this.subscription.request(1L);
+  }
+
+  @Override
+  public void onNext(
+    final List<ByteBuffer> buffers)
+  {
+    var received = 0L;
+    for (int index = 0; index < buffers.size(); ++index) {
+      received += buffers.get(index).remaining();
+    }
+
+    final var required = this.size + received;
+    if (required > this.sizeLimit) {
+      this.failExceeded();
+      return;
+    }
+    if (required > this.data.length) {
+      final var grown =
+        Math.max(required, Math.max(INITIAL_SIZE, this.data.length * 2L));
+      this.data =
+        Arrays.copyOf(this.data, (int) Math.min(grown, this.sizeLimit));
+    }
+
+    for (int index = 0; index < buffers.size(); ++index) {
+      final var buffer = buffers.get(index);
+      final var count = buffer.remaining();
+      this.digests.update(buffer);
+      buffer.get(this.data, this.size, count);
+      this.size += count;
+    }
+    this.progress.add(received);
+    this.subscription.request(1L);
+  }
+
+  private void failExceeded()
+  {
+    this.exceeded = true;
+    this.subscription.cancel();
+    this.progress.close();
+    this.result.completeExceptionally(
+      new IOException(
+        "Response body exceeds the size limit of %d octets"
+          .formatted(Long.valueOf(this.sizeLimit))
+      )
+    );
+  }
+
+  @Override
+  public void onError(
+    final Throwable throwable)
+  {
+    this.progress.close();
+    this.result.completeExceptionally(throwable);
+  }
+
+  @Override
+  public void onComplete()
+  {
+    this.progress.close();
+    this.result.complete(Long.valueOf(this.size));
+  }
+}
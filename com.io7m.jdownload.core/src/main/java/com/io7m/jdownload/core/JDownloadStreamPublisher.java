@@ -0,0 +1,303 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bridge between the body of a response and a caller-supplied
+ * subscriber of individual buffers.
+ *
+ * The HTTP client delivers lists of buffers, whereas the subscriber
+ * requests individual buffers. Buffers are queued as they arrive, and
+ * another list is only requested from the HTTP client when the queue is
+ * empty and the subscriber has outstanding demand. Signals to the
+ * subscriber are serialized with a work-in-progress counter: whichever
+ * thread increments the counter from zero delivers signals on behalf of
+ * every other thread until the counter returns to zero.
+ *
+ * The subscriber is only completed when the execution has verified the
+ * data, via {@link #complete()}, and receives an error via
+ * {@link #fail(Throwable)} otherwise.
+ */
+
+final class JDownloadStreamPublisher implements Flow.Subscription
+{
+  private final Flow.Subscriber<? super ByteBuffer> downstream;
+  private final Runnable onCancel;
+  private final Queue<ByteBuffer> queue;
+  private final AtomicLong requested;
+  private final AtomicInteger wip;
+  private final CompletableFuture<Long> body;
+  private volatile Flow.Subscription upstream;
+  private volatile boolean upstreamWaiting;
+  private volatile boolean cancelled;
+  private volatile boolean finished;
+  private volatile Throwable error;
+  private boolean terminated;
+
+  JDownloadStreamPublisher(
+    final Flow.Subscriber<? super ByteBuffer> inDownstream,
+    final Runnable inOnCancel)
+  {
+    this.downstream =
+      Objects.requireNonNull(inDownstream, "downstream");
+    this.onCancel =
+      Objects.requireNonNull(inOnCancel, "onCancel");
+    this.queue =
+      new ConcurrentLinkedQueue<>();
+    this.requested =
+      new AtomicLong();
+    this.wip =
+      new AtomicInteger();
+    this.body =
+      new CompletableFuture<>();
+  }
+
+  /**
+   * Subscribe the subscriber.
+   */
+
+  void start()
+  {
+    this.downstream.onSubscribe(this);
+  }
+
+  /**
+   * @return {@code true} if the subscriber cancelled its subscription
+   */
+
+  boolean isCancelled()
+  {
+    return this.cancelled;
+  }
+
+  /**
+   * Create a body subscriber that feeds this publisher.
+   *
+   * @param digests  The message digests
+   * @param progress The progress tracker
+   *
+   * @return A body subscriber
+   */
+
+  HttpResponse.BodySubscriber<Long> bodySubscriber(
+    final JDownloadDigestSet digests,
+    final JDownloadProgress progress)
+  {
+    return new Body(digests, progress);
+  }
+
+  /**
+   * Complete the subscriber once it has received every queued buffer.
+   */
+
+  void complete()
+  {
+    this.finished = true;
+    this.drain();
+  }
+
+  /**
+   * Fail the subscriber, discarding any queued buffers.
+   *
+   * @param exception The exception
+   */
+
+  void fail(
+    final Throwable exception)
+  {
+    this.error = Objects.requireNonNull(exception, "exception");
+    this.drain();
+  }
+
+  @Override
+  public void request(
+    final long n)
+  {
+    if (n <= 0L) {
+      this.fail(new IllegalArgumentException(
+        "Demand must be positive (received %d)".formatted(Long.valueOf(n))
+      ));
+      return;
+    }
+
+    this.requested.getAndAccumulate(n, (x, y) -> {
+      final var sum = x + y;
+      return sum < 0L ? Long.MAX_VALUE : sum;
+    });
+    this.drain();
+  }
+
+  @Override
+  public void cancel()
+  {
+    this.cancelled = true;
+
+    final var subscription = this.upstream;
+    if (subscription != null) {
+      subscription.cancel();
+    }
+    this.body.completeExceptionally(
+      new IOException("The subscriber cancelled the transfer.")
+    );
+    this.onCancel.run();
+  }
+
+  private void drain()
+  {
+    if (this.wip.getAndIncrement() != 0) {
+      return;
+    }
+
+    var missed = 1;
+    while (true) {
+      if (this.cancelled || this.terminated) {
+        this.queue.clear();
+        return;
+      }
+
+      final var failure = this.error;
+      if (failure != null) {
+        this.terminated = true;
+        this.queue.clear();
+        this.downstream.onError(failure);
+        return;
+      }
+
+      final var demand = this.requested.get();
+      var emitted = 0L;
+      while (emitted != demand && !this.cancelled) {
+        final var buffer = this.queue.poll();
+        if (buffer == null) {
+          break;
+        }
+        this.downstream.onNext(buffer);
+        ++emitted;
+      }
+      if (emitted != 0L && demand != Long.MAX_VALUE) {
+        this.requested.addAndGet(-emitted);
+      }
+
+      if (this.queue.isEmpty()) {
+        if (this.finished) {
+          this.terminated = true;
+          this.downstream.onComplete();
+          return;
+        }
+
+        final var subscription = this.upstream;
+        if (subscription != null
+          && !this.upstreamWaiting
+          && this.requested.get() > 0L) {
+          this.upstreamWaiting = true;
+          subscription.request(1L);
+        }
+      }
+
+      missed = this.wip.addAndGet(-missed);
+      if (missed == 0) {
+        return;
+      }
+    }
+  }
+
+  private final class Body implements HttpResponse.BodySubscriber<Long>
+  {
+    private final JDownloadDigestSet digests;
+    private final JDownloadProgress progress;
+    private long octets;
+
+    Body(
+      final JDownloadDigestSet inDigests,
+      final JDownloadProgress inProgress)
+    {
+      this.digests =
+        Objects.requireNonNull(inDigests, "digests");
+      this.progress =
+        Objects.requireNonNull(inProgress, "progress");
+    }
+
+    @Override
+    public CompletionStage<Long> getBody()
+    {
+      return JDownloadStreamPublisher.this.body;
+    }
+
+    @Override
+    public void onSubscribe(
+      final Flow.Subscription subscription)
+    {
+      Objects.requireNonNull(subscription, "subscription");
+
+      final var publisher = JDownloadStreamPublisher.this;
+      publisher.upstream = subscription;
+      if (publisher.cancelled) {
+        subscription.cancel();
+        return;
+      }
+      publisher.drain();
+    }
+
+    @Override
+    public void onNext(
+      final List<ByteBuffer> buffers)
+    {
+      final var publisher = JDownloadStreamPublisher.this;
+
+      var size = 0L;
+      for (int index = 0; index < buffers.size(); ++index) {
+        final var buffer = buffers.get(index);
+        size += buffer.remaining();
+        this.digests.update(buffer);
+        publisher.queue.add(buffer);
+      }
+      this.octets += size;
+      this.progress.add(size);
+
+      publisher.upstreamWaiting = false;
+      publisher.drain();
+    }
+
+    @Override
+    public void onError(
+      final Throwable throwable)
+    {
+      this.progress.close();
+      JDownloadStreamPublisher.this.body.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete()
+    {
+      this.progress.close();
+      JDownloadStreamPublisher.this.body.complete(Long.valueOf(this.octets));
+    }
+  }
+}
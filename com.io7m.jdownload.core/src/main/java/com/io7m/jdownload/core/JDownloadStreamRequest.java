@@ -0,0 +1,177 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import com.io7m.streamtime.core.STTransferStatistics;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * An immutable streaming download request.
+ */
+
+final class JDownloadStreamRequest implements JDownloadStreamRequestType
+{
+  private final HttpClient client;
+  private final URI target;
+  private final Optional<JDownloadChecksumSource> checksum;
+  private final Consumer<STTransferStatistics> receiver;
+  private final Consumer<HttpRequest.Builder> requestModifier;
+  private final Consumer<HttpRequest.Builder> checksumRequestModifier;
+  private final List<String> digestAlgorithms;
+  private final List<JChecksumStatically> checksumsAdditional;
+  private final Optional<JDownloadMetricsType> metrics;
+  private final List<JDownloadBandwidthLimiter> bandwidthLimiters;
+
+  JDownloadStreamRequest(
+    final HttpClient inClient,
+    final URI inTarget,
+    final Optional<JDownloadChecksumSource> inChecksum,
+    final Consumer<STTransferStatistics> inReceiver,
+    final Consumer<HttpRequest.Builder> inRequestModifier,
+    final Consumer<HttpRequest.Builder> inChecksumRequestModifier,
+    final List<String> inDigestAlgorithms,
+    final List<JChecksumStatically> inChecksumsAdditional,
+    final Optional<JDownloadMetricsType> inMetrics,
+    final List<JDownloadBandwidthLimiter> inBandwidthLimiters)
+  {
+    this.client =
+      Objects.requireNonNull(inClient, "client");
+    this.target =
+      Objects.requireNonNull(inTarget, "target");
+    this.checksum =
+      Objects.requireNonNull(inChecksum, "checksum");
+    this.receiver =
+      Objects.requireNonNull(inReceiver, "receiver");
+    this.requestModifier =
+      Objects.requireNonNull(inRequestModifier, "requestModifier");
+    this.checksumRequestModifier =
+      Objects.requireNonNull(
+        inChecksumRequestModifier,
+        "checksumRequestModifier");
+    this.digestAlgorithms =
+      List.copyOf(inDigestAlgorithms);
+    this.checksumsAdditional =
+      List.copyOf(inChecksumsAdditional);
+    this.metrics =
+      Objects.requireNonNull(inMetrics, "metrics");
+    this.bandwidthLimiters =
+      List.copyOf(inBandwidthLimiters);
+  }
+
+  Optional<JDownloadChecksumSource> checksum()
+  {
+    return this.checksum;
+  }
+
+  Consumer<HttpRequest.Builder> requestModifier()
+  {
+    return this.requestModifier;
+  }
+
+  Consumer<HttpRequest.Builder> checksumRequestModifier()
+  {
+    return this.checksumRequestModifier;
+  }
+
+  List<String> digestAlgorithms()
+  {
+    return this.digestAlgorithms;
+  }
+
+  List<JChecksumStatically> checksumsAdditional()
+  {
+    return this.checksumsAdditional;
+  }
+
+  Optional<JDownloadMetricsType> metrics()
+  {
+    return this.metrics;
+  }
+
+  List<JDownloadBandwidthLimiter> bandwidthLimiters()
+  {
+    return this.bandwidthLimiters;
+  }
+
+  @Override
+  public HttpClient httpClient()
+  {
+    return this.client;
+  }
+
+  @Override
+  public URI target()
+  {
+    return this.target;
+  }
+
+  @Override
+  public Consumer<STTransferStatistics> statisticsReceiver()
+  {
+    return this.receiver;
+  }
+
+  @Override
+  public JDownloadStreamResultType execute(
+    final JDownloadStreamSinkType sink)
+    throws InterruptedException
+  {
+    final var future = this.executeAsync(sink);
+    try {
+      return future.get();
+    } catch (final InterruptedException e) {
+      future.cancel(true);
+      throw e;
+    } catch (final ExecutionException e) {
+      final var cause = e.getCause();
+      if (cause instanceof final RuntimeException ex) {
+        throw ex;
+      }
+      if (cause instanceof final Error ex) {
+        throw ex;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  @Override
+  public CompletableFuture<JDownloadStreamResultType> executeAsync(
+    final JDownloadStreamSinkType sink)
+  {
+    Objects.requireNonNull(sink, "sink");
+
+    final var execution = new JDownloadStreamExecution(this, sink);
+    final var future = execution.run();
+    future.whenComplete((r, exception) -> {
+      if (exception instanceof CancellationException) {
+        execution.cancel(exception);
+      }
+    });
+    return future;
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import com.io7m.streamtime.core.STTransferStatistics;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.function.Consumer;
+
+/**
+ * The type of mutable builders for streaming download requests.
+ */
+
+public interface JDownloadStreamRequestBuilderType
+{
+  /**
+   * Set a receiver function that will receive transfer statistics.
+   *
+   * @param receiver The receiver
+   *
+   * @return this
+   */
+
+  JDownloadStreamRequestBuilderType setTransferStatisticsReceiver(
+    Consumer<STTransferStatistics> receiver
+  );
+
+  /**
+   * Set a static checksum value that will be used to verify the downloaded
+   * data.
+   *
+   * @param algorithm The checksum algorithm
+   * @param checksum  The checksum value
+   *
+   * @return this
+   */
+
+  JDownloadStreamRequestBuilderType setChecksumStatically(
+    String algorithm,
+    byte[] checksum
+  );
+
+  /**
+   * Set a URL that is expected to contain a checksum value for the downloaded
+   * data. The checksum is held in memory rather than written to a file.
+   *
+   * @param checksumURI The checksum URI
+   * @param algorithm   The checksum algorithm
+   *
+   * @return this
+   */
+
+  JDownloadStreamRequestBuilderType setChecksumFromURL(
+    URI checksumURI,
+    String algorithm
+  );
+
+  /**
+   * Set a manifest that is expected to contain a checksum value for the
+   * downloaded data, under the given entry name. The manifest is downloaded
+   * once and kept in the index shared by the whole process (see
+   * {@link JChecksumManifestIndexes#shared()}).
+   *
+   * @param manifestURI The manifest URI
+   * @param algorithm   The checksum algorithm
+   * @param entry       The name of the file in the manifest
+   *
+   * @return this
+   */
+
+  JDownloadStreamRequestBuilderType setChecksumFromManifest(
+    URI manifestURI,
+    String algorithm,
+    String entry
+  );
+
+  /**
+   * Set a manifest that is expected to contain a checksum value for the
+   * downloaded data, under the given entry name. The manifest is downloaded
+   * once and kept in the given index.
+   *
+   * @param manifestURI The manifest URI
+   * @param algorithm   The checksum algorithm
+   * @param entry       The name of the file in the manifest
+   * @param index       The manifest index
+   *
+   * @return this
+   */
+
+  JDownloadStreamRequestBuilderType setChecksumFromManifest(
+    URI manifestURI,
+    String algorithm,
+    String entry,
+    JChecksumManifestIndexType index
+  );
+
+  /**
+   * Set a modifier function that can adjust HTTP requests.
+   *
+   * @param modifier The modifier function
+   *
+   * @return this
+   */
+
+  JDownloadStreamRequestBuilderType setRequestModifier(
+    Consumer<HttpRequest.Builder> modifier
+  );
+
+  /**
+   * Set a modifier function that can adjust checksum HTTP requests.
+   *
+   * @param modifier The modifier function
+   *
+   * @return this
+   */
+
+  JDownloadStreamRequestBuilderType setChecksumRequestModifier(
+    Consumer<HttpRequest.Builder> modifier
+  );
+
+  /**
+   * Compute a digest of the downloaded data with the given algorithm, in
+   * the same pass as any checksum verification. The hex-encoded digest is
+   * available from {@link JDownloadStreamSucceeded#digests()}.
+   *
+   * @param algorithm The digest algorithm (such as "SHA-512")
+   *
+   * @return this
+   */
+
+  JDownloadStreamRequestBuilderType addDigest(
+    String algorithm
+  );
+
+  /**
+   * Add a static checksum value that will be used to verify the downloaded
+   * data, in addition to any other checksum. Every checksum must match for
+   * the download to succeed.
+   *
+   * @param algorithm The checksum algorithm
+   * @param checksum  The checksum value
+   *
+   * @return this
+   */
+
+  JDownloadStreamRequestBuilderType addChecksumStatically(
+    String algorithm,
+    byte[] checksum
+  );
+
+  /**
+   * Set a receiver for metrics about the download. Streaming downloads
+   * report response headers, transfers, and hashing, but do not report
+   * request completion, as their results are not download results.
+   *
+   * @param metrics The metrics receiver
+   *
+   * @return this
+   */
+
+  JDownloadStreamRequestBuilderType setMetrics(
+    JDownloadMetricsType metrics
+  );
+
+  /**
+   * Add a bandwidth limiter that limits the rate at which data is received.
+   * Limiters may be shared between streaming and ordinary requests.
+   *
+   * @param limiter The bandwidth limiter
+   *
+   * @return this
+   *
+   * @see JDownloadBandwidthLimiters
+   */
+
+  JDownloadStreamRequestBuilderType addBandwidthLimiter(
+    JDownloadBandwidthLimiterType limiter
+  );
+
+  /**
+   * Build an immutable request.
+   *
+   * @return The request
+   */
+
+  JDownloadStreamRequestType build();
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import com.io7m.streamtime.core.STTransferStatistics;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * An immutable, repeatable download request that streams the downloaded
+ * data into a sink instead of a file. The data is verified as it passes
+ * through, and the result of the request indicates whether the data that
+ * the sink received was correct.
+ *
+ * Data that has been written to a sink cannot be taken back, and so a
+ * streaming download is never retried, and cannot be resumed, segmented,
+ * or cached.
+ */
+
+public interface JDownloadStreamRequestType
+{
+  /**
+   * @return The HTTP client that will be used
+   */
+
+  HttpClient httpClient();
+
+  /**
+   * @return The target URI
+   */
+
+  URI target();
+
+  /**
+   * @return The receiver of transfer statistics
+   */
+
+  Consumer<STTransferStatistics> statisticsReceiver();
+
+  /**
+   * Execute the download request.
+   *
+   * @param sink The sink that will receive the data
+   *
+   * @return The result
+   *
+   * @throws InterruptedException On interruption
+   */
+
+  JDownloadStreamResultType execute(
+    JDownloadStreamSinkType sink)
+    throws InterruptedException;
+
+  /**
+   * Execute the download request asynchronously. The returned future is
+   * completed with the result of the download; errors are reported as
+   * results in exactly the same manner as
+   * {@link #execute(JDownloadStreamSinkType)}. Cancelling the returned
+   * future cancels any HTTP requests that are still in progress.
+   *
+   * @param sink The sink that will receive the data
+   *
+   * @return The result, eventually
+   */
+
+  CompletableFuture<JDownloadStreamResultType> executeAsync(
+    JDownloadStreamSinkType sink);
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import com.io7m.streamtime.core.STTransferStatistics;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * A factory for streaming download requests.
+ */
+
+public final class JDownloadStreamRequests
+{
+  private JDownloadStreamRequests()
+  {
+
+  }
+
+  /**
+   * Create a new mutable builder for configuring streaming download
+   * requests.
+   *
+   * @param client An HTTP client
+   * @param target The target URI
+   *
+   * @return A mutable builder
+   */
+
+  public static JDownloadStreamRequestBuilderType builder(
+    final HttpClient client,
+    final URI target)
+  {
+    return new JDownloadStreamRequestBuilder(client, target);
+  }
+
+  private static final class JDownloadStreamRequestBuilder
+    implements JDownloadStreamRequestBuilderType
+  {
+    private final HttpClient client;
+    private final URI target;
+    private Optional<JDownloadChecksumSource> checksum = Optional.empty();
+
+    private Consumer<STTransferStatistics> receiver =
+      stats -> {
+
+      };
+
+    private Consumer<HttpRequest.Builder> requestModifier =
+      r -> {
+
+      };
+
+    private Consumer<HttpRequest.Builder> checksumRequestModifier =
+      r -> {
+
+      };
+
+    private final List<String> digestAlgorithms = new ArrayList<>();
+    private Optional<JDownloadMetricsType> metrics = Optional.empty();
+    private final List<JChecksumStatically> checksumsAdditional =
+      new ArrayList<>();
+    private final List<JDownloadBandwidthLimiter> bandwidthLimiters =
+      new ArrayList<>();
+
+    JDownloadStreamRequestBuilder(
+      final HttpClient inClient,
+      final URI inTarget)
+    {
+      this.client =
+        Objects.requireNonNull(inClient, "client");
+      this.target =
+        Objects.requireNonNull(inTarget, "target");
+    }
+
+    @Override
+    public JDownloadStreamRequestBuilderType setTransferStatisticsReceiver(
+      final Consumer<STTransferStatistics> inReceiver)
+    {
+      this.receiver = Objects.requireNonNull(inReceiver, "receiver");
+      return this;
+    }
+
+    @Override
+    public JDownloadStreamRequestBuilderType setChecksumStatically(
+      final String algorithm,
+      final byte[] checksumValue)
+    {
+      this.checksum = Optional.of(
+        new JDownloadChecksumSource.Statically(
+          new JChecksumStatically(algorithm, checksumValue)
+        )
+      );
+      return this;
+    }
+
+    @Override
+    public JDownloadStreamRequestBuilderType setChecksumFromURL(
+      final URI checksumURI,
+      final String algorithm)
+    {
+      this.checksum = Optional.of(
+        new JDownloadChecksumSource.FromURI(
+          algorithm,
+          checksumURI,
+          Optional.empty()
+        )
+      );
+      return this;
+    }
+
+    @Override
+    public JDownloadStreamRequestBuilderType setChecksumFromManifest(
+      final URI manifestURI,
+      final String algorithm,
+      final String entry)
+    {
+      return this.setChecksumFromManifest(
+        manifestURI,
+        algorithm,
+        entry,
+        JChecksumManifestIndexes.shared()
+      );
+    }
+
+    @Override
+    public JDownloadStreamRequestBuilderType setChecksumFromManifest(
+      final URI manifestURI,
+      final String algorithm,
+      final String entry,
+      final JChecksumManifestIndexType index)
+    {
+      this.checksum = Optional.of(
+        new JDownloadChecksumSource.FromManifest(
+          new JChecksumFromManifest(algorithm, manifestURI, entry, index)
+        )
+      );
+      return this;
+    }
+
+    @Override
+    public JDownloadStreamRequestBuilderType setRequestModifier(
+      final Consumer<HttpRequest.Builder> modifier)
+    {
+      this.requestModifier =
+        Objects.requireNonNull(modifier, "modifier");
+      return this;
+    }
+
+    @Override
+    public JDownloadStreamRequestBuilderType setChecksumRequestModifier(
+      final Consumer<HttpRequest.Builder> modifier)
+    {
+      this.checksumRequestModifier =
+        Objects.requireNonNull(modifier, "modifier");
+      return this;
+    }
+
+    @Override
+    public JDownloadStreamRequestBuilderType addDigest(
+      final String algorithm)
+    {
+      Objects.requireNonNull(algorithm, "algorithm");
+      try {
+        MessageDigest.getInstance(algorithm);
+      } catch (final NoSuchAlgorithmException e) {
+        throw new IllegalStateException(e);
+      }
+      this.digestAlgorithms.add(algorithm);
+      return this;
+    }
+
+    @Override
+    public JDownloadStreamRequestBuilderType addChecksumStatically(
+      final String algorithm,
+      final byte[] checksumValue)
+    {
+      this.checksumsAdditional.add(
+        new JChecksumStatically(algorithm, checksumValue)
+      );
+      return this;
+    }
+
+    @Override
+    public JDownloadStreamRequestBuilderType setMetrics(
+      final JDownloadMetricsType inMetrics)
+    {
+      this.metrics = Optional.of(
+        Objects.requireNonNull(inMetrics, "metrics")
+      );
+      return this;
+    }
+
+    @Override
+    public JDownloadStreamRequestBuilderType addBandwidthLimiter(
+      final JDownloadBandwidthLimiterType limiter)
+    {
+      Objects.requireNonNull(limiter, "limiter");
+      this.bandwidthLimiters.add((JDownloadBandwidthLimiter) limiter);
+      return this;
+    }
+
+    @Override
+    public JDownloadStreamRequestType build()
+    {
+      return new JDownloadStreamRequest(
+        this.client,
+        this.target,
+        this.checksum,
+        this.receiver,
+        this.requestModifier,
+        this.checksumRequestModifier,
+        this.digestAlgorithms,
+        this.checksumsAdditional,
+        this.metrics,
+        this.bandwidthLimiters
+      );
+    }
+  }
+}
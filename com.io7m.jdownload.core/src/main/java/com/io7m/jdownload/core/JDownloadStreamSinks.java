@@ -0,0 +1,121 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.Flow;
+
+/**
+ * Functions to create sinks for streaming downloads.
+ */
+
+public final class JDownloadStreamSinks
+{
+  private JDownloadStreamSinks()
+  {
+
+  }
+
+  /**
+   * Create a sink that writes to the given channel. The channel must be in
+   * blocking mode, and is not closed when the download completes. Data is
+   * written to the channel as it arrives, and so the channel will have
+   * received all of the data by the time that a checksum mismatch is
+   * reported.
+   *
+   * @param channel The channel
+   *
+   * @return A sink
+   */
+
+  public static JDownloadStreamSinkType ofChannel(
+    final WritableByteChannel channel)
+  {
+    return new JDownloadStreamSinkChannel(channel);
+  }
+
+  /**
+   * Create a sink that writes to the given output stream. The stream is not
+   * closed when the download completes. Data is written to the stream as it
+   * arrives, and so the stream will have received all of the data by the
+   * time that a checksum mismatch is reported.
+   *
+   * @param stream The output stream
+   *
+   * @return A sink
+   */
+
+  public static JDownloadStreamSinkType ofOutputStream(
+    final OutputStream stream)
+  {
+    return new JDownloadStreamSinkChannel(Channels.newChannel(stream));
+  }
+
+  /**
+   * Create a sink that collects data in memory. The data is verified in
+   * memory and returned in {@link JDownloadStreamSucceeded#data()}; nothing
+   * touches the filesystem. If the server declares the size of the
+   * response body, memory is allocated once at exactly that size. If the
+   * body is larger than {@code sizeLimit} octets, the transfer is abandoned
+   * and the download fails with
+   * {@link JDownloadErrorSizeLimitExceeded}. The size limit may not
+   * exceed {@code Integer.MAX_VALUE - 8}. The sink holds no state, and so
+   * may be used for any number of executions.
+   *
+   * @param sizeLimit The maximum number of octets that will be accepted
+   *
+   * @return A sink
+   */
+
+  public static JDownloadStreamSinkType ofMemory(
+    final long sizeLimit)
+  {
+    return new JDownloadStreamSinkMemory(sizeLimit);
+  }
+
+  /**
+   * Create a sink that publishes data to the given subscriber. The
+   * subscriber is subscribed when the download is executed, and so a sink
+   * created with this method can only be used for a single execution.
+   *
+   * The subscriber receives data as it arrives, subject to its own demand;
+   * the HTTP client stops reading from the connection while the subscriber
+   * has no outstanding demand. The subscriber receives
+   * {@link Flow.Subscriber#onComplete()} only after every checksum has been
+   * verified. If the download fails for any reason, including a checksum
+   * mismatch, the subscriber instead receives
+   * {@link Flow.Subscriber#onError(Throwable)} and should discard
+   * anything it has done with the data. The result of the download may be
+   * delivered before the subscriber has consumed all of the data. If the
+   * subscriber cancels its subscription, the download fails with an I/O
+   * error.
+   *
+   * @param subscriber The subscriber
+   *
+   * @return A sink
+   */
+
+  public static JDownloadStreamSinkType ofSubscriber(
+    final Flow.Subscriber<? super ByteBuffer> subscriber)
+  {
+    return new JDownloadStreamSinkSubscriber(subscriber);
+  }
+}
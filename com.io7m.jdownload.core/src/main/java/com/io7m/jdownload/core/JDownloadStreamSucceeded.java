@@ -0,0 +1,73 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A streaming download succeeded, and every checksum matched.
+ *
+ * @param uri     The target URI
+ * @param octets  The number of octets written to the sink
+ * @param digests The hex-encoded digests of the data, keyed by algorithm
+ * @param data    The data, if the sink collected it in memory
+ */
+
+public record JDownloadStreamSucceeded(
+  URI uri,
+  long octets,
+  Map<String, String> digests,
+  Optional<ByteBuffer> data)
+  implements JDownloadStreamResultType
+{
+  /**
+   * A streaming download succeeded, and every checksum matched.
+   *
+   * @param uri     The target URI
+   * @param octets  The number of octets written to the sink
+   * @param digests The hex-encoded digests of the data, keyed by algorithm
+   * @param data    The data, if the sink collected it in memory
+   */
+
+  public JDownloadStreamSucceeded
+  {
+    Objects.requireNonNull(uri, "uri");
+    Objects.requireNonNull(data, "data");
+    digests = Map.copyOf(digests);
+  }
+
+  /**
+   * A streaming download succeeded, and every checksum matched.
+   *
+   * @param uri     The target URI
+   * @param octets  The number of octets written to the sink
+   * @param digests The hex-encoded digests of the data, keyed by algorithm
+   */
+
+  public JDownloadStreamSucceeded(
+    final URI uri,
+    final long octets,
+    final Map<String, String> digests)
+  {
+    this(uri, octets, digests, Optional.empty());
+  }
+}
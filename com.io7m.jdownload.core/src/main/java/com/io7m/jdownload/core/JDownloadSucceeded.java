@@ -18,31 +18,107 @@
 package com.io7m.jdownload.core;
 
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
 /**
  * The download succeeded.
  *
- * @param outputFile   The output file
- * @param checksumFile The file checksum
+ * @param outputFile     The output file
+ * @param checksumFile   The file checksum
+ * @param origin         The origin of the file data
+ * @param failedAttempts The errors produced by any attempts that failed
+ *                       before the download succeeded
+ * @param digests        The digests of the output file as hexadecimal
+ *                       strings, by algorithm
  */
 
 public record JDownloadSucceeded(
   Path outputFile,
-  Optional<Path> checksumFile)
+  Optional<Path> checksumFile,
+  JDownloadOrigin origin,
+  List<JDownloadErrorType> failedAttempts,
+  Map<String, String> digests)
   implements JDownloadResultType
 {
   /**
    * The download succeeded.
    *
-   * @param outputFile   The output file
-   * @param checksumFile The file checksum
+   * @param outputFile     The output file
+   * @param checksumFile   The file checksum
+   * @param origin         The origin of the file data
+   * @param failedAttempts The errors produced by any attempts that failed
+   *                       before the download succeeded
+   * @param digests        The digests of the output file as hexadecimal
+   *                       strings, by algorithm
    */
 
   public JDownloadSucceeded
   {
     Objects.requireNonNull(outputFile, "outputFile");
     Objects.requireNonNull(checksumFile, "checksumFile");
+    Objects.requireNonNull(origin, "origin");
+    failedAttempts = List.copyOf(failedAttempts);
+    digests = Map.copyOf(digests);
+  }
+
+  /**
+   * The download succeeded, and no digests were computed.
+   *
+   * @param outputFile     The output file
+   * @param checksumFile   The file checksum
+   * @param origin         The origin of the file data
+   * @param failedAttempts The errors produced by any attempts that failed
+   *                       before the download succeeded
+   */
+
+  public JDownloadSucceeded(
+    final Path outputFile,
+    final Optional<Path> checksumFile,
+    final JDownloadOrigin origin,
+    final List<JDownloadErrorType> failedAttempts)
+  {
+    this(outputFile, checksumFile, origin, failedAttempts, Map.of());
+  }
+
+  /**
+   * The download succeeded on the first attempt.
+   *
+   * @param outputFile   The output file
+   * @param checksumFile The file checksum
+   * @param origin       The origin of the file data
+   */
+
+  public JDownloadSucceeded(
+    final Path outputFile,
+    final Optional<Path> checksumFile,
+    final JDownloadOrigin origin)
+  {
+    this(outputFile, checksumFile, origin, List.of());
+  }
+
+  /**
+   * The download succeeded, and the file was downloaded from the network.
+   *
+   * @param outputFile   The output file
+   * @param checksumFile The file checksum
+   */
+
+  public JDownloadSucceeded(
+    final Path outputFile,
+    final Optional<Path> checksumFile)
+  {
+    this(outputFile, checksumFile, JDownloadOrigin.NETWORK);
+  }
+
+  /**
+   * @return The number of attempts made, including the successful attempt
+   */
+
+  public int attemptCount()
+  {
+    return this.failedAttempts.size() + 1;
   }
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A body subscriber that limits the rate at which a response body is
+ * received.
+ *
+ * The subscriber never blocks the thread that delivers data. Instead, the
+ * size of each list of buffers is taken from the bandwidth limiters, and if
+ * the limiters are exhausted, the next request for data that the delegate
+ * makes is deferred until the limiters have been refilled. The HTTP client
+ * stops reading from the connection while there is no outstanding demand,
+ * and so the server is slowed down by ordinary flow control.
+ *
+ * @param <T> The type of response body
+ */
+
+final class JDownloadThrottledSubscriber<T>
+  implements HttpResponse.BodySubscriber<T>, Flow.Subscription
+{
+  private final HttpResponse.BodySubscriber<T> delegate;
+  private final List<JDownloadBandwidthLimiter> limiters;
+  private final AtomicLong resumeAt;
+  private volatile Flow.Subscription subscription;
+
+  private JDownloadThrottledSubscriber(
+    final HttpResponse.BodySubscriber<T> inDelegate,
+    final List<JDownloadBandwidthLimiter> inLimiters)
+  {
+    this.delegate =
+      Objects.requireNonNull(inDelegate, "delegate");
+    this.limiters =
+      Objects.requireNonNull(inLimiters, "limiters");
+    this.resumeAt =
+      new AtomicLong();
+  }
+
+  /**
+   * Wrap a body handler so that response bodies are received no faster than
+   * the given limiters allow. If there are no limiters, the handler is
+   * returned unchanged.
+   *
+   * @param limiters The bandwidth limiters
+   * @param handler  The body handler
+   * @param <T>      The type of response body
+   *
+   * @return A body handler
+   */
+
+  static <T> HttpResponse.BodyHandler<T> throttled(
+    final List<JDownloadBandwidthLimiter> limiters,
+    final HttpResponse.BodyHandler<T> handler)
+  {
+    if (limiters.isEmpty()) {
+      return handler;
+    }
+
+    return info ->
+      new JDownloadThrottledSubscriber<>(handler.apply(info), limiters);
+  }
+
+  @Override
+  public CompletionStage<T> getBody()
+  {
+    return this.delegate.getBody();
+  }
+
+  @Override
+  public void onSubscribe(
+    final Flow.Subscription inSubscription)
+  {
+    this.subscription =
+      Objects.requireNonNull(inSubscription, "subscription");
+    this.delegate.onSubscribe(this);
+  }
+
+  @Override
+  public void onNext(
+    final List<ByteBuffer> buffers)
+  {
+    var size = 0L;
+    for (int index = 0; index < buffers.size(); ++index) {
+      size += buffers.get(index).remaining();
+    }
+
+    final var delay =
+      JDownloadBandwidthLimiter.reserveAll(this.limiters, size);
+    if (delay > 0L) {
+      this.resumeAt.set(System.nanoTime() + delay);
+    }
+    this.delegate.onNext(buffers);
+  }
+
+  @Override
+  public void onError(
+    final Throwable throwable)
+  {
+    this.delegate.onError(throwable);
+  }
+
+  @Override
+  public void onComplete()
+  {
+    this.delegate.onComplete();
+  }
+
+  @Override
+  public void request(
+    final long n)
+  {
+    final var deadline = this.resumeAt.getAndSet(0L);
+    final var delay = deadline == 0L ? 0L : deadline - System.nanoTime();
+    if (delay <= 0L) {
+      this.subscription.request(n);
+      return;
+    }
+
+    CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS)
+      .execute(() -> this.subscription.request(n));
+  }
+
+  @Override
+  public void cancel()
+  {
+    this.subscription.cancel();
+  }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Properties;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * The HTTP validators for a (possibly partial) downloaded file. Validators
+ * are stored in small sidecar files next to the file to which they refer:
+ * a {@code .resume} file next to a partial temporary file, and a
+ * {@code .validators} file next to a complete output file.
+ *
+ * @param entityTag     The entity tag, if any
+ * @param lastModified  The last modification time, if any
+ * @param contentLength The size of the complete file, if known
+ * @param checksum      The verified checksum of the complete file, if any,
+ *                      in the form {@code ALGORITHM:HEX}
+ */
+
+record JDownloadValidators(
+  Optional<String> entityTag,
+  Optional<String> lastModified,
+  OptionalLong contentLength,
+  Optional<String> checksum)
+{
+  private static final String ENTITY_TAG = "entity-tag";
+  private static final String LAST_MODIFIED = "last-modified";
+  private static final String CONTENT_LENGTH = "content-length";
+  private static final String CHECKSUM = "checksum";
+
+  JDownloadValidators
+  {
+    Objects.requireNonNull(entityTag, "entityTag");
+    Objects.requireNonNull(lastModified, "lastModified");
+    Objects.requireNonNull(contentLength, "contentLength");
+    Objects.requireNonNull(checksum, "checksum");
+  }
+
+  /**
+   * @param headers The response headers
+   *
+   * @return The validators present in the given headers
+   */
+
+  static JDownloadValidators ofHeaders(
+    final HttpHeaders headers)
+  {
+    return new JDownloadValidators(
+      headers.firstValue("etag"),
+      headers.firstValue("last-modified"),
+      OptionalLong.empty(),
+      Optional.empty()
+    );
+  }
+
+  /**
+   * @param size            The size of the complete file
+   * @param checksumOfFile  The verified checksum of the complete file
+   *
+   * @return These validators, describing a complete file
+   */
+
+  JDownloadValidators withFile(
+    final long size,
+    final Optional<String> checksumOfFile)
+  {
+    return new JDownloadValidators(
+      this.entityTag,
+      this.lastModified,
+      OptionalLong.of(size),
+      checksumOfFile
+    );
+  }
+
+  /**
+   * @param file The file
+   *
+   * @return The sidecar file that holds validators for a partial download
+   */
+
+  static Path resumeFileFor(
+    final Path file)
+  {
+    return file.resolveSibling(file.getFileName() + ".resume");
+  }
+
+  /**
+   * @param file The file
+   *
+   * @return The sidecar file that holds validators for a complete download
+   */
+
+  static Path validatorsFileFor(
+    final Path file)
+  {
+    return file.resolveSibling(file.getFileName() + ".validators");
+  }
+
+  /**
+   * Read validators from the given sidecar file.
+   *
+   * @param file The file
+   *
+   * @return The validators, or nothing if the file does not exist
+   *
+   * @throws IOException On errors
+   */
+
+  static Optional<JDownloadValidators> read(
+    final Path file)
+    throws IOException
+  {
+    final var properties = new Properties();
+    try (var stream = Files.newInputStream(file)) {
+      properties.load(stream);
+    } catch (final NoSuchFileException e) {
+      return Optional.empty();
+    }
+
+    final var length = properties.getProperty(CONTENT_LENGTH);
+    final OptionalLong contentLength;
+    try {
+      contentLength = length == null
+        ? OptionalLong.empty()
+        : OptionalLong.of(Long.parseUnsignedLong(length));
+    } catch (final NumberFormatException e) {
+      throw new IOException(e);
+    }
+
+    return Optional.of(
+      new JDownloadValidators(
+        Optional.ofNullable(properties.getProperty(ENTITY_TAG)),
+        Optional.ofNullable(properties.getProperty(LAST_MODIFIED)),
+        contentLength,
+        Optional.ofNullable(properties.getProperty(CHECKSUM))
+      )
+    );
+  }
+
+  /**
+   * Atomically write validators to the given sidecar file.
+   *
+   * @param file The file
+   *
+   * @throws IOException On errors
+   */
+
+  void write(
+    final Path file)
+    throws IOException
+  {
+    final var properties = new Properties();
+    this.entityTag.ifPresent(v -> properties.setProperty(ENTITY_TAG, v));
+    this.lastModified.ifPresent(v -> properties.setProperty(LAST_MODIFIED, v));
+    this.contentLength.ifPresent(
+      v -> properties.setProperty(CONTENT_LENGTH, Long.toUnsignedString(v)));
+    this.checksum.ifPresent(v -> properties.setProperty(CHECKSUM, v));
+
+    final var fileTmp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (var stream = Files.newOutputStream(fileTmp)) {
+      properties.store(stream, "");
+    }
+    Files.move(fileTmp, file, ATOMIC_MOVE, REPLACE_EXISTING);
+  }
+
+  /**
+   * Determine the value that should be used for an {@code If-Range} header.
+   * Weak entity tags cannot be used with {@code If-Range}.
+   *
+   * @return The value, if any
+   */
+
+  Optional<String> ifRange()
+  {
+    final var strong =
+      this.entityTag.filter(tag -> !tag.startsWith("W/"));
+    if (strong.isPresent()) {
+      return strong;
+    }
+    return this.lastModified;
+  }
+
+  /**
+   * @return {@code true} if these validators can be used in a conditional
+   *         request
+   */
+
+  boolean isUsable()
+  {
+    return this.entityTag.isPresent() || this.lastModified.isPresent();
+  }
+}
@@ -0,0 +1,534 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static java.net.http.HttpResponse.BodySubscribers.replacing;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * The checksum and verification phases of a single execution of a
+ * download. The expected checksum is obtained (possibly concurrently with
+ * the body), and the digests of the body are compared against it once the
+ * body has been received. Downloads into files and streaming downloads
+ * differ only in where a checksum fetched from a URI is kept: it is saved
+ * to a file if the request says so, and otherwise held in memory.
+ */
+
+final class JDownloadVerification
+{
+  private static final HexFormat HEX_FORMAT =
+    HexFormat.of();
+
+  /**
+   * The maximum size of a checksum that is held in memory.
+   */
+
+  private static final long CHECKSUM_SIZE_LIMIT = 65536L;
+
+  private final URI target;
+  private final Optional<JDownloadChecksumSource> checksum;
+  private final List<JChecksumStatically> checksumsAdditional;
+  private final Consumer<HttpRequest.Builder> checksumRequestModifier;
+  private final Optional<JDownloadMetricsType> metrics;
+  private final HttpClient client;
+  private final JDownloadExchanges exchanges;
+  private final Optional<Path> file;
+  private volatile byte[] checksumExpected;
+  private volatile Optional<Path> checksumFile;
+
+  /**
+   * Create the phases.
+   *
+   * @param inTarget                  The target URI
+   * @param inChecksum                The source of the primary checksum
+   * @param inChecksumsAdditional     The additional checksums
+   * @param inChecksumRequestModifier The modifier for checksum requests
+   * @param inMetrics                 The metrics receiver
+   * @param inClient                  The HTTP client
+   * @param inExchanges               The exchanges of the execution
+   * @param inFile                    The file named in errors, if any
+   */
+
+  JDownloadVerification(
+    final URI inTarget,
+    final Optional<JDownloadChecksumSource> inChecksum,
+    final List<JChecksumStatically> inChecksumsAdditional,
+    final Consumer<HttpRequest.Builder> inChecksumRequestModifier,
+    final Optional<JDownloadMetricsType> inMetrics,
+    final HttpClient inClient,
+    final JDownloadExchanges inExchanges,
+    final Optional<Path> inFile)
+  {
+    this.target =
+      Objects.requireNonNull(inTarget, "target");
+    this.checksum =
+      Objects.requireNonNull(inChecksum, "checksum");
+    this.checksumsAdditional =
+      List.copyOf(inChecksumsAdditional);
+    this.checksumRequestModifier =
+      Objects.requireNonNull(
+        inChecksumRequestModifier,
+        "checksumRequestModifier");
+    this.metrics =
+      Objects.requireNonNull(inMetrics, "metrics");
+    this.client =
+      Objects.requireNonNull(inClient, "client");
+    this.exchanges =
+      Objects.requireNonNull(inExchanges, "exchanges");
+    this.file =
+      Objects.requireNonNull(inFile, "file");
+    this.checksumFile =
+      Optional.empty();
+  }
+
+  /**
+   * @param checksum            The source of the primary checksum
+   * @param checksumsAdditional The additional checksums
+   * @param digestAlgorithms    The algorithms of any other digests
+   *
+   * @return The algorithms of all the digests that a download computes
+   */
+
+  static Set<String> algorithmsFor(
+    final Optional<JDownloadChecksumSource> checksum,
+    final List<JChecksumStatically> checksumsAdditional,
+    final List<String> digestAlgorithms)
+  {
+    final var algorithms = new LinkedHashSet<String>();
+    checksum.map(JDownloadChecksumSource::algorithm)
+      .ifPresent(algorithms::add);
+    for (final var additional : checksumsAdditional) {
+      algorithms.add(additional.algorithm());
+    }
+    algorithms.addAll(digestAlgorithms);
+    return algorithms;
+  }
+
+  /**
+   * @return The algorithm of the primary checksum, if there is one
+   */
+
+  Optional<String> algorithm()
+  {
+    return this.checksum.map(JDownloadChecksumSource::algorithm);
+  }
+
+  /**
+   * @return The expected value of the primary checksum, if it is known
+   */
+
+  Optional<byte[]> expected()
+  {
+    if (this.checksum.isEmpty()) {
+      return Optional.empty();
+    }
+    if (this.checksum.get()
+      instanceof final JDownloadChecksumSource.Statically statically) {
+      return Optional.of(statically.value().checksum());
+    }
+    return Optional.ofNullable(this.checksumExpected);
+  }
+
+  /**
+   * @return The file to which the checksum was saved, if any
+   */
+
+  Optional<Path> checksumFile()
+  {
+    return this.checksumFile;
+  }
+
+  /**
+   * Obtain the expected checksum, if it must be fetched.
+   *
+   * @return An error, if the checksum could not be obtained
+   */
+
+  CompletableFuture<Optional<JDownloadErrorType>> fetch()
+  {
+    final CompletableFuture<Optional<JDownloadErrorType>> future;
+    final URI checksumURI;
+    final var source = this.checksum.orElse(null);
+    if (source instanceof final JDownloadChecksumSource.FromURI fromURI) {
+      checksumURI = fromURI.checksumURI();
+      future = this.fetchFromURI(fromURI);
+    } else if (source
+      instanceof final JDownloadChecksumSource.FromManifest fromManifest) {
+      checksumURI = fromManifest.manifest().manifestURI();
+      future = this.fetchFromManifest(fromManifest.manifest());
+    } else {
+      return CompletableFuture.completedFuture(Optional.empty());
+    }
+
+    final var eventOpt = JDownloadFlightRecorder.beginChecksumFetch();
+    if (eventOpt.isEmpty()) {
+      return future;
+    }
+
+    final var event = eventOpt.get();
+    return future.thenApply(error -> {
+      event.end();
+      if (event.shouldCommit()) {
+        event.uri = this.target.toString();
+        event.checksumURI = checksumURI.toString();
+        event.succeeded = error.isEmpty();
+        event.commit();
+      }
+      return error;
+    });
+  }
+
+  /**
+   * Look up the checksum in a manifest. The manifest is shared with every
+   * other request that uses the same index, so the lookup is not cancelled
+   * along with the other exchanges of the execution; cancelling the
+   * returned future simply abandons it.
+   */
+
+  private CompletableFuture<Optional<JDownloadErrorType>> fetchFromManifest(
+    final JChecksumFromManifest fromManifest)
+  {
+    final var manifestURI = fromManifest.manifestURI();
+    final var index = (JChecksumManifestIndex) fromManifest.index();
+
+    return index.manifestFor(
+      this.client,
+      fromManifest,
+      this.checksumRequestModifier
+    ).handle((manifest, exception) -> {
+      if (exception != null) {
+        return Optional.of(
+          this.exchanges.errorFor(manifestURI, this.file, exception)
+        );
+      }
+
+      if (manifest.status() >= 400) {
+        return Optional.of(
+          new JDownloadErrorHTTP(manifestURI, this.file, manifest.status())
+        );
+      }
+
+      final var found =
+        manifest.find(fromManifest.algorithm(), fromManifest.entry());
+      if (found.isEmpty()) {
+        return Optional.of(
+          new JDownloadErrorChecksumNotFound(
+            this.target,
+            this.file,
+            manifestURI,
+            fromManifest.entry()
+          )
+        );
+      }
+
+      this.checksumExpected = found.get();
+      return Optional.empty();
+    });
+  }
+
+  private CompletableFuture<Optional<JDownloadErrorType>> fetchFromURI(
+    final JDownloadChecksumSource.FromURI fromURI)
+  {
+    final var checksumURI = fromURI.checksumURI();
+    final var saved = fromURI.saved();
+    final var errorFile = saved.map(JChecksumFromURI::outputFileTemp);
+
+    final ChecksumSinkType sink;
+    if (saved.isPresent()) {
+      try {
+        JDownloadExecution.createParentDirectories(
+          saved.get().outputFileTemp(),
+          saved.get().outputFile()
+        );
+      } catch (final IOException e) {
+        return CompletableFuture.completedFuture(
+          Optional.of(new JDownloadErrorIO(checksumURI, errorFile, e))
+        );
+      }
+      sink = new ChecksumSinkFile(saved.get());
+    } else {
+      sink = new ChecksumSinkMemory();
+    }
+
+    final var requestBuilder = HttpRequest.newBuilder(checksumURI);
+    this.checksumRequestModifier.accept(requestBuilder);
+
+    final var future =
+      this.exchanges.send(requestBuilder.build(), info -> {
+        if (info.statusCode() >= 400) {
+          return replacing(Long.valueOf(0L));
+        }
+        return sink.subscriber(
+          info.headers().firstValueAsLong("content-length")
+        );
+      });
+
+    return future.handle((response, exception) -> {
+      if (exception != null) {
+        return Optional.of(
+          this.exchanges.errorFor(checksumURI, errorFile, exception)
+        );
+      }
+
+      final var statusCode = response.statusCode();
+      if (statusCode >= 400) {
+        this.exchanges.saveRetryAfter(response.headers());
+        return Optional.of(
+          new JDownloadErrorHTTP(checksumURI, errorFile, statusCode)
+        );
+      }
+
+      try {
+        this.checksumExpected = parseChecksum(sink.text());
+        this.checksumFile = saved.map(JChecksumFromURI::outputFile);
+        return Optional.empty();
+      } catch (final IOException e) {
+        return Optional.of(new JDownloadErrorIO(checksumURI, errorFile, e));
+      }
+    });
+  }
+
+  /**
+   * Parse a checksum. Checksum files are usually written with a trailing
+   * newline, so surrounding whitespace is ignored.
+   */
+
+  private static byte[] parseChecksum(
+    final String text)
+    throws IOException
+  {
+    try {
+      return HEX_FORMAT.parseHex(text.strip());
+    } catch (final IllegalArgumentException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Compare the digests of the data against the expected checksums.
+   *
+   * @param received  The digests of the data
+   * @param digests   The digest set that computed the digests
+   * @param errorFile The file named in errors, if any
+   *
+   * @return An error, if a checksum does not match
+   */
+
+  Optional<JDownloadErrorType> verify(
+    final Map<String, byte[]> received,
+    final JDownloadDigestSet digests,
+    final Optional<Path> errorFile)
+  {
+    final var eventOpt = JDownloadFlightRecorder.beginVerify();
+    final var error = this.compareAgainst(received, errorFile);
+
+    if (eventOpt.isPresent()) {
+      final var event = eventOpt.get();
+      event.end();
+      if (event.shouldCommit()) {
+        event.uri = this.target.toString();
+        event.algorithms = String.join(",", received.keySet());
+        event.octets = digests.octets();
+        event.hashTime = digests.elapsed().toNanos();
+        event.matched = error.isEmpty();
+        event.commit();
+      }
+    }
+    return error;
+  }
+
+  /**
+   * Report the completion of hashing to the metrics receiver.
+   *
+   * @param digests The digest set
+   */
+
+  void hashCompleted(
+    final JDownloadDigestSet digests)
+  {
+    if (digests.isEmpty()) {
+      return;
+    }
+    this.metrics.ifPresent(m -> {
+      m.onHashCompleted(this.target, digests.octets(), digests.elapsed());
+    });
+  }
+
+  private Optional<JDownloadErrorType> compareAgainst(
+    final Map<String, byte[]> received,
+    final Optional<Path> errorFile)
+  {
+    final var algorithm = this.algorithm();
+    if (algorithm.isPresent()) {
+      final var error =
+        this.checkHash(
+          errorFile,
+          algorithm.get(),
+          this.expected().orElseThrow(),
+          received.get(algorithm.get())
+        );
+      if (error.isPresent()) {
+        return error;
+      }
+    }
+
+    for (final var additional : this.checksumsAdditional) {
+      final var error =
+        this.checkHash(
+          errorFile,
+          additional.algorithm(),
+          additional.checksum(),
+          received.get(additional.algorithm())
+        );
+      if (error.isPresent()) {
+        return error;
+      }
+    }
+    return Optional.empty();
+  }
+
+  private Optional<JDownloadErrorType> checkHash(
+    final Optional<Path> errorFile,
+    final String algorithm,
+    final byte[] expectedHash,
+    final byte[] receivedHash)
+  {
+    if (!Arrays.equals(receivedHash, expectedHash)) {
+      return Optional.of(
+        new JDownloadErrorChecksumMismatch(
+          this.target,
+          errorFile,
+          algorithm,
+          HEX_FORMAT.formatHex(expectedHash),
+          HEX_FORMAT.formatHex(receivedHash)
+        )
+      );
+    }
+
+    return Optional.empty();
+  }
+
+  /**
+   * The place to which a fetched checksum is written.
+   */
+
+  private interface ChecksumSinkType
+  {
+    HttpResponse.BodySubscriber<Long> subscriber(
+      OptionalLong expectedSize);
+
+    String text()
+      throws IOException;
+  }
+
+  /**
+   * A checksum saved to a file. The checksum is written to a temporary
+   * file, and moved into place once it has been received.
+   */
+
+  private static final class ChecksumSinkFile implements ChecksumSinkType
+  {
+    private final JChecksumFromURI saved;
+
+    ChecksumSinkFile(
+      final JChecksumFromURI inSaved)
+    {
+      this.saved = Objects.requireNonNull(inSaved, "saved");
+    }
+
+    @Override
+    public HttpResponse.BodySubscriber<Long> subscriber(
+      final OptionalLong expectedSize)
+    {
+      return new JDownloadFileSubscriber(
+        this.saved.outputFileTemp(),
+        JDownloadExecution.TEMPORARY_OPEN_OPTIONS,
+        new JDownloadDigestSet(List.of()),
+        new JDownloadProgress(expectedSize, this.saved.receiver())
+      );
+    }
+
+    @Override
+    public String text()
+      throws IOException
+    {
+      Files.move(
+        this.saved.outputFileTemp(),
+        this.saved.outputFile(),
+        ATOMIC_MOVE,
+        REPLACE_EXISTING
+      );
+      return Files.readString(this.saved.outputFile());
+    }
+  }
+
+  /**
+   * A checksum held in memory.
+   */
+
+  private static final class ChecksumSinkMemory implements ChecksumSinkType
+  {
+    private JDownloadStreamMemorySubscriber collector;
+
+    ChecksumSinkMemory()
+    {
+
+    }
+
+    @Override
+    public HttpResponse.BodySubscriber<Long> subscriber(
+      final OptionalLong expectedSize)
+    {
+      this.collector =
+        new JDownloadStreamMemorySubscriber(
+          CHECKSUM_SIZE_LIMIT,
+          expectedSize,
+          new JDownloadDigestSet(List.of()),
+          new JDownloadProgress(expectedSize, statistics -> { })
+        );
+      return this.collector;
+    }
+
+    @Override
+    public String text()
+    {
+      return StandardCharsets.UTF_8.decode(this.collector.data()).toString();
+    }
+  }
+}
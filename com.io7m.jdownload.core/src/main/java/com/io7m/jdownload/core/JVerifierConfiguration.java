@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+/**
+ * The configuration for a verifier.
+ *
+ * @param bufferSize    The size in octets of the buffer through which files
+ *                      are read
+ * @param mapLargeFiles {@code true} if large files should be mapped into
+ *                      memory and hashed in place, rather than being read
+ *                      through a buffer
+ */
+
+public record JVerifierConfiguration(
+  int bufferSize,
+  boolean mapLargeFiles)
+{
+  /**
+   * The default buffer size.
+   */
+
+  public static final int DEFAULT_BUFFER_SIZE =
+    JDownloadBuffers.BUFFER_SIZE;
+
+  /**
+   * The configuration for a verifier.
+   *
+   * @param bufferSize    The size in octets of the buffer through which
+   *                      files are read
+   * @param mapLargeFiles {@code true} if large files should be mapped into
+   *                      memory and hashed in place
+   */
+
+  public JVerifierConfiguration
+  {
+    if (bufferSize < 1) {
+      throw new IllegalArgumentException(
+        "Buffer size must be positive (received %d)"
+          .formatted(Integer.valueOf(bufferSize))
+      );
+    }
+  }
+
+  /**
+   * @return The default configuration, which maps large files
+   */
+
+  public static JVerifierConfiguration defaults()
+  {
+    return new JVerifierConfiguration(DEFAULT_BUFFER_SIZE, true);
+  }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A factory for verifiers.
+ */
+
+public final class JVerifiers
+{
+  private JVerifiers()
+  {
+
+  }
+
+  /**
+   * Create a new verifier that hashes files on the common fork-join pool.
+   *
+   * @return A new verifier
+   */
+
+  public static JVerifierType create()
+  {
+    return create(ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Create a new verifier that hashes files on the given fork-join pool.
+   *
+   * @param pool The pool
+   *
+   * @return A new verifier
+   */
+
+  public static JVerifierType create(
+    final ForkJoinPool pool)
+  {
+    return create(pool, JVerifierConfiguration.defaults());
+  }
+
+  /**
+   * Create a new verifier that hashes files on the given fork-join pool,
+   * reading files as the given configuration specifies.
+   *
+   * @param pool          The pool
+   * @param configuration The configuration
+   *
+   * @return A new verifier
+   */
+
+  public static JVerifierType create(
+    final ForkJoinPool pool,
+    final JVerifierConfiguration configuration)
+  {
+    return new JVerifier(
+      pool,
+      Optional.empty(),
+      Objects.requireNonNull(configuration, "configuration")
+    );
+  }
+
+  /**
+   * Create a new verifier that hashes files on the given fork-join pool,
+   * and that consults and updates the given digest index. Files that the
+   * index records as unchanged since they were last hashed are not read
+   * at all. The caller is responsible for saving the index.
+   *
+   * @param pool  The pool
+   * @param index The digest index
+   *
+   * @return A new verifier
+   */
+
+  public static JVerifierType create(
+    final ForkJoinPool pool,
+    final JDownloadDigestIndexType index)
+  {
+    return new JVerifier(
+      pool,
+      Optional.of(Objects.requireNonNull(index, "index")),
+      JVerifierConfiguration.defaults()
+    );
+  }
+
+  private static final class JVerifier implements JVerifierType
+  {
+    private final ForkJoinPool pool;
+    private final Optional<JDownloadDigestIndexType> index;
+    private final JVerifierConfiguration configuration;
+
+    JVerifier(
+      final ForkJoinPool inPool,
+      final Optional<JDownloadDigestIndexType> inIndex,
+      final JVerifierConfiguration inConfiguration)
+    {
+      this.pool = Objects.requireNonNull(inPool, "pool");
+      this.index = Objects.requireNonNull(inIndex, "index");
+      this.configuration =
+        Objects.requireNonNull(inConfiguration, "configuration");
+    }
+
+    @Override
+    public List<JVerifyResultType> verify(
+      final List<JVerifyRequest> requests)
+      throws InterruptedException
+    {
+      final var copy =
+        List.copyOf(Objects.requireNonNull(requests, "requests"));
+      final var results =
+        new JVerifyResultType[copy.size()];
+
+      final var task =
+        this.pool.submit(
+          new VerifyRange(
+            this.index,
+            this.configuration,
+            copy,
+            results,
+            0,
+            copy.size()
+          )
+        );
+
+      try {
+        task.get();
+      } catch (final InterruptedException e) {
+        task.cancel(true);
+        throw e;
+      } catch (final ExecutionException e) {
+        throw new IllegalStateException(e.getCause());
+      } catch (final CancellationException e) {
+        throw new InterruptedException();
+      }
+      return List.of(results);
+    }
+  }
+
+  private static final class VerifyRange extends RecursiveAction
+  {
+    private static final long serialVersionUID = 1L;
+
+    private final transient Optional<JDownloadDigestIndexType> index;
+    private final transient JVerifierConfiguration configuration;
+    private final transient List<JVerifyRequest> requests;
+    private final transient JVerifyResultType[] results;
+    private final int start;
+    private final int end;
+
+    VerifyRange(
+      final Optional<JDownloadDigestIndexType> inIndex,
+      final JVerifierConfiguration inConfiguration,
+      final List<JVerifyRequest> inRequests,
+      final JVerifyResultType[] inResults,
+      final int inStart,
+      final int inEnd)
+    {
+      this.index = inIndex;
+      this.configuration = inConfiguration;
+      this.requests = inRequests;
+      this.results = inResults;
+      this.start = inStart;
+      this.end = inEnd;
+    }
+
+    @Override
+    protected void compute()
+    {
+      if (this.end - this.start == 1) {
+        this.results[this.start] =
+          verifyOne(
+            this.index,
+            this.configuration,
+            this.requests.get(this.start)
+          );
+        return;
+      }
+      if (this.end == this.start) {
+        return;
+      }
+
+      final var middle = (this.start + this.end) >>> 1;
+      invokeAll(
+        new VerifyRange(
+          this.index,
+          this.configuration,
+          this.requests,
+          this.results,
+          this.start,
+          middle),
+        new VerifyRange(
+          this.index,
+          this.configuration,
+          this.requests,
+          this.results,
+          middle,
+          this.end)
+      );
+    }
+  }
+
+  private static JVerifyResultType verifyOne(
+    final Optional<JDownloadDigestIndexType> index,
+    final JVerifierConfiguration configuration,
+    final JVerifyRequest request)
+  {
+    final byte[] received;
+    try {
+      if (index.isPresent()) {
+        received = index.get().digestOf(request.file(), request.algorithm());
+      } else {
+        final var digests =
+          new JDownloadDigestSet(List.of(request.algorithm()));
+        if (configuration.mapLargeFiles()) {
+          JDownloadDigests.updateFromFileMapped(digests, request.file());
+        } else {
+          JDownloadDigests.updateFromFile(
+            digests,
+            request.file(),
+            configuration.bufferSize()
+          );
+        }
+        received = digests.digest().get(request.algorithm());
+      }
+    } catch (final IOException e) {
+      return new JVerifyErrorIO(request.file(), e);
+    }
+
+    final var format = HexFormat.of();
+    final var expected = request.checksum();
+    if (!Arrays.equals(received, expected)) {
+      return new JVerifyErrorChecksumMismatch(
+        request.file(),
+        request.algorithm(),
+        format.formatHex(expected),
+        format.formatHex(received)
+      );
+    }
+    return new JVerifySucceeded(
+      request.file(),
+      request.algorithm(),
+      format.formatHex(received)
+    );
+  }
+}
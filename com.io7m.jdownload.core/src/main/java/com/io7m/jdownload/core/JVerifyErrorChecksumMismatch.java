@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * The file failed a checksum check.
+ *
+ * @param file         The file
+ * @param algorithm    The checksum algorithm (such as "SHA-256")
+ * @param hashExpected The expected hash value
+ * @param hashReceived The received hash value
+ */
+
+public record JVerifyErrorChecksumMismatch(
+  Path file,
+  String algorithm,
+  String hashExpected,
+  String hashReceived)
+  implements JVerifyErrorType
+{
+  /**
+   * The file failed a checksum check.
+   *
+   * @param file         The file
+   * @param algorithm    The checksum algorithm (such as "SHA-256")
+   * @param hashExpected The expected hash value
+   * @param hashReceived The received hash value
+   */
+
+  public JVerifyErrorChecksumMismatch
+  {
+    Objects.requireNonNull(file, "file");
+    Objects.requireNonNull(algorithm, "algorithm");
+    Objects.requireNonNull(hashExpected, "hashExpected");
+    Objects.requireNonNull(hashReceived, "hashReceived");
+  }
+}
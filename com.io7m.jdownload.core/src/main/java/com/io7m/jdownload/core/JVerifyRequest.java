@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+
+/**
+ * A request to verify an existing file against a static checksum.
+ *
+ * @param file      The file
+ * @param algorithm The checksum algorithm (such as "SHA-256")
+ * @param checksum  The checksum
+ */
+
+public record JVerifyRequest(
+  Path file,
+  String algorithm,
+  byte[] checksum)
+{
+  /**
+   * A request to verify an existing file against a static checksum.
+   *
+   * @param file      The file
+   * @param algorithm The checksum algorithm (such as "SHA-256")
+   * @param checksum  The checksum
+   */
+
+  public JVerifyRequest
+  {
+    Objects.requireNonNull(file, "file");
+    Objects.requireNonNull(algorithm, "algorithm");
+    Objects.requireNonNull(checksum, "checksum");
+    checksum = checksum.clone();
+
+    try {
+      MessageDigest.getInstance(algorithm);
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
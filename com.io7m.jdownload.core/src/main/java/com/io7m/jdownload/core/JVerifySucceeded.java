@@ -0,0 +1,51 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.core;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * The file matched the expected checksum.
+ *
+ * @param file      The file
+ * @param algorithm The checksum algorithm (such as "SHA-256")
+ * @param hash      The hash value
+ */
+
+public record JVerifySucceeded(
+  Path file,
+  String algorithm,
+  String hash)
+  implements JVerifyResultType
+{
+  /**
+   * The file matched the expected checksum.
+   *
+   * @param file      The file
+   * @param algorithm The checksum algorithm (such as "SHA-256")
+   * @param hash      The hash value
+   */
+
+  public JVerifySucceeded
+  {
+    Objects.requireNonNull(file, "file");
+    Objects.requireNonNull(algorithm, "algorithm");
+    Objects.requireNonNull(hash, "hash");
+  }
+}
@@ -24,6 +24,8 @@ module com.io7m.jdownload.core
   requires static org.osgi.annotation.versioning;
 
   requires java.net.http;
+  requires java.xml;
+  requires static jdk.jfr;
   requires com.io7m.streamtime.core;
 
   exports com.io7m.jdownload.core;
@@ -0,0 +1,312 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.tests;
+
+import com.io7m.jdownload.core.JDownloadRequestBuilderType;
+import com.io7m.jdownload.core.JDownloadRequests;
+import com.io7m.jdownload.core.JDownloadSucceeded;
+import com.io7m.jdownload.core.JVerifiers;
+import com.io7m.jdownload.core.JVerifyRequest;
+import com.io7m.jdownload.core.JVerifySucceeded;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.UnaryOperator;
+
+import static com.io7m.jdownload.tests.JDownloadResumeTest.data;
+import static com.io7m.jdownload.tests.JDownloadResumeTest.sha256;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Allocation regression tests for the transfer and verification paths.
+ * These measure the number of octets allocated on the heap per megabyte
+ * transferred or verified, counting only the threads that do the work: the
+ * test thread, the threads of the HTTP client, and the verifier's pool. The
+ * threads of the test server are not counted. The HTTP client allocates its
+ * own buffers, so the limits for downloads cannot be close to zero; they
+ * exist to catch changes that introduce extra copies of the data into the
+ * hot path.
+ */
+
+public final class JDownloadAllocationTest
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(JDownloadAllocationTest.class);
+
+  private static final int SIZE = 16 * 1024 * 1024;
+  private static final int WARMUP = 3;
+  private static final int ITERATIONS = 5;
+  private static final double MEGABYTE = 1024.0 * 1024.0;
+
+  /*
+   * The JDK HTTP client allocates a fresh buffer for roughly every octet it
+   * receives, so a transfer costs a little over one megabyte of allocation
+   * per megabyte transferred. Any additional copy of the data would push
+   * the rate above two megabytes.
+   */
+
+  private static final double LIMIT = 1.75 * MEGABYTE;
+
+  /*
+   * Verification reads the file through a mapping, so hashing a file
+   * allocates almost nothing, however large the file.
+   */
+
+  private static final double LIMIT_VERIFY = 0.01 * MEGABYTE;
+
+  private static final String VERIFY_THREAD_PREFIX =
+    "jdownload-allocation-verify-";
+
+  private JDownloadTestServer server;
+  private HttpClient client;
+  private com.sun.management.ThreadMXBean threads;
+  private byte[] data;
+  private byte[] hash;
+
+  @BeforeEach
+  public void setup()
+    throws Exception
+  {
+    this.server = JDownloadTestServer.create();
+    this.client = HttpClient.newHttpClient();
+    this.data = data(SIZE);
+    this.hash = sha256(this.data);
+    this.server.addFile("/file", this.data, "\"v1\"");
+
+    this.threads =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    assertTrue(this.threads.isThreadAllocatedMemorySupported());
+    this.threads.setThreadAllocatedMemoryEnabled(true);
+  }
+
+  @AfterEach
+  public void tearDown()
+  {
+    this.server.close();
+  }
+
+  /**
+   * Plain downloads allocate little more than the HTTP client itself does.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testAllocationPlain(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var rate =
+      this.allocationRate(directory, UnaryOperator.identity());
+
+    LOG.info("plain: {} octets allocated per MB", Math.round(rate));
+    assertTrue(
+      rate < LIMIT,
+      "Allocation rate %f must be below the limit".formatted(rate)
+    );
+  }
+
+  /**
+   * Segmented downloads hash the completed file after the transfer, and
+   * that hashing must not allocate in proportion to the file size.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testAllocationSegmented(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var rate =
+      this.allocationRate(
+        directory,
+        b -> b.setSegmentedDownloads(4, 1024L * 1024L)
+      );
+
+    LOG.info("segmented: {} octets allocated per MB", Math.round(rate));
+    assertTrue(
+      rate < LIMIT,
+      "Allocation rate %f must be below the limit".formatted(rate)
+    );
+  }
+
+  /**
+   * Verifying a file allocates almost nothing.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testAllocationVerify(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var file = Files.write(directory.resolve("file.bin"), this.data);
+    final var requests =
+      List.of(new JVerifyRequest(file, "SHA-256", this.hash));
+
+    final var pool =
+      new ForkJoinPool(
+        1,
+        p -> {
+          final var thread =
+            ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+          thread.setName(VERIFY_THREAD_PREFIX + thread.getName());
+          return thread;
+        },
+        null,
+        false
+      );
+
+    try {
+      final var verifier = JVerifiers.create(pool);
+      final var rate =
+        this.allocationRate(() -> {
+          assertInstanceOf(
+            JVerifySucceeded.class,
+            verifier.verify(requests).get(0)
+          );
+        });
+
+      LOG.info("verify: {} octets allocated per MB", Math.round(rate));
+      assertTrue(
+        rate < LIMIT_VERIFY,
+        "Allocation rate %f must be below the limit".formatted(rate)
+      );
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private double allocationRate(
+    final Path directory,
+    final UnaryOperator<JDownloadRequestBuilderType> configure)
+    throws Exception
+  {
+    return this.allocationRate(() -> this.download(directory, configure));
+  }
+
+  private double allocationRate(
+    final Operation operation)
+    throws Exception
+  {
+    for (int index = 0; index < WARMUP; ++index) {
+      operation.execute();
+    }
+
+    final var before = this.allocatedByThread();
+    for (int index = 0; index < ITERATIONS; ++index) {
+      operation.execute();
+    }
+    final var after = this.allocatedByThread();
+
+    var allocated = 0L;
+    for (final var entry : after.entrySet()) {
+      allocated +=
+        entry.getValue().longValue()
+          - before.getOrDefault(entry.getKey(), Long.valueOf(0L)).longValue();
+    }
+
+    final var megabytes = ((double) SIZE * ITERATIONS) / MEGABYTE;
+    return (double) allocated / megabytes;
+  }
+
+  /**
+   * @return The octets allocated so far by each thread that takes part in a
+   *         download or a verification
+   */
+
+  private Map<Long, Long> allocatedByThread()
+  {
+    final var current = Thread.currentThread();
+    final var measured =
+      Thread.getAllStackTraces()
+        .keySet()
+        .stream()
+        .filter(t -> t == current
+          || t.getName().startsWith("HttpClient-")
+          || t.getName().startsWith(VERIFY_THREAD_PREFIX))
+        .mapToLong(Thread::threadId)
+        .toArray();
+
+    final var allocated =
+      this.threads.getThreadAllocatedBytes(measured);
+
+    final var result = new HashMap<Long, Long>();
+    for (int index = 0; index < measured.length; ++index) {
+      if (allocated[index] >= 0L) {
+        result.put(
+          Long.valueOf(measured[index]),
+          Long.valueOf(allocated[index])
+        );
+      }
+    }
+    return result;
+  }
+
+  private interface Operation
+  {
+    void execute()
+      throws Exception;
+  }
+
+  private void download(
+    final Path directory,
+    final UnaryOperator<JDownloadRequestBuilderType> configure)
+    throws Exception
+  {
+    final var outputFile =
+      directory.resolve("out.bin");
+    final var outputFileTmp =
+      directory.resolve("out.bin.tmp");
+
+    Files.deleteIfExists(outputFile);
+
+    final var builder =
+      JDownloadRequests.builder(
+          this.client,
+          this.server.uri("/file"),
+          outputFile,
+          outputFileTmp
+        )
+        .setChecksumStatically("SHA-256", this.hash);
+
+    final var result = configure.apply(builder).build().execute();
+    assertInstanceOf(JDownloadSucceeded.class, result);
+  }
+}
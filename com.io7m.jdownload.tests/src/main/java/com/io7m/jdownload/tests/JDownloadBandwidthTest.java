@@ -0,0 +1,212 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.tests;
+
+import com.io7m.jdownload.core.JDownloadBandwidthLimiterType;
+import com.io7m.jdownload.core.JDownloadBandwidthLimiters;
+import com.io7m.jdownload.core.JDownloadRequestType;
+import com.io7m.jdownload.core.JDownloadRequests;
+import com.io7m.jdownload.core.JDownloadResultType;
+import com.io7m.jdownload.core.JDownloadSucceeded;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.io7m.jdownload.tests.JDownloadResumeTest.data;
+import static com.io7m.jdownload.tests.JDownloadResumeTest.sha256;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class JDownloadBandwidthTest
+{
+  private JDownloadTestServer server;
+  private HttpClient client;
+
+  @BeforeEach
+  public void setup()
+    throws IOException
+  {
+    this.server = JDownloadTestServer.create();
+    this.client = HttpClient.newHttpClient();
+  }
+
+  @AfterEach
+  public void tearDown()
+  {
+    this.server.close();
+  }
+
+  private JDownloadRequestType request(
+    final Path directory,
+    final String name,
+    final byte[] data,
+    final JDownloadBandwidthLimiterType limiter)
+    throws Exception
+  {
+    return JDownloadRequests.builder(
+        this.client,
+        this.server.uri("/" + name),
+        directory.resolve(name),
+        directory.resolve(name + ".tmp")
+      )
+      .setChecksumStatically("SHA-256", sha256(data))
+      .addBandwidthLimiter(limiter)
+      .build();
+  }
+
+  /**
+   * A download takes at least as long as the limiter requires.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testLimited(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(300_000);
+    this.server.addFile("/file", data, "\"v1\"");
+
+    final var limiter =
+      JDownloadBandwidthLimiters.create(1_000_000L, 50_000L);
+
+    final var timeThen = System.nanoTime();
+    final var result =
+      this.request(directory, "file", data, limiter)
+        .execute();
+    final var elapsed = System.nanoTime() - timeThen;
+
+    assertInstanceOf(JDownloadSucceeded.class, result);
+    assertArrayEquals(data, Files.readAllBytes(directory.resolve("file")));
+    assertTrue(
+      elapsed >= TimeUnit.MILLISECONDS.toNanos(200L),
+      "Elapsed %d ms".formatted(Long.valueOf(elapsed / 1_000_000L))
+    );
+  }
+
+  /**
+   * A limiter shared by several requests limits their combined rate.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testShared(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var limiter =
+      JDownloadBandwidthLimiters.create(1_000_000L, 50_000L);
+
+    final var futures =
+      new ArrayList<CompletableFuture<JDownloadResultType>>();
+
+    final var timeThen = System.nanoTime();
+    for (int index = 0; index < 4; ++index) {
+      final var data = data(100_000 + index);
+      final var name = "file" + index;
+      this.server.addFile("/" + name, data, "\"v1\"");
+      futures.add(
+        this.request(directory, name, data, limiter).executeAsync()
+      );
+    }
+    for (final var future : futures) {
+      assertInstanceOf(JDownloadSucceeded.class, future.get());
+    }
+    final var elapsed = System.nanoTime() - timeThen;
+
+    assertTrue(
+      elapsed >= TimeUnit.MILLISECONDS.toNanos(300L),
+      "Elapsed %d ms".formatted(Long.valueOf(elapsed / 1_000_000L))
+    );
+  }
+
+  /**
+   * Raising the rate of a limiter speeds up a transfer in progress.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testRateChanged(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(2_000_000);
+    this.server.addFile("/file", data, "\"v1\"");
+
+    final var limiter =
+      JDownloadBandwidthLimiters.create(10_000L);
+
+    final var future =
+      this.request(directory, "file", data, limiter)
+        .executeAsync();
+
+    Thread.sleep(300L);
+    assertTrue(!future.isDone());
+
+    limiter.setRate(1_000_000_000L);
+    assertEquals(1_000_000_000L, limiter.rate());
+    assertInstanceOf(
+      JDownloadSucceeded.class,
+      future.get(10L, TimeUnit.SECONDS)
+    );
+  }
+
+  /**
+   * Invalid rates are rejected.
+   */
+
+  @Test
+  public void testInvalid()
+  {
+    assertThrows(IllegalArgumentException.class, () -> {
+      JDownloadBandwidthLimiters.create(0L);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      JDownloadBandwidthLimiters.create(1L, 0L);
+    });
+
+    final var limiter = JDownloadBandwidthLimiters.create(1L);
+    assertThrows(IllegalArgumentException.class, () -> {
+      limiter.setRate(-1L);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      limiter.setBurst(0L);
+    });
+  }
+}
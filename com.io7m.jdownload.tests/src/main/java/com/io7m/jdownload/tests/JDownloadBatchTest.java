@@ -0,0 +1,409 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.tests;
+
+import com.io7m.jdownload.core.JChecksumNone;
+import com.io7m.jdownload.core.JChecksumStrategyType;
+import com.io7m.jdownload.core.JDownloadBatchConfiguration;
+import com.io7m.jdownload.core.JDownloadBatchExecutors;
+import com.io7m.jdownload.core.JDownloadBatchResult;
+import com.io7m.jdownload.core.JDownloadRequestType;
+import com.io7m.jdownload.core.JDownloadRequests;
+import com.io7m.jdownload.core.JDownloadResultType;
+import com.io7m.jdownload.core.JDownloadSucceeded;
+import com.io7m.quixote.core.QWebServerType;
+import com.io7m.quixote.core.QWebServers;
+import com.io7m.streamtime.core.STTransferStatistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class JDownloadBatchTest
+{
+  private QWebServerType server;
+  private HttpClient client;
+
+  @BeforeEach
+  public void setup()
+    throws IOException
+  {
+    this.server = QWebServers.createServer(30102);
+    this.client = HttpClient.newHttpClient();
+  }
+
+  @AfterEach
+  public void tearDown()
+    throws IOException
+  {
+    this.server.close();
+  }
+
+  /**
+   * Every request in a batch produces exactly one result.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testBatchAllResults(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    this.server.addResponse()
+      .withStatus(200)
+      .withFixedText("Hello.")
+      .forPath("/");
+
+    final var requests = new ArrayList<JDownloadRequestType>();
+    for (int index = 0; index < 20; ++index) {
+      requests.add(
+        JDownloadRequests.builder(
+          this.client,
+          this.server.uri(),
+          directory.resolve("out%d.txt".formatted(index)),
+          directory.resolve("out%d.txt.tmp".formatted(index))
+        ).build()
+      );
+    }
+
+    final var executor =
+      JDownloadBatchExecutors.create(new JDownloadBatchConfiguration(4, 2));
+
+    final var results = new ArrayList<JDownloadBatchResult>();
+    executor.execute(requests, results::add);
+
+    assertEquals(20, results.size());
+    assertEquals(
+      new HashSet<>(requests),
+      new HashSet<>(results.stream().map(JDownloadBatchResult::request).toList())
+    );
+
+    for (final var result : results) {
+      final var rt =
+        assertInstanceOf(JDownloadSucceeded.class, result.result());
+      assertEquals("Hello.", Files.readString(rt.outputFile()));
+    }
+  }
+
+  /**
+   * Concurrency limits are respected.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testBatchLimits(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var tracker = new ConcurrencyTracker();
+    final var requests = new ArrayList<JDownloadRequestType>();
+    for (int index = 0; index < 30; ++index) {
+      final var host = "host%d.example.com".formatted(index % 3);
+      requests.add(
+        new SlowRequest(
+          URI.create("http://%s/".formatted(host)),
+          directory.resolve("out%d.txt".formatted(index)),
+          tracker)
+      );
+    }
+
+    final var executor =
+      JDownloadBatchExecutors.create(
+        new JDownloadBatchConfiguration(
+          4,
+          2,
+          Map.of("host0.example.com", 1)
+        )
+      );
+
+    final var results = new ArrayList<JDownloadBatchResult>();
+    executor.execute(requests, results::add);
+
+    assertEquals(30, results.size());
+    assertTrue(tracker.maximum.get() <= 4);
+    assertTrue(tracker.maximumByHost.get("host0.example.com").get() <= 1);
+    assertTrue(tracker.maximumByHost.get("host1.example.com").get() <= 2);
+    assertTrue(tracker.maximumByHost.get("host2.example.com").get() <= 2);
+  }
+
+  /**
+   * A receiver that fails interrupts the downloads that are still running,
+   * rather than waiting for them to finish.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testBatchReceiverFails(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var started = new CountDownLatch(4);
+    final var interrupted = new AtomicInteger();
+    final var requests = new ArrayList<JDownloadRequestType>();
+    requests.add(
+      new SlowRequest(
+        URI.create("http://host0.example.com/"),
+        directory.resolve("out.txt"),
+        new ConcurrencyTracker())
+    );
+    for (int index = 0; index < 4; ++index) {
+      requests.add(
+        new StuckRequest(
+          URI.create("http://host%d.example.com/".formatted(index + 1)),
+          directory.resolve("out%d.txt".formatted(index)),
+          started,
+          interrupted)
+      );
+    }
+
+    final var executor =
+      JDownloadBatchExecutors.create(new JDownloadBatchConfiguration(8, 8));
+
+    final var timeThen = System.nanoTime();
+    assertThrows(IllegalStateException.class, () -> {
+      executor.execute(requests, result -> {
+        try {
+          started.await();
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        throw new IllegalStateException("Receiver failed.");
+      });
+    });
+    final var elapsed = Duration.ofNanos(System.nanoTime() - timeThen);
+
+    assertTrue(
+      elapsed.compareTo(StuckRequest.DURATION) < 0,
+      "Receiver failure took " + elapsed
+    );
+    assertEquals(4, interrupted.get());
+  }
+
+  /**
+   * Invalid limits are rejected.
+   */
+
+  @Test
+  public void testBatchConfigurationInvalid()
+  {
+    assertThrows(IllegalArgumentException.class, () -> {
+      new JDownloadBatchConfiguration(0, 1);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      new JDownloadBatchConfiguration(1, 0);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      new JDownloadBatchConfiguration(1, 1, Map.of("example.com", 0));
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      new JDownloadBatchConfiguration(
+        1,
+        1,
+        Map.of("example.com", 1, "EXAMPLE.com", 2)
+      );
+    });
+  }
+
+  /**
+   * Host names in limits are case-insensitive.
+   */
+
+  @Test
+  public void testBatchConfigurationHostCase()
+  {
+    final var configuration =
+      new JDownloadBatchConfiguration(4, 2, Map.of("Host0.Example.COM", 1));
+
+    assertEquals(
+      1, configuration.maximumConcurrencyForHost("host0.example.com"));
+    assertEquals(
+      1, configuration.maximumConcurrencyForHost("HOST0.example.com"));
+    assertEquals(
+      2, configuration.maximumConcurrencyForHost("host1.example.com"));
+  }
+
+  private static final class ConcurrencyTracker
+  {
+    private final AtomicInteger active =
+      new AtomicInteger();
+    private final AtomicInteger maximum =
+      new AtomicInteger();
+    private final ConcurrentHashMap<String, AtomicInteger> activeByHost =
+      new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicInteger> maximumByHost =
+      new ConcurrentHashMap<>();
+
+    void enter(
+      final String host)
+    {
+      final var a = this.active.incrementAndGet();
+      this.maximum.accumulateAndGet(a, Math::max);
+
+      final var h =
+        this.activeByHost.computeIfAbsent(host, k -> new AtomicInteger())
+          .incrementAndGet();
+      this.maximumByHost.computeIfAbsent(host, k -> new AtomicInteger())
+        .accumulateAndGet(h, Math::max);
+    }
+
+    void leave(
+      final String host)
+    {
+      this.activeByHost.get(host).decrementAndGet();
+      this.active.decrementAndGet();
+    }
+  }
+
+  private record SlowRequest(
+    URI target,
+    Path outputFile,
+    ConcurrencyTracker tracker)
+    implements JDownloadRequestType
+  {
+    @Override
+    public HttpClient httpClient()
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Consumer<STTransferStatistics> statisticsReceiver()
+    {
+      return stats -> {
+
+      };
+    }
+
+    @Override
+    public Path outputFileTemporary()
+    {
+      return this.outputFile;
+    }
+
+    @Override
+    public JChecksumStrategyType checksumStrategy()
+    {
+      return JChecksumNone.NO_CHECKSUM;
+    }
+
+    @Override
+    public JDownloadResultType execute()
+      throws InterruptedException
+    {
+      this.tracker.enter(this.target.getHost());
+      try {
+        Thread.sleep(10L);
+      } finally {
+        this.tracker.leave(this.target.getHost());
+      }
+      return new JDownloadSucceeded(this.outputFile, Optional.empty());
+    }
+
+    @Override
+    public CompletableFuture<JDownloadResultType> executeAsync()
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private record StuckRequest(
+    URI target,
+    Path outputFile,
+    CountDownLatch started,
+    AtomicInteger interrupted)
+    implements JDownloadRequestType
+  {
+    static final Duration DURATION = Duration.ofSeconds(10L);
+
+    @Override
+    public HttpClient httpClient()
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Consumer<STTransferStatistics> statisticsReceiver()
+    {
+      return stats -> {
+
+      };
+    }
+
+    @Override
+    public Path outputFileTemporary()
+    {
+      return this.outputFile;
+    }
+
+    @Override
+    public JChecksumStrategyType checksumStrategy()
+    {
+      return JChecksumNone.NO_CHECKSUM;
+    }
+
+    @Override
+    public JDownloadResultType execute()
+      throws InterruptedException
+    {
+      this.started.countDown();
+      try {
+        Thread.sleep(DURATION);
+      } catch (final InterruptedException e) {
+        this.interrupted.incrementAndGet();
+        throw e;
+      }
+      return new JDownloadSucceeded(this.outputFile, Optional.empty());
+    }
+
+    @Override
+    public CompletableFuture<JDownloadResultType> executeAsync()
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
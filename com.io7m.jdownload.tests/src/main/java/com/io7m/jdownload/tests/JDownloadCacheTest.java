@@ -0,0 +1,388 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.tests;
+
+import com.io7m.jdownload.core.JDownloadCacheType;
+import com.io7m.jdownload.core.JDownloadCaches;
+import com.io7m.jdownload.core.JDownloadErrorChecksumMismatch;
+import com.io7m.jdownload.core.JDownloadErrorHTTP;
+import com.io7m.jdownload.core.JDownloadOrigin;
+import com.io7m.jdownload.core.JDownloadRequests;
+import com.io7m.jdownload.core.JDownloadResultType;
+import com.io7m.jdownload.core.JDownloadSucceeded;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HexFormat;
+
+import static com.io7m.jdownload.tests.JDownloadResumeTest.data;
+import static com.io7m.jdownload.tests.JDownloadResumeTest.sha256;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class JDownloadCacheTest
+{
+  private JDownloadTestServer server;
+  private HttpClient client;
+  private Path directory;
+
+  @BeforeEach
+  public void setup(
+    final @TempDir Path inDirectory)
+    throws IOException
+  {
+    this.server = JDownloadTestServer.create();
+    this.client = HttpClient.newHttpClient();
+    this.directory = inDirectory;
+  }
+
+  @AfterEach
+  public void tearDown()
+  {
+    this.server.close();
+  }
+
+  private JDownloadResultType download(
+    final JDownloadCacheType cache,
+    final String name,
+    final byte[] checksum)
+    throws InterruptedException
+  {
+    return JDownloadRequests.builder(
+        this.client,
+        this.server.uri("/file"),
+        this.directory.resolve(name)
+      )
+      .setChecksumStatically("SHA-256", checksum)
+      .setCache(cache)
+      .build()
+      .execute();
+  }
+
+  /**
+   * Cache entries are stored by algorithm and checksum.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testCacheLayout()
+    throws Exception
+  {
+    final var cache =
+      JDownloadCaches.open(this.directory.resolve("cache"));
+    final var checksum =
+      HexFormat.of().parseHex("abcdef01");
+
+    assertEquals(
+      cache.root().resolve("sha-256").resolve("ab").resolve("cdef01"),
+      cache.fileFor("SHA-256", checksum)
+    );
+  }
+
+  /**
+   * Verified downloads are inserted into the cache, and later downloads of
+   * the same data are served from it.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testCacheMissThenHit()
+    throws Exception
+  {
+    final var data = data(10_000);
+    final var hash = sha256(data);
+    this.server.addFile("/file", data, "\"v1\"");
+
+    final var cache =
+      JDownloadCaches.open(this.directory.resolve("cache"));
+
+    final var r0 =
+      assertInstanceOf(
+        JDownloadSucceeded.class,
+        this.download(cache, "a.bin", hash));
+    assertEquals(JDownloadOrigin.NETWORK, r0.origin());
+    assertArrayEquals(
+      data,
+      Files.readAllBytes(cache.fileFor("SHA-256", hash)));
+
+    final var r1 =
+      assertInstanceOf(
+        JDownloadSucceeded.class,
+        this.download(cache, "b.bin", hash));
+    assertEquals(JDownloadOrigin.CACHE, r1.origin());
+    assertArrayEquals(
+      data,
+      Files.readAllBytes(this.directory.resolve("b.bin")));
+
+    assertEquals(1, this.server.requests().size());
+  }
+
+  /**
+   * Without hard links, output files do not share data with the cache.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testCacheCopies()
+    throws Exception
+  {
+    final var data = data(10_000);
+    final var hash = sha256(data);
+    this.server.addFile("/file", data, "\"v1\"");
+
+    final var cache =
+      JDownloadCaches.open(this.directory.resolve("cache"), false);
+
+    this.download(cache, "a.bin", hash);
+    Files.write(this.directory.resolve("a.bin"), new byte[10_000]);
+
+    final var r =
+      assertInstanceOf(
+        JDownloadSucceeded.class,
+        this.download(cache, "b.bin", hash));
+    assertEquals(JDownloadOrigin.CACHE, r.origin());
+    assertArrayEquals(
+      data,
+      Files.readAllBytes(this.directory.resolve("b.bin")));
+  }
+
+  /**
+   * Downloads that fail verification are not inserted into the cache.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testCacheChecksumMismatch()
+    throws Exception
+  {
+    final var data = data(10_000);
+    final var hash = sha256(data(1));
+    this.server.addFile("/file", data, "\"v1\"");
+
+    final var cache =
+      JDownloadCaches.open(this.directory.resolve("cache"));
+
+    assertInstanceOf(
+      JDownloadErrorChecksumMismatch.class,
+      this.download(cache, "a.bin", hash)
+    );
+    assertFalse(Files.exists(cache.fileFor("SHA-256", hash)));
+
+    assertInstanceOf(
+      JDownloadErrorChecksumMismatch.class,
+      this.download(cache, "a.bin", hash)
+    );
+    assertEquals(2, this.server.requests().size());
+  }
+
+  /**
+   * Downloads without checksums do not use the cache.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testCacheNoChecksum()
+    throws Exception
+  {
+    final var data = data(10_000);
+    this.server.addFile("/file", data, "\"v1\"");
+
+    final var cache =
+      JDownloadCaches.open(this.directory.resolve("cache"));
+
+    final var result =
+      JDownloadRequests.builder(
+          this.client,
+          this.server.uri("/file"),
+          this.directory.resolve("a.bin")
+        )
+        .setCache(cache)
+        .build()
+        .execute();
+
+    assertInstanceOf(JDownloadSucceeded.class, result);
+    try (var files = Files.list(cache.root())) {
+      assertTrue(files.findAny().isEmpty());
+    }
+  }
+
+  /**
+   * A cache entry that no longer matches its checksum is discarded, and
+   * the file is downloaded instead.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testCacheCorruptEntry()
+    throws Exception
+  {
+    final var data = data(10_000);
+    final var hash = sha256(data);
+    this.server.addFile("/file", data, "\"v1\"");
+
+    final var cache =
+      JDownloadCaches.open(this.directory.resolve("cache"));
+
+    this.download(cache, "a.bin", hash);
+    Files.write(cache.fileFor("SHA-256", hash), new byte[10_000]);
+
+    final var r =
+      assertInstanceOf(
+        JDownloadSucceeded.class,
+        this.download(cache, "b.bin", hash));
+    assertEquals(JDownloadOrigin.NETWORK, r.origin());
+    assertArrayEquals(
+      data,
+      Files.readAllBytes(this.directory.resolve("b.bin")));
+    assertArrayEquals(
+      data,
+      Files.readAllBytes(cache.fileFor("SHA-256", hash)));
+    assertEquals(2, this.server.requests().size());
+  }
+
+  /**
+   * A corrupt cache entry never replaces a good output file, even if the
+   * download that follows fails.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testCacheCorruptEntryKeepsOutput()
+    throws Exception
+  {
+    final var data = data(10_000);
+    final var hash = sha256(data);
+    final var file = this.server.addFile("/file", data, "\"v1\"");
+
+    final var cache =
+      JDownloadCaches.open(this.directory.resolve("cache"));
+    final var outputFile =
+      this.directory.resolve("a.bin");
+    final var validators =
+      this.directory.resolve("a.bin.validators");
+
+    final var builder =
+      JDownloadRequests.builder(
+          this.client,
+          this.server.uri("/file"),
+          outputFile,
+          this.directory.resolve("a.bin.tmp")
+        )
+        .setChecksumStatically("SHA-256", hash)
+        .setConditionalRequests(true)
+        .setCache(cache);
+
+    assertInstanceOf(JDownloadSucceeded.class, builder.build().execute());
+    assertTrue(Files.exists(validators));
+
+    Files.write(cache.fileFor("SHA-256", hash), new byte[10_000]);
+    file.setFailures(500, 10, null);
+
+    assertInstanceOf(JDownloadErrorHTTP.class, builder.build().execute());
+    assertArrayEquals(data, Files.readAllBytes(outputFile));
+    assertTrue(Files.exists(validators));
+    assertFalse(Files.exists(this.directory.resolve("a.bin.tmp")));
+    assertFalse(Files.exists(cache.fileFor("SHA-256", hash)));
+  }
+
+  /**
+   * Output files that are also their own temporary files are never
+   * hard-linked to the cache, even if the cache permits hard links.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testCacheNoLinkWhenTemporaryIsOutput()
+    throws Exception
+  {
+    final var data = data(10_000);
+    final var hash = sha256(data);
+    this.server.addFile("/file", data, "\"v1\"");
+
+    final var cache =
+      JDownloadCaches.open(this.directory.resolve("cache"), true);
+
+    this.download(cache, "a.bin", hash);
+    this.download(cache, "b.bin", hash);
+
+    final var entry = cache.fileFor("SHA-256", hash);
+    assertFalse(Files.isSameFile(entry, this.directory.resolve("a.bin")));
+    assertFalse(Files.isSameFile(entry, this.directory.resolve("b.bin")));
+  }
+
+  /**
+   * A file copied out of the cache replaces any validators recorded for
+   * the previous output file.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testCacheRemovesValidators()
+    throws Exception
+  {
+    final var data = data(10_000);
+    final var hash = sha256(data);
+    this.server.addFile("/file", data, "\"v1\"");
+
+    final var cache =
+      JDownloadCaches.open(this.directory.resolve("cache"));
+    final var outputFile =
+      this.directory.resolve("a.bin");
+    final var validators =
+      this.directory.resolve("a.bin.validators");
+
+    this.download(cache, "c.bin", hash);
+
+    final var builder =
+      JDownloadRequests.builder(
+          this.client,
+          this.server.uri("/file"),
+          outputFile
+        )
+        .setChecksumStatically("SHA-256", hash)
+        .setConditionalRequests(true);
+
+    builder.build().execute();
+    assertTrue(Files.exists(validators));
+
+    final var r =
+      assertInstanceOf(
+        JDownloadSucceeded.class,
+        builder.setCache(cache).build().execute());
+    assertEquals(JDownloadOrigin.CACHE, r.origin());
+    assertFalse(Files.exists(validators));
+  }
+}
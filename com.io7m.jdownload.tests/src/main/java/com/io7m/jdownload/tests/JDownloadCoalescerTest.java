@@ -0,0 +1,221 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.tests;
+
+import com.io7m.jdownload.core.JDownloadCoalescerType;
+import com.io7m.jdownload.core.JDownloadCoalescers;
+import com.io7m.jdownload.core.JDownloadRequestType;
+import com.io7m.jdownload.core.JDownloadRequests;
+import com.io7m.jdownload.core.JDownloadResultType;
+import com.io7m.jdownload.core.JDownloadSucceeded;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.io7m.jdownload.tests.JDownloadResumeTest.data;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class JDownloadCoalescerTest
+{
+  private JDownloadTestServer server;
+  private HttpClient client;
+  private Path directory;
+  private JDownloadCoalescerType coalescer;
+  private CountDownLatch gate;
+
+  @BeforeEach
+  public void setup(
+    final @TempDir Path inDirectory)
+    throws IOException
+  {
+    this.server = JDownloadTestServer.create();
+    this.client = HttpClient.newHttpClient();
+    this.directory = inDirectory;
+    this.coalescer = JDownloadCoalescers.create();
+    this.gate = new CountDownLatch(1);
+  }
+
+  @AfterEach
+  public void tearDown()
+  {
+    this.gate.countDown();
+    this.server.close();
+  }
+
+  private JDownloadRequestType request(
+    final String name)
+  {
+    return JDownloadRequests.builder(
+        this.client,
+        this.server.uri("/file"),
+        this.directory.resolve(name)
+      )
+      .setCoalescer(this.coalescer)
+      .build();
+  }
+
+  private void awaitRequests(
+    final int count)
+    throws InterruptedException
+  {
+    final var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+    while (this.server.requests().size() < count) {
+      if (System.nanoTime() > deadline) {
+        throw new IllegalStateException("Timed out waiting for requests");
+      }
+      Thread.sleep(10L);
+    }
+  }
+
+  /**
+   * Identical requests share a single download.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testCoalesced()
+    throws Exception
+  {
+    final var data = data(10_000);
+    this.server.addFile("/file", data, "\"v1\"")
+      .setGate(this.gate);
+
+    final var futures =
+      new ArrayList<CompletableFuture<JDownloadResultType>>();
+    for (int index = 0; index < 10; ++index) {
+      futures.add(this.request("out.bin").executeAsync());
+    }
+
+    this.awaitRequests(1);
+    assertEquals(1, this.coalescer.inFlight());
+    this.gate.countDown();
+
+    final var first = futures.get(0).get(10L, TimeUnit.SECONDS);
+    assertInstanceOf(JDownloadSucceeded.class, first);
+    for (final var future : futures) {
+      assertSame(first, future.get(10L, TimeUnit.SECONDS));
+    }
+
+    assertEquals(1, this.server.requests().size());
+    assertEquals(0, this.coalescer.inFlight());
+    assertArrayEquals(
+      data,
+      Files.readAllBytes(this.directory.resolve("out.bin")));
+  }
+
+  /**
+   * Requests with different output files are not coalesced.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testNotCoalescedDifferentOutput()
+    throws Exception
+  {
+    final var data = data(10_000);
+    this.server.addFile("/file", data, "\"v1\"")
+      .setGate(this.gate);
+
+    final var f0 = this.request("a.bin").executeAsync();
+    final var f1 = this.request("b.bin").executeAsync();
+
+    this.awaitRequests(2);
+    assertEquals(2, this.coalescer.inFlight());
+    this.gate.countDown();
+
+    assertInstanceOf(
+      JDownloadSucceeded.class, f0.get(10L, TimeUnit.SECONDS));
+    assertInstanceOf(
+      JDownloadSucceeded.class, f1.get(10L, TimeUnit.SECONDS));
+  }
+
+  /**
+   * Cancelling one waiting execution does not cancel the shared download.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testCancelOne()
+    throws Exception
+  {
+    final var data = data(10_000);
+    this.server.addFile("/file", data, "\"v1\"")
+      .setGate(this.gate);
+
+    final var f0 = this.request("out.bin").executeAsync();
+    final var f1 = this.request("out.bin").executeAsync();
+
+    this.awaitRequests(1);
+    f0.cancel(true);
+    this.gate.countDown();
+
+    assertThrows(CancellationException.class, f0::join);
+    assertInstanceOf(
+      JDownloadSucceeded.class, f1.get(10L, TimeUnit.SECONDS));
+    assertEquals(1, this.server.requests().size());
+  }
+
+  /**
+   * Cancelling every waiting execution cancels the shared download, and
+   * later requests start a new one.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testCancelAll()
+    throws Exception
+  {
+    final var data = data(10_000);
+    final var file =
+      this.server.addFile("/file", data, "\"v1\"")
+        .setGate(this.gate);
+
+    final var f0 = this.request("out.bin").executeAsync();
+    final var f1 = this.request("out.bin").executeAsync();
+
+    this.awaitRequests(1);
+    f0.cancel(true);
+    f1.cancel(true);
+    assertEquals(0, this.coalescer.inFlight());
+
+    file.setGate(new CountDownLatch(0));
+    final var f2 = this.request("out.bin").executeAsync();
+    assertInstanceOf(
+      JDownloadSucceeded.class, f2.get(10L, TimeUnit.SECONDS));
+    assertEquals(2, this.server.requests().size());
+  }
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.tests;
+
+import com.io7m.jdownload.core.JDownloadErrorChecksumMismatch;
+import com.io7m.jdownload.core.JDownloadOrigin;
+import com.io7m.jdownload.core.JDownloadRequestBuilderType;
+import com.io7m.jdownload.core.JDownloadRequests;
+import com.io7m.jdownload.core.JDownloadResultType;
+import com.io7m.jdownload.core.JDownloadSucceeded;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HexFormat;
+import java.util.function.Consumer;
+
+import static com.io7m.jdownload.tests.JDownloadResumeTest.data;
+import static com.io7m.jdownload.tests.JDownloadResumeTest.sha256;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class JDownloadConditionalTest
+{
+  private JDownloadTestServer server;
+  private HttpClient client;
+  private Path outputFile;
+
+  @BeforeEach
+  public void setup(
+    final @TempDir Path directory)
+    throws IOException
+  {
+    this.server = JDownloadTestServer.create();
+    this.client = HttpClient.newHttpClient();
+    this.outputFile = directory.resolve("out.bin");
+  }
+
+  @AfterEach
+  public void tearDown()
+  {
+    this.server.close();
+  }
+
+  private JDownloadResultType download(
+    final Consumer<JDownloadRequestBuilderType> configure)
+    throws InterruptedException
+  {
+    final var builder =
+      JDownloadRequests.builder(
+        this.client,
+        this.server.uri("/file"),
+        this.outputFile
+      );
+
+    builder.setConditionalRequests(true);
+    configure.accept(builder);
+    return builder.build().execute();
+  }
+
+  private static JDownloadOrigin originOf(
+    final JDownloadResultType result)
+  {
+    return assertInstanceOf(JDownloadSucceeded.class, result).origin();
+  }
+
+  /**
+   * An unchanged file is not downloaded again.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testConditionalNotModified()
+    throws Exception
+  {
+    final var data = data(10_000);
+    final var hash = sha256(data);
+    this.server.addFile("/file", data, "\"v1\"");
+
+    final Consumer<JDownloadRequestBuilderType> configure =
+      b -> b.setChecksumStatically("SHA-256", hash);
+
+    assertEquals(JDownloadOrigin.NETWORK, originOf(this.download(configure)));
+    final var modified = Files.getLastModifiedTime(this.outputFile);
+
+    assertEquals(
+      JDownloadOrigin.NOT_MODIFIED,
+      originOf(this.download(configure))
+    );
+    assertArrayEquals(data, Files.readAllBytes(this.outputFile));
+    assertEquals(modified, Files.getLastModifiedTime(this.outputFile));
+
+    final var requests = this.server.requests();
+    assertEquals(2, requests.size());
+    assertFalse(requests.get(0).headers().containsKey("if-none-match"));
+    assertEquals("\"v1\"", requests.get(1).headers().get("if-none-match"));
+    assertEquals(
+      "Thu, 01 Jan 2026 00:00:00 GMT",
+      requests.get(1).headers().get("if-modified-since")
+    );
+  }
+
+  /**
+   * A changed file is downloaded again.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testConditionalModified()
+    throws Exception
+  {
+    final var data0 = data(10_000);
+    final var data1 = data(20_000);
+    final var file = this.server.addFile("/file", data0, "\"v1\"");
+
+    assertEquals(JDownloadOrigin.NETWORK, originOf(this.download(b -> {
+    })));
+
+    file.setData(data1, "\"v2\"");
+    assertEquals(JDownloadOrigin.NETWORK, originOf(this.download(b -> {
+    })));
+    assertArrayEquals(data1, Files.readAllBytes(this.outputFile));
+
+    assertEquals(JDownloadOrigin.NOT_MODIFIED, originOf(this.download(b -> {
+    })));
+  }
+
+  /**
+   * Validators are ignored if the output file has been modified locally.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testConditionalLocalFileChanged()
+    throws Exception
+  {
+    final var data = data(10_000);
+    this.server.addFile("/file", data, "\"v1\"");
+
+    this.download(b -> {
+    });
+    Files.write(this.outputFile, new byte[3]);
+
+    assertEquals(JDownloadOrigin.NETWORK, originOf(this.download(b -> {
+    })));
+    assertArrayEquals(data, Files.readAllBytes(this.outputFile));
+    assertFalse(
+      this.server.requests().get(1).headers().containsKey("if-none-match")
+    );
+  }
+
+  /**
+   * Validators are ignored if the expected checksum has changed.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testConditionalChecksumChanged()
+    throws Exception
+  {
+    final var data = data(10_000);
+    final var hash0 = sha256(data);
+    final var hash1 = sha256(data(1));
+    this.server.addFile("/file", data, "\"v1\"");
+
+    this.download(b -> b.setChecksumStatically("SHA-256", hash0));
+
+    final var result =
+      this.download(b -> b.setChecksumStatically("SHA-256", hash1));
+
+    assertInstanceOf(JDownloadErrorChecksumMismatch.class, result);
+    assertFalse(
+      this.server.requests().get(1).headers().containsKey("if-none-match")
+    );
+  }
+
+  /**
+   * A server claiming that a file is unchanged is not trusted if the
+   * checksum fetched from the server has changed.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testConditionalChecksumURIChanged(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(10_000);
+    this.server.addFile("/file", data, "\"v1\"");
+
+    final var checksumFile =
+      this.server.addFile("/file.sha256", hexOf(sha256(data)), "\"c1\"");
+
+    final Consumer<JDownloadRequestBuilderType> configure =
+      b -> b.setChecksumFromURL(
+        this.server.uri("/file.sha256"),
+        "SHA-256",
+        directory.resolve("out.sha256"),
+        s -> {
+        }
+      );
+
+    assertEquals(JDownloadOrigin.NETWORK, originOf(this.download(configure)));
+    assertEquals(
+      JDownloadOrigin.NOT_MODIFIED,
+      originOf(this.download(configure))
+    );
+
+    checksumFile.setData(hexOf(sha256(data(1))), "\"c2\"");
+    final var result = this.download(configure);
+    assertInstanceOf(JDownloadErrorChecksumMismatch.class, result);
+
+    final var unconditional =
+      this.server.requests()
+        .stream()
+        .filter(r -> "/file".equals(r.path()))
+        .filter(r -> !r.headers().containsKey("if-none-match"))
+        .count();
+
+    assertEquals(2L, unconditional);
+  }
+
+  /**
+   * The probe request of a segmented download is conditional.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testConditionalSegmented()
+    throws Exception
+  {
+    final var data = data(100_000);
+    this.server.addFile("/file", data, "\"v1\"");
+
+    final Consumer<JDownloadRequestBuilderType> configure =
+      b -> b.setSegmentedDownloads(4, 1000L);
+
+    assertEquals(JDownloadOrigin.NETWORK, originOf(this.download(configure)));
+    final var before = this.server.requests().size();
+
+    assertEquals(
+      JDownloadOrigin.NOT_MODIFIED,
+      originOf(this.download(configure))
+    );
+
+    final var requests = this.server.requests();
+    assertEquals(before + 1, requests.size());
+    assertEquals("HEAD", requests.get(before).method());
+  }
+
+  /**
+   * No validators are recorded unless conditional requests are enabled.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testConditionalDisabled()
+    throws Exception
+  {
+    final var data = data(10_000);
+    this.server.addFile("/file", data, "\"v1\"");
+
+    this.download(b -> b.setConditionalRequests(false));
+    this.download(b -> b.setConditionalRequests(false));
+
+    final var validators =
+      this.outputFile.resolveSibling("out.bin.validators");
+
+    assertFalse(Files.exists(validators));
+    assertFalse(
+      this.server.requests().get(1).headers().containsKey("if-none-match")
+    );
+
+    this.download(b -> {
+    });
+    assertTrue(Files.exists(validators));
+  }
+
+  private static byte[] hexOf(
+    final byte[] data)
+  {
+    return HexFormat.of()
+      .formatHex(data)
+      .getBytes(StandardCharsets.US_ASCII);
+  }
+}
@@ -0,0 +1,417 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.tests;
+
+import com.io7m.jdownload.core.JDownloadBlockIndexes;
+import com.io7m.jdownload.core.JDownloadOrigin;
+import com.io7m.jdownload.core.JDownloadRequestBuilderType;
+import com.io7m.jdownload.core.JDownloadRequests;
+import com.io7m.jdownload.core.JDownloadSucceeded;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Pattern;
+
+import static com.io7m.jdownload.tests.JDownloadResumeTest.data;
+import static com.io7m.jdownload.tests.JDownloadResumeTest.sha256;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class JDownloadDeltaTest
+{
+  private static final Pattern RANGE =
+    Pattern.compile("bytes=([0-9]+)-([0-9]+)");
+
+  private JDownloadTestServer server;
+  private HttpClient client;
+
+  @BeforeEach
+  public void setup()
+    throws IOException
+  {
+    this.server = JDownloadTestServer.create();
+    this.client = HttpClient.newHttpClient();
+  }
+
+  @AfterEach
+  public void tearDown()
+  {
+    this.server.close();
+  }
+
+  /**
+   * Produce a new version of the given data with an insertion, an
+   * overwritten region, and an appended tail.
+   */
+
+  private static byte[] modified(
+    final byte[] data)
+  {
+    final var output = new ByteArrayOutputStream();
+    output.write(data, 0, 50_000);
+    output.writeBytes(data(1_000));
+    output.write(data, 50_000, 150_000);
+    output.writeBytes(data(2_000));
+    output.write(data, 202_000, data.length - 202_000);
+    output.writeBytes(data(777));
+    return output.toByteArray();
+  }
+
+  private byte[] blockIndexOf(
+    final Path directory,
+    final byte[] data)
+    throws IOException
+  {
+    final var file = Files.write(directory.resolve("index-source"), data);
+    final var output = new ByteArrayOutputStream();
+    JDownloadBlockIndexes.write(file, 4096, output);
+    return output.toByteArray();
+  }
+
+  private JDownloadRequestBuilderType builder(
+    final Path outputFile,
+    final byte[] data)
+    throws Exception
+  {
+    return JDownloadRequests.builder(
+        this.client,
+        this.server.uri("/file"),
+        outputFile,
+        outputFile.resolveSibling("out.bin.tmp")
+      )
+      .setChecksumStatically("SHA-256", sha256(data))
+      .setDeltaFromBlockIndex(this.server.uri("/file.blocks"));
+  }
+
+  private long rangeOctets()
+  {
+    var total = 0L;
+    for (final var request : this.server.requests()) {
+      final var range = request.headers().get("range");
+      if (range != null) {
+        final var matcher = RANGE.matcher(range);
+        assertTrue(matcher.matches());
+        total += Long.parseLong(matcher.group(2))
+                 - Long.parseLong(matcher.group(1)) + 1L;
+      }
+    }
+    return total;
+  }
+
+  /**
+   * Only the changed parts of a file are downloaded.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testDelta(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var dataOld = data(300_000);
+    final var dataNew = modified(dataOld);
+    final var outputFile = Files.write(directory.resolve("out.bin"), dataOld);
+
+    this.server.addFile("/file", dataNew, "\"v2\"");
+    this.server.addFile(
+      "/file.blocks", this.blockIndexOf(directory, dataNew), "\"i2\"");
+
+    final var result =
+      this.builder(outputFile, dataNew)
+        .build()
+        .execute();
+
+    final var succeeded = assertInstanceOf(JDownloadSucceeded.class, result);
+    assertEquals(JDownloadOrigin.DELTA, succeeded.origin());
+    assertArrayEquals(dataNew, Files.readAllBytes(outputFile));
+    assertFalse(Files.exists(directory.resolve("out.bin.tmp")));
+
+    final var octets = this.rangeOctets();
+    assertTrue(octets > 0L);
+    assertTrue(octets < 40_000L, "Received %d octets".formatted(octets));
+
+    for (final var request : this.server.requests()) {
+      if (request.headers().containsKey("range")) {
+        assertEquals("\"v2\"", request.headers().get("if-range"));
+      }
+    }
+  }
+
+  /**
+   * An unchanged file is assembled entirely from the basis.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testDeltaUnchanged(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(100_001);
+    final var outputFile = Files.write(directory.resolve("out.bin"), data);
+
+    this.server.addFile("/file", data, "\"v1\"");
+    this.server.addFile(
+      "/file.blocks", this.blockIndexOf(directory, data), "\"i1\"");
+
+    final var result =
+      this.builder(outputFile, data)
+        .build()
+        .execute();
+
+    final var succeeded = assertInstanceOf(JDownloadSucceeded.class, result);
+    assertEquals(JDownloadOrigin.DELTA, succeeded.origin());
+    assertArrayEquals(data, Files.readAllBytes(outputFile));
+    assertEquals(0L, this.rangeOctets());
+  }
+
+  /**
+   * A separate basis file can be used, and is left untouched.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testDeltaSeparateBasis(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var dataOld = data(300_000);
+    final var dataNew = modified(dataOld);
+    final var basis = Files.write(directory.resolve("basis.bin"), dataOld);
+    final var outputFile = directory.resolve("out.bin");
+
+    this.server.addFile("/file", dataNew, "\"v2\"");
+    this.server.addFile(
+      "/file.blocks", this.blockIndexOf(directory, dataNew), "\"i2\"");
+
+    final var result =
+      this.builder(outputFile, dataNew)
+        .setDeltaFromBlockIndex(this.server.uri("/file.blocks"), basis)
+        .build()
+        .execute();
+
+    final var succeeded = assertInstanceOf(JDownloadSucceeded.class, result);
+    assertEquals(JDownloadOrigin.DELTA, succeeded.origin());
+    assertArrayEquals(dataNew, Files.readAllBytes(outputFile));
+    assertArrayEquals(dataOld, Files.readAllBytes(basis));
+  }
+
+  /**
+   * Without a basis, the file is downloaded in full.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testDeltaNoBasis(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(100_000);
+    final var outputFile = directory.resolve("out.bin");
+
+    this.server.addFile("/file", data, "\"v1\"");
+    this.server.addFile(
+      "/file.blocks", this.blockIndexOf(directory, data), "\"i1\"");
+
+    final var result =
+      this.builder(outputFile, data)
+        .build()
+        .execute();
+
+    final var succeeded = assertInstanceOf(JDownloadSucceeded.class, result);
+    assertEquals(JDownloadOrigin.NETWORK, succeeded.origin());
+    assertArrayEquals(data, Files.readAllBytes(outputFile));
+    assertEquals(1, this.server.requests().size());
+  }
+
+  /**
+   * If the block index cannot be fetched, the file is downloaded in full.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testDeltaIndexMissing(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var dataOld = data(300_000);
+    final var dataNew = modified(dataOld);
+    final var outputFile = Files.write(directory.resolve("out.bin"), dataOld);
+
+    this.server.addFile("/file", dataNew, "\"v2\"");
+
+    final var result =
+      this.builder(outputFile, dataNew)
+        .build()
+        .execute();
+
+    final var succeeded = assertInstanceOf(JDownloadSucceeded.class, result);
+    assertEquals(JDownloadOrigin.NETWORK, succeeded.origin());
+    assertArrayEquals(dataNew, Files.readAllBytes(outputFile));
+    assertEquals(0L, this.rangeOctets());
+  }
+
+  /**
+   * A block index that describes a different version of the file is
+   * ignored, and the file is downloaded in full.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testDeltaIndexStale(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var dataOld = data(300_000);
+    final var dataNew = modified(dataOld);
+    final var outputFile = Files.write(directory.resolve("out.bin"), dataOld);
+
+    this.server.addFile("/file", dataNew, "\"v2\"");
+    this.server.addFile(
+      "/file.blocks", this.blockIndexOf(directory, dataOld), "\"i1\"");
+
+    final var result =
+      this.builder(outputFile, dataNew)
+        .build()
+        .execute();
+
+    final var succeeded = assertInstanceOf(JDownloadSucceeded.class, result);
+    assertEquals(JDownloadOrigin.NETWORK, succeeded.origin());
+    assertArrayEquals(dataNew, Files.readAllBytes(outputFile));
+  }
+
+  /**
+   * Blocks received from the server that do not match the block index are
+   * detected, and the file is downloaded in full, even when no checksum is
+   * configured for the whole file.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testDeltaBlockMismatch(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var dataOld = data(300_000);
+    final var dataNew = modified(dataOld);
+    final var dataServed = dataNew.clone();
+    dataServed[50_100] ^= (byte) 0xff;
+
+    final var outputFile = Files.write(directory.resolve("out.bin"), dataOld);
+
+    this.server.addFile("/file", dataServed, "\"v2\"");
+    this.server.addFile(
+      "/file.blocks", this.blockIndexOf(directory, dataNew), "\"i2\"");
+
+    final var result =
+      JDownloadRequests.builder(
+          this.client,
+          this.server.uri("/file"),
+          outputFile,
+          outputFile.resolveSibling("out.bin.tmp")
+        )
+        .setDeltaFromBlockIndex(this.server.uri("/file.blocks"))
+        .build()
+        .execute();
+
+    final var succeeded = assertInstanceOf(JDownloadSucceeded.class, result);
+    assertEquals(JDownloadOrigin.NETWORK, succeeded.origin());
+    assertArrayEquals(dataServed, Files.readAllBytes(outputFile));
+    assertTrue(this.rangeOctets() > 0L);
+  }
+
+  /**
+   * If the server does not support ranges, the file is downloaded in full.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testDeltaRangesUnsupported(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var dataOld = data(300_000);
+    final var dataNew = modified(dataOld);
+    final var outputFile = Files.write(directory.resolve("out.bin"), dataOld);
+
+    this.server.addFile("/file", dataNew, "\"v2\"")
+      .setRangesSupported(false);
+    this.server.addFile(
+      "/file.blocks", this.blockIndexOf(directory, dataNew), "\"i2\"");
+
+    final var result =
+      this.builder(outputFile, dataNew)
+        .build()
+        .execute();
+
+    final var succeeded = assertInstanceOf(JDownloadSucceeded.class, result);
+    assertEquals(JDownloadOrigin.NETWORK, succeeded.origin());
+    assertArrayEquals(dataNew, Files.readAllBytes(outputFile));
+  }
+
+  /**
+   * Invalid block sizes are rejected.
+   *
+   * @param directory The output directory
+   */
+
+  @Test
+  public void testBlockIndexInvalid(
+    final @TempDir Path directory)
+  {
+    assertThrows(IOException.class, () -> {
+      final var file = Files.write(directory.resolve("x"), data(100));
+      JDownloadBlockIndexes.write(file, 1, new ByteArrayOutputStream());
+    });
+  }
+}
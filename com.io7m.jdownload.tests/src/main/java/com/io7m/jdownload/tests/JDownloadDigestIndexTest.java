@@ -0,0 +1,240 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.tests;
+
+import com.io7m.jdownload.core.JDownloadDigestIndexes;
+import com.io7m.jdownload.core.JVerifiers;
+import com.io7m.jdownload.core.JVerifyErrorChecksumMismatch;
+import com.io7m.jdownload.core.JVerifyRequest;
+import com.io7m.jdownload.core.JVerifySucceeded;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.io7m.jdownload.tests.JDownloadResumeTest.data;
+import static com.io7m.jdownload.tests.JDownloadResumeTest.sha256;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class JDownloadDigestIndexTest
+{
+  private static final FileTime PAST =
+    FileTime.from(Instant.parse("2026-01-01T00:00:00Z"));
+
+  private static Path writeSettled(
+    final Path file,
+    final byte[] data)
+    throws Exception
+  {
+    Files.write(file, data);
+    Files.setLastModifiedTime(file, PAST);
+    return file;
+  }
+
+  /**
+   * Recorded digests survive reopening the index, and are returned without
+   * reading the file.
+   *
+   * @param directory The directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testIndexPersistent(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(100_000);
+    final var file = writeSettled(directory.resolve("file.bin"), data);
+    final var indexFile = directory.resolve("index.bin");
+
+    final var index = JDownloadDigestIndexes.open(indexFile);
+    assertTrue(index.find(file, "SHA-256").isEmpty());
+    assertArrayEquals(sha256(data), index.digestOf(file, "SHA-256"));
+    index.save();
+    assertTrue(Files.isRegularFile(indexFile));
+
+    /*
+     * Overwrite the file in place without changing its size or
+     * modification time. The index cannot notice, which demonstrates that
+     * the file is not read.
+     */
+
+    Files.write(file, new byte[100_000], StandardOpenOption.WRITE);
+    Files.setLastModifiedTime(file, PAST);
+
+    final var reopened = JDownloadDigestIndexes.open(indexFile);
+    assertArrayEquals(
+      sha256(data),
+      reopened.find(file, "SHA-256").orElseThrow()
+    );
+    assertArrayEquals(
+      sha256(data),
+      reopened.find(file, "sha-256").orElseThrow()
+    );
+    assertTrue(reopened.find(file, "SHA-1").isEmpty());
+  }
+
+  /**
+   * Entries are invalidated when the size, modification time, or identity
+   * of the file changes.
+   *
+   * @param directory The directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testIndexInvalidated(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(100_000);
+    final var file = writeSettled(directory.resolve("file.bin"), data);
+    final var index =
+      JDownloadDigestIndexes.open(directory.resolve("index.bin"));
+
+    index.digestOf(file, "SHA-256");
+    assertTrue(index.find(file, "SHA-256").isPresent());
+
+    Files.setLastModifiedTime(
+      file,
+      FileTime.from(PAST.toInstant().plusSeconds(10L))
+    );
+    assertTrue(index.find(file, "SHA-256").isEmpty());
+
+    Files.setLastModifiedTime(file, PAST);
+    index.digestOf(file, "SHA-256");
+    writeSettled(file, data(100_001));
+    assertTrue(index.find(file, "SHA-256").isEmpty());
+
+    writeSettled(file, data);
+    index.digestOf(file, "SHA-256");
+    final var other = writeSettled(directory.resolve("other.bin"), data);
+    Files.move(other, file, REPLACE_EXISTING);
+    Files.setLastModifiedTime(file, PAST);
+    assertTrue(index.find(file, "SHA-256").isEmpty());
+
+    Files.delete(file);
+    assertTrue(index.find(file, "SHA-256").isEmpty());
+  }
+
+  /**
+   * Recently modified files are hashed but not recorded.
+   *
+   * @param directory The directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testIndexRecentNotRecorded(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(1000);
+    final var file = Files.write(directory.resolve("file.bin"), data);
+    final var index =
+      JDownloadDigestIndexes.open(directory.resolve("index.bin"));
+
+    assertArrayEquals(sha256(data), index.digestOf(file, "SHA-256"));
+    assertTrue(index.find(file, "SHA-256").isEmpty());
+    index.save();
+    assertFalse(Files.exists(directory.resolve("index.bin")));
+  }
+
+  /**
+   * A corrupt index file is ignored.
+   *
+   * @param directory The directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testIndexCorrupt(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(1000);
+    final var file = writeSettled(directory.resolve("file.bin"), data);
+    final var indexFile = directory.resolve("index.bin");
+
+    final var index = JDownloadDigestIndexes.open(indexFile);
+    index.digestOf(file, "SHA-256");
+    index.save();
+
+    final var bytes = Files.readAllBytes(indexFile);
+    bytes[bytes.length / 2] ^= 0x55;
+    Files.write(indexFile, bytes);
+    assertTrue(
+      JDownloadDigestIndexes.open(indexFile).find(file, "SHA-256").isEmpty()
+    );
+
+    Files.write(indexFile, new byte[3]);
+    assertTrue(
+      JDownloadDigestIndexes.open(indexFile).find(file, "SHA-256").isEmpty()
+    );
+  }
+
+  /**
+   * A verifier with an index verifies files against the indexed digests.
+   *
+   * @param directory The directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testVerifierIndexed(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(100_000);
+    final var file = writeSettled(directory.resolve("file.bin"), data);
+    final var index =
+      JDownloadDigestIndexes.open(directory.resolve("index.bin"));
+    final var verifier =
+      JVerifiers.create(ForkJoinPool.commonPool(), index);
+
+    final var requests = List.of(
+      new JVerifyRequest(file, "SHA-256", sha256(data)),
+      new JVerifyRequest(file, "SHA-256", sha256(new byte[1]))
+    );
+
+    for (int attempt = 0; attempt < 2; ++attempt) {
+      final var results = verifier.verify(requests);
+      assertEquals(2, results.size());
+      assertInstanceOf(JVerifySucceeded.class, results.get(0));
+      assertInstanceOf(JVerifyErrorChecksumMismatch.class, results.get(1));
+      assertTrue(index.find(file, "SHA-256").isPresent());
+    }
+  }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.tests;
+
+import com.io7m.jdownload.core.JDownloadCaches;
+import com.io7m.jdownload.core.JDownloadErrorChecksumMismatch;
+import com.io7m.jdownload.core.JDownloadOrigin;
+import com.io7m.jdownload.core.JDownloadRequests;
+import com.io7m.jdownload.core.JDownloadSucceeded;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Map;
+
+import static com.io7m.jdownload.tests.JDownloadResumeTest.data;
+import static com.io7m.jdownload.tests.JDownloadResumeTest.sha256;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+public final class JDownloadDigestTest
+{
+  private JDownloadTestServer server;
+  private HttpClient client;
+
+  @BeforeEach
+  public void setup()
+    throws IOException
+  {
+    this.server = JDownloadTestServer.create();
+    this.client = HttpClient.newHttpClient();
+  }
+
+  @AfterEach
+  public void tearDown()
+  {
+    this.server.close();
+  }
+
+  private static String hex(
+    final String algorithm,
+    final byte[] data)
+    throws Exception
+  {
+    return HexFormat.of().formatHex(
+      MessageDigest.getInstance(algorithm).digest(data)
+    );
+  }
+
+  /**
+   * All requested digests are computed and returned.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testDigestsComputed(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(300_007);
+    this.server.addFile("/file", data, "\"v1\"");
+
+    final var outputFile = directory.resolve("out.bin");
+    final var result =
+      JDownloadRequests.builder(
+          this.client,
+          this.server.uri("/file"),
+          outputFile,
+          directory.resolve("out.bin.tmp")
+        )
+        .setChecksumStatically("SHA-256", sha256(data))
+        .addDigest("SHA-512")
+        .addDigest("MD5")
+        .build()
+        .execute();
+
+    final var succeeded =
+      assertInstanceOf(JDownloadSucceeded.class, result);
+    assertArrayEquals(data, Files.readAllBytes(outputFile));
+    assertEquals(
+      Map.of(
+        "SHA-256", hex("SHA-256", data),
+        "SHA-512", hex("SHA-512", data),
+        "MD5", hex("MD5", data)
+      ),
+      succeeded.digests()
+    );
+  }
+
+  /**
+   * Digests are computed for segmented downloads.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testDigestsSegmented(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(1_000_003);
+    this.server.addFile("/file", data, "\"v1\"");
+
+    final var result =
+      JDownloadRequests.builder(
+          this.client,
+          this.server.uri("/file"),
+          directory.resolve("out.bin"),
+          directory.resolve("out.bin.tmp")
+        )
+        .setSegmentedDownloads(4, 1000L)
+        .addDigest("SHA-1")
+        .build()
+        .execute();
+
+    final var succeeded =
+      assertInstanceOf(JDownloadSucceeded.class, result);
+    assertEquals(Map.of("SHA-1", hex("SHA-1", data)), succeeded.digests());
+  }
+
+  /**
+   * Every additional checksum must match.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testAdditionalChecksumMismatch(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(100_000);
+    this.server.addFile("/file", data, "\"v1\"");
+
+    final var outputFile = directory.resolve("out.bin");
+    final var wrong = MessageDigest.getInstance("SHA-512").digest(new byte[1]);
+    final var result =
+      JDownloadRequests.builder(
+          this.client,
+          this.server.uri("/file"),
+          outputFile,
+          directory.resolve("out.bin.tmp")
+        )
+        .setChecksumStatically("SHA-256", sha256(data))
+        .addChecksumStatically(
+          "SHA-1", MessageDigest.getInstance("SHA-1").digest(data))
+        .addChecksumStatically("SHA-512", wrong)
+        .build()
+        .execute();
+
+    final var mismatch =
+      assertInstanceOf(JDownloadErrorChecksumMismatch.class, result);
+    assertEquals("SHA-512", mismatch.algorithm());
+    assertEquals(HexFormat.of().formatHex(wrong), mismatch.hashExpected());
+    assertEquals(hex("SHA-512", data), mismatch.hashReceived());
+    assertFalse(Files.exists(outputFile));
+  }
+
+  /**
+   * Digests are computed for files copied out of the cache.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testDigestsCached(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(100_000);
+    this.server.addFile("/file", data, "\"v1\"");
+
+    final var cache = JDownloadCaches.open(directory.resolve("cache"));
+    for (int index = 0; index < 2; ++index) {
+      Files.deleteIfExists(directory.resolve("out.bin"));
+
+      final var result =
+        JDownloadRequests.builder(
+            this.client,
+            this.server.uri("/file"),
+            directory.resolve("out.bin"),
+            directory.resolve("out.bin.tmp")
+          )
+          .setChecksumStatically("SHA-256", sha256(data))
+          .setCache(cache)
+          .addDigest("SHA-512")
+          .build()
+          .execute();
+
+      final var succeeded =
+        assertInstanceOf(JDownloadSucceeded.class, result);
+      assertEquals(
+        index == 0 ? JDownloadOrigin.NETWORK : JDownloadOrigin.CACHE,
+        succeeded.origin()
+      );
+      assertEquals(
+        Map.of(
+          "SHA-256", hex("SHA-256", data),
+          "SHA-512", hex("SHA-512", data)
+        ),
+        succeeded.digests()
+      );
+    }
+    assertEquals(1, this.server.requests().size());
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.tests;
+
+import com.io7m.jdownload.core.JDownloadRequests;
+import com.io7m.jdownload.core.JDownloadSucceeded;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HexFormat;
+import java.util.List;
+
+import static com.io7m.jdownload.tests.JDownloadResumeTest.data;
+import static com.io7m.jdownload.tests.JDownloadResumeTest.sha256;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class JDownloadFlightRecorderTest
+{
+  private static final List<String> EVENTS = List.of(
+    "com.io7m.jdownload.Request",
+    "com.io7m.jdownload.Headers",
+    "com.io7m.jdownload.Transfer",
+    "com.io7m.jdownload.ChecksumFetch",
+    "com.io7m.jdownload.Verify",
+    "com.io7m.jdownload.Move"
+  );
+
+  private JDownloadTestServer server;
+  private HttpClient client;
+
+  @BeforeEach
+  public void setup()
+    throws IOException
+  {
+    this.server = JDownloadTestServer.create();
+    this.client = HttpClient.newHttpClient();
+  }
+
+  @AfterEach
+  public void tearDown()
+  {
+    this.server.close();
+  }
+
+  private static List<RecordedEvent> eventsNamed(
+    final List<RecordedEvent> events,
+    final String name)
+  {
+    return events.stream()
+      .filter(e -> e.getEventType().getName().equals(name))
+      .toList();
+  }
+
+  /**
+   * Each phase of a download produces a flight recorder event.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testEvents(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(100_000);
+    final var hash = HexFormat.of().formatHex(sha256(data));
+    this.server.addFile("/file", data, "\"v1\"");
+    this.server.addFile(
+      "/file.sha256", hash.getBytes(StandardCharsets.UTF_8), "\"s1\"");
+
+    final var recordingFile = directory.resolve("recording.jfr");
+    try (var recording = new Recording()) {
+      for (final var name : EVENTS) {
+        recording.enable(name).withoutThreshold();
+      }
+      recording.start();
+
+      final var result =
+        JDownloadRequests.builder(
+            this.client,
+            this.server.uri("/file"),
+            directory.resolve("out.bin"),
+            directory.resolve("out.bin.tmp")
+          )
+          .setChecksumFromURL(
+            this.server.uri("/file.sha256"),
+            "SHA-256",
+            directory.resolve("out.bin.sha256"),
+            s -> {
+
+            })
+          .build()
+          .execute();
+
+      assertInstanceOf(JDownloadSucceeded.class, result);
+      recording.stop();
+      recording.dump(recordingFile);
+    }
+
+    final var events = RecordingFile.readAllEvents(recordingFile);
+    for (final var name : EVENTS) {
+      assertTrue(
+        !eventsNamed(events, name).isEmpty(),
+        "Event %s must be recorded".formatted(name)
+      );
+    }
+
+    final var uri = this.server.uri("/file").toString();
+    final var request =
+      eventsNamed(events, "com.io7m.jdownload.Request").get(0);
+    assertEquals(uri, request.getString("uri"));
+    assertEquals("succeeded", request.getString("result"));
+
+    final var transfer =
+      eventsNamed(events, "com.io7m.jdownload.Transfer")
+        .stream()
+        .filter(e -> e.getString("uri").equals(uri))
+        .findFirst()
+        .orElseThrow();
+    assertEquals(100_000L, transfer.getLong("octets"));
+    assertEquals(200, transfer.getInt("status"));
+
+    final var verify =
+      eventsNamed(events, "com.io7m.jdownload.Verify").get(0);
+    assertEquals("SHA-256", verify.getString("algorithms"));
+    assertEquals(100_000L, verify.getLong("octets"));
+    assertTrue(verify.getBoolean("matched"));
+
+    final var checksum =
+      eventsNamed(events, "com.io7m.jdownload.ChecksumFetch").get(0);
+    assertEquals(
+      this.server.uri("/file.sha256").toString(),
+      checksum.getString("checksumURI")
+    );
+    assertTrue(checksum.getBoolean("succeeded"));
+  }
+}
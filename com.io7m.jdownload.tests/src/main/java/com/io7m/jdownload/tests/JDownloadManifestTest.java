@@ -0,0 +1,311 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.tests;
+
+import com.io7m.jdownload.core.JChecksumManifestIndexes;
+import com.io7m.jdownload.core.JDownloadErrorChecksumMismatch;
+import com.io7m.jdownload.core.JDownloadErrorChecksumNotFound;
+import com.io7m.jdownload.core.JDownloadErrorHTTP;
+import com.io7m.jdownload.core.JDownloadRequests;
+import com.io7m.jdownload.core.JDownloadSucceeded;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import static com.io7m.jdownload.tests.JDownloadResumeTest.data;
+import static com.io7m.jdownload.tests.JDownloadResumeTest.sha256;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+public final class JDownloadManifestTest
+{
+  private JDownloadTestServer server;
+  private HttpClient client;
+
+  @BeforeEach
+  public void setup()
+    throws IOException
+  {
+    this.server = JDownloadTestServer.create();
+    this.client = HttpClient.newHttpClient();
+  }
+
+  @AfterEach
+  public void tearDown()
+  {
+    this.server.close();
+  }
+
+  private static String hex(
+    final byte[] data)
+  {
+    return HexFormat.of().formatHex(data);
+  }
+
+  private long manifestRequests()
+  {
+    return this.server.requests()
+      .stream()
+      .filter(r -> r.path().equals("/SUMS"))
+      .count();
+  }
+
+  /**
+   * A GNU manifest is downloaded once and used for every file it covers.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testGNUManifestShared(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var dataA = data(10_000);
+    final var dataB = data(20_000);
+    final var dataC = data(30_000);
+    this.server.addFile("/a.bin", dataA, "\"a\"");
+    this.server.addFile("/b.bin", dataB, "\"b\"");
+    this.server.addFile("/c.bin", dataC, "\"c\"");
+
+    final var manifest =
+      "# Checksums\n"
+        + "%s  a.bin\n".formatted(hex(sha256(dataA)))
+        + "%s *./b.bin\r\n".formatted(hex(sha256(dataB)))
+        + "%s  c.bin\n".formatted(hex(sha256(dataC)));
+    this.server.addFile(
+      "/SUMS", manifest.getBytes(StandardCharsets.UTF_8), "\"m\"");
+
+    final var index = JChecksumManifestIndexes.create();
+    for (final var name : new String[]{"a.bin", "b.bin", "c.bin"}) {
+      final var outputFile = directory.resolve(name);
+      final var result =
+        JDownloadRequests.builder(
+            this.client,
+            this.server.uri("/" + name),
+            outputFile,
+            directory.resolve(name + ".tmp")
+          )
+          .setChecksumFromManifest(
+            this.server.uri("/SUMS"), "SHA-256", name, index)
+          .build()
+          .execute();
+
+      assertInstanceOf(JDownloadSucceeded.class, result);
+    }
+
+    assertArrayEquals(dataB, Files.readAllBytes(directory.resolve("b.bin")));
+    assertEquals(1L, this.manifestRequests());
+    assertEquals(1, index.size());
+  }
+
+  /**
+   * A BSD manifest may list several algorithms for the same file.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testBSDManifest(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(10_000);
+    this.server.addFile("/a.bin", data, "\"a\"");
+
+    final var sha512 = MessageDigest.getInstance("SHA-512").digest(data);
+    final var manifest =
+      "SHA256 (a.bin) = %s\n".formatted(hex(sha256(new byte[1])))
+        + "SHA512 (a.bin) = %s\n".formatted(hex(sha512));
+    this.server.addFile(
+      "/SUMS", manifest.getBytes(StandardCharsets.UTF_8), "\"m\"");
+
+    final var result =
+      JDownloadRequests.builder(
+          this.client,
+          this.server.uri("/a.bin"),
+          directory.resolve("a.bin"),
+          directory.resolve("a.bin.tmp")
+        )
+        .setChecksumFromManifest(
+          this.server.uri("/SUMS"),
+          "SHA-512",
+          "a.bin",
+          JChecksumManifestIndexes.create())
+        .build()
+        .execute();
+
+    assertInstanceOf(JDownloadSucceeded.class, result);
+  }
+
+  /**
+   * A manifest that does not cover the file is an error, and so is a file
+   * that does not match the manifest.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testManifestMissingAndMismatched(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(10_000);
+    this.server.addFile("/a.bin", data, "\"a\"");
+    this.server.addFile("/b.bin", data, "\"b\"");
+
+    final var wrong = sha256(new byte[1]);
+    final var manifest = "%s  b.bin\n".formatted(hex(wrong));
+    this.server.addFile(
+      "/SUMS", manifest.getBytes(StandardCharsets.UTF_8), "\"m\"");
+
+    final var index = JChecksumManifestIndexes.create();
+    final var missing =
+      JDownloadRequests.builder(
+          this.client,
+          this.server.uri("/a.bin"),
+          directory.resolve("a.bin"),
+          directory.resolve("a.bin.tmp")
+        )
+        .setChecksumFromManifest(
+          this.server.uri("/SUMS"), "SHA-256", "a.bin", index)
+        .build()
+        .execute();
+
+    final var notFound =
+      assertInstanceOf(JDownloadErrorChecksumNotFound.class, missing);
+    assertEquals("a.bin", notFound.entry());
+
+    final var mismatched =
+      JDownloadRequests.builder(
+          this.client,
+          this.server.uri("/b.bin"),
+          directory.resolve("b.bin"),
+          directory.resolve("b.bin.tmp")
+        )
+        .setChecksumFromManifest(
+          this.server.uri("/SUMS"), "SHA-256", "b.bin", index)
+        .build()
+        .execute();
+
+    final var mismatch =
+      assertInstanceOf(JDownloadErrorChecksumMismatch.class, mismatched);
+    assertEquals(hex(wrong), mismatch.hashExpected());
+    assertEquals(1L, this.manifestRequests());
+  }
+
+  /**
+   * A cached manifest that does not contain an entry is downloaded again,
+   * in case the file was published after the manifest was cached.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testManifestStale(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var dataA = data(10_000);
+    final var dataB = data(20_000);
+    this.server.addFile("/a.bin", dataA, "\"a\"");
+    this.server.addFile("/b.bin", dataB, "\"b\"");
+
+    final var manifestOld =
+      "%s  a.bin\n".formatted(hex(sha256(dataA)));
+    final var manifestNew =
+      manifestOld + "%s  b.bin\n".formatted(hex(sha256(dataB)));
+    final var sums =
+      this.server.addFile(
+        "/SUMS", manifestOld.getBytes(StandardCharsets.UTF_8), "\"m1\"");
+
+    final var index = JChecksumManifestIndexes.create();
+    for (final var name : new String[]{"a.bin", "b.bin"}) {
+      final var result =
+        JDownloadRequests.builder(
+            this.client,
+            this.server.uri("/" + name),
+            directory.resolve(name),
+            directory.resolve(name + ".tmp")
+          )
+          .setChecksumFromManifest(
+            this.server.uri("/SUMS"), "SHA-256", name, index)
+          .build()
+          .execute();
+
+      assertInstanceOf(JDownloadSucceeded.class, result);
+      sums.setData(manifestNew.getBytes(StandardCharsets.UTF_8), "\"m2\"");
+    }
+
+    assertArrayEquals(dataB, Files.readAllBytes(directory.resolve("b.bin")));
+    assertEquals(2L, this.manifestRequests());
+    assertEquals(1, index.size());
+  }
+
+  /**
+   * A manifest that cannot be downloaded is not kept in the index.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testManifestUnavailable(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(10_000);
+    this.server.addFile("/a.bin", data, "\"a\"");
+
+    final var index = JChecksumManifestIndexes.create();
+    final var result =
+      JDownloadRequests.builder(
+          this.client,
+          this.server.uri("/a.bin"),
+          directory.resolve("a.bin"),
+          directory.resolve("a.bin.tmp")
+        )
+        .setChecksumFromManifest(
+          this.server.uri("/SUMS"), "SHA-256", "a.bin", index)
+        .build()
+        .execute();
+
+    final var error = assertInstanceOf(JDownloadErrorHTTP.class, result);
+    assertEquals(404, error.status());
+    assertEquals(0, index.size());
+  }
+}
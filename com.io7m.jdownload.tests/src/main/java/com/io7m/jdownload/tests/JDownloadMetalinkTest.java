@@ -0,0 +1,383 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.tests;
+
+import com.io7m.jdownload.core.JDownloadErrorChecksumMismatch;
+import com.io7m.jdownload.core.JDownloadMetalinkFile;
+import com.io7m.jdownload.core.JDownloadMetalinks;
+import com.io7m.jdownload.core.JDownloadPieceChecksums;
+import com.io7m.jdownload.core.JDownloadRequests;
+import com.io7m.jdownload.core.JDownloadSucceeded;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+
+import static com.io7m.jdownload.tests.JDownloadResumeTest.data;
+import static com.io7m.jdownload.tests.JDownloadResumeTest.sha256;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class JDownloadMetalinkTest
+{
+  private static final int PIECE_LENGTH = 16384;
+
+  private JDownloadTestServer server;
+  private HttpClient client;
+
+  @BeforeEach
+  public void setup()
+    throws IOException
+  {
+    this.server = JDownloadTestServer.create();
+    this.client = HttpClient.newHttpClient();
+  }
+
+  @AfterEach
+  public void tearDown()
+  {
+    this.server.close();
+  }
+
+  private static String metalink(
+    final byte[] data,
+    final List<URI> urls)
+    throws Exception
+  {
+    final var hex = HexFormat.of();
+    final var text = new StringBuilder();
+    text.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    text.append("<metalink xmlns=\"urn:ietf:params:xml:ns:metalink\">\n");
+    text.append("  <file name=\"file.bin\">\n");
+    text.append("    <size>%d</size>\n".formatted(data.length));
+    text.append("    <hash type=\"sha-256\">%s</hash>\n"
+                  .formatted(hex.formatHex(sha256(data))));
+    text.append("    <hash type=\"x-unknown\">00</hash>\n");
+    text.append("    <pieces length=\"%d\" type=\"sha-1\">\n"
+                  .formatted(PIECE_LENGTH));
+    for (int start = 0; start < data.length; start += PIECE_LENGTH) {
+      final var end = Math.min(data.length, start + PIECE_LENGTH);
+      final var piece =
+        MessageDigest.getInstance("SHA-1")
+          .digest(Arrays.copyOfRange(data, start, end));
+      text.append("      <hash>%s</hash>\n".formatted(hex.formatHex(piece)));
+    }
+    text.append("    </pieces>\n");
+    text.append("    <url>ftp://example.com/file.bin</url>\n");
+    for (int index = 0; index < urls.size(); ++index) {
+      text.append("    <url priority=\"%d\">%s</url>\n"
+                    .formatted(index + 1, urls.get(index)));
+    }
+    text.append("  </file>\n");
+    text.append("</metalink>\n");
+    return text.toString();
+  }
+
+  private static JDownloadMetalinkFile parse(
+    final String text)
+    throws IOException
+  {
+    return JDownloadMetalinks.parse(
+        URI.create("http://example.com/file.meta4"),
+        new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))
+      )
+      .file("file.bin")
+      .orElseThrow();
+  }
+
+  private long rangeRequests(
+    final String path)
+  {
+    return this.server.requests()
+      .stream()
+      .filter(r -> r.path().equals(path))
+      .filter(r -> r.headers().containsKey("range"))
+      .count();
+  }
+
+  /**
+   * Metalink documents are parsed.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testParse()
+    throws Exception
+  {
+    final var data = data(100_000);
+    final var file =
+      parse(metalink(data, List.of(
+        URI.create("http://a.example.com/file.bin"),
+        URI.create("http://b.example.com/file.bin")
+      )));
+
+    assertEquals("file.bin", file.name());
+    assertEquals(100_000L, file.size().orElseThrow());
+    assertEquals(1, file.checksums().size());
+    assertEquals("SHA-256", file.checksums().get(0).algorithm());
+    assertArrayEquals(sha256(data), file.checksums().get(0).checksum());
+
+    final var pieces = file.pieces().orElseThrow();
+    assertEquals("SHA-1", pieces.algorithm());
+    assertEquals(PIECE_LENGTH, pieces.pieceLength());
+    assertEquals(7, pieces.checksums().size());
+    assertTrue(pieces.describesSize(100_000L));
+
+    assertEquals(
+      List.of(
+        URI.create("http://a.example.com/file.bin"),
+        URI.create("http://b.example.com/file.bin")
+      ),
+      file.urls()
+    );
+  }
+
+  /**
+   * Piece checksums cannot be modified through the arrays given to or
+   * returned by them.
+   */
+
+  @Test
+  public void testPieceChecksumsCopied()
+  {
+    final var checksum = new byte[20];
+    final var pieces =
+      new JDownloadPieceChecksums("SHA-1", 1L, List.of(checksum));
+
+    checksum[0] = 1;
+    assertArrayEquals(new byte[20], pieces.checksum(0));
+
+    pieces.checksum(0)[0] = 1;
+    pieces.checksums().get(0)[0] = 1;
+    assertArrayEquals(new byte[20], pieces.checksum(0));
+    assertArrayEquals(new byte[20], pieces.checksums().get(0));
+    assertEquals(1, pieces.pieceCount());
+  }
+
+  /**
+   * Documents that are not Metalink documents are rejected.
+   */
+
+  @Test
+  public void testParseInvalid()
+  {
+    assertThrows(IOException.class, () -> parse("<metalink/>"));
+    assertThrows(IOException.class, () -> parse("<x"));
+    assertThrows(IOException.class, () -> {
+      parse("""
+        <!DOCTYPE metalink [<!ENTITY x SYSTEM "file:///etc/passwd">]>
+        <metalink xmlns="urn:ietf:params:xml:ns:metalink"/>
+        """);
+    });
+  }
+
+  /**
+   * Pieces are downloaded from all mirrors.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testPiecewise(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(200_000);
+    final var paths = List.of("/a/file.bin", "/b/file.bin", "/c/file.bin");
+    for (final var path : paths) {
+      this.server.addFile(path, data, "\"v1\"");
+    }
+
+    final var file =
+      parse(metalink(data, paths.stream().map(this.server::uri).toList()));
+    final var outputFile = directory.resolve("out.bin");
+
+    final var result =
+      JDownloadRequests.builderFromMetalink(
+          this.client,
+          file,
+          outputFile,
+          directory.resolve("out.bin.tmp")
+        )
+        .build()
+        .execute();
+
+    assertInstanceOf(JDownloadSucceeded.class, result);
+    assertArrayEquals(data, Files.readAllBytes(outputFile));
+
+    var total = 0L;
+    for (final var path : paths) {
+      final var count = this.rangeRequests(path);
+      assertTrue(count > 0L, path);
+      total += count;
+    }
+    assertEquals(13L, total);
+
+    final var ranges = new HashSet<String>();
+    for (final var request : this.server.requests()) {
+      if (request.headers().containsKey("range")) {
+        ranges.add(request.headers().get("range"));
+      }
+    }
+    assertEquals(13, ranges.size());
+  }
+
+  /**
+   * Pieces that fail verification are requested again from another mirror,
+   * and only those pieces are requested again.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testPiecewiseCorruptMirror(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(200_000);
+    final var corrupt = data.clone();
+    for (int index = 0; index < corrupt.length; index += 1000) {
+      corrupt[index] ^= 0x55;
+    }
+
+    this.server.addFile("/a/file.bin", data, "\"v1\"");
+    this.server.addFile("/b/file.bin", corrupt, "\"v1\"");
+
+    final var file =
+      parse(metalink(data, List.of(
+        this.server.uri("/a/file.bin"),
+        this.server.uri("/b/file.bin")
+      )));
+    final var outputFile = directory.resolve("out.bin");
+
+    final var result =
+      JDownloadRequests.builderFromMetalink(
+          this.client,
+          file,
+          outputFile,
+          directory.resolve("out.bin.tmp")
+        )
+        .build()
+        .execute();
+
+    assertInstanceOf(JDownloadSucceeded.class, result);
+    assertArrayEquals(data, Files.readAllBytes(outputFile));
+
+    /*
+     * Every piece from the corrupt mirror is requested again from the good
+     * mirror, so the good mirror serves each of the 13 pieces exactly once.
+     */
+
+    assertTrue(this.rangeRequests("/b/file.bin") > 0L);
+    assertEquals(13L, this.rangeRequests("/a/file.bin"));
+  }
+
+  /**
+   * A piece that fails verification from every source fails the download.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testPiecewiseCorruptEverywhere(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(200_000);
+    final var corrupt = data.clone();
+    corrupt[150_000] ^= 0x55;
+
+    this.server.addFile("/a/file.bin", corrupt, "\"v1\"");
+
+    final var file =
+      parse(metalink(data, List.of(this.server.uri("/a/file.bin"))));
+
+    final var result =
+      JDownloadRequests.builderFromMetalink(
+          this.client,
+          file,
+          directory.resolve("out.bin"),
+          directory.resolve("out.bin.tmp")
+        )
+        .build()
+        .execute();
+
+    final var error =
+      assertInstanceOf(JDownloadErrorChecksumMismatch.class, result);
+    assertEquals("SHA-1", error.algorithm());
+  }
+
+  /**
+   * If the size of the file does not match the pieces, the file is
+   * downloaded as a single stream and verified as a whole.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testPiecewiseSizeMismatch(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(200_000);
+    this.server.addFile("/a/file.bin", data, "\"v1\"");
+
+    final var file =
+      parse(metalink(data(100_000), List.of(this.server.uri("/a/file.bin"))));
+
+    final var result =
+      JDownloadRequests.builderFromMetalink(
+          this.client,
+          file,
+          directory.resolve("out.bin"),
+          directory.resolve("out.bin.tmp")
+        )
+        .build()
+        .execute();
+
+    final var error =
+      assertInstanceOf(JDownloadErrorChecksumMismatch.class, result);
+    assertEquals("SHA-256", error.algorithm());
+    assertEquals(0L, this.rangeRequests("/a/file.bin"));
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.tests;
+
+import com.io7m.jdownload.core.JDownloadErrorHTTP;
+import com.io7m.jdownload.core.JDownloadMetricsCollectors;
+import com.io7m.jdownload.core.JDownloadMetricsType;
+import com.io7m.jdownload.core.JDownloadRequests;
+import com.io7m.jdownload.core.JDownloadResultType;
+import com.io7m.jdownload.core.JDownloadSucceeded;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.io7m.jdownload.tests.JDownloadResumeTest.data;
+import static com.io7m.jdownload.tests.JDownloadResumeTest.sha256;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class JDownloadMetricsTest
+{
+  private JDownloadTestServer server;
+  private HttpClient client;
+
+  @BeforeEach
+  public void setup()
+    throws IOException
+  {
+    this.server = JDownloadTestServer.create();
+    this.client = HttpClient.newHttpClient();
+  }
+
+  @AfterEach
+  public void tearDown()
+  {
+    this.server.close();
+  }
+
+  private static void assertContains(
+    final String text,
+    final String line)
+  {
+    assertTrue(
+      List.of(text.split("\n")).contains(line),
+      "Output must contain %s%n%s".formatted(line, text)
+    );
+  }
+
+  /**
+   * The collector aggregates metrics for every request that uses it.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testCollector(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(100_000);
+    this.server.addFile("/file", data, "\"v1\"");
+
+    final var metrics = JDownloadMetricsCollectors.create();
+    for (int index = 0; index < 3; ++index) {
+      final var result =
+        JDownloadRequests.builder(
+            this.client,
+            this.server.uri("/file"),
+            directory.resolve("out.bin"),
+            directory.resolve("out.bin.tmp")
+          )
+          .setChecksumStatically("SHA-256", sha256(data))
+          .setMetrics(metrics)
+          .build()
+          .execute();
+      assertInstanceOf(JDownloadSucceeded.class, result);
+    }
+
+    final var missing =
+      JDownloadRequests.builder(
+          this.client,
+          this.server.uri("/missing"),
+          directory.resolve("missing.bin"),
+          directory.resolve("missing.bin.tmp")
+        )
+        .setMetrics(metrics)
+        .build()
+        .execute();
+    assertInstanceOf(JDownloadErrorHTTP.class, missing);
+
+    final var output = new StringBuilder();
+    metrics.writePrometheus(output);
+    final var text = output.toString();
+
+    assertContains(text, "# TYPE jdownload_time_to_headers_seconds histogram");
+    assertContains(text, "jdownload_time_to_headers_seconds_count 4");
+    assertContains(text, "jdownload_time_to_first_byte_seconds_count 3");
+    assertContains(text, "jdownload_transfer_duration_seconds_count 3");
+    assertContains(
+      text, "jdownload_transfer_size_bytes_bucket{le=\"65536.0\"} 0");
+    assertContains(text, "jdownload_transfer_size_bytes_bucket{le=\"+Inf\"} 3");
+    assertContains(text, "jdownload_hash_duration_seconds_count 3");
+    assertContains(text, "jdownload_move_duration_seconds_count 3");
+    assertContains(text, "jdownload_request_duration_seconds_count 4");
+    assertContains(text, "jdownload_transferred_bytes_total 300000");
+    assertContains(text, "jdownload_responses_total{status=\"200\"} 3");
+    assertContains(text, "jdownload_responses_total{status=\"404\"} 1");
+    assertContains(
+      text, "jdownload_results_total{result=\"succeeded\",status=\"\"} 3");
+    assertContains(
+      text, "jdownload_results_total{result=\"error_http\",status=\"404\"} 1");
+  }
+
+  /**
+   * Metrics receivers need only implement the methods they use.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testCustomReceiver(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(100_000);
+    this.server.addFile("/file", data, "\"v1\"");
+
+    final var results = new CopyOnWriteArrayList<JDownloadResultType>();
+    final var metrics = new JDownloadMetricsType()
+    {
+      @Override
+      public void onRequestCompleted(
+        final URI uri,
+        final JDownloadResultType result,
+        final Duration elapsed)
+      {
+        results.add(result);
+      }
+    };
+
+    final var result =
+      JDownloadRequests.builder(
+          this.client,
+          this.server.uri("/file"),
+          directory.resolve("out.bin"),
+          directory.resolve("out.bin.tmp")
+        )
+        .setMetrics(metrics)
+        .build()
+        .execute();
+
+    assertEquals(List.of(result), results);
+  }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.tests;
+
+import com.io7m.jdownload.core.JDownloadErrorHTTP;
+import com.io7m.jdownload.core.JDownloadRequestBuilderType;
+import com.io7m.jdownload.core.JDownloadRequests;
+import com.io7m.jdownload.core.JDownloadResultType;
+import com.io7m.jdownload.core.JDownloadRetryPolicy;
+import com.io7m.jdownload.core.JDownloadSucceeded;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+import static com.io7m.jdownload.tests.JDownloadResumeTest.data;
+import static com.io7m.jdownload.tests.JDownloadResumeTest.sha256;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class JDownloadMirrorTest
+{
+  private JDownloadTestServer server;
+  private HttpClient client;
+  private Path outputFile;
+  private CountDownLatch gate;
+
+  @BeforeEach
+  public void setup(
+    final @TempDir Path directory)
+    throws IOException
+  {
+    this.server = JDownloadTestServer.create();
+    this.client = HttpClient.newHttpClient();
+    this.outputFile = directory.resolve("out.bin");
+    this.gate = new CountDownLatch(1);
+  }
+
+  @AfterEach
+  public void tearDown()
+  {
+    this.gate.countDown();
+    this.server.close();
+  }
+
+  private JDownloadResultType download(
+    final String target,
+    final Consumer<JDownloadRequestBuilderType> configure)
+    throws InterruptedException
+  {
+    final var builder =
+      JDownloadRequests.builder(
+        this.client,
+        this.server.uri(target),
+        this.outputFile
+      );
+
+    configure.accept(builder);
+    return builder.build().execute();
+  }
+
+  private List<String> paths()
+  {
+    return this.server.requests()
+      .stream()
+      .map(JDownloadTestServer.Request::path)
+      .toList();
+  }
+
+  private static URI unusedURI()
+    throws IOException
+  {
+    try (var socket =
+           new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      return URI.create(
+        "http://127.0.0.1:%d/file".formatted(
+          Integer.valueOf(socket.getLocalPort()))
+      );
+    }
+  }
+
+  /**
+   * Mirrors are tried in order after errors.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testSequentialFailover()
+    throws Exception
+  {
+    final var data = data(10_000);
+    final var hash = sha256(data);
+    this.server.addFile("/b", data, "\"v1\"")
+      .setFailures(503, 1, null);
+    this.server.addFile("/c", data, "\"v1\"");
+
+    final var result =
+      this.download("/a", b -> {
+        b.setChecksumStatically("SHA-256", hash);
+        b.setMirrorsSequential(
+          List.of(this.server.uri("/b"), this.server.uri("/c")));
+      });
+
+    assertInstanceOf(JDownloadSucceeded.class, result);
+    assertArrayEquals(data, Files.readAllBytes(this.outputFile));
+    assertEquals(List.of("/a", "/b", "/c"), this.paths());
+  }
+
+  /**
+   * Mirrors are tried after connection failures.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testSequentialConnectionRefused()
+    throws Exception
+  {
+    final var data = data(10_000);
+    this.server.addFile("/file", data, "\"v1\"");
+
+    final var result =
+      JDownloadRequests.builder(this.client, unusedURI(), this.outputFile)
+        .setMirrorsSequential(List.of(this.server.uri("/file")))
+        .build()
+        .execute();
+
+    assertInstanceOf(JDownloadSucceeded.class, result);
+    assertArrayEquals(data, Files.readAllBytes(this.outputFile));
+  }
+
+  /**
+   * The last error is reported if every mirror fails.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testSequentialAllFail()
+    throws Exception
+  {
+    final var result =
+      this.download("/a", b -> {
+        b.setMirrorsSequential(List.of(this.server.uri("/b")));
+      });
+
+    final var error = assertInstanceOf(JDownloadErrorHTTP.class, result);
+    assertEquals(404, error.status());
+    assertEquals(this.server.uri("/b"), error.uri());
+    assertEquals(List.of("/a", "/b"), this.paths());
+  }
+
+  /**
+   * A slow source is hedged with the next mirror.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testHedged()
+    throws Exception
+  {
+    final var data = data(10_000);
+    final var hash = sha256(data);
+    this.server.addFile("/slow", data(10_000), "\"v0\"")
+      .setGate(this.gate);
+    this.server.addFile("/file", data, "\"v1\"");
+
+    final var result =
+      this.download("/slow", b -> {
+        b.setChecksumStatically("SHA-256", hash);
+        b.setMirrorsHedged(
+          List.of(this.server.uri("/file")),
+          Duration.ofMillis(50L)
+        );
+      });
+
+    assertInstanceOf(JDownloadSucceeded.class, result);
+    assertArrayEquals(data, Files.readAllBytes(this.outputFile));
+    assertEquals(List.of("/slow", "/file"), this.paths());
+  }
+
+  /**
+   * A fast source is not hedged.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testHedgedNotNeeded()
+    throws Exception
+  {
+    final var data = data(10_000);
+    this.server.addFile("/file", data, "\"v1\"");
+    this.server.addFile("/other", data, "\"v1\"");
+
+    final var result =
+      this.download("/file", b -> {
+        b.setMirrorsHedged(
+          List.of(this.server.uri("/other")),
+          Duration.ofSeconds(10L)
+        );
+      });
+
+    assertInstanceOf(JDownloadSucceeded.class, result);
+    assertEquals(List.of("/file"), this.paths());
+  }
+
+  /**
+   * Retries start with the next mirror, resuming the partial download.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testRetryRotates()
+    throws Exception
+  {
+    final var data = data(100_000);
+    final var hash = sha256(data);
+    this.server.addFile("/a", data, "\"v1\"")
+      .setTruncated(30_000, 1);
+    this.server.addFile("/b", data, "\"v1\"");
+
+    final var result =
+      this.download("/a", b -> {
+        b.setChecksumStatically("SHA-256", hash);
+        b.setMirrorsSequential(List.of(this.server.uri("/b")));
+        b.setRetryPolicy(
+          new JDownloadRetryPolicy(
+            2, Duration.ZERO, Duration.ZERO, 1.0, 0.0));
+      });
+
+    assertInstanceOf(JDownloadSucceeded.class, result);
+    assertArrayEquals(data, Files.readAllBytes(this.outputFile));
+    assertEquals(List.of("/a", "/b"), this.paths());
+    assertEquals(
+      "bytes=30000-",
+      this.server.requests().get(1).headers().get("range"));
+  }
+
+  /**
+   * Negative hedge delays are rejected.
+   */
+
+  @Test
+  public void testHedgeDelayInvalid()
+  {
+    final var builder =
+      JDownloadRequests.builder(
+        this.client,
+        this.server.uri("/file"),
+        this.outputFile
+      );
+
+    assertThrows(IllegalArgumentException.class, () -> {
+      builder.setMirrorsHedged(List.of(), Duration.ofMillis(-1L));
+    });
+  }
+}
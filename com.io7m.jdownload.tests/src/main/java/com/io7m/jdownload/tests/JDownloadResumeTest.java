@@ -0,0 +1,242 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.tests;
+
+import com.io7m.jdownload.core.JDownloadErrorIO;
+import com.io7m.jdownload.core.JDownloadRequests;
+import com.io7m.jdownload.core.JDownloadSucceeded;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class JDownloadResumeTest
+{
+  private JDownloadTestServer server;
+  private HttpClient client;
+
+  @BeforeEach
+  public void setup()
+    throws IOException
+  {
+    this.server = JDownloadTestServer.create();
+    this.client = HttpClient.newHttpClient();
+  }
+
+  @AfterEach
+  public void tearDown()
+  {
+    this.server.close();
+  }
+
+  static byte[] data(
+    final int size)
+  {
+    final var data = new byte[size];
+    new Random(size).nextBytes(data);
+    return data;
+  }
+
+  static byte[] sha256(
+    final byte[] data)
+    throws Exception
+  {
+    return MessageDigest.getInstance("SHA-256").digest(data);
+  }
+
+  /**
+   * An interrupted download is resumed from the partial temporary file.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testResume(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(100_000);
+    this.server.addFile("/file", data, "\"v1\"")
+      .setTruncated(40_000, 1);
+
+    final var outputFile =
+      directory.resolve("out.bin");
+    final var outputFileTmp =
+      directory.resolve("out.bin.tmp");
+
+    final var request =
+      JDownloadRequests.builder(
+          this.client,
+          this.server.uri("/file"),
+          outputFile,
+          outputFileTmp
+        )
+        .setChecksumStatically("SHA-256", sha256(data))
+        .setResumePartialDownloads(true)
+        .build();
+
+    assertInstanceOf(JDownloadErrorIO.class, request.execute());
+    assertTrue(Files.exists(outputFileTmp));
+
+    final var partial = Files.size(outputFileTmp);
+    assertTrue(partial > 0L && partial < data.length);
+
+    assertInstanceOf(JDownloadSucceeded.class, request.execute());
+    assertArrayEquals(data, Files.readAllBytes(outputFile));
+    assertFalse(Files.exists(outputFileTmp));
+
+    final var second = this.server.requests().get(1);
+    assertEquals("bytes=%d-".formatted(partial), second.headers().get("range"));
+    assertEquals("\"v1\"", second.headers().get("if-range"));
+  }
+
+  /**
+   * A partial download of a file that has since changed is restarted.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testResumeChanged(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(100_000);
+    final var file =
+      this.server.addFile("/file", data, "\"v1\"")
+        .setTruncated(40_000, 1);
+
+    final var outputFile =
+      directory.resolve("out.bin");
+    final var outputFileTmp =
+      directory.resolve("out.bin.tmp");
+
+    final var request =
+      JDownloadRequests.builder(
+          this.client,
+          this.server.uri("/file"),
+          outputFile,
+          outputFileTmp
+        )
+        .setResumePartialDownloads(true)
+        .build();
+
+    assertInstanceOf(JDownloadErrorIO.class, request.execute());
+
+    final var dataNew = data(90_000);
+    file.setData(dataNew, "\"v2\"");
+
+    assertInstanceOf(JDownloadSucceeded.class, request.execute());
+    assertArrayEquals(dataNew, Files.readAllBytes(outputFile));
+  }
+
+  /**
+   * A partial download is restarted if the server does not support ranges.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testResumeNotSupported(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(100_000);
+    this.server.addFile("/file", data, "\"v1\"")
+      .setRangesSupported(false)
+      .setTruncated(40_000, 1);
+
+    final var outputFile =
+      directory.resolve("out.bin");
+    final var outputFileTmp =
+      directory.resolve("out.bin.tmp");
+
+    final var request =
+      JDownloadRequests.builder(
+          this.client,
+          this.server.uri("/file"),
+          outputFile,
+          outputFileTmp
+        )
+        .setChecksumStatically("SHA-256", sha256(data))
+        .setResumePartialDownloads(true)
+        .build();
+
+    assertInstanceOf(JDownloadErrorIO.class, request.execute());
+    assertInstanceOf(JDownloadSucceeded.class, request.execute());
+    assertArrayEquals(data, Files.readAllBytes(outputFile));
+  }
+
+  /**
+   * Partial downloads are not resumed unless requested.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testResumeDisabled(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(100_000);
+    this.server.addFile("/file", data, "\"v1\"")
+      .setTruncated(40_000, 1);
+
+    final var outputFile =
+      directory.resolve("out.bin");
+    final var outputFileTmp =
+      directory.resolve("out.bin.tmp");
+
+    final var request =
+      JDownloadRequests.builder(
+          this.client,
+          this.server.uri("/file"),
+          outputFile,
+          outputFileTmp
+        )
+        .build();
+
+    assertInstanceOf(JDownloadErrorIO.class, request.execute());
+    assertInstanceOf(JDownloadSucceeded.class, request.execute());
+    assertArrayEquals(data, Files.readAllBytes(outputFile));
+
+    final var second = this.server.requests().get(1);
+    assertFalse(second.headers().containsKey("range"));
+  }
+}
@@ -0,0 +1,378 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.tests;
+
+import com.io7m.jdownload.core.JDownloadErrorHTTP;
+import com.io7m.jdownload.core.JDownloadErrorIO;
+import com.io7m.jdownload.core.JDownloadErrorRetriesExhausted;
+import com.io7m.jdownload.core.JDownloadRequests;
+import com.io7m.jdownload.core.JDownloadResultType;
+import com.io7m.jdownload.core.JDownloadRetryPolicy;
+import com.io7m.jdownload.core.JDownloadSucceeded;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HexFormat;
+
+import static com.io7m.jdownload.tests.JDownloadResumeTest.data;
+import static com.io7m.jdownload.tests.JDownloadResumeTest.sha256;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public final class JDownloadRetryTest
+{
+  private static final JDownloadRetryPolicy FAST =
+    new JDownloadRetryPolicy(
+      3,
+      Duration.ofMillis(1L),
+      Duration.ofSeconds(2L),
+      2.0,
+      0.0
+    );
+
+  private JDownloadTestServer server;
+  private HttpClient client;
+  private Path outputFile;
+
+  @BeforeEach
+  public void setup(
+    final @TempDir Path directory)
+    throws IOException
+  {
+    this.server = JDownloadTestServer.create();
+    this.client = HttpClient.newHttpClient();
+    this.outputFile = directory.resolve("out.bin");
+  }
+
+  @AfterEach
+  public void tearDown()
+  {
+    this.server.close();
+  }
+
+  private JDownloadResultType download(
+    final JDownloadRetryPolicy policy,
+    final byte[] checksum)
+    throws InterruptedException
+  {
+    return JDownloadRequests.builder(
+        this.client,
+        this.server.uri("/file"),
+        this.outputFile
+      )
+      .setChecksumStatically("SHA-256", checksum)
+      .setRetryPolicy(policy)
+      .build()
+      .execute();
+  }
+
+  /**
+   * Transient HTTP errors are retried, and reported on the result.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testRetryTransientHTTP()
+    throws Exception
+  {
+    final var data = data(10_000);
+    this.server.addFile("/file", data, "\"v1\"")
+      .setFailures(503, 2, null);
+
+    final var result =
+      assertInstanceOf(
+        JDownloadSucceeded.class,
+        this.download(FAST, sha256(data)));
+
+    assertEquals(3, result.attemptCount());
+    for (final var error : result.failedAttempts()) {
+      assertEquals(503, assertInstanceOf(JDownloadErrorHTTP.class, error)
+        .status());
+    }
+    assertArrayEquals(data, Files.readAllBytes(this.outputFile));
+  }
+
+  /**
+   * A checksum file fetched by an earlier attempt is replaced by the
+   * checksum file fetched by a retry.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testRetryChecksumFromURL()
+    throws Exception
+  {
+    final var data = data(10_000);
+    this.server.addFile("/file", data, "\"v1\"")
+      .setFailures(503, 1, null);
+    this.server.addFile(
+      "/file.sha256",
+      HexFormat.of().formatHex(sha256(data))
+        .getBytes(StandardCharsets.US_ASCII),
+      "\"c1\""
+    );
+
+    final var checksumFile =
+      this.outputFile.resolveSibling("out.bin.sha256");
+    final var checksumFileTemp =
+      this.outputFile.resolveSibling("out.bin.sha256.tmp");
+
+    final var result =
+      assertInstanceOf(
+        JDownloadSucceeded.class,
+        JDownloadRequests.builder(
+            this.client,
+            this.server.uri("/file"),
+            this.outputFile
+          )
+          .setChecksumFromURL(
+            this.server.uri("/file.sha256"),
+            "SHA-256",
+            checksumFile,
+            checksumFileTemp,
+            statistics -> { })
+          .setRetryPolicy(FAST)
+          .build()
+          .execute()
+      );
+
+    assertEquals(2, result.attemptCount());
+    assertArrayEquals(data, Files.readAllBytes(this.outputFile));
+    assertTrue(Files.isRegularFile(checksumFile));
+    assertFalse(Files.exists(checksumFileTemp));
+  }
+
+  /**
+   * Retries after a broken connection resume the partial download.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testRetryResumes()
+    throws Exception
+  {
+    final var data = data(100_000);
+    this.server.addFile("/file", data, "\"v1\"")
+      .setTruncated(30_000, 1);
+
+    final var result =
+      assertInstanceOf(
+        JDownloadSucceeded.class,
+        this.download(FAST, sha256(data)));
+
+    assertEquals(2, result.attemptCount());
+    assertArrayEquals(data, Files.readAllBytes(this.outputFile));
+
+    final var requests = this.server.requests();
+    assertEquals(2, requests.size());
+    assertFalse(requests.get(0).headers().containsKey("range"));
+    assertTrue(requests.get(1).headers().containsKey("range"));
+  }
+
+  /**
+   * Permanent errors are not retried.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testRetryPermanent()
+    throws Exception
+  {
+    final var data = data(10_000);
+    this.server.addFile("/file", data, "\"v1\"")
+      .setFailures(404, 10, null);
+
+    final var result = this.download(FAST, sha256(data));
+    assertEquals(404, assertInstanceOf(JDownloadErrorHTTP.class, result)
+      .status());
+    assertEquals(1, this.server.requests().size());
+  }
+
+  /**
+   * Failures to write to the local output file are permanent, even though
+   * they are not reported as file system exceptions.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testRetryLocalWriteFailure()
+    throws Exception
+  {
+    final var full = Path.of("/dev/full");
+    assumeTrue(Files.isWritable(full));
+
+    final var data = data(10_000);
+    this.server.addFile("/file", data, "\"v1\"");
+
+    final var temporary =
+      Files.createSymbolicLink(
+        this.outputFile.resolveSibling("out.bin.tmp"),
+        full
+      );
+
+    final var result =
+      JDownloadRequests.builder(
+          this.client,
+          this.server.uri("/file"),
+          this.outputFile,
+          temporary
+        )
+        .setChecksumStatically("SHA-256", sha256(data))
+        .setRetryPolicy(FAST)
+        .build()
+        .execute();
+
+    final var error = assertInstanceOf(JDownloadErrorIO.class, result);
+    assertFalse(error.exception() instanceof FileSystemException);
+    assertEquals(1, this.server.requests().size());
+  }
+
+  /**
+   * Every failed attempt is reported when retries are exhausted.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testRetryExhausted()
+    throws Exception
+  {
+    final var data = data(10_000);
+    this.server.addFile("/file", data, "\"v1\"")
+      .setFailures(429, 10, null);
+
+    final var result =
+      assertInstanceOf(
+        JDownloadErrorRetriesExhausted.class,
+        this.download(FAST, sha256(data)));
+
+    assertEquals(3, result.attempts().size());
+    assertEquals(429, assertInstanceOf(
+      JDownloadErrorHTTP.class, result.lastError()).status());
+    assertEquals(3, this.server.requests().size());
+  }
+
+  /**
+   * Retry-After delays are honoured.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testRetryAfter()
+    throws Exception
+  {
+    final var data = data(10_000);
+    this.server.addFile("/file", data, "\"v1\"")
+      .setFailures(503, 1, "1");
+
+    final var timeThen = System.nanoTime();
+    final var result =
+      assertInstanceOf(
+        JDownloadSucceeded.class,
+        this.download(FAST, sha256(data)));
+    final var elapsed = Duration.ofNanos(System.nanoTime() - timeThen);
+
+    assertEquals(2, result.attemptCount());
+    assertTrue(elapsed.compareTo(Duration.ofMillis(900L)) >= 0);
+  }
+
+  /**
+   * Retry-After delays that exceed the maximum delay are not waited for.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testRetryAfterTooLong()
+    throws Exception
+  {
+    final var data = data(10_000);
+    this.server.addFile("/file", data, "\"v1\"")
+      .setFailures(503, 1, "3600");
+
+    final var result = this.download(FAST, sha256(data));
+    assertEquals(503, assertInstanceOf(JDownloadErrorHTTP.class, result)
+      .status());
+    assertEquals(1, this.server.requests().size());
+  }
+
+  /**
+   * Delays grow exponentially up to the maximum, and are reduced by jitter.
+   */
+
+  @Test
+  public void testPolicyDelays()
+  {
+    final var policy =
+      new JDownloadRetryPolicy(
+        10,
+        Duration.ofMillis(100L),
+        Duration.ofMillis(1000L),
+        2.0,
+        0.5
+      );
+
+    assertEquals(Duration.ofMillis(100L), policy.delayFor(1, 0.0));
+    assertEquals(Duration.ofMillis(200L), policy.delayFor(2, 0.0));
+    assertEquals(Duration.ofMillis(800L), policy.delayFor(4, 0.0));
+    assertEquals(Duration.ofMillis(1000L), policy.delayFor(5, 0.0));
+    assertEquals(Duration.ofMillis(500L), policy.delayFor(5, 1.0));
+  }
+
+  /**
+   * Invalid policies are rejected.
+   */
+
+  @Test
+  public void testPolicyInvalid()
+  {
+    assertThrows(IllegalArgumentException.class, () -> {
+      new JDownloadRetryPolicy(0, Duration.ZERO, Duration.ZERO, 1.0, 0.0);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      new JDownloadRetryPolicy(
+        1, Duration.ofMillis(-1L), Duration.ZERO, 1.0, 0.0);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      new JDownloadRetryPolicy(1, Duration.ZERO, Duration.ZERO, 0.5, 0.0);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      new JDownloadRetryPolicy(1, Duration.ZERO, Duration.ZERO, 1.0, 1.5);
+    });
+  }
+}
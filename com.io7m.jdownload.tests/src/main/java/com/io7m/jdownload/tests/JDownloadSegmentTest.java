@@ -0,0 +1,314 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.tests;
+
+import com.io7m.jdownload.core.JDownloadErrorChecksumMismatch;
+import com.io7m.jdownload.core.JDownloadErrorIO;
+import com.io7m.jdownload.core.JDownloadRequests;
+import com.io7m.jdownload.core.JDownloadSucceeded;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+
+import static com.io7m.jdownload.tests.JDownloadResumeTest.data;
+import static com.io7m.jdownload.tests.JDownloadResumeTest.sha256;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class JDownloadSegmentTest
+{
+  private JDownloadTestServer server;
+  private HttpClient client;
+
+  @BeforeEach
+  public void setup()
+    throws IOException
+  {
+    this.server = JDownloadTestServer.create();
+    this.client = HttpClient.newHttpClient();
+  }
+
+  @AfterEach
+  public void tearDown()
+  {
+    this.server.close();
+  }
+
+  /**
+   * Files are downloaded in segments if the server supports ranges.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testSegmented(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(1_000_003);
+    this.server.addFile("/file", data, "\"v1\"");
+
+    final var outputFile =
+      directory.resolve("out.bin");
+    final var outputFileTmp =
+      directory.resolve("out.bin.tmp");
+
+    final var result =
+      JDownloadRequests.builder(
+          this.client,
+          this.server.uri("/file"),
+          outputFile,
+          outputFileTmp
+        )
+        .setChecksumStatically("SHA-256", sha256(data))
+        .setSegmentedDownloads(4, 1000L)
+        .build()
+        .execute();
+
+    assertInstanceOf(JDownloadSucceeded.class, result);
+    assertArrayEquals(data, Files.readAllBytes(outputFile));
+    assertFalse(Files.exists(outputFileTmp));
+
+    final var requests = this.server.requests();
+    assertEquals(5, requests.size());
+    assertEquals("HEAD", requests.get(0).method());
+
+    final var ranges = new HashSet<String>();
+    for (final var request : requests.subList(1, 5)) {
+      assertEquals("GET", request.method());
+      assertEquals("\"v1\"", request.headers().get("if-range"));
+      ranges.add(request.headers().get("range"));
+    }
+    assertEquals(4, ranges.size());
+  }
+
+  /**
+   * A partial download is resumed with a single range request rather than
+   * being discarded in favour of a segmented download.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testSegmentedResumes(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(1_000_003);
+    this.server.addFile("/file", data, "\"v1\"")
+      .setTruncated(400_000, 1);
+
+    final var outputFile =
+      directory.resolve("out.bin");
+    final var outputFileTmp =
+      directory.resolve("out.bin.tmp");
+
+    final var first =
+      JDownloadRequests.builder(
+          this.client,
+          this.server.uri("/file"),
+          outputFile,
+          outputFileTmp
+        )
+        .setChecksumStatically("SHA-256", sha256(data))
+        .setResumePartialDownloads(true)
+        .build()
+        .execute();
+
+    assertInstanceOf(JDownloadErrorIO.class, first);
+    final var partial = Files.size(outputFileTmp);
+    assertTrue(partial > 0L && partial < data.length);
+
+    final var second =
+      JDownloadRequests.builder(
+          this.client,
+          this.server.uri("/file"),
+          outputFile,
+          outputFileTmp
+        )
+        .setChecksumStatically("SHA-256", sha256(data))
+        .setResumePartialDownloads(true)
+        .setSegmentedDownloads(4, 1000L)
+        .build()
+        .execute();
+
+    assertInstanceOf(JDownloadSucceeded.class, second);
+    assertArrayEquals(data, Files.readAllBytes(outputFile));
+
+    final var requests = this.server.requests();
+    assertEquals(2, requests.size());
+    assertEquals(
+      "bytes=%d-".formatted(Long.valueOf(partial)),
+      requests.get(1).headers().get("range")
+    );
+  }
+
+  /**
+   * Segmented downloads are verified.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testSegmentedChecksumMismatch(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(100_000);
+    this.server.addFile("/file", data, "\"v1\"");
+
+    final var outputFile =
+      directory.resolve("out.bin");
+    final var outputFileTmp =
+      directory.resolve("out.bin.tmp");
+
+    final var result =
+      JDownloadRequests.builder(
+          this.client,
+          this.server.uri("/file"),
+          outputFile,
+          outputFileTmp
+        )
+        .setChecksumStatically("SHA-256", sha256(new byte[1]))
+        .setSegmentedDownloads(4, 1000L)
+        .build()
+        .execute();
+
+    assertInstanceOf(JDownloadErrorChecksumMismatch.class, result);
+    assertFalse(Files.exists(outputFile));
+  }
+
+  /**
+   * Files are downloaded as a single stream if the server does not
+   * support ranges.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testSegmentedUnsupported(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(100_000);
+    this.server.addFile("/file", data, "\"v1\"")
+      .setRangesSupported(false);
+
+    final var outputFile =
+      directory.resolve("out.bin");
+    final var outputFileTmp =
+      directory.resolve("out.bin.tmp");
+
+    final var result =
+      JDownloadRequests.builder(
+          this.client,
+          this.server.uri("/file"),
+          outputFile,
+          outputFileTmp
+        )
+        .setChecksumStatically("SHA-256", sha256(data))
+        .setSegmentedDownloads(4, 1000L)
+        .build()
+        .execute();
+
+    assertInstanceOf(JDownloadSucceeded.class, result);
+    assertArrayEquals(data, Files.readAllBytes(outputFile));
+
+    final var requests = this.server.requests();
+    assertEquals(2, requests.size());
+    assertFalse(requests.get(1).headers().containsKey("range"));
+  }
+
+  /**
+   * Files that are too small are not divided.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testSegmentedTooSmall(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(1_000);
+    this.server.addFile("/file", data, "\"v1\"");
+
+    final var outputFile =
+      directory.resolve("out.bin");
+
+    final var result =
+      JDownloadRequests.builder(
+          this.client,
+          this.server.uri("/file"),
+          outputFile
+        )
+        .setSegmentedDownloads(4, 1000L)
+        .build()
+        .execute();
+
+    assertInstanceOf(JDownloadSucceeded.class, result);
+    assertArrayEquals(data, Files.readAllBytes(outputFile));
+
+    final var requests = this.server.requests();
+    assertEquals(2, requests.size());
+    assertFalse(requests.get(1).headers().containsKey("range"));
+  }
+
+  /**
+   * Invalid segment counts are rejected.
+   */
+
+  @Test
+  public void testSegmentedInvalid()
+  {
+    final var builder =
+      JDownloadRequests.builder(
+        this.client,
+        this.server.uri("/file"),
+        Path.of("out.bin")
+      );
+
+    assertThrows(IllegalArgumentException.class, () -> {
+      builder.setSegmentedDownloads(0, 1000L);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      builder.setSegmentedDownloads(4, 0L);
+    });
+  }
+}
@@ -0,0 +1,417 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.tests;
+
+import com.io7m.jdownload.core.JChecksumManifestIndexes;
+import com.io7m.jdownload.core.JDownloadErrorChecksumMismatch;
+import com.io7m.jdownload.core.JDownloadErrorHTTP;
+import com.io7m.jdownload.core.JDownloadErrorIO;
+import com.io7m.jdownload.core.JDownloadErrorSizeLimitExceeded;
+import com.io7m.jdownload.core.JDownloadStreamRequests;
+import com.io7m.jdownload.core.JDownloadStreamSinks;
+import com.io7m.jdownload.core.JDownloadStreamSucceeded;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static com.io7m.jdownload.tests.JDownloadResumeTest.data;
+import static com.io7m.jdownload.tests.JDownloadResumeTest.sha256;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class JDownloadStreamTest
+{
+  private JDownloadTestServer server;
+  private HttpClient client;
+
+  @BeforeEach
+  public void setup()
+    throws IOException
+  {
+    this.server = JDownloadTestServer.create();
+    this.client = HttpClient.newHttpClient();
+  }
+
+  @AfterEach
+  public void tearDown()
+  {
+    this.server.close();
+  }
+
+  /**
+   * A subscriber that collects data, requesting one buffer at a time.
+   */
+
+  private static final class Collector
+    implements Flow.Subscriber<ByteBuffer>
+  {
+    private final ByteArrayOutputStream data;
+    private final CompletableFuture<byte[]> done;
+    private final int cancelAfter;
+    private Flow.Subscription subscription;
+    private int received;
+
+    Collector(
+      final int inCancelAfter)
+    {
+      this.data = new ByteArrayOutputStream();
+      this.done = new CompletableFuture<>();
+      this.cancelAfter = inCancelAfter;
+    }
+
+    @Override
+    public void onSubscribe(
+      final Flow.Subscription inSubscription)
+    {
+      this.subscription = inSubscription;
+      this.subscription.request(1L);
+    }
+
+    @Override
+    public void onNext(
+      final ByteBuffer item)
+    {
+      final var bytes = new byte[item.remaining()];
+      item.get(bytes);
+      this.data.writeBytes(bytes);
+
+      ++this.received;
+      if (this.received == this.cancelAfter) {
+        this.subscription.cancel();
+        return;
+      }
+      this.subscription.request(1L);
+    }
+
+    @Override
+    public void onError(
+      final Throwable throwable)
+    {
+      this.done.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete()
+    {
+      this.done.complete(this.data.toByteArray());
+    }
+  }
+
+  /**
+   * Data is streamed into an output stream and verified.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testOutputStream()
+    throws Exception
+  {
+    final var data = data(300_000);
+    this.server.addFile("/file", data, "\"v1\"");
+
+    final var output = new ByteArrayOutputStream();
+    final var result =
+      JDownloadStreamRequests.builder(this.client, this.server.uri("/file"))
+        .setChecksumStatically("SHA-256", sha256(data))
+        .addDigest("SHA-1")
+        .build()
+        .execute(JDownloadStreamSinks.ofOutputStream(output));
+
+    final var succeeded =
+      assertInstanceOf(JDownloadStreamSucceeded.class, result);
+    assertEquals(300_000L, succeeded.octets());
+    assertEquals(
+      HexFormat.of().formatHex(sha256(data)),
+      succeeded.digests().get("SHA-256")
+    );
+    assertEquals(2, succeeded.digests().size());
+    assertArrayEquals(data, output.toByteArray());
+    assertEquals(1, this.server.requests().size());
+  }
+
+  /**
+   * A checksum mismatch is reported after the data has been streamed.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testOutputStreamMismatch()
+    throws Exception
+  {
+    final var data = data(100_000);
+    this.server.addFile("/file", data, "\"v1\"");
+
+    final var output = new ByteArrayOutputStream();
+    final var result =
+      JDownloadStreamRequests.builder(this.client, this.server.uri("/file"))
+        .setChecksumStatically("SHA-256", sha256(data(10)))
+        .build()
+        .execute(JDownloadStreamSinks.ofOutputStream(output));
+
+    final var error =
+      assertInstanceOf(JDownloadErrorChecksumMismatch.class, result);
+    assertEquals("SHA-256", error.algorithm());
+    assertArrayEquals(data, output.toByteArray());
+  }
+
+  /**
+   * A subscriber receives the data and is completed after verification
+   * against a checksum fetched from a URL.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testSubscriber()
+    throws Exception
+  {
+    final var data = data(300_000);
+    final var hash = HexFormat.of().formatHex(sha256(data));
+    this.server.addFile("/file", data, "\"v1\"");
+    this.server.addFile(
+      "/file.sha256", (hash + "\n").getBytes(StandardCharsets.UTF_8), "\"s1\"");
+
+    final var collector = new Collector(-1);
+    final var result =
+      JDownloadStreamRequests.builder(this.client, this.server.uri("/file"))
+        .setChecksumFromURL(this.server.uri("/file.sha256"), "SHA-256")
+        .build()
+        .execute(JDownloadStreamSinks.ofSubscriber(collector));
+
+    assertInstanceOf(JDownloadStreamSucceeded.class, result);
+    assertArrayEquals(data, collector.done.get(10L, TimeUnit.SECONDS));
+  }
+
+  /**
+   * A subscriber receives an error if the checksum does not match.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testSubscriberMismatch()
+    throws Exception
+  {
+    final var data = data(100_000);
+    this.server.addFile("/file", data, "\"v1\"");
+
+    final var collector = new Collector(-1);
+    final var result =
+      JDownloadStreamRequests.builder(this.client, this.server.uri("/file"))
+        .setChecksumStatically("SHA-256", sha256(data(10)))
+        .build()
+        .execute(JDownloadStreamSinks.ofSubscriber(collector));
+
+    assertInstanceOf(JDownloadErrorChecksumMismatch.class, result);
+    final var ex = assertThrows(ExecutionException.class, () -> {
+      collector.done.get(10L, TimeUnit.SECONDS);
+    });
+    assertInstanceOf(IOException.class, ex.getCause());
+  }
+
+  /**
+   * A subscriber receives an error if the server returns an error.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testSubscriberHTTPError()
+    throws Exception
+  {
+    final var collector = new Collector(-1);
+    final var result =
+      JDownloadStreamRequests.builder(this.client, this.server.uri("/missing"))
+        .build()
+        .execute(JDownloadStreamSinks.ofSubscriber(collector));
+
+    final var error = assertInstanceOf(JDownloadErrorHTTP.class, result);
+    assertEquals(404, error.status());
+    assertThrows(ExecutionException.class, () -> {
+      collector.done.get(10L, TimeUnit.SECONDS);
+    });
+  }
+
+  /**
+   * A subscriber that cancels its subscription fails the download.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testSubscriberCancels()
+    throws Exception
+  {
+    final var data = data(1_000_000);
+    this.server.addFile("/file", data, "\"v1\"");
+
+    final var collector = new Collector(1);
+    final var result =
+      JDownloadStreamRequests.builder(this.client, this.server.uri("/file"))
+        .setChecksumStatically("SHA-256", sha256(data))
+        .build()
+        .executeAsync(JDownloadStreamSinks.ofSubscriber(collector))
+        .get(10L, TimeUnit.SECONDS);
+
+    assertInstanceOf(JDownloadErrorIO.class, result);
+  }
+
+  /**
+   * Data is collected in memory and returned on the result.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testMemory()
+    throws Exception
+  {
+    final var data = data(5_000);
+    final var hash = HexFormat.of().formatHex(sha256(data));
+    this.server.addFile("/file", data, "\"v1\"");
+    this.server.addFile(
+      "/file.sha256", hash.getBytes(StandardCharsets.UTF_8), "\"s1\"");
+
+    final var request =
+      JDownloadStreamRequests.builder(this.client, this.server.uri("/file"))
+        .setChecksumFromURL(this.server.uri("/file.sha256"), "SHA-256")
+        .build();
+
+    final var sink = JDownloadStreamSinks.ofMemory(5_000L);
+    for (int index = 0; index < 2; ++index) {
+      final var succeeded =
+        assertInstanceOf(JDownloadStreamSucceeded.class, request.execute(sink));
+
+      final var buffer = succeeded.data().orElseThrow();
+      assertTrue(buffer.isReadOnly());
+      assertEquals(5_000, buffer.remaining());
+
+      final var received = new byte[buffer.remaining()];
+      buffer.get(received);
+      assertArrayEquals(data, received);
+    }
+  }
+
+  /**
+   * A cached manifest that does not contain an entry is downloaded again,
+   * exactly as for file downloads.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testMemoryManifestStale()
+    throws Exception
+  {
+    final var dataA = data(5_000);
+    final var dataB = data(6_000);
+    this.server.addFile("/a.bin", dataA, "\"a\"");
+    this.server.addFile("/b.bin", dataB, "\"b\"");
+
+    final var hex = HexFormat.of();
+    final var manifestOld =
+      "%s  a.bin\n".formatted(hex.formatHex(sha256(dataA)));
+    final var manifestNew =
+      manifestOld + "%s  b.bin\n".formatted(hex.formatHex(sha256(dataB)));
+    final var sums =
+      this.server.addFile(
+        "/SUMS", manifestOld.getBytes(StandardCharsets.UTF_8), "\"m1\"");
+
+    final var index = JChecksumManifestIndexes.create();
+    for (final var name : new String[]{"a.bin", "b.bin"}) {
+      final var result =
+        JDownloadStreamRequests.builder(
+            this.client,
+            this.server.uri("/" + name)
+          )
+          .setChecksumFromManifest(
+            this.server.uri("/SUMS"), "SHA-256", name, index)
+          .build()
+          .execute(JDownloadStreamSinks.ofMemory(10_000L));
+
+      assertInstanceOf(JDownloadStreamSucceeded.class, result);
+      sums.setData(manifestNew.getBytes(StandardCharsets.UTF_8), "\"m2\"");
+    }
+
+    final var manifestRequests =
+      this.server.requests()
+        .stream()
+        .filter(r -> r.path().equals("/SUMS"))
+        .count();
+
+    assertEquals(2L, manifestRequests);
+    assertEquals(1, index.size());
+  }
+
+  /**
+   * Data larger than the size limit of a memory sink is rejected.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testMemoryLimitExceeded()
+    throws Exception
+  {
+    final var data = data(100_000);
+    this.server.addFile("/file", data, "\"v1\"");
+
+    final var result =
+      JDownloadStreamRequests.builder(this.client, this.server.uri("/file"))
+        .setChecksumStatically("SHA-256", sha256(data))
+        .build()
+        .execute(JDownloadStreamSinks.ofMemory(99_999L));
+
+    final var error =
+      assertInstanceOf(JDownloadErrorSizeLimitExceeded.class, result);
+    assertEquals(99_999L, error.sizeLimit());
+    assertEquals(Optional.empty(), error.outputFile());
+  }
+
+  /**
+   * Invalid size limits are rejected.
+   */
+
+  @Test
+  public void testMemoryLimitInvalid()
+  {
+    assertThrows(IllegalArgumentException.class, () -> {
+      JDownloadStreamSinks.ofMemory(-1L);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      JDownloadStreamSinks.ofMemory(Long.MAX_VALUE);
+    });
+  }
+}
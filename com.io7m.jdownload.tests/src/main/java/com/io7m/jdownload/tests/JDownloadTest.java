@@ -21,6 +21,7 @@ import com.io7m.jdownload.core.JDownloadErrorChecksumMismatch;
 import com.io7m.jdownload.core.JDownloadErrorHTTP;
 import com.io7m.jdownload.core.JDownloadErrorIO;
 import com.io7m.jdownload.core.JDownloadRequests;
+import com.io7m.jdownload.core.JDownloadResultType;
 import com.io7m.jdownload.core.JDownloadSucceeded;
 import com.io7m.quixote.core.QWebServerType;
 import com.io7m.quixote.core.QWebServers;
@@ -40,6 +41,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -559,6 +563,64 @@ public final class JDownloadTest
     assertFalse(Files.exists(outputFileTmp));
   }
 
+  /**
+   * URI checksums succeed if the checksum file ends with a newline, as
+   * files written by tools such as sha256sum do.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testDownloadChecksumURIOK2(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    this.server.addResponse()
+      .withStatus(200)
+      .withFixedText("Hello.")
+      .forPath("/");
+
+    this.server.addResponse()
+      .withStatus(200)
+      .withFixedText("2d8bd7d9bb5f85ba643f0110d50cb506a1fe439e769a22503193ea6046bb87f7\n")
+      .forPath("/checksum");
+
+    final var outputFile =
+      directory.resolve("out.txt");
+    final var outputFileTmp =
+      directory.resolve("out.txt.tmp");
+    final var ckFile =
+      directory.resolve("ck.txt");
+
+    final var result =
+      JDownloadRequests.builder(
+          this.client,
+          this.server.uri(),
+          outputFile,
+          outputFileTmp
+        )
+        .setChecksumFromURL(
+          this.server.uri()
+            .resolve("/checksum"),
+          "SHA-256",
+          ckFile,
+          this::saveStats
+        )
+        .build()
+        .execute();
+
+    final var rt =
+      assertInstanceOf(JDownloadSucceeded.class, result);
+
+    assertEquals(Optional.of(ckFile), rt.checksumFile());
+    assertEquals(
+      "Hello.",
+      Files.readString(outputFile)
+    );
+  }
+
   /**
    * URI checksums fail if they can't be retrieved.
    *
@@ -719,11 +781,21 @@ public final class JDownloadTest
     final var rt =
       assertInstanceOf(JDownloadSucceeded.class, result);
 
-    final var r =
-      this.server.requestsReceived()
-        .get(1);
+    /*
+     * The checksum request is sent concurrently with the main request, so
+     * the order in which the server receives them is unspecified.
+     */
 
-    assertEquals("HELLO!", r.headers().get("x-example"));
+    final var requests =
+      this.server.requestsReceived();
+
+    assertEquals(2, requests.size());
+    assertEquals(
+      1L,
+      requests.stream()
+        .filter(r -> "HELLO!".equals(r.headers().get("x-example")))
+        .count()
+    );
   }
 
   /**
@@ -754,6 +826,100 @@ public final class JDownloadTest
     assertEquals(outputFile, request.outputFileTemporary());
   }
 
+  /**
+   * Asynchronous downloads succeed.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testDownloadAsync200(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    this.server.addResponse()
+      .withStatus(200)
+      .withFixedText("Hello.")
+      .forPath("/");
+
+    final var futures =
+      new ArrayList<CompletableFuture<JDownloadResultType>>();
+
+    for (int index = 0; index < 10; ++index) {
+      final var outputFile =
+        directory.resolve("out%d.txt".formatted(index));
+      final var outputFileTmp =
+        directory.resolve("out%d.txt.tmp".formatted(index));
+
+      futures.add(
+        JDownloadRequests.builder(
+            this.client,
+            this.server.uri(),
+            outputFile,
+            outputFileTmp
+          )
+          .setChecksumStatically(
+            "SHA-256",
+            HexFormat.of()
+              .parseHex("2d8bd7d9bb5f85ba643f0110d50cb506a1fe439e769a22503193ea6046bb87f7")
+          )
+          .build()
+          .executeAsync()
+      );
+    }
+
+    for (final var future : futures) {
+      final var rt =
+        assertInstanceOf(
+          JDownloadSucceeded.class,
+          future.get(10L, TimeUnit.SECONDS)
+        );
+
+      assertEquals("Hello.", Files.readString(rt.outputFile()));
+    }
+  }
+
+  /**
+   * Asynchronous downloads report HTTP errors as results.
+   *
+   * @param directory The output directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testDownloadAsync400(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    this.server.addResponse()
+      .withStatus(400)
+      .forPath("/");
+
+    final var outputFile =
+      directory.resolve("out.txt");
+    final var outputFileTmp =
+      directory.resolve("out.txt.tmp");
+
+    final var result =
+      JDownloadRequests.builder(
+          this.client,
+          this.server.uri(),
+          outputFile,
+          outputFileTmp
+        ).build()
+        .executeAsync()
+        .get(10L, TimeUnit.SECONDS);
+
+    final var rt =
+      assertInstanceOf(JDownloadErrorHTTP.class, result);
+    assertEquals(400, rt.status());
+    assertFalse(Files.exists(outputFile));
+    assertFalse(Files.exists(outputFileTmp));
+  }
+
   private void saveStats(
     final STTransferStatistics stats)
   {
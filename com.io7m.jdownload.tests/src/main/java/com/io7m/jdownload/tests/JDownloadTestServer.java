@@ -0,0 +1,389 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.tests;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * A small HTTP server that serves files with validators and supports
+ * byte range requests. Quixote does not support these features, so tests
+ * that depend on them use this server instead.
+ */
+
+public final class JDownloadTestServer implements AutoCloseable
+{
+  private static final Pattern RANGE =
+    Pattern.compile("bytes=([0-9]+)-([0-9]*)");
+
+  private final HttpServer server;
+  private final Map<String, File> files;
+  private final List<Request> requests;
+
+  private JDownloadTestServer(
+    final HttpServer inServer)
+  {
+    this.server =
+      Objects.requireNonNull(inServer, "server");
+    this.files =
+      new ConcurrentHashMap<>();
+    this.requests =
+      new CopyOnWriteArrayList<>();
+  }
+
+  /**
+   * A received request.
+   *
+   * @param method  The method
+   * @param path    The path
+   * @param headers The headers, with lowercase names
+   */
+
+  public record Request(
+    String method,
+    String path,
+    Map<String, String> headers)
+  {
+
+  }
+
+  /**
+   * A file served by the server.
+   */
+
+  public static final class File
+  {
+    private volatile byte[] data;
+    private volatile String entityTag;
+    private volatile String lastModified;
+    private volatile boolean rangesSupported;
+    private final AtomicInteger truncateRemaining;
+    private volatile int truncateAt;
+    private volatile CountDownLatch gate;
+    private final AtomicInteger failRemaining;
+    private volatile int failStatus;
+    private volatile String failRetryAfter;
+
+    private File(
+      final byte[] inData,
+      final String inEntityTag)
+    {
+      this.data = inData;
+      this.entityTag = inEntityTag;
+      this.lastModified = "Thu, 01 Jan 2026 00:00:00 GMT";
+      this.rangesSupported = true;
+      this.truncateRemaining = new AtomicInteger();
+      this.gate = new CountDownLatch(0);
+      this.failRemaining = new AtomicInteger();
+    }
+
+    /**
+     * Make the next {@code count} responses fail with the given status.
+     *
+     * @param status     The HTTP status
+     * @param count      The number of responses
+     * @param retryAfter The value of the {@code Retry-After} header, if any
+     *
+     * @return this
+     */
+
+    public File setFailures(
+      final int status,
+      final int count,
+      final String retryAfter)
+    {
+      this.failStatus = status;
+      this.failRetryAfter = retryAfter;
+      this.failRemaining.set(count);
+      return this;
+    }
+
+    /**
+     * Make responses wait until the given latch is released.
+     *
+     * @param latch The latch
+     *
+     * @return this
+     */
+
+    public File setGate(
+      final CountDownLatch latch)
+    {
+      this.gate = Objects.requireNonNull(latch, "latch");
+      return this;
+    }
+
+    /**
+     * Replace the file contents.
+     *
+     * @param newData      The data
+     * @param newEntityTag The entity tag
+     *
+     * @return this
+     */
+
+    public File setData(
+      final byte[] newData,
+      final String newEntityTag)
+    {
+      this.data = newData;
+      this.entityTag = newEntityTag;
+      this.lastModified = "Fri, 02 Jan 2026 00:00:00 GMT";
+      return this;
+    }
+
+    /**
+     * Enable or disable range support.
+     *
+     * @param supported {@code true} if ranges are supported
+     *
+     * @return this
+     */
+
+    public File setRangesSupported(
+      final boolean supported)
+    {
+      this.rangesSupported = supported;
+      return this;
+    }
+
+    /**
+     * Make the next {@code count} responses stop after {@code octets}
+     * octets of the body have been sent, closing the connection.
+     *
+     * @param octets The number of octets to send
+     * @param count  The number of responses
+     *
+     * @return this
+     */
+
+    public File setTruncated(
+      final int octets,
+      final int count)
+    {
+      this.truncateAt = octets;
+      this.truncateRemaining.set(count);
+      return this;
+    }
+  }
+
+  /**
+   * Create a server on an ephemeral port.
+   *
+   * @return The server
+   *
+   * @throws IOException On errors
+   */
+
+  public static JDownloadTestServer create()
+    throws IOException
+  {
+    final var http =
+      HttpServer.create(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+        0
+      );
+
+    final var server = new JDownloadTestServer(http);
+    http.setExecutor(Executors.newCachedThreadPool());
+    http.createContext("/", server::handle);
+    http.start();
+    return server;
+  }
+
+  /**
+   * Serve a file at the given path.
+   *
+   * @param path      The path
+   * @param data      The data
+   * @param entityTag The entity tag
+   *
+   * @return The file
+   */
+
+  public File addFile(
+    final String path,
+    final byte[] data,
+    final String entityTag)
+  {
+    final var file = new File(data, entityTag);
+    this.files.put(path, file);
+    return file;
+  }
+
+  /**
+   * @param path The path
+   *
+   * @return The URI of the given path
+   */
+
+  public URI uri(
+    final String path)
+  {
+    final var address = this.server.getAddress();
+    return URI.create(
+      "http://%s:%d%s".formatted(
+        address.getHostString(),
+        Integer.valueOf(address.getPort()),
+        path
+      )
+    );
+  }
+
+  /**
+   * @return The requests received so far
+   */
+
+  public List<Request> requests()
+  {
+    return Collections.unmodifiableList(this.requests);
+  }
+
+  @Override
+  public void close()
+  {
+    this.server.stop(0);
+  }
+
+  private void handle(
+    final HttpExchange exchange)
+    throws IOException
+  {
+    try (exchange) {
+      final var path = exchange.getRequestURI().getPath();
+      final var method = exchange.getRequestMethod();
+      final var headers = new HashMap<String, String>();
+      for (final var entry : exchange.getRequestHeaders().entrySet()) {
+        headers.put(
+          entry.getKey().toLowerCase(Locale.ROOT),
+          entry.getValue().get(0)
+        );
+      }
+      this.requests.add(new Request(method, path, Map.copyOf(headers)));
+
+      final var file = this.files.get(path);
+      if (file == null) {
+        exchange.sendResponseHeaders(404, -1L);
+        return;
+      }
+
+      try {
+        file.gate.await();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+
+      if (file.failRemaining.getAndUpdate(x -> Math.max(0, x - 1)) > 0) {
+        if (file.failRetryAfter != null) {
+          exchange.getResponseHeaders()
+            .set("Retry-After", file.failRetryAfter);
+        }
+        exchange.sendResponseHeaders(file.failStatus, -1L);
+        return;
+      }
+
+      final var data = file.data;
+      final var responseHeaders = exchange.getResponseHeaders();
+      responseHeaders.set("ETag", file.entityTag);
+      responseHeaders.set("Last-Modified", file.lastModified);
+      if (file.rangesSupported) {
+        responseHeaders.set("Accept-Ranges", "bytes");
+      }
+
+      final var ifNoneMatch = headers.get("if-none-match");
+      final var ifModifiedSince = headers.get("if-modified-since");
+      final var notModified =
+        ifNoneMatch != null
+          ? ifNoneMatch.equals(file.entityTag)
+          : file.lastModified.equals(ifModifiedSince);
+
+      if (notModified) {
+        exchange.sendResponseHeaders(304, -1L);
+        return;
+      }
+
+      var start = 0;
+      var end = data.length - 1;
+      var status = 200;
+
+      final var range = headers.get("range");
+      if (range != null && file.rangesSupported) {
+        final var ifRange = headers.get("if-range");
+        final var validatorMatches =
+          ifRange == null
+            || ifRange.equals(file.entityTag)
+            || ifRange.equals(file.lastModified);
+
+        final var matcher = RANGE.matcher(range);
+        if (validatorMatches && matcher.matches()) {
+          start = Integer.parseInt(matcher.group(1));
+          if (!matcher.group(2).isEmpty()) {
+            end = Math.min(end, Integer.parseInt(matcher.group(2)));
+          }
+          if (start >= data.length) {
+            responseHeaders.set(
+              "Content-Range", "bytes */%d".formatted(data.length));
+            exchange.sendResponseHeaders(416, -1L);
+            return;
+          }
+          status = 206;
+          responseHeaders.set(
+            "Content-Range",
+            "bytes %d-%d/%d".formatted(start, end, data.length)
+          );
+        }
+      }
+
+      final var length = end - start + 1;
+      if ("HEAD".equals(method)) {
+        responseHeaders.set("Content-Length", Integer.toString(length));
+        exchange.sendResponseHeaders(status, -1L);
+        return;
+      }
+
+      exchange.sendResponseHeaders(status, length == 0 ? -1L : length);
+
+      var send = length;
+      if (file.truncateRemaining.getAndUpdate(x -> Math.max(0, x - 1)) > 0) {
+        send = Math.min(send, file.truncateAt);
+      }
+
+      final var output = exchange.getResponseBody();
+      output.write(data, start, send);
+      output.flush();
+    }
+  }
+}
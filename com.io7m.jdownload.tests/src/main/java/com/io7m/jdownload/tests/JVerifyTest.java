@@ -0,0 +1,177 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jdownload.tests;
+
+import com.io7m.jdownload.core.JVerifierConfiguration;
+import com.io7m.jdownload.core.JVerifiers;
+import com.io7m.jdownload.core.JVerifyErrorChecksumMismatch;
+import com.io7m.jdownload.core.JVerifyErrorIO;
+import com.io7m.jdownload.core.JVerifyRequest;
+import com.io7m.jdownload.core.JVerifySucceeded;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.io7m.jdownload.tests.JDownloadResumeTest.data;
+import static com.io7m.jdownload.tests.JDownloadResumeTest.sha256;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class JVerifyTest
+{
+  /**
+   * Files of various sizes, including files large enough to be mapped,
+   * are verified and the results are returned in request order.
+   *
+   * @param directory The directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testVerifyMany(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var sizes = new int[] {0, 1, 65537, 3_000_017, 67_108_865};
+    final var requests = new ArrayList<JVerifyRequest>();
+    final var hashes = new ArrayList<byte[]>();
+
+    for (int index = 0; index < 10; ++index) {
+      final var data = data(sizes[index % sizes.length]);
+      final var file = directory.resolve("file%d.bin".formatted(index));
+      Files.write(file, data);
+      final var hash = sha256(data);
+      hashes.add(hash);
+      requests.add(new JVerifyRequest(file, "SHA-256", hash));
+    }
+
+    final var results = JVerifiers.create().verify(requests);
+    assertEquals(requests.size(), results.size());
+
+    for (int index = 0; index < results.size(); ++index) {
+      final var result =
+        assertInstanceOf(JVerifySucceeded.class, results.get(index));
+      assertEquals(requests.get(index).file(), result.file());
+      assertEquals(
+        HexFormat.of().formatHex(hashes.get(index)),
+        result.hash()
+      );
+    }
+  }
+
+  /**
+   * Mismatched and missing files are reported individually.
+   *
+   * @param directory The directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testVerifyFailures(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(2_000_000);
+    final var good = directory.resolve("good.bin");
+    final var bad = directory.resolve("bad.bin");
+    final var missing = directory.resolve("missing.bin");
+    Files.write(good, data);
+    Files.write(bad, data);
+
+    final var hash = sha256(data);
+    final var wrong = sha256(new byte[1]);
+
+    final var results =
+      JVerifiers.create(new ForkJoinPool(2))
+        .verify(List.of(
+          new JVerifyRequest(good, "SHA-256", hash),
+          new JVerifyRequest(bad, "SHA-256", wrong),
+          new JVerifyRequest(missing, "SHA-256", hash)
+        ));
+
+    assertInstanceOf(JVerifySucceeded.class, results.get(0));
+
+    final var mismatch =
+      assertInstanceOf(JVerifyErrorChecksumMismatch.class, results.get(1));
+    assertEquals(bad, mismatch.file());
+    assertEquals(HexFormat.of().formatHex(wrong), mismatch.hashExpected());
+    assertEquals(HexFormat.of().formatHex(hash), mismatch.hashReceived());
+
+    final var io =
+      assertInstanceOf(JVerifyErrorIO.class, results.get(2));
+    assertEquals(missing, io.file());
+  }
+
+  /**
+   * Files are verified through buffers of any size when large files are
+   * not mapped.
+   *
+   * @param directory The directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testVerifyBuffered(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var data = data(3_000_017);
+    final var file = directory.resolve("file.bin");
+    Files.write(file, data);
+
+    final var hash = sha256(data);
+    for (final var size : new int[] {4093, 65536, 1_048_576}) {
+      final var results =
+        JVerifiers.create(
+          ForkJoinPool.commonPool(),
+          new JVerifierConfiguration(size, false)
+        ).verify(List.of(new JVerifyRequest(file, "SHA-256", hash)));
+
+      final var result =
+        assertInstanceOf(JVerifySucceeded.class, results.get(0));
+      assertEquals(HexFormat.of().formatHex(hash), result.hash());
+    }
+
+    assertThrows(IllegalArgumentException.class, () -> {
+      new JVerifierConfiguration(0, false);
+    });
+  }
+
+  /**
+   * Verifying nothing yields nothing.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testVerifyEmpty()
+    throws Exception
+  {
+    assertEquals(List.of(), JVerifiers.create().verify(List.of()));
+  }
+}